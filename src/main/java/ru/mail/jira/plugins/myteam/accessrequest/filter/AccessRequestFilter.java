@@ -4,11 +4,14 @@ package ru.mail.jira.plugins.myteam.accessrequest.filter;
 import com.atlassian.jira.issue.Issue;
 import com.atlassian.jira.issue.IssueManager;
 import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.project.ProjectManager;
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.security.PermissionManager;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import java.io.IOException;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -25,7 +28,10 @@ import ru.mail.jira.plugins.myteam.accessrequest.service.AccessRequestService;
 
 @Component
 public class AccessRequestFilter implements Filter {
+  private static final Pattern ISSUE_KEY_PATTERN = Pattern.compile("[A-Za-z][A-Za-z0-9_]*-\\d+");
+
   private final IssueManager issueManager;
+  private final ProjectManager projectManager;
   private final JiraAuthenticationContext jiraAuthenticationContext;
   private final PermissionManager permissionManager;
   private final AccessRequestService accessRequestService;
@@ -33,10 +39,12 @@ public class AccessRequestFilter implements Filter {
   @Autowired
   public AccessRequestFilter(
       @ComponentImport IssueManager issueManager,
+      @ComponentImport ProjectManager projectManager,
       @ComponentImport JiraAuthenticationContext jiraAuthenticationContext,
       @ComponentImport PermissionManager permissionManager,
       AccessRequestService accessRequestService) {
     this.issueManager = issueManager;
+    this.projectManager = projectManager;
     this.jiraAuthenticationContext = jiraAuthenticationContext;
     this.permissionManager = permissionManager;
     this.accessRequestService = accessRequestService;
@@ -63,7 +71,22 @@ public class AccessRequestFilter implements Filter {
         return;
       }
 
-      Issue issue = parseIssueFromLink(request.getRequestURI());
+      String issueKey = parseIssueKeyFromLink(request.getRequestURI());
+      if (issueKey == null) {
+        chain.doFilter(servletRequest, servletResponse);
+        return;
+      }
+
+      // most projects have no configuration, so their issues are not loaded at all
+      Project project =
+          projectManager.getProjectByCurrentKeyIgnoreCase(
+              StringUtils.substringBeforeLast(issueKey, "-"));
+      if (project != null && !accessRequestService.hasAccessRequestConfiguration(project.getId())) {
+        chain.doFilter(servletRequest, servletResponse);
+        return;
+      }
+
+      Issue issue = issueManager.getIssueByCurrentKey(issueKey);
       if (issue == null) {
         chain.doFilter(servletRequest, servletResponse);
         return;
@@ -75,8 +98,8 @@ public class AccessRequestFilter implements Filter {
         return;
       }
 
-      if (issue.getProjectObject() != null
-          && accessRequestService.getAccessRequestConfiguration(issue.getProjectObject()) != null) {
+      if (issue.getProjectId() != null
+          && accessRequestService.hasAccessRequestConfiguration(issue.getProjectId())) {
         response.sendRedirect(
             request.getContextPath() + "/secure/AccessRequest.jspa?issueKey=" + issue.getKey());
         return;
@@ -86,14 +109,13 @@ public class AccessRequestFilter implements Filter {
   }
 
   @Nullable
-  private Issue parseIssueFromLink(String link) {
-    String issueKey = null;
+  private static String parseIssueKeyFromLink(String link) {
     if (link.contains("/browse/")) {
       String parsedKey = StringUtils.substringAfter(link, "/browse/");
-      if (parsedKey.length() != 0 && parsedKey.contains("-")) {
-        issueKey = parsedKey;
+      if (ISSUE_KEY_PATTERN.matcher(parsedKey).matches()) {
+        return parsedKey;
       }
     }
-    return issueManager.getIssueByCurrentKey(issueKey);
+    return null;
   }
 }
@@ -1,6 +1,9 @@
 /* (C)2022 */
 package ru.mail.jira.plugins.myteam.accessrequest.service;
 
+import com.atlassian.cache.Cache;
+import com.atlassian.cache.CacheManager;
+import com.atlassian.cache.CacheSettingsBuilder;
 import com.atlassian.jira.config.LocaleManager;
 import com.atlassian.jira.config.properties.APKeys;
 import com.atlassian.jira.config.properties.ApplicationProperties;
@@ -26,6 +29,7 @@ import com.atlassian.velocity.VelocityManager;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
@@ -56,6 +60,9 @@ import ru.mail.jira.plugins.myteam.service.UserChatService;
 @SuppressWarnings("NullAway")
 public class AccessRequestService {
   private static final int SEND_ACCESS_REQUEST_NAX_USER_COUNT = 50;
+  private static final String CONFIGURATION_ID_CACHE_NAME =
+      AccessRequestService.class.getName() + ".configurationIdCache";
+  private static final int NO_CONFIGURATION_ID = 0;
 
   private final AccessRequestConfigurationRepository accessRequestConfigurationRepository;
   private final AccessRequestHistoryRepository accessRequestHistoryRepository;
@@ -74,6 +81,8 @@ public class AccessRequestService {
   private final VelocityManager velocityManager;
   private final WatcherManager watcherManager;
   private final JiraAuthenticationContext jiraAuthenticationContext;
+  // id of project configuration or NO_CONFIGURATION_ID, browse filter looks it up on each request
+  private final Cache<Long, Integer> configurationIdCache;
 
   public AccessRequestService(
       AccessRequestConfigurationRepository accessRequestConfigurationRepository,
@@ -92,7 +101,8 @@ public class AccessRequestService {
       @ComponentImport UserManager userManager,
       @ComponentImport VelocityManager velocityManager,
       @ComponentImport WatcherManager watcherManager,
-      @ComponentImport JiraAuthenticationContext jiraAuthenticationContext) {
+      @ComponentImport JiraAuthenticationContext jiraAuthenticationContext,
+      @ComponentImport CacheManager cacheManager) {
     this.accessRequestConfigurationRepository = accessRequestConfigurationRepository;
     this.accessRequestHistoryRepository = accessRequestHistoryRepository;
     this.dtoUtils = dtoUtils;
@@ -110,6 +120,15 @@ public class AccessRequestService {
     this.watcherManager = watcherManager;
     this.userChatService = userChatService;
     this.jiraAuthenticationContext = jiraAuthenticationContext;
+    this.configurationIdCache =
+        cacheManager.getCache(
+            CONFIGURATION_ID_CACHE_NAME,
+            this::loadConfigurationId,
+            new CacheSettingsBuilder()
+                .remote()
+                .replicateViaInvalidation()
+                .expireAfterAccess(8, TimeUnit.HOURS)
+                .build());
   }
 
   @Nullable
@@ -132,8 +151,7 @@ public class AccessRequestService {
       accessRequestDto.setSent(Boolean.TRUE);
 
     } else {
-      AccessRequestConfiguration configuration =
-          accessRequestConfigurationRepository.getAccessRequestConfiguration(project.getId());
+      AccessRequestConfiguration configuration = getConfiguration(project.getId());
       if (configuration == null) return null;
 
       Set<ApplicationUser> participants = new HashSet<>();
@@ -184,8 +202,7 @@ public class AccessRequestService {
       history = accessRequestHistoryRepository.create(accessRequestDto);
     }
     if (issue.getProjectId() != null) {
-      AccessRequestConfiguration configuration =
-          accessRequestConfigurationRepository.getAccessRequestConfiguration(issue.getProjectId());
+      AccessRequestConfiguration configuration = getConfiguration(issue.getProjectId());
       if (configuration != null) {
         int historyId = history.getID();
         ApplicationUser contextUser = jiraAuthenticationContext.getLoggedInUser();
@@ -225,8 +242,7 @@ public class AccessRequestService {
 
   public AccessRequestConfigurationDto getAccessRequestConfigurationDto(long projectId)
       throws NullPointerException {
-    AccessRequestConfiguration accessRequestConfiguration =
-        accessRequestConfigurationRepository.getAccessRequestConfiguration(projectId);
+    AccessRequestConfiguration accessRequestConfiguration = getConfiguration(projectId);
     if (accessRequestConfiguration == null) {
       throw new NullPointerException(
           String.format("AccessRequestConfiguration with projectId %s was not found", projectId));
@@ -239,10 +255,13 @@ public class AccessRequestService {
     return accessRequestHistoryRepository.update(historyId, accessRequestDto);
   }
 
+  public boolean hasAccessRequestConfiguration(long projectId) {
+    return configurationIdCache.get(projectId) != NO_CONFIGURATION_ID;
+  }
+
   @Nullable
   public AccessRequestConfigurationDto getAccessRequestConfiguration(@NotNull Project project) {
-    AccessRequestConfiguration configuration =
-        accessRequestConfigurationRepository.getAccessRequestConfiguration(project.getId());
+    AccessRequestConfiguration configuration = getConfiguration(project.getId());
     if (configuration == null) return null;
 
     return accessRequestConfigurationRepository.entityToDto(configuration);
@@ -255,12 +274,19 @@ public class AccessRequestService {
     } catch (Exception err) {
       System.out.println(err.getMessage());
       return null;
+    } finally {
+      configurationIdCache.removeAll();
     }
   }
 
   public AccessRequestConfiguration updateAccessRequestConfiguration(
       int configurationId, @Valid AccessRequestConfigurationDto configurationDto) {
-    return accessRequestConfigurationRepository.update(configurationId, configurationDto);
+    try {
+      return accessRequestConfigurationRepository.update(configurationId, configurationDto);
+    } finally {
+      // project of configuration could be changed too
+      configurationIdCache.removeAll();
+    }
   }
 
   @NotNull
@@ -272,7 +298,26 @@ public class AccessRequestService {
   }
 
   public void deleteAccessRequestConfiguration(int configurationId) {
-    accessRequestConfigurationRepository.deleteById(configurationId);
+    try {
+      accessRequestConfigurationRepository.deleteById(configurationId);
+    } finally {
+      configurationIdCache.removeAll();
+    }
+  }
+
+  @Nullable
+  private AccessRequestConfiguration getConfiguration(long projectId) {
+    int configurationId = configurationIdCache.get(projectId);
+    if (configurationId == NO_CONFIGURATION_ID) {
+      return null;
+    }
+    return accessRequestConfigurationRepository.findById(configurationId).orElse(null);
+  }
+
+  private Integer loadConfigurationId(Long projectId) {
+    AccessRequestConfiguration configuration =
+        accessRequestConfigurationRepository.getAccessRequestConfiguration(projectId);
+    return configuration != null ? configuration.getID() : NO_CONFIGURATION_ID;
   }
 
   public ApplicationUser getLoggedInUser() {
@@ -10,13 +10,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import ru.mail.jira.plugins.myteam.commons.Const;
 
 /** Service which allow to stop or restart all bots which are running on a cluster */
 @Service
 @Slf4j
 @ExportAsService(LifecycleAware.class)
 public class BotsOrchestrationService implements LifecycleAware {
-  private static final String BOT_LIFECYCLE_CHANNEL = "ru.mail.jira.myteam";
+  private static final String BOT_LIFECYCLE_CHANNEL = Const.CLUSTER_MESSAGE_CHANNEL;
   private static final String BOT_RESTART_MESSAGE = "restart";
   private static final String BOT_STOP_MESSAGE = "stop";
 
@@ -8,20 +8,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.MyteamEventsFetcher;
+import ru.mail.jira.plugins.myteam.service.StateManager;
 
 @Slf4j
 @Component
 public class MyteamBot implements DisposableBean {
   private final MyteamApiClient myteamApiClient;
   private final MyteamEventsFetcher myteamEventsFetcher;
+  private final StateManager stateManager;
   private final ReentrantLock startLock = new ReentrantLock();
 
   private volatile boolean isRespondingBot = false;
 
   @Autowired
-  public MyteamBot(MyteamApiClient myteamApiClient, MyteamEventsFetcher myteamEventsFetcher) {
+  public MyteamBot(
+      MyteamApiClient myteamApiClient,
+      MyteamEventsFetcher myteamEventsFetcher,
+      StateManager stateManager) {
     this.myteamApiClient = myteamApiClient;
     this.myteamEventsFetcher = myteamEventsFetcher;
+    this.stateManager = stateManager;
   }
 
   @Override
@@ -32,6 +38,9 @@ public class MyteamBot implements DisposableBean {
   public void startRespondingBot() {
     if (startLock.tryLock()) {
       try {
+        if (!myteamEventsFetcher.getIsRunning().get()) {
+          stateManager.clearLocalStates();
+        }
         myteamEventsFetcher.start();
         isRespondingBot = true;
       } finally {
@@ -0,0 +1,245 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.listeners;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.SentryClient;
+
+/**
+ * Runs tasks of one chat strictly in submission order, while tasks of different chats run in
+ * parallel. Every chat is bound to one of the lanes by chat id hash, each lane has its own thread
+ * and queue. Submitting to full lane blocks caller until lane has free space. Lanes never wait for
+ * each other, tasks they submit to full lane are queued over its capacity, so two full lanes can't
+ * deadlock and tasks of a chat are never run out of order.
+ */
+@Slf4j
+@Component
+public class ChatOrderedEventDispatcher implements DisposableBean {
+  private static final String LANES_COUNT_PROPERTY = "ru.mail.jira.plugins.myteam.dispatcher.lanes";
+  private static final String LANE_CAPACITY_PROPERTY =
+      "ru.mail.jira.plugins.myteam.dispatcher.laneCapacity";
+  private static final String THREAD_NAME_FORMAT = "vkteam-chat-lane-%d";
+
+  private final List<Lane> lanes;
+  private final LongAdder submittedTasksCount = new LongAdder();
+  private final LongAdder backpressureCount = new LongAdder();
+  private final LongAdder overflowTasksCount = new LongAdder();
+  private final LongAdder rejectedTasksCount = new LongAdder();
+  private final LongAdder completedTasksCount = new LongAdder();
+  private final LongAdder totalLagMillis = new LongAdder();
+  private final AtomicLong maxLagMillis = new AtomicLong();
+
+  public ChatOrderedEventDispatcher() {
+    this(
+        Math.max(1, Integer.getInteger(LANES_COUNT_PROPERTY, 8)),
+        Math.max(1, Integer.getInteger(LANE_CAPACITY_PROPERTY, 1000)));
+  }
+
+  ChatOrderedEventDispatcher(int lanesCount, int laneCapacity) {
+    List<Lane> lanes = new ArrayList<>(lanesCount);
+    for (int i = 0; i < lanesCount; i++) {
+      Lane lane = new Lane(String.format(THREAD_NAME_FORMAT, i), laneCapacity);
+      lane.start();
+      lanes.add(lane);
+    }
+    this.lanes = Collections.unmodifiableList(lanes);
+  }
+
+  public void dispatch(@Nullable String chatId, Runnable task) {
+    Lane lane = getLane(chatId);
+    submittedTasksCount.increment();
+    try {
+      // lane may wait for the current one, so lanes don't wait for free space
+      lane.add(new LaneTask(task, System.currentTimeMillis()), !isLaneThread());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      rejectedTasksCount.increment();
+      log.error(
+          "Interrupted while waiting for lane {}, event from chat {} is rejected",
+          lane.getName(),
+          chatId);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    lanes.forEach(Thread::interrupt);
+    for (Lane lane : lanes) {
+      int notRunTasksCount = lane.clear();
+      if (notRunTasksCount > 0) {
+        log.warn(
+            "{} events of lane {} were not run before shutdown", notRunTasksCount, lane.getName());
+      }
+    }
+  }
+
+  public int getLanesCount() {
+    return lanes.size();
+  }
+
+  public List<Integer> getLaneQueueSizes() {
+    List<Integer> sizes = new ArrayList<>(lanes.size());
+    lanes.forEach(lane -> sizes.add(lane.size()));
+    return sizes;
+  }
+
+  public long getSubmittedTasksCount() {
+    return submittedTasksCount.sum();
+  }
+
+  public long getCompletedTasksCount() {
+    return completedTasksCount.sum();
+  }
+
+  public long getBackpressureCount() {
+    return backpressureCount.sum();
+  }
+
+  public long getOverflowTasksCount() {
+    return overflowTasksCount.sum();
+  }
+
+  public long getRejectedTasksCount() {
+    return rejectedTasksCount.sum();
+  }
+
+  public long getAverageLagMillis() {
+    long completed = completedTasksCount.sum();
+    return completed == 0 ? 0 : totalLagMillis.sum() / completed;
+  }
+
+  public long getMaxLagMillis() {
+    return maxLagMillis.get();
+  }
+
+  private Lane getLane(@Nullable String chatId) {
+    if (chatId == null) {
+      return lanes.get(0);
+    }
+    return lanes.get(Math.floorMod(chatId.hashCode(), lanes.size()));
+  }
+
+  private boolean isLaneThread() {
+    Thread thread = Thread.currentThread();
+    return thread instanceof Lane && lanes.contains(thread);
+  }
+
+  private void runTask(LaneTask laneTask) {
+    long lag = System.currentTimeMillis() - laneTask.submittedAt;
+    totalLagMillis.add(lag);
+    maxLagMillis.accumulateAndGet(lag, Math::max);
+    try {
+      laneTask.task.run();
+    } catch (Exception e) {
+      log.error("Exception occurred during chat event dispatching", e);
+      SentryClient.capture(e);
+    } finally {
+      completedTasksCount.increment();
+    }
+  }
+
+  private class Lane extends Thread {
+    private final int capacity;
+    private final Deque<LaneTask> tasks = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private Lane(String name, int capacity) {
+      super(name);
+      this.capacity = capacity;
+      setDaemon(true);
+    }
+
+    /** Adds task to the end of lane, full lane is waited for or is overflowed */
+    private void add(LaneTask laneTask, boolean waitForSpace) throws InterruptedException {
+      lock.lock();
+      try {
+        if (tasks.size() >= capacity) {
+          backpressureCount.increment();
+          if (waitForSpace) {
+            log.warn("Lane {} is full, waiting to dispatch event", getName());
+            while (tasks.size() >= capacity) {
+              notFull.await();
+            }
+          } else {
+            overflowTasksCount.increment();
+          }
+        }
+        tasks.addLast(laneTask);
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private LaneTask take() throws InterruptedException {
+      lock.lock();
+      try {
+        while (tasks.isEmpty()) {
+          notEmpty.await();
+        }
+        LaneTask laneTask = tasks.removeFirst();
+        if (tasks.size() < capacity) {
+          notFull.signal();
+        }
+        return laneTask;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int size() {
+      lock.lock();
+      try {
+        return tasks.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int clear() {
+      lock.lock();
+      try {
+        int size = tasks.size();
+        tasks.clear();
+        notFull.signalAll();
+        return size;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        try {
+          runTask(take());
+        } catch (InterruptedException e) {
+          interrupt();
+        }
+      }
+    }
+  }
+
+  private static class LaneTask {
+    private final Runnable task;
+    private final long submittedAt;
+
+    private LaneTask(Runnable task, long submittedAt) {
+      this.task = task;
+      this.submittedAt = submittedAt;
+    }
+  }
+}
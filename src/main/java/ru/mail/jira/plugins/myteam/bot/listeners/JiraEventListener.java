@@ -3,8 +3,16 @@ package ru.mail.jira.plugins.myteam.bot.listeners;
 
 import com.atlassian.event.api.EventListener;
 import com.atlassian.jira.event.issue.IssueEvent;
+import com.atlassian.jira.event.type.EventType;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.issue.comments.Comment;
+import com.atlassian.jira.issue.comments.CommentManager;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
+import org.ofbiz.core.entity.GenericEntityException;
+import org.ofbiz.core.entity.GenericValue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.commons.SentryClient;
@@ -15,15 +23,26 @@ import ru.mail.jira.plugins.myteam.component.event.issue.IssueEventToVKTeamsSend
 @Component
 @Slf4j
 public class JiraEventListener implements IEventListener {
+  private static final String CHANGE_ITEM_RELATION = "ChildChangeItem";
+
   private final IssueEventRecipientResolver issueEventRecipientResolver;
   private final IssueEventToVKTeamsSender issueEventToVKTeamsSender;
+  private final NotificationPipeline notificationPipeline;
+  private final IssueManager issueManager;
+  private final CommentManager commentManager;
 
   @Autowired
   public JiraEventListener(
       final IssueEventRecipientResolver issueEventRecipientResolver,
-      final IssueEventToVKTeamsSender issueEventToVKTeamsSender) {
+      final IssueEventToVKTeamsSender issueEventToVKTeamsSender,
+      final NotificationPipeline notificationPipeline,
+      @ComponentImport final IssueManager issueManager,
+      @ComponentImport final CommentManager commentManager) {
     this.issueEventRecipientResolver = issueEventRecipientResolver;
     this.issueEventToVKTeamsSender = issueEventToVKTeamsSender;
+    this.notificationPipeline = notificationPipeline;
+    this.issueManager = issueManager;
+    this.commentManager = commentManager;
   }
 
   @SuppressWarnings("unused")
@@ -33,7 +52,17 @@ public class JiraEventListener implements IEventListener {
       return;
     }
 
-    handle(issueEvent);
+    // issue and comment of event can be changed by caller, so workers get copies taken now
+    final IssueEvent snapshot;
+    try {
+      snapshot = snapshot(issueEvent);
+    } catch (Exception e) {
+      SentryClient.capture(e, Map.of("issueKey", issueEvent.getIssue().getKey()));
+      log.error("Unable to capture event of issue {}", issueEvent.getIssue().getKey(), e);
+      return;
+    }
+    notificationPipeline.enqueue(
+        "event of issue " + snapshot.getIssue().getKey(), () -> handle(snapshot));
   }
 
   private void handle(final IssueEvent issueEvent) {
@@ -45,4 +74,57 @@ public class JiraEventListener implements IEventListener {
       log.error("onIssueEvent({})", issueEvent, e);
     }
   }
+
+  /**
+   * Copies data which event is rendered from in the thread which fired it. Issue and comment are
+   * read again, so caller's objects are not shared with workers, deleted ones are taken as is.
+   */
+  private IssueEvent snapshot(final IssueEvent issueEvent) throws GenericEntityException {
+    final Issue eventIssue = issueEvent.getIssue();
+    final Issue issue =
+        EventType.ISSUE_DELETED_ID.equals(issueEvent.getEventTypeId())
+            ? eventIssue
+            : Objects.requireNonNullElse(
+                issueManager.getIssueObject(eventIssue.getId()), eventIssue);
+    Comment comment = issueEvent.getComment();
+    if (comment != null) {
+      comment = Objects.requireNonNullElse(commentManager.getCommentById(comment.getId()), comment);
+    }
+    final GenericValue changeLog = issueEvent.getChangeLog();
+    // original comment of edited comment event is a copy made by Jira
+    final Map<String, Object> params =
+        issueEvent.getParams() != null ? new HashMap<>(issueEvent.getParams()) : new HashMap<>();
+    return new IssueEvent(
+        issue,
+        issueEvent.getUser(),
+        comment,
+        issueEvent.getWorklog(),
+        changeLog != null
+            ? new CapturedChangeGroup(changeLog, changeLog.getRelated(CHANGE_ITEM_RELATION))
+            : null,
+        params,
+        issueEvent.getEventTypeId(),
+        true,
+        issueEvent.isSubtasksUpdated());
+  }
+
+  /** Change group with change items read when event was fired */
+  private static final class CapturedChangeGroup extends GenericValue {
+    private static final long serialVersionUID = 1L;
+
+    private final List<GenericValue> changeItems;
+
+    private CapturedChangeGroup(
+        final GenericValue changeGroup, final List<GenericValue> changeItems) {
+      super(changeGroup);
+      this.changeItems = List.copyOf(changeItems);
+    }
+
+    @Override
+    public List<GenericValue> getRelated(final String relationName) throws GenericEntityException {
+      return CHANGE_ITEM_RELATION.equals(relationName)
+          ? changeItems
+          : super.getRelated(relationName);
+    }
+  }
 }
@@ -7,7 +7,8 @@ import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.jira.util.thread.OffRequestThreadExecutor;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import com.google.common.base.Splitter;
-import com.google.common.eventbus.AsyncEventBus;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import java.util.Arrays;
 import java.util.List;
@@ -16,7 +17,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.events.*;
@@ -29,12 +29,13 @@ import ru.mail.jira.plugins.myteam.service.RulesEngine;
 @Slf4j
 @Component
 public class MyteamEventsListener {
-  private final AsyncEventBus asyncEventBus;
+  private final EventBus eventBus;
   private final MyteamApiClient myteamApiClient;
   private final RulesEngine rulesEngine;
   private final UserData userData;
   private final OffRequestThreadExecutor offRequestThreadExecutor;
-  private final ThreadPoolTaskExecutor jiraBotTaskExecutor;
+  private final ChatOrderedEventDispatcher chatOrderedEventDispatcher;
+  private final NotificationOutbox notificationOutbox;
 
   @Autowired
   public MyteamEventsListener(
@@ -42,28 +43,36 @@ public class MyteamEventsListener {
       RulesEngine rulesEngine,
       UserData userData,
       @ComponentImport OffRequestThreadExecutor offRequestThreadExecutor,
-      ThreadPoolTaskExecutor jiraBotTaskExecutor) {
+      ChatOrderedEventDispatcher chatOrderedEventDispatcher,
+      NotificationOutbox notificationOutbox) {
     this.rulesEngine = rulesEngine;
     this.userData = userData;
     this.offRequestThreadExecutor = offRequestThreadExecutor;
-    this.jiraBotTaskExecutor = jiraBotTaskExecutor;
-    this.asyncEventBus =
-        new AsyncEventBus(
-            this.jiraBotTaskExecutor,
+    this.chatOrderedEventDispatcher = chatOrderedEventDispatcher;
+    this.notificationOutbox = notificationOutbox;
+    // subscribers are invoked synchronously on chat lane thread to keep events order within chat
+    this.eventBus =
+        new EventBus(
             (exception, context) -> {
               log.error(
                   "Exception occurred in subscriber = {}", context.getSubscriber(), exception);
               SentryClient.capture(exception);
             });
-    this.asyncEventBus.register(this);
+    this.eventBus.register(this);
     this.myteamApiClient = myteamApiClient;
   }
 
   public void publishEvent(MyteamEvent event) {
-    asyncEventBus.post(event);
+    if (event instanceof JiraNotifyEvent) {
+      // notifications are stored before returning to caller and sent by outbox
+      handleJiraNotifyEvent((JiraNotifyEvent) event);
+      return;
+    }
+    chatOrderedEventDispatcher.dispatch(event.getChatId(), () -> eventBus.post(event));
   }
 
   @Subscribe
+  @AllowConcurrentEvents
   public void handleNewMessageEvent(ChatMessageEvent event) {
 
     @Nullable ApplicationUser user = userData.getUserByMrimLogin(event.getUserId());
@@ -94,6 +103,7 @@ public class MyteamEventsListener {
   }
 
   @Subscribe
+  @AllowConcurrentEvents
   public void handleButtonClickEvent(ButtonClickEvent event) throws UnirestException {
     @Nullable ApplicationUser user = userData.getUserByMrimLogin(event.getUserId());
 
@@ -106,13 +116,13 @@ public class MyteamEventsListener {
         });
   }
 
-  @Subscribe
-  public void handleJiraNotifyEvent(JiraNotifyEvent jiraNotifyEvent) throws Exception {
-    myteamApiClient.sendMessageText(
+  public void handleJiraNotifyEvent(JiraNotifyEvent jiraNotifyEvent) {
+    notificationOutbox.enqueue(
         jiraNotifyEvent.getChatId(), jiraNotifyEvent.getMessage(), jiraNotifyEvent.getButtons());
   }
 
   @Subscribe
+  @AllowConcurrentEvents
   public void handleJiraIssueViewEvent(JiraIssueViewEvent event) {
     @Nullable ApplicationUser user = userData.getUserByMrimLogin(event.getUserId());
 
@@ -0,0 +1,469 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.listeners;
+
+import com.atlassian.beehive.ClusterLockService;
+import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.sal.api.lifecycle.LifecycleAware;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+import kong.unirest.HttpResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.SentryClient;
+import ru.mail.jira.plugins.myteam.db.model.OutboxMessage;
+import ru.mail.jira.plugins.myteam.db.repository.OutboxMessageRepository;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.InlineKeyboardMarkupButton;
+import ru.mail.jira.plugins.myteam.myteam.dto.response.MessageResponse;
+
+/**
+ * Stores notifications in Active Objects table before sending, so they survive node restarts and
+ * failures of myteam. One node at a time drains the table in batches through chat lanes, delivered
+ * messages are deleted, failed ones are retried with backoff and kept as dead after too many
+ * attempts or rejection by myteam. Empty outbox is polled less often up to max idle poll interval.
+ */
+@Slf4j
+@Component
+@ExportAsService(LifecycleAware.class)
+public class NotificationOutbox implements LifecycleAware, DisposableBean {
+  private static final String POLL_MILLIS_PROPERTY =
+      "ru.mail.jira.plugins.myteam.outbox.pollMillis";
+  private static final String BATCH_SIZE_PROPERTY = "ru.mail.jira.plugins.myteam.outbox.batchSize";
+  private static final String MAX_ATTEMPTS_PROPERTY =
+      "ru.mail.jira.plugins.myteam.outbox.maxAttempts";
+  private static final String MAX_IDLE_POLL_MILLIS_PROPERTY =
+      "ru.mail.jira.plugins.myteam.outbox.maxIdlePollMillis";
+  private static final String LOCK_NAME = NotificationOutbox.class.getName();
+  private static final long RETRY_BASE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  private static final long RETRY_MAX_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final long DEAD_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+  private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final long BATCH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+  private static final int MAX_ERROR_LENGTH = 1000;
+  private static final TypeReference<List<List<InlineKeyboardMarkupButton>>> BUTTONS_TYPE =
+      new TypeReference<List<List<InlineKeyboardMarkupButton>>>() {};
+
+  private final OutboxMessageRepository outboxMessageRepository;
+  private final MyteamApiClient myteamApiClient;
+  private final ChatOrderedEventDispatcher chatOrderedEventDispatcher;
+  private final Lock drainLock;
+  private final long pollMillis;
+  private final long maxIdlePollMillis;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long batchTimeoutMillis;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ScheduledExecutorService drainExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "vkteam-outbox-drainer");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final AtomicBoolean drainRequested = new AtomicBoolean();
+  private final LongAdder enqueuedCount = new LongAdder();
+  private final LongAdder directlySentCount = new LongAdder();
+  private final LongAdder sentCount = new LongAdder();
+  private final LongAdder retriedCount = new LongAdder();
+  private final LongAdder deadCount = new LongAdder();
+  private final LongAdder drainsCount = new LongAdder();
+  private final LongAdder drainNanos = new LongAdder();
+  private volatile long lastPurgeMillis;
+  private volatile long idlePollMillis;
+  private volatile long nextPollMillis;
+
+  @Autowired
+  public NotificationOutbox(
+      OutboxMessageRepository outboxMessageRepository,
+      MyteamApiClient myteamApiClient,
+      ChatOrderedEventDispatcher chatOrderedEventDispatcher,
+      @ComponentImport ClusterLockService clusterLockService) {
+    this(
+        outboxMessageRepository,
+        myteamApiClient,
+        chatOrderedEventDispatcher,
+        clusterLockService.getLockForName(LOCK_NAME),
+        Math.max(100, Long.getLong(POLL_MILLIS_PROPERTY, 1000)),
+        Math.max(100, Long.getLong(MAX_IDLE_POLL_MILLIS_PROPERTY, 30_000)),
+        Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, 100)),
+        Math.max(1, Integer.getInteger(MAX_ATTEMPTS_PROPERTY, 10)),
+        BATCH_TIMEOUT_MILLIS);
+  }
+
+  NotificationOutbox(
+      OutboxMessageRepository outboxMessageRepository,
+      MyteamApiClient myteamApiClient,
+      ChatOrderedEventDispatcher chatOrderedEventDispatcher,
+      Lock drainLock,
+      long pollMillis,
+      long maxIdlePollMillis,
+      int batchSize,
+      int maxAttempts,
+      long batchTimeoutMillis) {
+    this.outboxMessageRepository = outboxMessageRepository;
+    this.myteamApiClient = myteamApiClient;
+    this.chatOrderedEventDispatcher = chatOrderedEventDispatcher;
+    this.drainLock = drainLock;
+    this.pollMillis = pollMillis;
+    this.maxIdlePollMillis = Math.max(pollMillis, maxIdlePollMillis);
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.batchTimeoutMillis = batchTimeoutMillis;
+  }
+
+  @Override
+  public void onStart() {
+    drainExecutor.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void onStop() {}
+
+  @Override
+  public void destroy() {
+    drainExecutor.shutdownNow();
+  }
+
+  /** Stores notification and wakes up drainer, message is sent directly if it can't be stored */
+  public void enqueue(
+      String chatId, String message, @Nullable List<List<InlineKeyboardMarkupButton>> buttons) {
+    try {
+      outboxMessageRepository.create(chatId, message, writeButtons(buttons));
+      enqueuedCount.increment();
+    } catch (Exception e) {
+      log.error(
+          "Unable to store notification for chat {} in outbox, sending it directly", chatId, e);
+      directlySentCount.increment();
+      chatOrderedEventDispatcher.dispatch(chatId, () -> sendDirectly(chatId, message, buttons));
+      return;
+    }
+    requestDrain();
+  }
+
+  /**
+   * Stores one message for many chats in one transaction. Unlike {@link #enqueue} nothing is sent
+   * on storage failure, the exception is thrown to the caller so it can report chats as not queued.
+   */
+  public void enqueueAll(Collection<String> chatIds, String message) {
+    if (chatIds.isEmpty()) {
+      return;
+    }
+    outboxMessageRepository.createAll(chatIds, message);
+    enqueuedCount.add(chatIds.size());
+    requestDrain();
+  }
+
+  /** Drains outbox unless it was empty recently, then it is checked after growing idle interval */
+  void poll() {
+    if (System.currentTimeMillis() >= nextPollMillis) {
+      drainSafely();
+    }
+  }
+
+  /** Sends due messages until outbox has no full batch left, does nothing if other node drains */
+  void drain() {
+    drainRequested.set(false);
+    if (!drainLock.tryLock()) {
+      return;
+    }
+    try {
+      int drained = drainBatch();
+      updateIdlePoll(drained == 0);
+      while (drained == batchSize && !Thread.currentThread().isInterrupted()) {
+        // next batch is likely waiting
+        drained = drainBatch();
+      }
+      purgeDeadMessages();
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
+  public long getEnqueuedCount() {
+    return enqueuedCount.sum();
+  }
+
+  public long getDirectlySentCount() {
+    return directlySentCount.sum();
+  }
+
+  public long getSentCount() {
+    return sentCount.sum();
+  }
+
+  public long getRetriedCount() {
+    return retriedCount.sum();
+  }
+
+  public long getDeadCount() {
+    return deadCount.sum();
+  }
+
+  public long getDrainsCount() {
+    return drainsCount.sum();
+  }
+
+  public long getDrainMillis() {
+    return drainNanos.sum() / 1_000_000;
+  }
+
+  public int getPendingCount() {
+    return outboxMessageRepository.countPending();
+  }
+
+  public int getStoredDeadCount() {
+    return outboxMessageRepository.countDead();
+  }
+
+  public long getOldestPendingAgeMillis() {
+    Date created = outboxMessageRepository.getOldestPendingCreated();
+    return created == null ? 0 : Math.max(0, System.currentTimeMillis() - created.getTime());
+  }
+
+  private void updateIdlePoll(boolean idle) {
+    if (idle) {
+      idlePollMillis =
+          idlePollMillis == 0 ? pollMillis : Math.min(maxIdlePollMillis, idlePollMillis * 2);
+      nextPollMillis = System.currentTimeMillis() + idlePollMillis;
+    } else {
+      idlePollMillis = 0;
+      nextPollMillis = 0;
+    }
+  }
+
+  private void requestDrain() {
+    if (drainRequested.compareAndSet(false, true)) {
+      drainExecutor.execute(this::drainSafely);
+    }
+  }
+
+  private void drainSafely() {
+    try {
+      drain();
+    } catch (Exception e) {
+      log.error("Exception occurred during outbox draining", e);
+      SentryClient.capture(e);
+    }
+  }
+
+  private int drainBatch() {
+    Date now = new Date();
+    OutboxMessage[] messages = outboxMessageRepository.findDue(now, batchSize);
+    if (messages.length == 0) {
+      return 0;
+    }
+    long startNanos = System.nanoTime();
+    // earlier messages of chats, which wait for retry from previous batches
+    Map<String, OutboxMessage> waitingChats = new HashMap<>();
+    for (OutboxMessage waiting :
+        outboxMessageRepository.findWaiting(
+            now,
+            Arrays.stream(messages).map(OutboxMessage::getChatId).collect(Collectors.toSet()))) {
+      waitingChats.putIfAbsent(waiting.getChatId(), waiting);
+    }
+    Map<String, Date> failedChats = new ConcurrentHashMap<>();
+    Queue<Integer> deliveredIds = new ConcurrentLinkedQueue<>();
+    BatchProgress progress = new BatchProgress();
+    CountDownLatch latch = new CountDownLatch(messages.length);
+    try {
+      for (OutboxMessage message : messages) {
+        OutboxMessage waiting = waitingChats.get(message.getChatId());
+        if (waiting != null && waiting.getID() < message.getID()) {
+          postpone(message, waiting.getNextAttempt());
+          latch.countDown();
+          continue;
+        }
+        chatOrderedEventDispatcher.dispatch(
+            message.getChatId(),
+            () -> {
+              try {
+                // message is left for next drain, if the batch is not waited anymore
+                if (progress.startDelivery()) {
+                  try {
+                    deliver(message, failedChats, deliveredIds);
+                  } finally {
+                    progress.finishDelivery();
+                  }
+                }
+              } finally {
+                latch.countDown();
+              }
+            });
+      }
+      if (!latch.await(batchTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        log.warn(
+            "Outbox batch is not delivered in {} ms, {} messages are left for next drain",
+            batchTimeoutMillis,
+            latch.getCount());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      // deliveries can't add ids after the snapshot, so delivered messages are never sent again
+      progress.stopAndAwaitDeliveries();
+      // delivered messages are deleted before lock is released, so other nodes don't send them
+      List<Integer> delivered = new ArrayList<>(deliveredIds);
+      outboxMessageRepository.deleteByIds(delivered);
+      sentCount.add(delivered.size());
+      drainsCount.increment();
+      drainNanos.add(System.nanoTime() - startNanos);
+    }
+    return messages.length;
+  }
+
+  private void deliver(
+      OutboxMessage message, Map<String, Date> failedChats, Queue<Integer> deliveredIds) {
+    String chatId = message.getChatId();
+    Date chatRetryDate = failedChats.get(chatId);
+    if (chatRetryDate != null) {
+      postpone(message, chatRetryDate);
+      return;
+    }
+    HttpResponse<MessageResponse> response;
+    try {
+      response =
+          myteamApiClient.sendNotificationText(
+              chatId, message.getMessage(), readButtons(message.getButtons()));
+    } catch (Exception e) {
+      fail(message, e.toString(), false, failedChats);
+      return;
+    }
+    if (!response.isSuccess()) {
+      fail(message, "Server responded " + response.getStatus(), false, failedChats);
+    } else if (response.getBody() != null && !response.getBody().isOk()) {
+      fail(message, response.getBody().getDescription(), true, failedChats);
+    } else {
+      deliveredIds.add(message.getID());
+    }
+  }
+
+  /** Keeps order of chat messages, they are sent after the failed one */
+  private static void postpone(OutboxMessage message, Date retryDate) {
+    message.setNextAttempt(retryDate);
+    message.save();
+  }
+
+  private void fail(
+      OutboxMessage message, String error, boolean rejected, Map<String, Date> failedChats) {
+    int attempts = message.getAttempts() + 1;
+    message.setAttempts(attempts);
+    message.setLastError(StringUtils.abbreviate(error, MAX_ERROR_LENGTH));
+    if (rejected || attempts >= maxAttempts) {
+      log.warn(
+          "Notification {} to chat {} is not sent after {} attempts: {}",
+          message.getID(),
+          message.getChatId(),
+          attempts,
+          error);
+      message.setDead(true);
+      deadCount.increment();
+    } else {
+      Date retryDate = new Date(System.currentTimeMillis() + getRetryDelayMillis(attempts));
+      message.setNextAttempt(retryDate);
+      failedChats.put(message.getChatId(), retryDate);
+      retriedCount.increment();
+    }
+    message.save();
+  }
+
+  private void purgeDeadMessages() {
+    long now = System.currentTimeMillis();
+    if (now - lastPurgeMillis < PURGE_INTERVAL_MILLIS) {
+      return;
+    }
+    lastPurgeMillis = now;
+    outboxMessageRepository.deleteDeadBefore(new Date(now - DEAD_RETENTION_MILLIS));
+  }
+
+  private void sendDirectly(
+      String chatId, String message, @Nullable List<List<InlineKeyboardMarkupButton>> buttons) {
+    try {
+      myteamApiClient.sendNotificationText(chatId, message, buttons);
+    } catch (Exception e) {
+      log.error("Unable to send notification to chat {}", chatId, e);
+      SentryClient.capture(e);
+    }
+  }
+
+  @Nullable
+  private String writeButtons(@Nullable List<List<InlineKeyboardMarkupButton>> buttons) {
+    if (buttons == null) {
+      return null;
+    }
+    try {
+      return objectMapper.writeValueAsString(buttons);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Nullable
+  private List<List<InlineKeyboardMarkupButton>> readButtons(@Nullable String buttons)
+      throws IOException {
+    return buttons == null ? null : objectMapper.readValue(buttons, BUTTONS_TYPE);
+  }
+
+  private static long getRetryDelayMillis(int attempts) {
+    return Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << Math.min(attempts - 1, 20));
+  }
+
+  /** Lets deliveries of batch start until it is stopped and waits for the started ones */
+  private static final class BatchProgress {
+    private boolean stopped;
+    private int deliveriesInFlight;
+
+    private synchronized boolean startDelivery() {
+      if (stopped) {
+        return false;
+      }
+      deliveriesInFlight++;
+      return true;
+    }
+
+    private synchronized void finishDelivery() {
+      deliveriesInFlight--;
+      notifyAll();
+    }
+
+    private synchronized void stopAndAwaitDeliveries() {
+      stopped = true;
+      boolean interrupted = false;
+      while (deliveriesInFlight > 0) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          // sending is bounded by http timeouts, row must not be sent twice
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
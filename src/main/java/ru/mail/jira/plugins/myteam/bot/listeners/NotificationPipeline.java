@@ -0,0 +1,224 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.listeners;
+
+import com.atlassian.jira.util.thread.JiraThreadLocalUtils;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.SentryClient;
+
+/**
+ * Moves building and sending of notifications off the thread which fired Jira event. Tasks are
+ * queued to bounded queue and run by dedicated workers. When queue is full task is either run on
+ * the caller thread or dropped, depending on overflow policy.
+ */
+@Slf4j
+@Component
+public class NotificationPipeline implements DisposableBean {
+  private static final String WORKERS_COUNT_PROPERTY =
+      "ru.mail.jira.plugins.myteam.notifications.workers";
+  private static final String QUEUE_CAPACITY_PROPERTY =
+      "ru.mail.jira.plugins.myteam.notifications.queueCapacity";
+  private static final String OVERFLOW_POLICY_PROPERTY =
+      "ru.mail.jira.plugins.myteam.notifications.overflowPolicy";
+  private static final String THREAD_NAME_FORMAT = "vkteam-notification-worker-%d";
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  public enum OverflowPolicy {
+    /** Run task on the caller thread, so notification is delayed but not lost */
+    CALLER_RUNS,
+    /** Drop task, so caller is never slowed down */
+    DROP
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final OverflowPolicy overflowPolicy;
+  private final LongAdder enqueuedTasksCount = new LongAdder();
+  private final LongAdder completedTasksCount = new LongAdder();
+  private final LongAdder overflowRunTasksCount = new LongAdder();
+  private final LongAdder droppedTasksCount = new LongAdder();
+  private final LongAdder totalEnqueueNanos = new LongAdder();
+  private final AtomicLong maxEnqueueNanos = new AtomicLong();
+  private final LongAdder totalDeliveryMillis = new LongAdder();
+  private final AtomicLong maxDeliveryMillis = new AtomicLong();
+
+  public NotificationPipeline() {
+    this(
+        Math.max(1, Integer.getInteger(WORKERS_COUNT_PROPERTY, 4)),
+        Math.max(1, Integer.getInteger(QUEUE_CAPACITY_PROPERTY, 10_000)),
+        parseOverflowPolicy(System.getProperty(OVERFLOW_POLICY_PROPERTY)));
+  }
+
+  NotificationPipeline(int workersCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            workersCount,
+            workersCount,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+              Thread thread =
+                  new Thread(
+                      runnable, String.format(THREAD_NAME_FORMAT, threadNumber.getAndIncrement()));
+              thread.setDaemon(true);
+              return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Queues task and returns immediately unless queue is full.
+   *
+   * @param description task description for logs
+   * @param task notification task, must not depend on state which can change after enqueuing
+   * @return false if task was dropped
+   */
+  public boolean enqueue(String description, Runnable task) {
+    return enqueue(description, task, overflowPolicy);
+  }
+
+  /**
+   * Queues task and drops it when queue is full whatever overflow policy is, for callers which must
+   * not run a long task on their own thread.
+   *
+   * @param description task description for logs
+   * @param task notification task, must not depend on state which can change after enqueuing
+   * @return false if task was dropped
+   */
+  public boolean enqueueOrDrop(String description, Runnable task) {
+    return enqueue(description, task, OverflowPolicy.DROP);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("{} notifications were not sent before shutdown", executor.getQueue().size());
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      executor.shutdownNow();
+    }
+  }
+
+  public int getWorkersCount() {
+    return executor.getCorePoolSize();
+  }
+
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public long getEnqueuedTasksCount() {
+    return enqueuedTasksCount.sum();
+  }
+
+  public long getCompletedTasksCount() {
+    return completedTasksCount.sum();
+  }
+
+  public long getOverflowRunTasksCount() {
+    return overflowRunTasksCount.sum();
+  }
+
+  public long getDroppedTasksCount() {
+    return droppedTasksCount.sum();
+  }
+
+  public long getAverageEnqueueMicros() {
+    long enqueued =
+        enqueuedTasksCount.sum() + overflowRunTasksCount.sum() + droppedTasksCount.sum();
+    return enqueued == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalEnqueueNanos.sum() / enqueued);
+  }
+
+  public long getMaxEnqueueMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(maxEnqueueNanos.get());
+  }
+
+  public long getAverageDeliveryMillis() {
+    long completed = completedTasksCount.sum();
+    return completed == 0 ? 0 : totalDeliveryMillis.sum() / completed;
+  }
+
+  public long getMaxDeliveryMillis() {
+    return maxDeliveryMillis.get();
+  }
+
+  private boolean enqueue(String description, Runnable task, OverflowPolicy policy) {
+    long startNanos = System.nanoTime();
+    long enqueuedAt = System.currentTimeMillis();
+    try {
+      executor.execute(() -> runWorkerTask(description, task, enqueuedAt));
+      enqueuedTasksCount.increment();
+      return true;
+    } catch (RejectedExecutionException e) {
+      if (policy == OverflowPolicy.DROP || executor.isShutdown()) {
+        droppedTasksCount.increment();
+        log.warn("Notification queue is full, {} is dropped", description);
+        return false;
+      }
+      overflowRunTasksCount.increment();
+      log.warn("Notification queue is full, running {} on the caller thread", description);
+      runTask(description, task, enqueuedAt);
+      return true;
+    } finally {
+      long enqueueNanos = System.nanoTime() - startNanos;
+      totalEnqueueNanos.add(enqueueNanos);
+      maxEnqueueNanos.accumulateAndGet(enqueueNanos, Math::max);
+    }
+  }
+
+  /** Worker threads are not Jira request threads, so Jira thread locals are set up and cleaned */
+  private void runWorkerTask(String description, Runnable task, long enqueuedAt) {
+    JiraThreadLocalUtils.preCall();
+    try {
+      runTask(description, task, enqueuedAt);
+    } finally {
+      JiraThreadLocalUtils.postCall();
+    }
+  }
+
+  private void runTask(String description, Runnable task, long enqueuedAt) {
+    try {
+      task.run();
+    } catch (Exception e) {
+      log.error("Exception occurred during sending {}", description, e);
+      SentryClient.capture(e);
+    } finally {
+      long deliveryMillis = System.currentTimeMillis() - enqueuedAt;
+      totalDeliveryMillis.add(deliveryMillis);
+      maxDeliveryMillis.accumulateAndGet(deliveryMillis, Math::max);
+      completedTasksCount.increment();
+    }
+  }
+
+  private static OverflowPolicy parseOverflowPolicy(@Nullable String value) {
+    if (value == null) {
+      return OverflowPolicy.CALLER_RUNS;
+    }
+    try {
+      return OverflowPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      log.warn("Unknown notifications overflow policy {}, CALLER_RUNS is used", value);
+      return OverflowPolicy.CALLER_RUNS;
+    }
+  }
+}
@@ -1,28 +1,101 @@
 /* (C)2021 */
 package ru.mail.jira.plugins.myteam.bot.rulesengine.core;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.jeasy.rules.api.Facts;
+import org.jeasy.rules.api.Rule;
 import org.jeasy.rules.api.Rules;
 import org.jeasy.rules.api.RulesEngineParameters;
 import org.jeasy.rules.core.DefaultRulesEngine;
+import org.jeasy.rules.core.RuleProxy;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.models.ruletypes.RuleType;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
 import ru.mail.jira.plugins.myteam.service.UserChatService;
 
+/**
+ * Rules are indexed by command name or by state class at registration time, so only rules which can
+ * match the command and the state of the event are evaluated. Rules registered without index are
+ * evaluated for every event.
+ */
 public final class RulesEngine {
+  private static final String COMMAND_FACT = "command";
+  private static final String STATE_FACT = "state";
 
   private final DefaultRulesEngine rulesEngine;
-  private final Rules rules;
+  private final List<Rule> commonRules = new CopyOnWriteArrayList<>();
+  private final Map<String, List<Rule>> commandRules = new ConcurrentHashMap<>();
+  private final Map<Class<?>, List<Rule>> stateRules = new ConcurrentHashMap<>();
+
+  // compiled candidates by command and concrete state class, unknown commands share one entry
+  private final Map<List<Object>, Rules> candidateRules = new ConcurrentHashMap<>();
 
   public RulesEngine(RulesEngineParameters parameters, UserChatService userChatService) {
     rulesEngine = new DefaultRulesEngine(parameters);
     rulesEngine.registerRuleListener(new RuleListener(userChatService));
-    rules = new Rules();
   }
 
-  public void registerRule(Object rule) {
-    rules.register(rule);
+  /** Registers rule which is evaluated for every event */
+  public synchronized void registerRule(Object rule) {
+    commonRules.add(RuleProxy.asRule(rule));
+    candidateRules.clear();
+  }
+
+  /** Registers rule which condition can be true only for the given command */
+  public synchronized void registerCommandRule(Object rule, String command) {
+    commandRules
+        .computeIfAbsent(command, key -> new CopyOnWriteArrayList<>())
+        .add(RuleProxy.asRule(rule));
+    candidateRules.clear();
+  }
+
+  /** Registers rule which condition can be true only for states of the given class */
+  public synchronized void registerStateRule(Object rule, Class<? extends BotState> stateClass) {
+    stateRules
+        .computeIfAbsent(stateClass, key -> new CopyOnWriteArrayList<>())
+        .add(RuleProxy.asRule(rule));
+    candidateRules.clear();
+  }
+
+  public void registerCommandRule(Object rule, RuleType command) {
+    registerCommandRule(rule, command.getName());
   }
 
   public void fire(Facts facts) {
-    rulesEngine.fire(rules, facts);
+    rulesEngine.fire(getCandidateRules(facts), facts);
+  }
+
+  private Rules getCandidateRules(Facts facts) {
+    Object command = facts.get(COMMAND_FACT);
+    Object state = facts.get(STATE_FACT);
+    List<Object> key =
+        Arrays.asList(
+            command != null && commandRules.containsKey(command) ? command : null,
+            state != null ? state.getClass() : null);
+    return candidateRules.computeIfAbsent(key, this::compileRules);
+  }
+
+  private Rules compileRules(List<Object> key) {
+    Object command = key.get(0);
+    Class<?> stateClass = (Class<?>) key.get(1);
+
+    // Rules keeps the same priority and name order as if all rules were registered together
+    Rules rules = new Rules();
+    commonRules.forEach(rules::register);
+    if (command != null) {
+      commandRules.get(command).forEach(rules::register);
+    }
+    if (stateClass != null) {
+      stateRules.forEach(
+          (ruleStateClass, classRules) -> {
+            if (ruleStateClass.isAssignableFrom(stateClass)) {
+              classRules.forEach(rules::register);
+            }
+          });
+    }
+    return rules;
   }
 }
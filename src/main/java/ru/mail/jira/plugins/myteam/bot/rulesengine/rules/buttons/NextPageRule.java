@@ -32,6 +32,8 @@ public class NextPageRule extends BaseRule {
   public void execute(@Fact("event") MyteamEvent event, @Fact("state") PageableState state) {
     if (state != null) {
       state.nextPage(event);
+      // page is changed in place, so it is written to shared storage explicitly
+      userChatService.saveStates(event.getChatId());
     }
   }
 }
@@ -100,12 +100,8 @@ public class AddAttachmentsToIssueCommandRule extends BaseRule {
 
       final List<String> attachedFilenames = new ArrayList<>();
       final List<String> notAttachedFilenames = new ArrayList<>();
-      for (final File file : files) {
-        final IssueTextConverter.AttachUploadInfo attachUploadInfo =
-            issueService.attachFileToIssue(issue, file, initiator);
-        if (attachUploadInfo == null) {
-          continue;
-        }
+      for (final IssueTextConverter.AttachUploadInfo attachUploadInfo :
+          issueService.attachFilesToIssue(issue, files, initiator)) {
         if (attachUploadInfo.isAttached()) {
           attachedFilenames.add(attachUploadInfo.getFileName());
         } else {
@@ -88,6 +88,7 @@ public class ViewIssueCommandRule extends BaseRule {
     if (state instanceof ViewingIssueState) {
       ((ViewingIssueState) state).setIssueKey(issueKey);
       state.setWaiting(false);
+      userChatService.saveStates(chatId);
     } else {
       userChatService.setState(chatId, new ViewingIssueState(userChatService, issueKey));
     }
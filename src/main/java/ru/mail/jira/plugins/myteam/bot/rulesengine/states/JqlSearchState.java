@@ -9,9 +9,14 @@ import com.atlassian.jira.issue.search.SearchException;
 import com.atlassian.jira.issue.search.SearchResults;
 import com.atlassian.jira.user.ApplicationUser;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.events.ButtonClickEvent;
 import ru.mail.jira.plugins.myteam.bot.events.MyteamEvent;
@@ -29,11 +34,15 @@ public class JqlSearchState extends BotState implements PageableState, Cancelabl
 
   public static final int JQL_SEARCH_PAGE_SIZE = 15;
   public static final int JQL_SEARCH_PAGE_SIZE_MAX = 50;
+  private static final int SNAPSHOT_MAX_ISSUES = 500;
+  private static final long SNAPSHOT_TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
 
   private final IssueService issueService;
   private final UserChatService userChatService;
   @Getter private final String jql;
-  private int page = 0;
+  @Getter @Setter private int page = 0;
+  // ordered ids of first search results, pages are rendered from it until user searches again
+  @Nullable private ResultSnapshot snapshot;
 
   public JqlSearchState(UserChatService userChatService, IssueService issueService, String jql) {
     this.issueService = issueService;
@@ -61,9 +70,11 @@ public class JqlSearchState extends BotState implements PageableState, Cancelabl
       if (event instanceof ButtonClickEvent) {
         userChatService.answerCallbackQuery(((ButtonClickEvent) event).getQueryId());
       }
+      if (!editMessage) {
+        snapshot = null;
+      }
 
-      SearchResults<Issue> parseResult =
-          issueService.searchByJql(jql, user, page, JQL_SEARCH_PAGE_SIZE);
+      SearchResults<Issue> parseResult = getPage(user);
       if (parseResult.getTotal() == 0) {
         userChatService.sendMessageText(
             event.getChatId(),
@@ -99,6 +110,34 @@ public class JqlSearchState extends BotState implements PageableState, Cancelabl
     }
   }
 
+  private SearchResults<Issue> getPage(ApplicationUser user)
+      throws SearchException, ParseException {
+    ResultSnapshot currentSnapshot = snapshot;
+    if (currentSnapshot == null || currentSnapshot.isExpired()) {
+      currentSnapshot =
+          new ResultSnapshot(issueService.searchIssueIdsByJql(jql, user, SNAPSHOT_MAX_ISSUES));
+      snapshot = currentSnapshot;
+    }
+
+    int from = page * JQL_SEARCH_PAGE_SIZE;
+    if (from >= currentSnapshot.issueIds.length && from < currentSnapshot.total) {
+      // page is beyond capped snapshot
+      return issueService.searchByJql(jql, user, page, JQL_SEARCH_PAGE_SIZE);
+    }
+    int to = Math.min(from + JQL_SEARCH_PAGE_SIZE, currentSnapshot.issueIds.length);
+    List<Long> pageIssueIds =
+        from >= to
+            ? List.of()
+            : Arrays.stream(currentSnapshot.issueIds, from, to)
+                .boxed()
+                .collect(Collectors.toList());
+    return new SearchResults<>(
+        issueService.getIssuesByIds(pageIssueIds),
+        currentSnapshot.total,
+        JQL_SEARCH_PAGE_SIZE,
+        from);
+  }
+
   @Override
   public UserChatService getUserChatService() {
     return userChatService;
@@ -109,4 +148,19 @@ public class JqlSearchState extends BotState implements PageableState, Cancelabl
     SentryClient.capture(e);
     log.error(e.getLocalizedMessage(), e);
   }
+
+  private static final class ResultSnapshot {
+    private final long[] issueIds;
+    private final int total;
+    private final long createdNanos = System.nanoTime();
+
+    private ResultSnapshot(SearchResults<Long> results) {
+      this.issueIds = results.getResults().stream().mapToLong(Long::longValue).toArray();
+      this.total = results.getTotal();
+    }
+
+    private boolean isExpired() {
+      return System.nanoTime() - createdNanos > SNAPSHOT_TTL_NANOS;
+    }
+  }
 }
@@ -7,12 +7,17 @@ import com.atlassian.jira.issue.comments.Comment;
 import com.atlassian.jira.user.ApplicationUser;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
 import ru.mail.jira.plugins.myteam.bot.events.ButtonClickEvent;
 import ru.mail.jira.plugins.myteam.bot.events.MyteamEvent;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.core.Pager;
@@ -32,6 +37,8 @@ import ru.mail.jira.plugins.myteam.service.UserChatService;
 public class ViewingIssueCommentsState extends BotState implements PageableState {
 
   private static final int COMMENT_LIST_PAGE_SIZE = 5;
+  private static final long SNAPSHOT_TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+  private static final int RENDERED_COMMENTS_MAX_SIZE = 50;
 
   @Getter @Setter private String issueKey;
   private final IssueService issueService;
@@ -40,6 +47,15 @@ public class ViewingIssueCommentsState extends BotState implements PageableState
   private final MessageFormatter messageFormatter;
   private final Pager pager;
   private final JiraMarkdownToChatMarkdownConverter jiraMarkdownToChatMarkdownConverter;
+  // ids of comments visible to user, taken when comments are shown by new message
+  @Nullable private CommentsSnapshot snapshot;
+  private final Map<Long, RenderedComment> renderedComments =
+      new LinkedHashMap<Long, RenderedComment>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, RenderedComment> eldest) {
+          return size() > RENDERED_COMMENTS_MAX_SIZE;
+        }
+      };
 
   public ViewingIssueCommentsState(
       String issueKey,
@@ -57,6 +73,14 @@ public class ViewingIssueCommentsState extends BotState implements PageableState
     pager = new Pager(0, COMMENT_LIST_PAGE_SIZE);
   }
 
+  public int getPage() {
+    return pager.getPage();
+  }
+
+  public void setPage(int page) {
+    pager.setPage(page);
+  }
+
   @Override
   public void nextPage(MyteamEvent event) {
     pager.nextPage();
@@ -73,12 +97,16 @@ public class ViewingIssueCommentsState extends BotState implements PageableState
   public void updatePage(MyteamEvent event, boolean editMessage) {
     try {
       ApplicationUser user = userChatService.getJiraUserFromUserChatId(event.getUserId());
-      List<Comment> totalComments = issueService.getIssueComments(issueKey, user);
+      CommentsSnapshot currentSnapshot = snapshot;
+      if (!editMessage || currentSnapshot == null || currentSnapshot.isExpired()) {
+        currentSnapshot = new CommentsSnapshot(issueService.getIssueComments(issueKey, user));
+        snapshot = currentSnapshot;
+      }
 
       if (event instanceof ButtonClickEvent)
         userChatService.answerCallbackQuery(((ButtonClickEvent) event).getQueryId());
 
-      if (totalComments == null || totalComments.size() == 0) {
+      if (currentSnapshot.commentIds.length == 0) {
 
         userChatService.sendMessageText(
             event.getChatId(),
@@ -86,13 +114,16 @@ public class ViewingIssueCommentsState extends BotState implements PageableState
                 "ru.mail.jira.plugins.myteam.myteamEventsListener.showComments.empty"));
 
       } else {
-        pager.setTotal(totalComments.size());
+        pager.setTotal(currentSnapshot.commentIds.length);
 
+        int from = Math.min(pager.getPage() * pager.getPageSize(), pager.getTotal());
+        int to = Math.min(from + pager.getPageSize(), pager.getTotal());
         List<Comment> comments =
-            totalComments.stream()
-                .skip((long) pager.getPage() * pager.getPageSize())
-                .limit(pager.getPageSize())
-                .collect(Collectors.toList());
+            issueService.getCommentsByIds(
+                Arrays.stream(currentSnapshot.commentIds, from, to)
+                    .boxed()
+                    .collect(Collectors.toList()),
+                user);
 
         List<List<InlineKeyboardMarkupButton>> buttons =
             messageFormatter.getListButtons(pager.hasPrev(), pager.hasNext());
@@ -129,9 +160,7 @@ public class ViewingIssueCommentsState extends BotState implements PageableState
                             comment.getAuthorApplicationUser(), "common.words.anonymous", false),
                         ":",
                         " ",
-                        StringUtils.defaultString(
-                            jiraMarkdownToChatMarkdownConverter.makeMyteamMarkdownFromJira(
-                                comment.getBody(), false)),
+                        renderCommentBody(comment),
                         ""))
             .collect(Collectors.toList()),
         pageNumber,
@@ -139,4 +168,43 @@ public class ViewingIssueCommentsState extends BotState implements PageableState
         COMMENT_LIST_PAGE_SIZE,
         null);
   }
+
+  private String renderCommentBody(Comment comment) {
+    long updatedMillis = comment.getUpdated() == null ? 0 : comment.getUpdated().getTime();
+    RenderedComment rendered = renderedComments.get(comment.getId());
+    if (rendered == null || rendered.updatedMillis != updatedMillis) {
+      rendered =
+          new RenderedComment(
+              updatedMillis,
+              StringUtils.defaultString(
+                  jiraMarkdownToChatMarkdownConverter.makeMyteamMarkdownFromJira(
+                      comment.getBody(), false)));
+      renderedComments.put(comment.getId(), rendered);
+    }
+    return rendered.markdown;
+  }
+
+  private static final class CommentsSnapshot {
+    private final long[] commentIds;
+    private final long createdNanos = System.nanoTime();
+
+    private CommentsSnapshot(@Nullable List<Comment> comments) {
+      this.commentIds =
+          comments == null ? new long[0] : comments.stream().mapToLong(Comment::getId).toArray();
+    }
+
+    private boolean isExpired() {
+      return System.nanoTime() - createdNanos > SNAPSHOT_TTL_NANOS;
+    }
+  }
+
+  private static final class RenderedComment {
+    private final long updatedMillis;
+    private final String markdown;
+
+    private RenderedComment(long updatedMillis, String markdown) {
+      this.updatedMillis = updatedMillis;
+      this.markdown = markdown;
+    }
+  }
 }
@@ -13,4 +13,6 @@ public class Const {
   public static final String SCHEDULE_PREFIX = "myteamSchedule";
   public static final String SCHEDULE_ID =
       "ru.mail.jira.plugins.calendar.myteamSchedule:scheduleId";
+  // Jira limits cluster message channel name to 20 characters
+  public static final String CLUSTER_MESSAGE_CHANNEL = "ru.mail.jira.myteam";
 }
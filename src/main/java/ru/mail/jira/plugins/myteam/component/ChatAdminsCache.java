@@ -0,0 +1,91 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.ChatAdmin;
+import ru.mail.jira.plugins.myteam.myteam.dto.response.AdminsResponse;
+
+/**
+ * Keeps admins of VK Teams chats for a short time, so admin-gated rules don't call Bot API on every
+ * message. Concurrent misses for the same chat share one request. Failed requests are not cached.
+ */
+@Component
+public class ChatAdminsCache {
+  private static final String TTL_PROPERTY = "ru.mail.jira.plugins.myteam.chatAdmins.ttlSeconds";
+  private static final String MAX_CHATS_PROPERTY =
+      "ru.mail.jira.plugins.myteam.chatAdmins.maxChats";
+
+  private final MyteamApiClient myteamApiClient;
+  private final LoadingCache<String, Set<String>> adminIdsCache;
+
+  @Autowired
+  public ChatAdminsCache(MyteamApiClient myteamApiClient) {
+    this(
+        myteamApiClient,
+        Math.max(0, Long.getLong(TTL_PROPERTY, 60L)),
+        Math.max(1, Long.getLong(MAX_CHATS_PROPERTY, 10_000L)));
+  }
+
+  ChatAdminsCache(MyteamApiClient myteamApiClient, long ttlSeconds, long maxChats) {
+    this.myteamApiClient = myteamApiClient;
+    this.adminIdsCache =
+        Caffeine.newBuilder()
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .maximumSize(maxChats)
+            .recordStats()
+            .build(this::loadAdminIds);
+  }
+
+  public boolean isChatAdmin(String chatId, String userId) throws MyteamServerErrorException {
+    try {
+      return adminIdsCache.get(chatId).contains(userId);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof MyteamServerErrorException) {
+        throw (MyteamServerErrorException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** Drops cached admins, next check of the chat asks Bot API */
+  public void invalidate(String chatId) {
+    adminIdsCache.invalidate(chatId);
+  }
+
+  public void invalidateAll() {
+    adminIdsCache.invalidateAll();
+  }
+
+  public long getCachedChatsCount() {
+    return adminIdsCache.estimatedSize();
+  }
+
+  public CacheStats getStats() {
+    return adminIdsCache.stats();
+  }
+
+  private Set<String> loadAdminIds(String chatId) throws MyteamServerErrorException {
+    AdminsResponse response = myteamApiClient.getAdmins(chatId).getBody();
+    List<ChatAdmin> admins = response == null ? null : response.getAdmins();
+    if (admins == null) {
+      return Collections.emptySet();
+    }
+    return admins.stream()
+        .map(ChatAdmin::getUserId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toUnmodifiableSet());
+  }
+}
@@ -0,0 +1,198 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import kong.unirest.HttpResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatInfoResponse;
+import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatMember;
+
+/**
+ * Keeps info and members of VK Teams chats, so issue views with linked chat don't wait for Bot API.
+ * Entries older than refresh interval are returned as is and reloaded in background. Chats which
+ * Bot API reports as not existing are cached for a shorter time. Other failed requests are not
+ * cached and fail the call.
+ */
+@Component
+public class ChatMetadataCache implements DisposableBean {
+  private static final String REFRESH_PROPERTY =
+      "ru.mail.jira.plugins.myteam.chatMetadata.refreshSeconds";
+  private static final String TTL_PROPERTY = "ru.mail.jira.plugins.myteam.chatMetadata.ttlSeconds";
+  private static final String NEGATIVE_TTL_PROPERTY =
+      "ru.mail.jira.plugins.myteam.chatMetadata.negativeTtlSeconds";
+  private static final String MAX_CHATS_PROPERTY =
+      "ru.mail.jira.plugins.myteam.chatMetadata.maxChats";
+  private static final String THREAD_NAME = "vkteam-chat-metadata-refresh";
+
+  private final MyteamApiClient myteamApiClient;
+  private final ExecutorService refreshExecutor;
+  private final LoadingCache<String, Optional<ChatInfoResponse>> chatInfoCache;
+  private final LoadingCache<String, Optional<ChatMember>> chatMembersCache;
+
+  @Autowired
+  public ChatMetadataCache(MyteamApiClient myteamApiClient) {
+    this(
+        myteamApiClient,
+        Math.max(1, Long.getLong(REFRESH_PROPERTY, 60L)),
+        Math.max(1, Long.getLong(TTL_PROPERTY, 3600L)),
+        Math.max(0, Long.getLong(NEGATIVE_TTL_PROPERTY, 300L)),
+        Math.max(1, Long.getLong(MAX_CHATS_PROPERTY, 10_000L)));
+  }
+
+  ChatMetadataCache(
+      MyteamApiClient myteamApiClient,
+      long refreshSeconds,
+      long ttlSeconds,
+      long negativeTtlSeconds,
+      long maxChats) {
+    this.myteamApiClient = myteamApiClient;
+    this.refreshExecutor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, THREAD_NAME);
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.chatInfoCache =
+        Caffeine.newBuilder()
+            .executor(refreshExecutor)
+            .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+            .expireAfter(new PresenceExpiry<ChatInfoResponse>(ttlSeconds, negativeTtlSeconds))
+            .maximumSize(maxChats)
+            .recordStats()
+            .build(this::loadChatInfo);
+    this.chatMembersCache =
+        Caffeine.newBuilder()
+            .executor(refreshExecutor)
+            .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+            .expireAfter(new PresenceExpiry<ChatMember>(ttlSeconds, negativeTtlSeconds))
+            .maximumSize(maxChats)
+            .recordStats()
+            .build(this::loadChatMembers);
+  }
+
+  /** Returns chat info or null if Bot API doesn't know the chat */
+  @Nullable
+  public ChatInfoResponse getChatInfo(String chatId) throws MyteamServerErrorException {
+    try {
+      return chatInfoCache.get(chatId).orElse(null);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof MyteamServerErrorException) {
+        throw (MyteamServerErrorException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** Returns chat members or null if Bot API doesn't know the chat */
+  @Nullable
+  public ChatMember getMembers(String chatId) throws MyteamServerErrorException {
+    try {
+      return chatMembersCache.get(chatId).orElse(null);
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof MyteamServerErrorException) {
+        throw (MyteamServerErrorException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** Drops cached info and members, next request of the chat asks Bot API */
+  public void invalidate(String chatId) {
+    chatInfoCache.invalidate(chatId);
+    chatMembersCache.invalidate(chatId);
+  }
+
+  @Override
+  public void destroy() {
+    refreshExecutor.shutdownNow();
+  }
+
+  public long getCachedChatsCount() {
+    return chatInfoCache.estimatedSize();
+  }
+
+  public CacheStats getChatInfoStats() {
+    return chatInfoCache.stats();
+  }
+
+  public CacheStats getChatMembersStats() {
+    return chatMembersCache.stats();
+  }
+
+  private Optional<ChatInfoResponse> loadChatInfo(String chatId) throws MyteamServerErrorException {
+    HttpResponse<ChatInfoResponse> response = myteamApiClient.getChatInfo(chatId);
+    ChatInfoResponse chatInfo = response.getBody();
+    if (isChatNotFound(response.getStatus(), chatInfo != null ? chatInfo.getDescription() : null)) {
+      return Optional.empty();
+    }
+    if (response.getStatus() != 200 || chatInfo == null) {
+      throw new MyteamServerErrorException(
+          response.getStatus(), "Unable to load info of chat " + chatId);
+    }
+    return Optional.of(chatInfo);
+  }
+
+  private Optional<ChatMember> loadChatMembers(String chatId) throws MyteamServerErrorException {
+    HttpResponse<ChatMember> response = myteamApiClient.getMembers(chatId);
+    ChatMember chatMember = response.getBody();
+    if (isChatNotFound(
+        response.getStatus(), chatMember != null ? chatMember.getDescription() : null)) {
+      return Optional.empty();
+    }
+    if (response.getStatus() != 200 || chatMember == null || !chatMember.isOk()) {
+      throw new MyteamServerErrorException(
+          response.getStatus(), "Unable to load members of chat " + chatId);
+    }
+    return Optional.of(chatMember);
+  }
+
+  private static boolean isChatNotFound(int status, @Nullable String description) {
+    return status == 404
+        || (status < 500
+            && (StringUtils.containsIgnoreCase(description, "not exist")
+                || StringUtils.containsIgnoreCase(description, "not found")));
+  }
+
+  /** Expires known chats after ttl and unknown chats after negative ttl */
+  private static class PresenceExpiry<V> implements Expiry<String, Optional<V>> {
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private PresenceExpiry(long ttlSeconds, long negativeTtlSeconds) {
+      this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+      this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+    }
+
+    @Override
+    public long expireAfterCreate(String chatId, Optional<V> value, long currentTime) {
+      return value.isPresent() ? ttlNanos : negativeTtlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        String chatId, Optional<V> value, long currentTime, long currentDuration) {
+      return expireAfterCreate(chatId, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        String chatId, Optional<V> value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
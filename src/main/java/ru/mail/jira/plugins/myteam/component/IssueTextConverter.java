@@ -8,10 +8,16 @@ import com.atlassian.jira.issue.attachment.TemporaryAttachmentId;
 import com.atlassian.jira.user.ApplicationUser;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import kong.unirest.HttpResponse;
@@ -26,6 +32,7 @@ import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.events.ChatMessageEvent;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.myteam.FileDownloader;
 import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.dto.parts.*;
 import ru.mail.jira.plugins.myteam.myteam.dto.response.FileResponse;
@@ -37,12 +44,17 @@ public class IssueTextConverter {
   private final UserData userData;
   private final MyteamApiClient myteamApiClient;
   private final AttachmentManager attachmentManager;
+  private final FileDownloader fileDownloader;
 
   public IssueTextConverter(
-      UserData userData, MyteamApiClient myteamApiClient, AttachmentManager attachmentManager) {
+      UserData userData,
+      MyteamApiClient myteamApiClient,
+      AttachmentManager attachmentManager,
+      FileDownloader fileDownloader) {
     this.userData = userData;
     this.myteamApiClient = myteamApiClient;
     this.attachmentManager = attachmentManager;
+    this.fileDownloader = fileDownloader;
   }
 
   @Nullable
@@ -52,10 +64,15 @@ public class IssueTextConverter {
     String message = Objects.requireNonNullElse(event.getMessage(), "");
     StringBuilder outPutStrings = new StringBuilder(message);
     if (parts != null) {
-      parts.forEach(
-          part ->
-              addMentionsAndAttachmentsToIssue(
-                  part, outPutStrings, commentedUser, commentedIssue, message));
+      Map<String, LoadingFile> loadingFiles = startLoading(parts);
+      try {
+        parts.forEach(
+            part ->
+                addMentionsAndAttachmentsToIssue(
+                    part, outPutStrings, commentedUser, commentedIssue, message, loadingFiles));
+      } finally {
+        loadingFiles.values().forEach(LoadingFile::discard);
+      }
     }
 
     return ru.mail.jira.plugins.myteam.commons.Utils.removeAllEmojis(outPutStrings.toString());
@@ -74,26 +91,28 @@ public class IssueTextConverter {
     StringBuilder outPutStrings = new StringBuilder();
     if (messageParts != null) {
       outPutStrings.append(text);
-      messageParts.forEach(
-          messagePart -> {
-            CommentaryParts currentPartClass =
-                CommentaryParts.fromPartClass(messagePart.getClass());
-            if (currentPartClass == null) {
-              return;
-            }
+      Map<String, LoadingFile> loadingFiles = startLoading(messageParts);
+      try {
+        messageParts.forEach(
+            messagePart -> {
+              CommentaryParts currentPartClass =
+                  CommentaryParts.fromPartClass(messagePart.getClass());
+              if (currentPartClass == null) {
+                return;
+              }
 
-            String formattedText = outPutStrings.toString();
-            switch (currentPartClass) {
-              case File:
-                File file = (File) messagePart;
-                try {
-                  log.info("file id {} from event", file.getFileId());
-                  HttpResponse<FileResponse> response = myteamApiClient.getFile(file.getFileId());
-                  FileResponse fileInfo = response.getBody();
-                  log.info("file url {} for load file from VK Teams", fileInfo.getUrl());
-                  try (InputStream attachment = myteamApiClient.loadUrlFile(fileInfo.getUrl())) {
+              String formattedText = outPutStrings.toString();
+              switch (currentPartClass) {
+                case File:
+                  File file = (File) messagePart;
+                  try {
+                    LoadingFile loadingFile = loadingFiles.get(file.getFileId());
+                    FileResponse fileInfo = loadingFile.getInfo();
                     boolean isUploaded =
-                        uploadAttachment(attachment, fileInfo, issue.getReporterUser(), issue);
+                        loadingFile.attach(
+                            attachment ->
+                                uploadAttachment(
+                                    attachment, fileInfo, issue.getReporterUser(), issue));
                     outPutStrings.setLength(0);
                     if (isUploaded) {
                       outPutStrings.append(
@@ -105,36 +124,38 @@ public class IssueTextConverter {
                     } else {
                       outPutStrings.append(formattedText);
                     }
+                  } catch (UnirestException | IOException | MyteamServerErrorException e) {
+                    SentryClient.capture(e);
+                    log.error("Unable to add attachment to Issue {}", issue.getKey(), e);
+                  } catch (Exception e) {
+                    outPutStrings.append(file.getFileId());
+                    SentryClient.capture(e);
+                    log.error(
+                        String.format(
+                            "Unresolved exception by loading file with id %s for issue with key %s",
+                            file.getFileId(), issue.getKey()),
+                        e);
                   }
-                } catch (UnirestException | IOException | MyteamServerErrorException e) {
-                  SentryClient.capture(e);
-                  log.error("Unable to add attachment to Issue {}", issue.getKey(), e);
-                } catch (Exception e) {
-                  outPutStrings.append(file.getFileId());
-                  SentryClient.capture(e);
-                  log.error(
-                      String.format(
-                          "Unresolved exception by loading file with id %s for issue with key %s",
-                          file.getFileId(), issue.getKey()),
-                      e);
-                }
-                break;
-              case Mention:
-                Mention mention = (Mention) messagePart;
-                ApplicationUser user = userData.getUserByMrimLogin(mention.getUserId());
-                outPutStrings.setLength(0);
-                if (user != null) {
-                  outPutStrings.append(
-                      replaceMention(formattedText, mention.getUserId(), user.getName()));
-                } else {
-                  outPutStrings.append(
-                      replaceMention(formattedText, mention.getUserId(), mention.getFirstName()));
-                }
-                break;
-              default:
-                break;
-            }
-          });
+                  break;
+                case Mention:
+                  Mention mention = (Mention) messagePart;
+                  ApplicationUser user = userData.getUserByMrimLogin(mention.getUserId());
+                  outPutStrings.setLength(0);
+                  if (user != null) {
+                    outPutStrings.append(
+                        replaceMention(formattedText, mention.getUserId(), user.getName()));
+                  } else {
+                    outPutStrings.append(
+                        replaceMention(formattedText, mention.getUserId(), mention.getFirstName()));
+                  }
+                  break;
+                default:
+                  break;
+              }
+            });
+      } finally {
+        loadingFiles.values().forEach(LoadingFile::discard);
+      }
     } else {
       outPutStrings.append(text);
     }
@@ -193,16 +214,22 @@ public class IssueTextConverter {
     List<Part> parts = event.getMessageParts();
     StringBuilder outPutStrings = new StringBuilder(mainMessageTextWithFormattedUnmaskedUrls);
     if (parts != null) {
-      parts.stream()
-          .filter(part -> part instanceof File || part instanceof Mention)
-          .forEach(
-              part ->
-                  addMentionsAndAttachmentsToIssue(
-                      part,
-                      outPutStrings,
-                      commentAuthor,
-                      issueToComment,
-                      mainMessageTextWithFormattedUnmaskedUrls));
+      Map<String, LoadingFile> loadingFiles = startLoading(parts);
+      try {
+        parts.stream()
+            .filter(part -> part instanceof File || part instanceof Mention)
+            .forEach(
+                part ->
+                    addMentionsAndAttachmentsToIssue(
+                        part,
+                        outPutStrings,
+                        commentAuthor,
+                        issueToComment,
+                        mainMessageTextWithFormattedUnmaskedUrls,
+                        loadingFiles));
+      } finally {
+        loadingFiles.values().forEach(LoadingFile::discard);
+      }
     }
     return outPutStrings.toString();
   }
@@ -212,7 +239,8 @@ public class IssueTextConverter {
       StringBuilder outPutStrings,
       ApplicationUser commentAuthor,
       Issue issueToComment,
-      String message) {
+      String message,
+      Map<String, LoadingFile> loadingFiles) {
     CommentaryParts currentPartClass = CommentaryParts.fromPartClass(part.getClass());
     if (currentPartClass == null) {
       return;
@@ -222,28 +250,26 @@ public class IssueTextConverter {
       case File:
         File file = (File) part;
         try {
-          log.info("file id {} from event", file.getFileId());
-          HttpResponse<FileResponse> response = myteamApiClient.getFile(file.getFileId());
-          FileResponse fileInfo = response.getBody();
-          log.info("file url {} for load file from VK Teams", fileInfo.getUrl());
-          try (InputStream attachment = myteamApiClient.loadUrlFile(fileInfo.getUrl())) {
-            boolean isUploaded =
-                uploadAttachment(attachment, fileInfo, commentAuthor, issueToComment);
-            if (isUploaded) {
-              outPutStrings.setLength(0);
-              outPutStrings.append(
-                  buildAttachmentLink(
-                      file.getFileId(), fileInfo.getType(), fileInfo.getFilename(), null));
-              outPutStrings.append(message);
-            }
-            if (fileInfo.getType().equals("image")) {
-              outPutStrings.append(
-                  String.format(
-                      "https://files-n.internal.myteam.mail.ru/get/%s\n", file.getFileId()));
-            }
-            if (file.getCaption() != null) {
-              outPutStrings.append(String.format("%s\n", file.getCaption()));
-            }
+          LoadingFile loadingFile = loadingFiles.get(file.getFileId());
+          FileResponse fileInfo = loadingFile.getInfo();
+          boolean isUploaded =
+              loadingFile.attach(
+                  attachment ->
+                      uploadAttachment(attachment, fileInfo, commentAuthor, issueToComment));
+          if (isUploaded) {
+            outPutStrings.setLength(0);
+            outPutStrings.append(
+                buildAttachmentLink(
+                    file.getFileId(), fileInfo.getType(), fileInfo.getFilename(), null));
+            outPutStrings.append(message);
+          }
+          if (fileInfo.getType().equals("image")) {
+            outPutStrings.append(
+                String.format(
+                    "https://files-n.internal.myteam.mail.ru/get/%s\n", file.getFileId()));
+          }
+          if (file.getCaption() != null) {
+            outPutStrings.append(String.format("%s\n", file.getCaption()));
           }
         } catch (UnirestException | IOException | MyteamServerErrorException e) {
           SentryClient.capture(e);
@@ -306,32 +332,62 @@ public class IssueTextConverter {
     return outPutStrings.toString();
   }
 
-  public IssueTextConverter.@Nullable AttachUploadInfo attachFileToIssue(
-      final Issue issue, final File file, final ApplicationUser author) {
-    final HttpResponse<FileResponse> response;
+  /** Downloads files in parallel and attaches them to issue in the order of files */
+  public List<AttachUploadInfo> attachFilesToIssue(
+      final Issue issue, final List<File> files, final ApplicationUser author) {
+    final Map<String, LoadingFile> loadingFiles = startLoading(files);
+    final List<AttachUploadInfo> result = new ArrayList<>();
     try {
-      response = myteamApiClient.getFile(file.getFileId());
-    } catch (MyteamServerErrorException e) {
-      SentryClient.capture(e);
-      return null;
+      for (final File file : files) {
+        final LoadingFile loadingFile = loadingFiles.get(file.getFileId());
+        final FileResponse fileInfo;
+        try {
+          fileInfo = loadingFile.getInfo();
+        } catch (MyteamServerErrorException e) {
+          SentryClient.capture(e);
+          continue;
+        }
+        try {
+          result.add(
+              new AttachUploadInfo(
+                  fileInfo.getFilename(),
+                  loadingFile.attach(
+                      attachment -> uploadAttachment(attachment, fileInfo, author, issue))));
+        } catch (Exception e) {
+          SentryClient.capture(
+              e,
+              null,
+              Map.of("userEmail", author.getEmailAddress(), "fileName", fileInfo.getFilename()));
+          result.add(new AttachUploadInfo(fileInfo.getFilename(), false));
+        }
+      }
+    } finally {
+      loadingFiles.values().forEach(LoadingFile::discard);
     }
+    return result;
+  }
 
-    final FileResponse fileInfo = response.getBody();
-    log.info("file url {} for load file from VK Teams", fileInfo.getUrl());
-    try (InputStream attachment = myteamApiClient.loadUrlFile(fileInfo.getUrl())) {
-      boolean uploaded = uploadAttachment(attachment, fileInfo, author, issue);
-      if (uploaded) {
-        return new AttachUploadInfo(fileInfo.getFilename(), true);
-      } else {
-        return new AttachUploadInfo(fileInfo.getFilename(), false);
+  /** Requests info of all files of message parts and starts their downloads */
+  private Map<String, LoadingFile> startLoading(Collection<? extends Part> parts) {
+    Map<String, LoadingFile> loadingFiles = new HashMap<>();
+    for (Part part : parts) {
+      if (!(part instanceof File) || loadingFiles.containsKey(((File) part).getFileId())) {
+        continue;
+      }
+      String fileId = ((File) part).getFileId();
+      log.info("file id {} from event", fileId);
+      try {
+        HttpResponse<FileResponse> response = myteamApiClient.getFile(fileId);
+        FileResponse fileInfo = response.getBody();
+        log.info("file url {} for load file from VK Teams", fileInfo.getUrl());
+        loadingFiles.put(
+            fileId,
+            new LoadingFile(fileInfo, null, fileDownloader.downloadAsync(fileInfo.getUrl())));
+      } catch (MyteamServerErrorException | RuntimeException e) {
+        loadingFiles.put(fileId, new LoadingFile(null, e, CompletableFuture.failedFuture(e)));
       }
-    } catch (Exception e) {
-      SentryClient.capture(
-          e,
-          null,
-          Map.of("userEmail", author.getEmailAddress(), "fileName", fileInfo.getFilename()));
-      return new AttachUploadInfo(fileInfo.getFilename(), false);
     }
+    return loadingFiles;
   }
 
   @RequiredArgsConstructor
@@ -340,4 +396,63 @@ public class IssueTextConverter {
     private final String fileName;
     private final boolean attached;
   }
+
+  /** File of message part with download started before the message is converted */
+  @RequiredArgsConstructor
+  private static final class LoadingFile {
+    @Nullable private final FileResponse info;
+    @Nullable private final Exception infoError;
+    private final CompletableFuture<InputStream> content;
+    // the same file can be sent in several parts, its content is read once
+    @Nullable private Boolean attached;
+
+    private FileResponse getInfo() throws MyteamServerErrorException {
+      if (info != null) {
+        return info;
+      }
+      if (infoError instanceof MyteamServerErrorException) {
+        throw (MyteamServerErrorException) infoError;
+      }
+      throw (RuntimeException) Objects.requireNonNull(infoError);
+    }
+
+    /** Attaches file on first call, next calls return result of the first one */
+    private boolean attach(Predicate<InputStream> uploader) throws IOException {
+      if (attached == null) {
+        try (InputStream stream = getContent()) {
+          attached = uploader.test(stream);
+        }
+      }
+      return attached;
+    }
+
+    private InputStream getContent() throws IOException {
+      try {
+        return content.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      }
+    }
+
+    /** Deletes downloaded file if it wasn't read */
+    private void discard() {
+      content.thenAccept(
+          stream -> {
+            try {
+              stream.close();
+            } catch (IOException e) {
+              log.warn("Unable to delete downloaded file", e);
+            }
+          });
+    }
+  }
 }
@@ -0,0 +1,431 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import static ru.mail.jira.plugins.myteam.commons.Utils.shieldText;
+
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Renders Jira wiki markup to VK Teams markdown in one left to right pass, special characters out
+ * of markup are escaped. Closing tags are found by forward searches, which results are reused by
+ * subsequent lookups, so rendering time is linear in text length.
+ */
+final class JiraMarkupRenderer {
+  private static final String SPECIAL_CHARACTERS = "`{}+|@[]()~-*_";
+  private static final String LIST_MARKERS = "#-+*";
+  // marks markup character which must not be escaped
+  private static final char MARK = '±';
+
+  private final String text;
+  private final Function<String, String> mentionConverter;
+  private final StringBuilder output;
+
+  private final ForwardSearch newlines = new ForwardSearch(i -> isAnyOf(i, "\n"));
+  private final ForwardSearch pluses = new ForwardSearch(i -> isAnyOf(i, "+"));
+  private final ForwardSearch closingBrackets = new ForwardSearch(i -> isAnyOf(i, "]"));
+  private final ForwardSearch inlineCodeStops = new ForwardSearch(i -> isAnyOf(i, "}?\n"));
+  private final ForwardSearch linkTextStops = new ForwardSearch(i -> isAnyOf(i, "~|?\n"));
+  private final ForwardSearch codeTags = new ForwardSearch(i -> isTag(i, "code}"));
+  private final ForwardSearch quoteTags = new ForwardSearch(i -> isTag(i, "quote}"));
+  private final ForwardSearch codeLanguageTags = new ForwardSearch(i -> isTag(i, "code:"));
+  private final ForwardSearch boldClosers = new ForwardSearch(this::isBoldCloser);
+  private final Delimiter strikethrough = new Delimiter('-', "±~");
+  private final Delimiter underline = new Delimiter('+', "±_±_");
+  private final Delimiter italic = new Delimiter('_', "±_");
+
+  private boolean quoted;
+
+  /**
+   * @param text text without carriage returns
+   * @param mentionConverter converts user name to mention, markup characters of the result must be
+   *     marked
+   */
+  JiraMarkupRenderer(String text, Function<String, String> mentionConverter) {
+    this.text = text;
+    this.mentionConverter = mentionConverter;
+    this.output = new StringBuilder(text.length() + 16);
+  }
+
+  String render() {
+    renderRange(0, text.length());
+    return output.toString();
+  }
+
+  private void renderRange(int start, int end) {
+    int index = start;
+    while (index < end) {
+      int next = renderMarkup(index, end);
+      if (next < 0) {
+        appendPlain(text, index, index + 1);
+        next = index + 1;
+      }
+      index = next;
+    }
+  }
+
+  /**
+   * @return index after rendered markup or -1 if there is no markup at the index
+   */
+  private int renderMarkup(int index, int end) {
+    char c = text.charAt(index);
+    if (LIST_MARKERS.indexOf(c) >= 0 && isLineStart()) {
+      int next = renderListItem(index, end);
+      if (next >= 0) {
+        return next;
+      }
+    }
+    switch (c) {
+      case '{':
+        return renderBrace(index, end);
+      case '[':
+        return renderBracket(index, end);
+      case '-':
+        return strikethrough.render(index, end);
+      case '+':
+        return underline.render(index, end);
+      case '_':
+        return italic.render(index, end);
+      case '*':
+        return renderBold(index, end);
+      default:
+        return -1;
+    }
+  }
+
+  private int renderListItem(int index, int end) {
+    int markersEnd = getListMarkersEnd(index, end);
+    if (markersEnd < 0) {
+      return -1;
+    }
+    appendPlain("±- ");
+    return markersEnd + 1;
+  }
+
+  /**
+   * @return index of space after list item markers or -1 if there is no list item at the index
+   */
+  private int getListMarkersEnd(int index, int end) {
+    int markersEnd = index;
+    while (markersEnd < end && LIST_MARKERS.indexOf(text.charAt(markersEnd)) >= 0) {
+      markersEnd++;
+    }
+    return markersEnd > index && markersEnd < end && text.charAt(markersEnd) == ' '
+        ? markersEnd
+        : -1;
+  }
+
+  private int renderBrace(int index, int end) {
+    int next = renderCodeBlock(index, end);
+    if (next < 0) {
+      next = renderInlineCode(index, end);
+    }
+    return next < 0 ? renderQuote(index, end) : next;
+  }
+
+  private int renderBracket(int index, int end) {
+    int next = renderMention(index, end);
+    return next < 0 ? renderLink(index, end) : next;
+  }
+
+  private int renderCodeBlock(int index, int end) {
+    int blockEnd = getCodeBlockEnd(index, end);
+    if (blockEnd < 0) {
+      return -1;
+    }
+    int bodyStart = getCodeBodyStart(index, end);
+    String code = text.substring(bodyStart, blockEnd - 6);
+    if (bodyStart > index + 6) {
+      code = text.substring(index + 6, bodyStart - 1) + " " + code;
+    }
+    appendPlain("\n±`±`±`" + shieldText(code) + "±`±`±`");
+    return blockEnd;
+  }
+
+  /**
+   * @return index after code block or -1 if there is no code block at the index
+   */
+  private int getCodeBlockEnd(int index, int end) {
+    int bodyStart = getCodeBodyStart(index, end);
+    if (bodyStart < 0) {
+      return -1;
+    }
+    int closingTag = codeTags.next(bodyStart);
+    if (closingTag + 6 > end || pluses.next(bodyStart) < closingTag) {
+      return -1;
+    }
+    // blocks with language are converted first, so they take closing tag
+    if (bodyStart == index + 6 && codeLanguageTags.next(bodyStart) < closingTag) {
+      return -1;
+    }
+    return closingTag + 6;
+  }
+
+  /**
+   * @return index after opening code tag or -1 if there is no such tag at the index
+   */
+  private int getCodeBodyStart(int index, int end) {
+    if (!isTag(index, "code")) {
+      return -1;
+    }
+    int tagEnd = index + 5;
+    if (tagEnd < end && text.charAt(tagEnd) == ':') {
+      int languageEnd = tagEnd + 1;
+      while (languageEnd < end
+          && text.charAt(languageEnd) >= 'a'
+          && text.charAt(languageEnd) <= 'z') {
+        languageEnd++;
+      }
+      if (languageEnd == tagEnd + 1 || languageEnd == end || text.charAt(languageEnd) != '}') {
+        return -1;
+      }
+      tagEnd = languageEnd;
+    } else if (tagEnd >= end || text.charAt(tagEnd) != '}') {
+      return -1;
+    }
+    return tagEnd + 1;
+  }
+
+  private int renderInlineCode(int index, int end) {
+    if (index + 1 >= end || text.charAt(index + 1) != '{') {
+      return -1;
+    }
+    int codeEnd = inlineCodeStops.next(index + 2);
+    if (codeEnd == index + 2
+        || codeEnd + 2 > end
+        || text.charAt(codeEnd) != '}'
+        || text.charAt(codeEnd + 1) != '}') {
+      return -1;
+    }
+    appendPlain("±`");
+    appendPlain(text, index + 2, codeEnd);
+    appendPlain("±`");
+    return codeEnd + 2;
+  }
+
+  private int renderQuote(int index, int end) {
+    int blockEnd = getQuoteEnd(index, end);
+    if (blockEnd < 0) {
+      return -1;
+    }
+    output.append("\n>");
+    boolean wasQuoted = quoted;
+    quoted = true;
+    renderRange(index + 7, blockEnd - 7);
+    quoted = wasQuoted;
+    output.append('\n');
+    return blockEnd;
+  }
+
+  /**
+   * @return index after quote or -1 if there is no quote at the index
+   */
+  private int getQuoteEnd(int index, int end) {
+    if (!isTag(index, "quote}")) {
+      return -1;
+    }
+    int closingTag = quoteTags.next(index + 7);
+    if (closingTag + 7 > end || pluses.next(index + 7) < closingTag) {
+      return -1;
+    }
+    return closingTag + 7;
+  }
+
+  private int renderMention(int index, int end) {
+    if (index + 1 >= end || text.charAt(index + 1) != '~') {
+      return -1;
+    }
+    int closingBracket = closingBrackets.next(index + 2);
+    if (closingBracket >= end || newlines.next(index + 2) < closingBracket) {
+      return -1;
+    }
+    appendPlain(mentionConverter.apply(text.substring(index + 2, closingBracket)));
+    return closingBracket + 1;
+  }
+
+  private int renderLink(int index, int end) {
+    int separator = linkTextStops.next(index + 1);
+    if (separator == index + 1 || separator >= end || text.charAt(separator) != '|') {
+      return -1;
+    }
+    int closingBracket = closingBrackets.next(separator + 2);
+    if (closingBracket >= end || newlines.next(separator + 1) < closingBracket) {
+      return -1;
+    }
+    appendPlain("±[" + shieldText(text.substring(index + 1, separator)) + "±]±(");
+    appendPlain(text, separator + 1, closingBracket);
+    appendPlain("±)");
+    return closingBracket + 1;
+  }
+
+  private int renderBold(int index, int end) {
+    if (index + 1 >= end || text.charAt(index + 1) == '*') {
+      return -1;
+    }
+    // only the first and the last characters of bold text can be line breaks
+    int closer = boldClosers.next(index + 3);
+    if (closer >= end || newlines.next(index + 2) < closer - 1) {
+      return -1;
+    }
+    appendPlain("±*");
+    renderRange(index + 1, closer);
+    appendPlain("±*");
+    return closer + 1;
+  }
+
+  // only the first letter of tag name is case insensitive, as in markup patterns
+  private boolean isTag(int index, String name) {
+    return index < text.length()
+        && text.charAt(index) == '{'
+        && text.regionMatches(true, index + 1, name, 0, 1)
+        && text.regionMatches(index + 2, name, 1, name.length() - 1);
+  }
+
+  private boolean isAnyOf(int index, String chars) {
+    return chars.indexOf(text.charAt(index)) >= 0;
+  }
+
+  // list item markers at line start are converted before bold text
+  private boolean isBoldCloser(int index) {
+    char previous = text.charAt(index - 1);
+    return text.charAt(index) == '*'
+        && previous != '*'
+        && (previous != '\n' || getListMarkersEnd(index, text.length()) < 0);
+  }
+
+  private boolean isLineStart() {
+    return output.length() == 0 || output.charAt(output.length() - 1) == '\n';
+  }
+
+  private void appendPlain(CharSequence chars) {
+    appendPlain(chars, 0, chars.length());
+  }
+
+  /** Appends characters escaping special ones unless they are marked or already escaped */
+  private void appendPlain(CharSequence chars, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (isSpecial(c)) {
+        if (output.length() > 0 && output.charAt(output.length() - 1) == MARK) {
+          output.setCharAt(output.length() - 1, c);
+        } else if (output.length() == 0) {
+          output.append(shieldText(String.valueOf(c)));
+        } else if (output.charAt(output.length() - 1) != '\\') {
+          output.append('\\').append(c);
+        } else {
+          output.append(c);
+        }
+      } else if (c == '\n' && quoted) {
+        output.append("\n>");
+      } else {
+        output.append(c);
+      }
+    }
+  }
+
+  private static boolean isSpecial(char c) {
+    return SPECIAL_CHARACTERS.indexOf(c) >= 0;
+  }
+
+  // same characters as \s of regular expressions
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * Text like -strikethrough-, +underline+ or _italic_ which starts after whitespace and ends
+   * before whitespace or dot. Character after the closing delimiter can't start next text of the
+   * same kind.
+   */
+  private final class Delimiter {
+    private final char delimiter;
+    private final String markup;
+    private final ForwardSearch closers;
+    private int blockedIndex = -1;
+
+    private Delimiter(char delimiter, String markup) {
+      this.delimiter = delimiter;
+      this.markup = markup;
+      this.closers = new ForwardSearch(this::isCloser);
+    }
+
+    private int render(int index, int end) {
+      if (index == blockedIndex
+          || (output.length() > 0 && !isWhitespace(output.charAt(output.length() - 1)))
+          || index + 1 >= end
+          || !isEdge(text.charAt(index + 1))) {
+        return -1;
+      }
+      int closer = closers.next(index + 3);
+      // closing tag of quote is rendered as line break
+      if (closer >= end && quoted && isTag(end, "quote}") && end - 1 >= index + 3) {
+        closer = isClosingDelimiter(end - 1) ? end - 1 : closer;
+      }
+      if (closer >= end || newlines.next(index + 1) < closer) {
+        return -1;
+      }
+      appendPlain(markup);
+      renderRange(index + 1, closer);
+      appendPlain(markup);
+      blockedIndex = closer + 2;
+      return closer + 1;
+    }
+
+    private boolean isCloser(int index) {
+      if (!isClosingDelimiter(index)) {
+        return false;
+      }
+      int next = index + 1;
+      // blocks are rendered from new line
+      return next == text.length()
+          || isWhitespace(text.charAt(next))
+          || text.charAt(next) == '.'
+          || getCodeBlockEnd(next, text.length()) >= 0
+          || getQuoteEnd(next, text.length()) >= 0;
+    }
+
+    private boolean isClosingDelimiter(int index) {
+      return text.charAt(index) == delimiter && isEdge(text.charAt(index - 1));
+    }
+
+    private boolean isEdge(char c) {
+      return c != delimiter && c != ' ' && c != '\n';
+    }
+  }
+
+  /**
+   * Finds the first index matching predicate at or after the given one. Scanned interval is
+   * remembered, so lookups from increasing indexes scan every character once.
+   */
+  private final class ForwardSearch {
+    private final IntPredicate predicate;
+    private int from;
+    private int found = -1;
+
+    private ForwardSearch(IntPredicate predicate) {
+      this.predicate = predicate;
+    }
+
+    private int next(int index) {
+      if (index > found) {
+        from = index;
+        found = scan(index, text.length());
+      } else if (index < from) {
+        int scanned = scan(index, from);
+        if (scanned < from) {
+          found = scanned;
+        }
+        from = index;
+      }
+      return found;
+    }
+
+    private int scan(int start, int end) {
+      int index = start;
+      while (index < end && !predicate.test(index)) {
+        index++;
+      }
+      return index;
+    }
+  }
+}
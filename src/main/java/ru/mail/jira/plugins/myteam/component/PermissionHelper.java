@@ -19,8 +19,6 @@ import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.commons.RestFieldException;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
 import ru.mail.jira.plugins.myteam.db.model.FilterSubscription;
-import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
-import ru.mail.jira.plugins.myteam.myteam.dto.response.AdminsResponse;
 
 @Slf4j
 @Component
@@ -31,7 +29,7 @@ public class PermissionHelper {
   private final PermissionManager permissionManager;
   private final ProjectManager projectManager;
   private final UserData userData;
-  private final MyteamApiClient myteamClient;
+  private final ChatAdminsCache chatAdminsCache;
 
   public PermissionHelper(
       @ComponentImport GlobalPermissionManager globalPermissionManager,
@@ -39,13 +37,13 @@ public class PermissionHelper {
       @ComponentImport PermissionManager permissionManager,
       @ComponentImport ProjectManager projectManager,
       UserData userData,
-      MyteamApiClient myteamClient) {
+      ChatAdminsCache chatAdminsCache) {
     this.globalPermissionManager = globalPermissionManager;
     this.issueService = issueService;
     this.permissionManager = permissionManager;
     this.projectManager = projectManager;
     this.userData = userData;
-    this.myteamClient = myteamClient;
+    this.chatAdminsCache = chatAdminsCache;
   }
 
   public boolean isChatAdminOrJiraAdmin(String chatId, @Nullable String userId) {
@@ -67,9 +65,7 @@ public class PermissionHelper {
 
   public boolean isChatAdmin(String chatId, String userId) {
     try {
-      AdminsResponse response = myteamClient.getAdmins(chatId).getBody();
-      return response.getAdmins() != null
-          && response.getAdmins().stream().anyMatch(admin -> userId.equals(admin.getUserId()));
+      return chatAdminsCache.isChatAdmin(chatId, userId);
     } catch (MyteamServerErrorException e) {
       log.error("Unable to get chat admins", e);
       return false;
@@ -132,7 +128,15 @@ public class PermissionHelper {
 
   public ApplicationUser checkChatAdminPermissions(ApplicationUser user, @Nullable String chatId)
       throws PermissionException {
-    if (chatId != null && isChatAdminOrJiraAdmin(chatId, user)) {
+    if (chatId == null) {
+      throw new PermissionException();
+    }
+    if (isChatAdminOrJiraAdmin(chatId, user)) {
+      return user;
+    }
+    // user could become chat admin after admins were cached
+    chatAdminsCache.invalidate(chatId);
+    if (isChatAdminOrJiraAdmin(chatId, user)) {
       return user;
     }
     throw new PermissionException();
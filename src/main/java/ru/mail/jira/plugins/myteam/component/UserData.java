@@ -1,14 +1,37 @@
 /* (C)2020 */
 package ru.mail.jira.plugins.myteam.component;
 
+import com.atlassian.cache.CacheManager;
+import com.atlassian.cache.CacheSettingsBuilder;
+import com.atlassian.crowd.embedded.api.CrowdService;
+import com.atlassian.crowd.embedded.api.SearchRestriction;
+import com.atlassian.crowd.embedded.api.User;
+import com.atlassian.crowd.search.EntityDescriptor;
+import com.atlassian.crowd.search.builder.Combine;
+import com.atlassian.crowd.search.builder.QueryBuilder;
+import com.atlassian.crowd.search.builder.Restriction;
+import com.atlassian.crowd.search.query.entity.EntityQuery;
+import com.atlassian.crowd.search.query.entity.restriction.constants.UserTermKeys;
 import com.atlassian.jira.bc.user.search.UserSearchService;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.jira.user.UserPropertyManager;
+import com.atlassian.jira.user.util.UserManager;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.Iterables;
+import com.opensymphony.module.propertyset.PropertySet;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.StreamSupport;
+import java.util.stream.Collectors;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -21,59 +44,82 @@ public class UserData {
   private static final String IS_LINK_NOTIFICATION_ENABLED_USER_PROPERTY =
       "USER_MYTEAM_LINK_NOTIFICATION_STATUS";
   private static final String IS_CREATE_CHATS_WITH_USER_ALLOWED = "USER_MYTEAM_CHATSCREATION";
+  private static final String PREFERENCES_CACHE_NAME =
+      UserData.class.getName() + ".preferencesCache";
+  // keeps directory queries of big chats reasonably small
+  private static final int EMAIL_SEARCH_BATCH_SIZE = 50;
 
   private final PluginData pluginData;
   private final UserPropertyManager userPropertyManager;
   private final UserSearchService userSearchService;
+  private final CrowdService crowdService;
+  private final UserManager userManager;
   private final Cache<String, ApplicationUser> userByMrimLoginCache =
       Caffeine.newBuilder().expireAfterAccess(8, TimeUnit.HOURS).build();
+  private final com.atlassian.cache.Cache<String, StoredPreferences> preferencesCache;
 
   @Autowired
   public UserData(
       @ComponentImport UserPropertyManager userPropertyManager,
       @ComponentImport UserSearchService userSearchService,
+      @ComponentImport CrowdService crowdService,
+      @ComponentImport UserManager userManager,
+      @ComponentImport CacheManager cacheManager,
       PluginData pluginData) {
     this.userPropertyManager = userPropertyManager;
     this.userSearchService = userSearchService;
+    this.crowdService = crowdService;
+    this.userManager = userManager;
     this.pluginData = pluginData;
+    this.preferencesCache =
+        cacheManager.getCache(
+            PREFERENCES_CACHE_NAME,
+            this::loadPreferences,
+            new CacheSettingsBuilder()
+                .remote()
+                .replicateViaInvalidation()
+                .expireAfterAccess(8, TimeUnit.HOURS)
+                .build());
   }
 
   public void setMrimLogin(ApplicationUser user, String mrimLogin) {
     userPropertyManager.getPropertySet(user).setString(MRIM_LOGIN_USER_PROPERTY, mrimLogin);
   }
 
-  public boolean isEnabled(ApplicationUser user) {
-    try {
-      String enabled = userPropertyManager.getPropertySet(user).getString(IS_ENABLED_USER_PROPERTY);
-      if (enabled == null) return pluginData.isEnabledByDefault();
-      return Boolean.parseBoolean(enabled);
-    } catch (Exception e) {
-      return pluginData.isEnabledByDefault();
+  public UserPreferences getPreferences(ApplicationUser user) {
+    return getStoredPreferences(user).resolve(pluginData.isEnabledByDefault());
+  }
+
+  /** Returns preferences of every user, users missing in cache are read one by one */
+  public Map<ApplicationUser, UserPreferences> getPreferences(Collection<ApplicationUser> users) {
+    boolean enabledByDefault = pluginData.isEnabledByDefault();
+    Map<ApplicationUser, UserPreferences> preferences = new HashMap<>();
+    for (ApplicationUser user : users) {
+      preferences.put(user, getStoredPreferences(user).resolve(enabledByDefault));
     }
+    return preferences;
+  }
+
+  public boolean isEnabled(ApplicationUser user) {
+    return getPreferences(user).isEnabled();
   }
 
   public void setEnabled(ApplicationUser user, boolean enabled) {
     userPropertyManager
         .getPropertySet(user)
         .setString(IS_ENABLED_USER_PROPERTY, Boolean.toString(enabled));
+    preferencesCache.remove(user.getKey());
   }
 
   public boolean isCreateChatsWithUserAllowed(ApplicationUser user) {
-    try {
-      String isAllowed =
-          userPropertyManager.getPropertySet(user).getString(IS_CREATE_CHATS_WITH_USER_ALLOWED);
-      // ALLOWED BY DEFAULT
-      if (isAllowed == null) return true;
-      return Boolean.parseBoolean(isAllowed);
-    } catch (Exception e) {
-      return true;
-    }
+    return getPreferences(user).isChatCreationAllowed();
   }
 
   public void setCreateChatsWithUserAllowed(ApplicationUser user, boolean isAllowed) {
     userPropertyManager
         .getPropertySet(user)
         .setString(IS_CREATE_CHATS_WITH_USER_ALLOWED, Boolean.toString(isAllowed));
+    preferencesCache.remove(user.getKey());
   }
 
   @Nullable
@@ -82,25 +128,30 @@ public class UserData {
     if (mrimLogin == null) {
       return null;
     }
-    return userByMrimLoginCache.get(
-        mrimLogin,
-        (login) ->
-            StreamSupport.stream(userSearchService.findUsersByEmail(login).spliterator(), false)
-                .findFirst()
-                .orElse(null));
+    return userByMrimLoginCache.get(mrimLogin, this::findUserByEmail);
+  }
+
+  /**
+   * Resolves logins of chat members to active users. Users found before are taken from cache, the
+   * rest are searched by email with one directory query per {@value EMAIL_SEARCH_BATCH_SIZE}
+   * logins. Order of logins is kept.
+   */
+  public List<ApplicationUser> getActiveUsersByMrimLogins(Collection<String> mrimLogins) {
+    Set<String> logins =
+        mrimLogins.stream()
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    Map<String, ApplicationUser> users =
+        userByMrimLoginCache.getAll(logins, this::findUsersByEmails);
+    return logins.stream()
+        .map(users::get)
+        .filter(Objects::nonNull)
+        .filter(ApplicationUser::isActive)
+        .collect(Collectors.toList());
   }
 
   public boolean isLinkNotificationEnable(final ApplicationUser user) {
-    try {
-      final String enabled =
-          userPropertyManager
-              .getPropertySet(user)
-              .getString(IS_LINK_NOTIFICATION_ENABLED_USER_PROPERTY);
-      if (enabled == null) return true;
-      return Boolean.parseBoolean(enabled);
-    } catch (final Exception e) {
-      return true;
-    }
+    return getPreferences(user).isLinkNotificationEnabled();
   }
 
   public void setLinkNotificationEnabled(
@@ -108,5 +159,99 @@ public class UserData {
     userPropertyManager
         .getPropertySet(user)
         .setString(IS_LINK_NOTIFICATION_ENABLED_USER_PROPERTY, Boolean.toString(linkNotifyEnabled));
+    preferencesCache.remove(user.getKey());
+  }
+
+  private StoredPreferences getStoredPreferences(ApplicationUser user) {
+    try {
+      return preferencesCache.get(user.getKey());
+    } catch (Exception e) {
+      // defaults are used when properties can't be read, as it was before the cache
+      return StoredPreferences.NOT_SET;
+    }
+  }
+
+  private StoredPreferences loadPreferences(String userKey) {
+    PropertySet propertySet = userPropertyManager.getPropertySetForUserKey(userKey);
+    return new StoredPreferences(
+        propertySet.getString(IS_ENABLED_USER_PROPERTY),
+        propertySet.getString(IS_LINK_NOTIFICATION_ENABLED_USER_PROPERTY),
+        propertySet.getString(IS_CREATE_CHATS_WITH_USER_ALLOWED));
+  }
+
+  private Map<String, ApplicationUser> findUsersByEmails(Set<? extends String> emails) {
+    Map<String, ApplicationUser> usersByEmail = new HashMap<>();
+    for (List<? extends String> batch : Iterables.partition(emails, EMAIL_SEARCH_BATCH_SIZE)) {
+      EntityQuery<User> query =
+          QueryBuilder.queryFor(User.class, EntityDescriptor.user())
+              .with(
+                  Combine.anyOf(
+                      batch.stream()
+                          .<SearchRestriction>map(
+                              email -> Restriction.on(UserTermKeys.EMAIL).exactlyMatching(email))
+                          .collect(Collectors.toList())))
+              .returningAtMost(EntityQuery.ALL_RESULTS);
+      for (User crowdUser : crowdService.search(query)) {
+        ApplicationUser user = userManager.getUserByName(crowdUser.getName());
+        if (user != null && crowdUser.getEmailAddress() != null) {
+          // active user is preferred as in findUserByEmail, emails are matched ignoring case
+          usersByEmail.merge(
+              crowdUser.getEmailAddress().toLowerCase(Locale.ROOT),
+              user,
+              (found, other) -> !found.isActive() && other.isActive() ? other : found);
+        }
+      }
+    }
+
+    Map<String, ApplicationUser> users = new HashMap<>();
+    for (String email : emails) {
+      ApplicationUser user = usersByEmail.get(email.toLowerCase(Locale.ROOT));
+      if (user != null) {
+        users.put(email, user);
+      }
+    }
+    return users;
+  }
+
+  /** Active user is preferred when several users share the email */
+  @Nullable
+  private ApplicationUser findUserByEmail(String email) {
+    ApplicationUser firstUser = null;
+    for (ApplicationUser user : userSearchService.findUsersByEmail(email)) {
+      if (user.isActive()) {
+        return user;
+      }
+      if (firstUser == null) {
+        firstUser = user;
+      }
+    }
+    return firstUser;
+  }
+
+  /** Raw property values, defaults are applied on read so changed plugin defaults take effect */
+  private static class StoredPreferences implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final StoredPreferences NOT_SET = new StoredPreferences(null, null, null);
+
+    @Nullable private final String enabled;
+    @Nullable private final String linkNotificationEnabled;
+    @Nullable private final String chatCreationAllowed;
+
+    private StoredPreferences(
+        @Nullable String enabled,
+        @Nullable String linkNotificationEnabled,
+        @Nullable String chatCreationAllowed) {
+      this.enabled = enabled;
+      this.linkNotificationEnabled = linkNotificationEnabled;
+      this.chatCreationAllowed = chatCreationAllowed;
+    }
+
+    private UserPreferences resolve(boolean enabledByDefault) {
+      return UserPreferences.of(
+          enabled == null ? enabledByDefault : Boolean.parseBoolean(enabled),
+          // link notifications and chat creation are allowed by default
+          linkNotificationEnabled == null || Boolean.parseBoolean(linkNotificationEnabled),
+          chatCreationAllowed == null || Boolean.parseBoolean(chatCreationAllowed));
+    }
   }
 }
@@ -0,0 +1,12 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import lombok.Value;
+
+/** Notification and chat settings chosen by user in profile */
+@Value(staticConstructor = "of")
+public class UserPreferences {
+  boolean enabled;
+  boolean linkNotificationEnabled;
+  boolean chatCreationAllowed;
+}
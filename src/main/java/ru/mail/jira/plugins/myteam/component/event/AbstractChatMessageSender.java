@@ -3,15 +3,22 @@ package ru.mail.jira.plugins.myteam.component.event;
 
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.user.ApplicationUser;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
 import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.events.JiraNotifyEvent;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
 import ru.mail.jira.plugins.myteam.component.UserData;
+import ru.mail.jira.plugins.myteam.component.UserPreferences;
 
 @Slf4j
 public abstract class AbstractChatMessageSender<T, R extends EventRecipient>
@@ -21,6 +28,8 @@ public abstract class AbstractChatMessageSender<T, R extends EventRecipient>
   private final MyteamEventsListener myteamEventsListener;
   private final UserData userData;
   private final IssueEventChatMessageButtonBuilder issueEventChatMessageButtonBuilder;
+  private final LongAdder renderedMessagesCount = new LongAdder();
+  private final LongAdder savedRendersCount = new LongAdder();
 
   protected AbstractChatMessageSender(
       final JiraAuthenticationContext jiraAuthenticationContext,
@@ -37,9 +46,31 @@ public abstract class AbstractChatMessageSender<T, R extends EventRecipient>
       final Set<R> eventRecipients,
       final Function<R, String> messageProvider,
       final String issueKey) {
+    sendToRecipients(eventRecipients, messageProvider, null, issueKey);
+  }
+
+  /** Message is rendered once for all recipients with equal audience key */
+  protected void send(
+      final Set<R> eventRecipients,
+      final Function<R, String> messageProvider,
+      final Function<R, ?> audienceKeyProvider,
+      final String issueKey) {
+    sendToRecipients(eventRecipients, messageProvider, audienceKeyProvider, issueKey);
+  }
+
+  /** Renders message for every recipient if audience key provider is not set */
+  private void sendToRecipients(
+      final Set<R> eventRecipients,
+      final Function<R, String> messageProvider,
+      @Nullable final Function<R, ?> audienceKeyProvider,
+      final String issueKey) {
+    final Map<Object, String> renderedMessages = new HashMap<>();
+    final Map<ApplicationUser, UserPreferences> preferences =
+        getActiveRecipientsPreferences(eventRecipients);
     for (final R eventRecipient : eventRecipients) {
       final ApplicationUser recipient = eventRecipient.getRecipient();
-      if (recipient.isActive() && userData.isEnabled(recipient)) {
+      final UserPreferences recipientPreferences = preferences.get(recipient);
+      if (recipientPreferences != null && recipientPreferences.isEnabled()) {
         if (StringUtils.isBlank(recipient.getEmailAddress())) {
           continue;
         }
@@ -48,7 +79,20 @@ public abstract class AbstractChatMessageSender<T, R extends EventRecipient>
         jiraAuthenticationContext.setLoggedInUser(recipient);
 
         try {
-          final String message = messageProvider.apply(eventRecipient);
+          String message;
+          if (audienceKeyProvider == null) {
+            message = StringUtils.defaultString(messageProvider.apply(eventRecipient));
+          } else {
+            final Object audienceKey = audienceKeyProvider.apply(eventRecipient);
+            message = renderedMessages.get(audienceKey);
+            if (message == null) {
+              message = StringUtils.defaultString(messageProvider.apply(eventRecipient));
+              renderedMessages.put(audienceKey, message);
+              renderedMessagesCount.increment();
+            } else {
+              savedRendersCount.increment();
+            }
+          }
           if (StringUtils.isBlank(message)) {
             continue;
           }
@@ -66,6 +110,36 @@ public abstract class AbstractChatMessageSender<T, R extends EventRecipient>
         }
       }
     }
+    if (audienceKeyProvider != null) {
+      log.debug(
+          "Rendered {} distinct messages for {} recipients of issue {}",
+          renderedMessages.size(),
+          eventRecipients.size(),
+          issueKey);
+    }
+  }
+
+  private Map<ApplicationUser, UserPreferences> getActiveRecipientsPreferences(
+      final Set<R> eventRecipients) {
+    final List<ApplicationUser> activeRecipients =
+        eventRecipients.stream()
+            .map(EventRecipient::getRecipient)
+            .filter(ApplicationUser::isActive)
+            .collect(Collectors.toList());
+    if (activeRecipients.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    return userData.getPreferences(activeRecipients);
+  }
+
+  /** Number of messages rendered for audiences, recipients of one audience share the message */
+  public long getRenderedMessagesCount() {
+    return renderedMessagesCount.sum();
+  }
+
+  /** Number of recipients who got message rendered for their audience before */
+  public long getSavedRendersCount() {
+    return savedRendersCount.sum();
   }
 
   protected abstract boolean needButtons();
@@ -9,13 +9,17 @@ import com.atlassian.jira.scheme.SchemeEntity;
 import com.atlassian.jira.security.PermissionManager;
 import com.atlassian.jira.security.groups.GroupManager;
 import com.atlassian.jira.security.roles.ProjectRole;
+import com.atlassian.jira.security.roles.ProjectRoleActors;
 import com.atlassian.jira.security.roles.ProjectRoleManager;
 import com.atlassian.jira.user.ApplicationUser;
 import com.google.common.collect.Sets;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import org.ofbiz.core.entity.GenericEntityException;
 import ru.mail.jira.plugins.commons.SentryClient;
 
@@ -83,7 +87,14 @@ public abstract class AbstractRecipientResolver<T, R> implements RecipientResolv
     return notificationRecipients;
   }
 
-  protected boolean canSendEventToUser(final ApplicationUser user, final IssueEvent issueEvent) {
+  /**
+   * Filters users who can see the event. Every user is checked once, even if passed several times,
+   * and members of role which restricts comment or worklog visibility are loaded once.
+   *
+   * @return allowed users by key
+   */
+  protected Map<String, ApplicationUser> filterUsersByEventPermissions(
+      final Collection<ApplicationUser> users, final IssueEvent issueEvent) {
     ProjectRole projectRole = null;
     String groupName = null;
     final Issue issue = issueEvent.getIssue();
@@ -94,15 +105,43 @@ public abstract class AbstractRecipientResolver<T, R> implements RecipientResolv
       projectRole = issueEvent.getComment().getRoleLevel();
       groupName = issueEvent.getComment().getGroupLevel();
     }
+    final ProjectRoleActors projectRoleActors =
+        projectRole == null
+            ? null
+            : projectRoleManager.getProjectRoleActors(projectRole, issue.getProjectObject());
 
-    if (!canSendEventToUser(user, issue)) {
-      return false;
+    final Map<String, ApplicationUser> uniqueUsers = new LinkedHashMap<>();
+    for (final ApplicationUser user : users) {
+      if (user != null) {
+        uniqueUsers.putIfAbsent(user.getKey(), user);
+      }
+    }
+
+    final Map<String, ApplicationUser> allowedUsers = new LinkedHashMap<>();
+    for (final ApplicationUser user : uniqueUsers.values()) {
+      if (groupName != null && !groupManager.isUserInGroup(user, groupName)) {
+        continue;
+      }
+      if (projectRole != null
+          && !isProjectRoleMember(user, projectRole, projectRoleActors, issue)) {
+        continue;
+      }
+      if (canSendEventToUser(user, issue)) {
+        allowedUsers.put(user.getKey(), user);
+      }
     }
-    if (groupName != null && !groupManager.isUserInGroup(user, groupName)) {
-      return false;
+    return allowedUsers;
+  }
+
+  private boolean isProjectRoleMember(
+      final ApplicationUser user,
+      final ProjectRole projectRole,
+      @Nullable final ProjectRoleActors projectRoleActors,
+      final Issue issue) {
+    if (projectRoleActors != null) {
+      return projectRoleActors.contains(user);
     }
-    return projectRole == null
-        || projectRoleManager.isUserInProjectRole(user, projectRole, issue.getProjectObject());
+    return projectRoleManager.isUserInProjectRole(user, projectRole, issue.getProjectObject());
   }
 
   protected boolean canSendEventToUser(final ApplicationUser user, final Issue issue) {
@@ -0,0 +1,66 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component.event.issue;
+
+import java.util.Locale;
+import java.util.Objects;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Set of recipient properties that affect rendered issue event message. Recipients with equal
+ * audience get byte-identical message, so it is rendered only once per audience.
+ */
+@Getter
+public class IssueEventAudience {
+  @Nullable private final Locale locale;
+  @Nullable private final String timeZoneId;
+  private final boolean useMentionFormat;
+  private final boolean mentioned;
+  private final boolean mentionedInCommentBody;
+
+  private IssueEventAudience(
+      @Nullable final Locale locale,
+      @Nullable final String timeZoneId,
+      final boolean useMentionFormat,
+      final boolean mentioned,
+      final boolean mentionedInCommentBody) {
+    this.locale = locale;
+    this.timeZoneId = timeZoneId;
+    this.useMentionFormat = useMentionFormat;
+    this.mentioned = mentioned;
+    this.mentionedInCommentBody = mentionedInCommentBody;
+  }
+
+  public static IssueEventAudience of(
+      @Nullable final Locale locale,
+      @Nullable final String timeZoneId,
+      final boolean useMentionFormat,
+      final boolean mentioned,
+      final boolean mentionedInCommentBody) {
+    return new IssueEventAudience(
+        locale, timeZoneId, useMentionFormat, mentioned, mentionedInCommentBody);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof IssueEventAudience)) {
+      return false;
+    }
+
+    IssueEventAudience that = (IssueEventAudience) o;
+    return useMentionFormat == that.useMentionFormat
+        && mentioned == that.mentioned
+        && mentionedInCommentBody == that.mentionedInCommentBody
+        && Objects.equals(locale, that.locale)
+        && Objects.equals(timeZoneId, that.timeZoneId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(locale, timeZoneId, useMentionFormat, mentioned, mentionedInCommentBody);
+  }
+}
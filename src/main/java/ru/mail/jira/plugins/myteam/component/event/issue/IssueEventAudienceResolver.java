@@ -0,0 +1,60 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component.event.issue;
+
+import com.atlassian.jira.config.LocaleManager;
+import com.atlassian.jira.event.issue.IssueEvent;
+import com.atlassian.jira.event.type.EventType;
+import com.atlassian.jira.issue.comments.Comment;
+import com.atlassian.jira.timezone.TimeZoneManager;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import java.util.TimeZone;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.myteam.bot.listeners.IssueEventRecipient;
+
+@Component
+public class IssueEventAudienceResolver {
+  private final LocaleManager localeManager;
+  private final TimeZoneManager timeZoneManager;
+
+  @Autowired
+  public IssueEventAudienceResolver(
+      @ComponentImport final LocaleManager localeManager,
+      @ComponentImport final TimeZoneManager timeZoneManager) {
+    this.localeManager = localeManager;
+    this.timeZoneManager = timeZoneManager;
+  }
+
+  @NotNull
+  public IssueEventAudience resolve(
+      @NotNull final IssueEventRecipient issueEventRecipient,
+      @NotNull final IssueEvent issueEvent) {
+    final ApplicationUser recipient = issueEventRecipient.getRecipient();
+    final Long eventTypeId = issueEvent.getEventTypeId();
+
+    // dates of system fields are formatted in recipient time zone only for created issue
+    String timeZoneId = null;
+    if (EventType.ISSUE_CREATED_ID.equals(eventTypeId)) {
+      final TimeZone timeZone = timeZoneManager.getTimeZoneforUser(recipient);
+      timeZoneId = timeZone != null ? timeZone.getID() : null;
+    }
+
+    // recipient mentioned directly in new comment does not get notification at all
+    boolean mentionedInCommentBody = false;
+    final Comment comment = issueEvent.getComment();
+    if (EventType.ISSUE_COMMENTED_ID.equals(eventTypeId)
+        && comment != null
+        && comment.getBody() != null) {
+      mentionedInCommentBody = comment.getBody().contains("[~" + recipient.getName() + "]");
+    }
+
+    return IssueEventAudience.of(
+        localeManager.getLocaleFor(recipient),
+        timeZoneId,
+        !recipient.equals(issueEvent.getUser()),
+        issueEventRecipient.isMentioned(),
+        mentionedInCommentBody);
+  }
+}
@@ -12,8 +12,10 @@ import com.atlassian.jira.security.roles.ProjectRoleManager;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -22,10 +24,16 @@ import ru.mail.jira.plugins.myteam.bot.listeners.IssueEventRecipient;
 import ru.mail.jira.plugins.myteam.component.UserMentionService;
 import ru.mail.jira.plugins.myteam.component.event.AbstractRecipientResolver;
 
+@Slf4j
 @Component
 public class IssueEventRecipientResolver
     extends AbstractRecipientResolver<IssueEvent, Set<IssueEventRecipient>> {
   private final UserMentionService userMentionService;
+  private final LongAdder resolvedEventsCount = new LongAdder();
+  private final LongAdder checkedUsersCount = new LongAdder();
+  private final LongAdder mentionsNanos = new LongAdder();
+  private final LongAdder notificationSchemeNanos = new LongAdder();
+  private final LongAdder permissionsNanos = new LongAdder();
 
   @Autowired
   public IssueEventRecipientResolver(
@@ -47,20 +55,63 @@ public class IssueEventRecipientResolver
   @Override
   public Set<IssueEventRecipient> resolve(final IssueEvent issueEvent) {
     try {
+      final long startNanos = System.nanoTime();
       final Set<ApplicationUser> mentionedPossibleRecipients =
           resolvePossibleRecipientsMentionedInIssueEvent(issueEvent);
 
+      final long mentionsResolvedNanos = System.nanoTime();
       final Set<NotificationRecipient> notificationRecipients =
           super.resolveRecipientByNotificationScheme(issueEvent);
-      return Collections.unmodifiableSet(
+
+      final long schemeResolvedNanos = System.nanoTime();
+      final Set<IssueEventRecipient> recipients =
           resolveRecipientsFilteredByPermissionsAndMentions(
-              issueEvent, mentionedPossibleRecipients, notificationRecipients));
+              issueEvent, mentionedPossibleRecipients, notificationRecipients);
+
+      final long finishNanos = System.nanoTime();
+      resolvedEventsCount.increment();
+      mentionsNanos.add(mentionsResolvedNanos - startNanos);
+      notificationSchemeNanos.add(schemeResolvedNanos - mentionsResolvedNanos);
+      permissionsNanos.add(finishNanos - schemeResolvedNanos);
+      log.debug(
+          "Resolved {} recipients of {}: mentions {}, notification scheme {}, permissions {} us",
+          recipients.size(),
+          issueEvent.getIssue().getKey(),
+          TimeUnit.NANOSECONDS.toMicros(mentionsResolvedNanos - startNanos),
+          TimeUnit.NANOSECONDS.toMicros(schemeResolvedNanos - mentionsResolvedNanos),
+          TimeUnit.NANOSECONDS.toMicros(finishNanos - schemeResolvedNanos));
+      return Collections.unmodifiableSet(recipients);
     } catch (Exception e) {
       SentryClient.capture(e, Map.of("issueKey", issueEvent.getIssue().getKey()));
       return Collections.emptySet();
     }
   }
 
+  public long getResolvedEventsCount() {
+    return resolvedEventsCount.sum();
+  }
+
+  public long getCheckedUsersCount() {
+    return checkedUsersCount.sum();
+  }
+
+  public long getAverageMentionsMicros() {
+    return averageMicros(mentionsNanos);
+  }
+
+  public long getAverageNotificationSchemeMicros() {
+    return averageMicros(notificationSchemeNanos);
+  }
+
+  public long getAveragePermissionsMicros() {
+    return averageMicros(permissionsNanos);
+  }
+
+  private long averageMicros(final LongAdder totalNanos) {
+    final long resolved = resolvedEventsCount.sum();
+    return resolved == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / resolved);
+  }
+
   @NotNull
   private Set<ApplicationUser> resolvePossibleRecipientsMentionedInIssueEvent(
       @NotNull final IssueEvent issueEvent) {
@@ -92,29 +143,35 @@ public class IssueEventRecipientResolver
       @NotNull final IssueEvent issueEvent,
       @NotNull final Set<ApplicationUser> mentionedPossibleRecipients,
       @NotNull final Set<NotificationRecipient> notificationRecipients) {
-    final Map<String, ApplicationUser> mentionedPossibleRecipientsMap =
-        mentionedPossibleRecipients.stream()
-            .filter(mentionedUser -> super.canSendEventToUser(mentionedUser, issueEvent))
-            .collect(Collectors.toMap(ApplicationUser::getKey, Function.identity()));
+    // notified and mentioned users overlap, so permissions of every user are checked once
+    final Map<String, ApplicationUser> possibleRecipients = new LinkedHashMap<>();
+    for (final NotificationRecipient notificationRecipient : notificationRecipients) {
+      addPossibleRecipient(possibleRecipients, notificationRecipient.getUser());
+    }
+    for (final ApplicationUser mentionedUser : mentionedPossibleRecipients) {
+      addPossibleRecipient(possibleRecipients, mentionedUser);
+    }
 
-    final Set<ApplicationUser> filteredRecipientsByPermissions =
-        notificationRecipients.stream()
-            .map(NotificationRecipient::getUser)
-            .filter(user -> super.canSendEventToUser(user, issueEvent))
-            .collect(Collectors.toSet());
+    final Map<String, ApplicationUser> allowedRecipients =
+        super.filterUsersByEventPermissions(possibleRecipients.values(), issueEvent);
+    checkedUsersCount.add(possibleRecipients.size());
 
+    final Set<String> mentionedUserKeys =
+        mentionedPossibleRecipients.stream()
+            .filter(Objects::nonNull)
+            .map(ApplicationUser::getKey)
+            .collect(Collectors.toSet());
     final Set<IssueEventRecipient> recipients = new HashSet<>();
-    for (final ApplicationUser recipient : filteredRecipientsByPermissions) {
-      final ApplicationUser mentionedUser =
-          mentionedPossibleRecipientsMap.remove(recipient.getKey());
-      final boolean mentioned = mentionedUser != null;
-      recipients.add(IssueEventRecipient.of(recipient, mentioned));
-    }
-
-    recipients.addAll(
-        mentionedPossibleRecipientsMap.values().stream()
-            .map(lostMentionRecipient -> IssueEventRecipient.of(lostMentionRecipient, true))
-            .collect(Collectors.toSet()));
+    allowedRecipients.forEach(
+        (key, recipient) ->
+            recipients.add(IssueEventRecipient.of(recipient, mentionedUserKeys.contains(key))));
     return recipients;
   }
+
+  private static void addPossibleRecipient(
+      final Map<String, ApplicationUser> possibleRecipients, final ApplicationUser user) {
+    if (user != null) {
+      possibleRecipients.putIfAbsent(user.getKey(), user);
+    }
+  }
 }
@@ -16,6 +16,7 @@ import ru.mail.jira.plugins.myteam.component.event.IssueEventChatMessageButtonBu
 public class IssueEventToVKTeamsSender
     extends AbstractChatMessageSender<IssueEventData, IssueEventRecipient> {
   private final JiraIssueEventToChatMessageConverter jiraIssueEventToChatMessageConverter;
+  private final IssueEventAudienceResolver issueEventAudienceResolver;
 
   @Autowired
   public IssueEventToVKTeamsSender(
@@ -23,13 +24,15 @@ public class IssueEventToVKTeamsSender
       final MyteamEventsListener myteamEventsListener,
       final UserData userData,
       final IssueEventChatMessageButtonBuilder issueEventChatMessageButtonBuilder,
-      final JiraIssueEventToChatMessageConverter jiraIssueEventToChatMessageConverter) {
+      final JiraIssueEventToChatMessageConverter jiraIssueEventToChatMessageConverter,
+      final IssueEventAudienceResolver issueEventAudienceResolver) {
     super(
         jiraAuthenticationContext,
         myteamEventsListener,
         userData,
         issueEventChatMessageButtonBuilder);
     this.jiraIssueEventToChatMessageConverter = jiraIssueEventToChatMessageConverter;
+    this.issueEventAudienceResolver = issueEventAudienceResolver;
   }
 
   @Override
@@ -43,6 +46,8 @@ public class IssueEventToVKTeamsSender
         eventRecipient ->
             jiraIssueEventToChatMessageConverter.convert(
                 IssueEventToChatMessageData.of(eventRecipient, issueEventData.getIssueEvent())),
+        eventRecipient ->
+            issueEventAudienceResolver.resolve(eventRecipient, issueEventData.getIssueEvent()),
         issueEventData.getIssueEvent().getIssue().getKey());
   }
 
@@ -0,0 +1,185 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller;
+
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import javax.naming.NoPermissionException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.springframework.stereotype.Controller;
+import ru.mail.jira.plugins.myteam.bot.listeners.ChatOrderedEventDispatcher;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationOutbox;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationPipeline;
+import ru.mail.jira.plugins.myteam.component.ChatAdminsCache;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
+import ru.mail.jira.plugins.myteam.component.PermissionHelper;
+import ru.mail.jira.plugins.myteam.component.event.issue.IssueEventRecipientResolver;
+import ru.mail.jira.plugins.myteam.component.event.issue.IssueEventToVKTeamsSender;
+import ru.mail.jira.plugins.myteam.controller.dto.ChatAdminsCacheStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.ChatMetadataCacheStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.EventsDispatcherStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.EventsFetcherStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.FileDownloaderStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.FilterSubscriptionsStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.IssueEventRendersStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.NotificationPipelineStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.OutboundStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.OutboxStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.RecipientsResolverStatisticsDto;
+import ru.mail.jira.plugins.myteam.controller.dto.StatesStatisticsDto;
+import ru.mail.jira.plugins.myteam.myteam.FileDownloader;
+import ru.mail.jira.plugins.myteam.myteam.MyteamEventsFetcher;
+import ru.mail.jira.plugins.myteam.myteam.OutboundRateLimiter;
+import ru.mail.jira.plugins.myteam.service.StateManager;
+import ru.mail.jira.plugins.myteam.service.subscription.FilterSubscriptionBatchRunner;
+import ru.mail.jira.plugins.myteam.service.subscription.FilterSubscriptionByGroupSender;
+
+@Controller
+@Path("/statistics")
+@Produces(MediaType.APPLICATION_JSON)
+public class BotStatisticsController {
+  private final JiraAuthenticationContext jiraAuthenticationContext;
+  private final PermissionHelper permissionHelper;
+  private final MyteamEventsFetcher myteamEventsFetcher;
+  private final ChatOrderedEventDispatcher chatOrderedEventDispatcher;
+  private final StateManager stateManager;
+  private final IssueEventRecipientResolver issueEventRecipientResolver;
+  private final IssueEventToVKTeamsSender issueEventToVKTeamsSender;
+  private final NotificationPipeline notificationPipeline;
+  private final OutboundRateLimiter outboundRateLimiter;
+  private final ChatAdminsCache chatAdminsCache;
+  private final ChatMetadataCache chatMetadataCache;
+  private final FilterSubscriptionByGroupSender filterSubscriptionByGroupSender;
+  private final FilterSubscriptionBatchRunner filterSubscriptionBatchRunner;
+  private final FileDownloader fileDownloader;
+  private final NotificationOutbox notificationOutbox;
+
+  public BotStatisticsController(
+      @ComponentImport JiraAuthenticationContext jiraAuthenticationContext,
+      PermissionHelper permissionHelper,
+      MyteamEventsFetcher myteamEventsFetcher,
+      ChatOrderedEventDispatcher chatOrderedEventDispatcher,
+      StateManager stateManager,
+      IssueEventRecipientResolver issueEventRecipientResolver,
+      IssueEventToVKTeamsSender issueEventToVKTeamsSender,
+      NotificationPipeline notificationPipeline,
+      OutboundRateLimiter outboundRateLimiter,
+      ChatAdminsCache chatAdminsCache,
+      ChatMetadataCache chatMetadataCache,
+      FilterSubscriptionByGroupSender filterSubscriptionByGroupSender,
+      FilterSubscriptionBatchRunner filterSubscriptionBatchRunner,
+      FileDownloader fileDownloader,
+      NotificationOutbox notificationOutbox) {
+    this.jiraAuthenticationContext = jiraAuthenticationContext;
+    this.permissionHelper = permissionHelper;
+    this.myteamEventsFetcher = myteamEventsFetcher;
+    this.chatOrderedEventDispatcher = chatOrderedEventDispatcher;
+    this.stateManager = stateManager;
+    this.issueEventRecipientResolver = issueEventRecipientResolver;
+    this.issueEventToVKTeamsSender = issueEventToVKTeamsSender;
+    this.notificationPipeline = notificationPipeline;
+    this.outboundRateLimiter = outboundRateLimiter;
+    this.chatAdminsCache = chatAdminsCache;
+    this.chatMetadataCache = chatMetadataCache;
+    this.filterSubscriptionByGroupSender = filterSubscriptionByGroupSender;
+    this.filterSubscriptionBatchRunner = filterSubscriptionBatchRunner;
+    this.fileDownloader = fileDownloader;
+    this.notificationOutbox = notificationOutbox;
+  }
+
+  @GET
+  @Path("/fetcher")
+  public EventsFetcherStatisticsDto getFetcherStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new EventsFetcherStatisticsDto(myteamEventsFetcher);
+  }
+
+  @GET
+  @Path("/dispatcher")
+  public EventsDispatcherStatisticsDto getDispatcherStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new EventsDispatcherStatisticsDto(chatOrderedEventDispatcher);
+  }
+
+  @GET
+  @Path("/states")
+  public StatesStatisticsDto getStatesStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new StatesStatisticsDto(stateManager);
+  }
+
+  @GET
+  @Path("/recipients")
+  public RecipientsResolverStatisticsDto getRecipientsStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new RecipientsResolverStatisticsDto(issueEventRecipientResolver);
+  }
+
+  @GET
+  @Path("/issueEventRenders")
+  public IssueEventRendersStatisticsDto getIssueEventRendersStatistics()
+      throws NoPermissionException {
+    checkJiraAdmin();
+    return new IssueEventRendersStatisticsDto(issueEventToVKTeamsSender);
+  }
+
+  @GET
+  @Path("/notifications")
+  public NotificationPipelineStatisticsDto getNotificationsStatistics()
+      throws NoPermissionException {
+    checkJiraAdmin();
+    return new NotificationPipelineStatisticsDto(notificationPipeline);
+  }
+
+  @GET
+  @Path("/outbound")
+  public OutboundStatisticsDto getOutboundStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new OutboundStatisticsDto(outboundRateLimiter);
+  }
+
+  @GET
+  @Path("/chatAdmins")
+  public ChatAdminsCacheStatisticsDto getChatAdminsStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new ChatAdminsCacheStatisticsDto(chatAdminsCache);
+  }
+
+  @GET
+  @Path("/chatMetadata")
+  public ChatMetadataCacheStatisticsDto getChatMetadataStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new ChatMetadataCacheStatisticsDto(chatMetadataCache);
+  }
+
+  @GET
+  @Path("/filterSubscriptions")
+  public FilterSubscriptionsStatisticsDto getFilterSubscriptionsStatistics()
+      throws NoPermissionException {
+    checkJiraAdmin();
+    return new FilterSubscriptionsStatisticsDto(
+        filterSubscriptionByGroupSender, filterSubscriptionBatchRunner);
+  }
+
+  @GET
+  @Path("/fileDownloads")
+  public FileDownloaderStatisticsDto getFileDownloadsStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new FileDownloaderStatisticsDto(fileDownloader);
+  }
+
+  @GET
+  @Path("/outbox")
+  public OutboxStatisticsDto getOutboxStatistics() throws NoPermissionException {
+    checkJiraAdmin();
+    return new OutboxStatisticsDto(notificationOutbox);
+  }
+
+  private void checkJiraAdmin() throws NoPermissionException {
+    if (!permissionHelper.isJiraAdmin(jiraAuthenticationContext.getLoggedInUser())) {
+      throw new NoPermissionException();
+    }
+  }
+}
@@ -16,23 +16,21 @@ import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
-import kong.unirest.HttpResponse;
 import kong.unirest.UnirestException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.LinkIssueWithChatException;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
 import ru.mail.jira.plugins.myteam.component.PermissionHelper;
 import ru.mail.jira.plugins.myteam.component.UserData;
 import ru.mail.jira.plugins.myteam.controller.dto.ChatCreationDataDto;
 import ru.mail.jira.plugins.myteam.controller.dto.ChatMemberDto;
 import ru.mail.jira.plugins.myteam.controller.dto.ChatMetaDto;
-import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatInfoResponse;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatMember;
 import ru.mail.jira.plugins.myteam.protocol.MyteamService;
@@ -43,7 +41,7 @@ import ru.mail.jira.plugins.myteam.service.model.MyteamChatMetaDto;
 @Path("/chats")
 public class ChatCreationController {
   private final JiraAuthenticationContext jiraAuthenticationContext;
-  private final MyteamApiClient myteamApiClient;
+  private final ChatMetadataCache chatMetadataCache;
   private final IssueManager issueManager;
   private final WatcherManager watcherManager;
   private final AvatarService avatarService;
@@ -59,14 +57,14 @@ public class ChatCreationController {
       @ComponentImport WatcherManager watcherManager,
       @ComponentImport AvatarService avatarService,
       @ComponentImport UserSearchService userSearchService,
-      MyteamApiClient myteamApiClient,
+      ChatMetadataCache chatMetadataCache,
       UserData userData,
       MyteamService myteamService,
       PermissionHelper permissionHelper) {
     this.jiraAuthenticationContext = jiraAuthenticationContext;
     this.issueManager = issueManager;
     this.watcherManager = watcherManager;
-    this.myteamApiClient = myteamApiClient;
+    this.chatMetadataCache = chatMetadataCache;
     this.userSearchService = userSearchService;
     this.avatarService = avatarService;
     this.userData = userData;
@@ -103,20 +101,13 @@ public class ChatCreationController {
         .build();*/
     try {
       List<ChatMemberDto> chatMemberDtos;
-      ChatMember chatMembersFromApi = myteamApiClient.getMembers(chatMeta.getChatId()).getBody();
+      ChatMember chatMembersFromApi = chatMetadataCache.getMembers(chatMeta.getChatId());
       if (chatMembersFromApi != null && chatMembersFromApi.members != null) {
         List<ApplicationUser> applicationUsers =
-            chatMembersFromApi.members.stream()
-                .map(
-                    member ->
-                        StreamSupport.stream(
-                                userSearchService.findUsersByEmail(member.userId).spliterator(),
-                                false)
-                            .filter(ApplicationUser::isActive)
-                            .findFirst()
-                            .orElse(null))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+            userData.getActiveUsersByMrimLogins(
+                chatMembersFromApi.members.stream()
+                    .map(member -> member.userId)
+                    .collect(Collectors.toList()));
 
         chatMemberDtos =
             applicationUsers.stream()
@@ -130,10 +121,8 @@ public class ChatCreationController {
         chatMemberDtos = Collections.emptyList();
       }
 
-      HttpResponse<ChatInfoResponse> chatInfoResponse =
-          myteamApiClient.getChatInfo(chatMeta.getChatId());
-      if (chatInfoResponse.getStatus() == 200 && chatInfoResponse.getBody() != null) {
-        ChatInfoResponse chatInfo = chatInfoResponse.getBody();
+      ChatInfoResponse chatInfo = chatMetadataCache.getChatInfo(chatMeta.getChatId());
+      if (chatInfo != null) {
         return ChatMetaDto.buildChatInfo(chatInfo, chatMemberDtos);
       } else {
         log.error(
@@ -0,0 +1,29 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.component.ChatAdminsCache;
+
+@Getter
+@Setter
+@XmlRootElement
+public class ChatAdminsCacheStatisticsDto {
+  @XmlElement private long cachedChatsCount;
+  @XmlElement private long hitCount;
+  @XmlElement private long missCount;
+  @XmlElement private long loadFailureCount;
+  @XmlElement private long averageLoadMillis;
+
+  public ChatAdminsCacheStatisticsDto(ChatAdminsCache chatAdminsCache) {
+    CacheStats stats = chatAdminsCache.getStats();
+    this.cachedChatsCount = chatAdminsCache.getCachedChatsCount();
+    this.hitCount = stats.hitCount();
+    this.missCount = stats.missCount();
+    this.loadFailureCount = stats.loadFailureCount();
+    this.averageLoadMillis = (long) (stats.averageLoadPenalty() / 1_000_000);
+  }
+}
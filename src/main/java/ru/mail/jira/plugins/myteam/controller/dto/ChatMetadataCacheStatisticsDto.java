@@ -0,0 +1,34 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
+
+@Getter
+@Setter
+@XmlRootElement
+public class ChatMetadataCacheStatisticsDto {
+  @XmlElement private long cachedChatsCount;
+  @XmlElement private long chatInfoHitCount;
+  @XmlElement private long chatInfoMissCount;
+  @XmlElement private long chatInfoAverageLoadMillis;
+  @XmlElement private long chatMembersHitCount;
+  @XmlElement private long chatMembersMissCount;
+  @XmlElement private long chatMembersAverageLoadMillis;
+
+  public ChatMetadataCacheStatisticsDto(ChatMetadataCache chatMetadataCache) {
+    CacheStats chatInfoStats = chatMetadataCache.getChatInfoStats();
+    CacheStats chatMembersStats = chatMetadataCache.getChatMembersStats();
+    this.cachedChatsCount = chatMetadataCache.getCachedChatsCount();
+    this.chatInfoHitCount = chatInfoStats.hitCount();
+    this.chatInfoMissCount = chatInfoStats.missCount();
+    this.chatInfoAverageLoadMillis = (long) (chatInfoStats.averageLoadPenalty() / 1_000_000);
+    this.chatMembersHitCount = chatMembersStats.hitCount();
+    this.chatMembersMissCount = chatMembersStats.missCount();
+    this.chatMembersAverageLoadMillis = (long) (chatMembersStats.averageLoadPenalty() / 1_000_000);
+  }
+}
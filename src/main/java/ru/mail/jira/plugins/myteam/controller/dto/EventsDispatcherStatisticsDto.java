@@ -0,0 +1,37 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import java.util.List;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.bot.listeners.ChatOrderedEventDispatcher;
+
+@Getter
+@Setter
+@XmlRootElement
+@SuppressWarnings("NullAway")
+public class EventsDispatcherStatisticsDto {
+  @XmlElement private int lanesCount;
+  @XmlElement private List<Integer> laneQueueSizes;
+  @XmlElement private long submittedTasksCount;
+  @XmlElement private long completedTasksCount;
+  @XmlElement private long backpressureCount;
+  @XmlElement private long overflowTasksCount;
+  @XmlElement private long rejectedTasksCount;
+  @XmlElement private long averageLagMillis;
+  @XmlElement private long maxLagMillis;
+
+  public EventsDispatcherStatisticsDto(ChatOrderedEventDispatcher dispatcher) {
+    this.lanesCount = dispatcher.getLanesCount();
+    this.laneQueueSizes = dispatcher.getLaneQueueSizes();
+    this.submittedTasksCount = dispatcher.getSubmittedTasksCount();
+    this.completedTasksCount = dispatcher.getCompletedTasksCount();
+    this.backpressureCount = dispatcher.getBackpressureCount();
+    this.overflowTasksCount = dispatcher.getOverflowTasksCount();
+    this.rejectedTasksCount = dispatcher.getRejectedTasksCount();
+    this.averageLagMillis = dispatcher.getAverageLagMillis();
+    this.maxLagMillis = dispatcher.getMaxLagMillis();
+  }
+}
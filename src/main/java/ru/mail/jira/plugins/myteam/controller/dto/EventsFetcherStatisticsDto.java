@@ -0,0 +1,31 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.myteam.MyteamEventsFetcher;
+
+@Getter
+@Setter
+@XmlRootElement
+public class EventsFetcherStatisticsDto {
+  @XmlElement private boolean running;
+  @XmlElement private boolean pipelined;
+  @XmlElement private int dispatchQueueSize;
+  @XmlElement private long pollTime;
+  @XmlElement private long dispatchedEventsCount;
+  @XmlElement private double eventsPerSecond;
+  @XmlElement private long lastDispatchLagMillis;
+
+  public EventsFetcherStatisticsDto(MyteamEventsFetcher myteamEventsFetcher) {
+    this.running = myteamEventsFetcher.getIsRunning().get();
+    this.pipelined = myteamEventsFetcher.isPipelined();
+    this.dispatchQueueSize = myteamEventsFetcher.getDispatchQueueSize();
+    this.pollTime = myteamEventsFetcher.getPollTime();
+    this.dispatchedEventsCount = myteamEventsFetcher.getDispatchedEventsCount();
+    this.eventsPerSecond = myteamEventsFetcher.getEventsPerSecond();
+    this.lastDispatchLagMillis = myteamEventsFetcher.getLastDispatchLagMillis();
+  }
+}
@@ -0,0 +1,30 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.myteam.FileDownloader;
+
+@Getter
+@Setter
+@XmlRootElement
+public class FileDownloaderStatisticsDto {
+  @XmlElement private long downloadedFilesCount;
+  @XmlElement private long failedFilesCount;
+  @XmlElement private long downloadedBytes;
+  @XmlElement private long bytesPerSecond;
+  @XmlElement private int activeDownloadsCount;
+  @XmlElement private long maxBufferedBytes;
+
+  public FileDownloaderStatisticsDto(FileDownloader fileDownloader) {
+    long downloadMillis = fileDownloader.getDownloadMillis();
+    this.downloadedFilesCount = fileDownloader.getDownloadedFilesCount();
+    this.failedFilesCount = fileDownloader.getFailedFilesCount();
+    this.downloadedBytes = fileDownloader.getDownloadedBytes();
+    this.bytesPerSecond = downloadMillis == 0 ? 0 : downloadedBytes * 1000 / downloadMillis;
+    this.activeDownloadsCount = fileDownloader.getActiveDownloadsCount();
+    this.maxBufferedBytes = fileDownloader.getMaxBufferedBytes();
+  }
+}
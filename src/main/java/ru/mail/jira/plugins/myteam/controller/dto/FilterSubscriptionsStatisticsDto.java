@@ -0,0 +1,68 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.service.subscription.FilterSubscriptionBatchRunner;
+import ru.mail.jira.plugins.myteam.service.subscription.FilterSubscriptionByGroupSender;
+
+@Getter
+@Setter
+@XmlRootElement
+@SuppressWarnings("NullAway")
+public class FilterSubscriptionsStatisticsDto {
+  @XmlElement private long groupRunsCount;
+  @XmlElement private long groupMembersCount;
+  @XmlElement private long groupSearchesCount;
+  @XmlElement private long batchesCount;
+  @XmlElement private long batchSubscriptionsCount;
+  @XmlElement private long batchGroupsCount;
+  @XmlElement private long batchSearchesCount;
+  @XmlElement private long batchSearchRequestsCount;
+  @XmlElement private long batchFailedCount;
+  @XmlElement private List<BatchDto> lastBatches;
+
+  public FilterSubscriptionsStatisticsDto(
+      FilterSubscriptionByGroupSender filterSubscriptionByGroupSender,
+      FilterSubscriptionBatchRunner filterSubscriptionBatchRunner) {
+    this.groupRunsCount = filterSubscriptionByGroupSender.getRunsCount();
+    this.groupMembersCount = filterSubscriptionByGroupSender.getMembersCount();
+    this.groupSearchesCount = filterSubscriptionByGroupSender.getSearchesCount();
+    this.batchesCount = filterSubscriptionBatchRunner.getSlotsCount();
+    this.batchSubscriptionsCount = filterSubscriptionBatchRunner.getSubscriptionsCount();
+    this.batchGroupsCount = filterSubscriptionBatchRunner.getGroupsCount();
+    this.batchSearchesCount = filterSubscriptionBatchRunner.getSearchesCount();
+    this.batchSearchRequestsCount = filterSubscriptionBatchRunner.getSearchRequestsCount();
+    this.batchFailedCount = filterSubscriptionBatchRunner.getFailedCount();
+    this.lastBatches =
+        filterSubscriptionBatchRunner.getLastSlots().stream()
+            .map(BatchDto::new)
+            .collect(Collectors.toList());
+  }
+
+  @Getter
+  @Setter
+  @SuppressWarnings("NullAway")
+  public static class BatchDto {
+    @XmlElement private Date firedAt;
+    @XmlElement private int subscriptionsCount;
+    @XmlElement private int groupsCount;
+    @XmlElement private int searchesCount;
+    @XmlElement private int searchRequestsCount;
+    @XmlElement private long durationMillis;
+
+    public BatchDto(FilterSubscriptionBatchRunner.SlotStatistics slot) {
+      this.firedAt = slot.getSlot();
+      this.subscriptionsCount = slot.getSubscriptionsCount();
+      this.groupsCount = slot.getGroupsCount();
+      this.searchesCount = slot.getSearchesCount();
+      this.searchRequestsCount = slot.getSearchRequestsCount();
+      this.durationMillis = slot.getDurationMillis();
+    }
+  }
+}
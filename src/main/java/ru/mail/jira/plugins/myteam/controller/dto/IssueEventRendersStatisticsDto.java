@@ -0,0 +1,21 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.component.event.issue.IssueEventToVKTeamsSender;
+
+@Getter
+@Setter
+@XmlRootElement
+public class IssueEventRendersStatisticsDto {
+  @XmlElement private long renderedMessagesCount;
+  @XmlElement private long savedRendersCount;
+
+  public IssueEventRendersStatisticsDto(IssueEventToVKTeamsSender issueEventToVKTeamsSender) {
+    this.renderedMessagesCount = issueEventToVKTeamsSender.getRenderedMessagesCount();
+    this.savedRendersCount = issueEventToVKTeamsSender.getSavedRendersCount();
+  }
+}
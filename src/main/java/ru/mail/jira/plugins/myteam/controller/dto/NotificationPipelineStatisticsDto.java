@@ -0,0 +1,40 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationPipeline;
+
+@Getter
+@Setter
+@XmlRootElement
+@SuppressWarnings("NullAway")
+public class NotificationPipelineStatisticsDto {
+  @XmlElement private int workersCount;
+  @XmlElement private int queueSize;
+  @XmlElement private String overflowPolicy;
+  @XmlElement private long enqueuedTasksCount;
+  @XmlElement private long completedTasksCount;
+  @XmlElement private long overflowRunTasksCount;
+  @XmlElement private long droppedTasksCount;
+  @XmlElement private long averageEnqueueMicros;
+  @XmlElement private long maxEnqueueMicros;
+  @XmlElement private long averageDeliveryMillis;
+  @XmlElement private long maxDeliveryMillis;
+
+  public NotificationPipelineStatisticsDto(NotificationPipeline pipeline) {
+    this.workersCount = pipeline.getWorkersCount();
+    this.queueSize = pipeline.getQueueSize();
+    this.overflowPolicy = pipeline.getOverflowPolicy().name();
+    this.enqueuedTasksCount = pipeline.getEnqueuedTasksCount();
+    this.completedTasksCount = pipeline.getCompletedTasksCount();
+    this.overflowRunTasksCount = pipeline.getOverflowRunTasksCount();
+    this.droppedTasksCount = pipeline.getDroppedTasksCount();
+    this.averageEnqueueMicros = pipeline.getAverageEnqueueMicros();
+    this.maxEnqueueMicros = pipeline.getMaxEnqueueMicros();
+    this.averageDeliveryMillis = pipeline.getAverageDeliveryMillis();
+    this.maxDeliveryMillis = pipeline.getMaxDeliveryMillis();
+  }
+}
@@ -0,0 +1,27 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.myteam.OutboundRateLimiter;
+
+@Getter
+@Setter
+@XmlRootElement
+public class OutboundStatisticsDto {
+  @XmlElement private long acquiredCount;
+  @XmlElement private long delayedCount;
+  @XmlElement private long throttledCount;
+  @XmlElement private long averageWaitMillis;
+  @XmlElement private long maxWaitMillis;
+
+  public OutboundStatisticsDto(OutboundRateLimiter outboundRateLimiter) {
+    this.acquiredCount = outboundRateLimiter.getAcquiredCount();
+    this.delayedCount = outboundRateLimiter.getDelayedCount();
+    this.throttledCount = outboundRateLimiter.getThrottledCount();
+    this.averageWaitMillis = outboundRateLimiter.getAverageWaitMillis();
+    this.maxWaitMillis = outboundRateLimiter.getMaxWaitMillis();
+  }
+}
@@ -0,0 +1,38 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationOutbox;
+
+@Getter
+@Setter
+@XmlRootElement
+public class OutboxStatisticsDto {
+  @XmlElement private long enqueuedCount;
+  @XmlElement private long directlySentCount;
+  @XmlElement private long sentCount;
+  @XmlElement private long retriedCount;
+  @XmlElement private long deadCount;
+  @XmlElement private long drainsCount;
+  @XmlElement private long messagesPerSecond;
+  @XmlElement private int pendingCount;
+  @XmlElement private int storedDeadCount;
+  @XmlElement private long oldestPendingAgeMillis;
+
+  public OutboxStatisticsDto(NotificationOutbox notificationOutbox) {
+    long drainMillis = notificationOutbox.getDrainMillis();
+    this.enqueuedCount = notificationOutbox.getEnqueuedCount();
+    this.directlySentCount = notificationOutbox.getDirectlySentCount();
+    this.sentCount = notificationOutbox.getSentCount();
+    this.retriedCount = notificationOutbox.getRetriedCount();
+    this.deadCount = notificationOutbox.getDeadCount();
+    this.drainsCount = notificationOutbox.getDrainsCount();
+    this.messagesPerSecond = drainMillis == 0 ? 0 : sentCount * 1000 / drainMillis;
+    this.pendingCount = notificationOutbox.getPendingCount();
+    this.storedDeadCount = notificationOutbox.getStoredDeadCount();
+    this.oldestPendingAgeMillis = notificationOutbox.getOldestPendingAgeMillis();
+  }
+}
@@ -0,0 +1,27 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.component.event.issue.IssueEventRecipientResolver;
+
+@Getter
+@Setter
+@XmlRootElement
+public class RecipientsResolverStatisticsDto {
+  @XmlElement private long resolvedEventsCount;
+  @XmlElement private long checkedUsersCount;
+  @XmlElement private long averageMentionsMicros;
+  @XmlElement private long averageNotificationSchemeMicros;
+  @XmlElement private long averagePermissionsMicros;
+
+  public RecipientsResolverStatisticsDto(IssueEventRecipientResolver resolver) {
+    this.resolvedEventsCount = resolver.getResolvedEventsCount();
+    this.checkedUsersCount = resolver.getCheckedUsersCount();
+    this.averageMentionsMicros = resolver.getAverageMentionsMicros();
+    this.averageNotificationSchemeMicros = resolver.getAverageNotificationSchemeMicros();
+    this.averagePermissionsMicros = resolver.getAveragePermissionsMicros();
+  }
+}
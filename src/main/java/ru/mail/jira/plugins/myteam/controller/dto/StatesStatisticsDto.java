@@ -0,0 +1,23 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.controller.dto;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.Setter;
+import ru.mail.jira.plugins.myteam.service.StateManager;
+
+@Getter
+@Setter
+@XmlRootElement
+public class StatesStatisticsDto {
+  @XmlElement private long liveChatsCount;
+  @XmlElement private long evictionsCount;
+  @XmlElement private double averageStackDepth;
+
+  public StatesStatisticsDto(StateManager stateManager) {
+    this.liveChatsCount = stateManager.getLiveChatsCount();
+    this.evictionsCount = stateManager.getEvictionsCount();
+    this.averageStackDepth = stateManager.getAverageStackDepth();
+  }
+}
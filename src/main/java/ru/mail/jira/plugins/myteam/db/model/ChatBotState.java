@@ -0,0 +1,27 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.db.model;
+
+import java.util.Date;
+import net.java.ao.Entity;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.StringLength;
+import net.java.ao.schema.Table;
+
+@Table("MYTEAM_BOT_STATE")
+public interface ChatBotState extends Entity {
+  // Chat id of myteam chat
+  @Indexed
+  String getChatId();
+
+  void setChatId(String chatId);
+
+  // Serialized bot states stack of the chat
+  @StringLength(StringLength.UNLIMITED)
+  String getStates();
+
+  void setStates(String states);
+
+  Date getUpdated();
+
+  void setUpdated(Date updated);
+}
@@ -0,0 +1,54 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.db.model;
+
+import java.util.Date;
+import net.java.ao.Entity;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.StringLength;
+import net.java.ao.schema.Table;
+import org.jetbrains.annotations.Nullable;
+
+@Table("MYTEAM_OUTBOX")
+public interface OutboxMessage extends Entity {
+  // Chat id of myteam chat
+  String getChatId();
+
+  void setChatId(String chatId);
+
+  @StringLength(StringLength.UNLIMITED)
+  String getMessage();
+
+  void setMessage(String message);
+
+  // Serialized inline keyboard of the message
+  @Nullable
+  @StringLength(StringLength.UNLIMITED)
+  String getButtons();
+
+  void setButtons(@Nullable String buttons);
+
+  Date getCreated();
+
+  void setCreated(Date created);
+
+  @Indexed
+  Date getNextAttempt();
+
+  void setNextAttempt(Date nextAttempt);
+
+  int getAttempts();
+
+  void setAttempts(int attempts);
+
+  // Message is not sent anymore after too many attempts or rejection by myteam
+  @Indexed
+  boolean isDead();
+
+  void setDead(boolean dead);
+
+  @Nullable
+  @StringLength(StringLength.UNLIMITED)
+  String getLastError();
+
+  void setLastError(@Nullable String lastError);
+}
@@ -3,6 +3,7 @@ package ru.mail.jira.plugins.myteam.db.model;
 
 import java.util.Date;
 import net.java.ao.Entity;
+import net.java.ao.schema.Indexed;
 import net.java.ao.schema.StringLength;
 import org.jetbrains.annotations.Nullable;
 
@@ -21,7 +22,14 @@ public interface Reminder extends Entity {
 
   void setDescription(@Nullable String description);
 
+  @Indexed
   Date getDate();
 
   void setDate(@Nullable Date date);
+
+  /** Reminder is scheduled on some node and is not picked up by other job runs before this date */
+  @Nullable
+  Date getScheduledUntil();
+
+  void setScheduledUntil(@Nullable Date scheduledUntil);
 }
@@ -0,0 +1,50 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.db.repository;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import java.util.Date;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.java.ao.Query;
+import org.springframework.stereotype.Repository;
+import ru.mail.jira.plugins.myteam.db.model.ChatBotState;
+
+@Repository
+public class ChatBotStateRepository {
+
+  private final ActiveObjects ao;
+
+  public ChatBotStateRepository(@ComponentImport ActiveObjects ao) {
+    this.ao = ao;
+  }
+
+  @Nullable
+  public ChatBotState findByChatId(@Nonnull String chatId) {
+    ChatBotState[] entities =
+        ao.find(ChatBotState.class, Query.select().where("CHAT_ID = ?", chatId));
+    if (entities != null && entities.length > 0) {
+      return entities[0];
+    }
+    return null;
+  }
+
+  public void saveStates(@Nonnull String chatId, @Nonnull String states) {
+    ao.executeInTransaction(
+        () -> {
+          ChatBotState entity = findByChatId(chatId);
+          if (entity == null) {
+            entity = ao.create(ChatBotState.class);
+            entity.setChatId(chatId);
+          }
+          entity.setStates(states);
+          entity.setUpdated(new Date());
+          entity.save();
+          return entity;
+        });
+  }
+
+  public void deleteByChatId(@Nonnull String chatId) {
+    ao.deleteWithSQL(ChatBotState.class, "CHAT_ID = ?", chatId);
+  }
+}
@@ -0,0 +1,108 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.db.repository;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+import org.springframework.stereotype.Repository;
+import ru.mail.jira.plugins.myteam.db.model.OutboxMessage;
+
+@Repository
+public class OutboxMessageRepository {
+  private static final int DELETE_BATCH_SIZE = 500;
+
+  private final ActiveObjects ao;
+
+  public OutboxMessageRepository(@ComponentImport ActiveObjects ao) {
+    this.ao = ao;
+  }
+
+  public OutboxMessage create(
+      @Nonnull String chatId, @Nonnull String message, @Nullable String buttons) {
+    Date now = new Date();
+    return ao.create(
+        OutboxMessage.class,
+        new DBParam("CHAT_ID", chatId),
+        new DBParam("MESSAGE", message),
+        new DBParam("BUTTONS", buttons),
+        new DBParam("CREATED", now),
+        new DBParam("NEXT_ATTEMPT", now),
+        new DBParam("ATTEMPTS", 0),
+        new DBParam("DEAD", false));
+  }
+
+  public void createAll(@Nonnull Collection<String> chatIds, @Nonnull String message) {
+    ao.executeInTransaction(
+        () -> {
+          for (String chatId : chatIds) {
+            create(chatId, message, null);
+          }
+          return null;
+        });
+  }
+
+  /** Returns messages due to be sent in the order they were added */
+  public OutboxMessage[] findDue(@Nonnull Date now, int limit) {
+    return ao.find(
+        OutboxMessage.class,
+        Query.select()
+            .where("DEAD = ? AND NEXT_ATTEMPT <= ?", false, now)
+            .order("ID ASC")
+            .limit(limit));
+  }
+
+  /** Returns not due messages of given chats, which wait for retry, in the order they were added */
+  public OutboxMessage[] findWaiting(@Nonnull Date now, @Nonnull Collection<String> chatIds) {
+    if (chatIds.isEmpty()) {
+      return new OutboxMessage[0];
+    }
+    List<Object> params = new ArrayList<>(chatIds.size() + 2);
+    params.add(false);
+    params.add(now);
+    params.addAll(chatIds);
+    String placeholders = chatIds.stream().map(id -> "?").collect(Collectors.joining(", "));
+    return ao.find(
+        OutboxMessage.class,
+        Query.select("ID, CHAT_ID, NEXT_ATTEMPT")
+            .where(
+                "DEAD = ? AND NEXT_ATTEMPT > ? AND CHAT_ID IN (" + placeholders + ")",
+                params.toArray())
+            .order("ID ASC"));
+  }
+
+  public void deleteByIds(@Nonnull Collection<Integer> ids) {
+    for (List<Integer> batch : Lists.partition(new ArrayList<>(ids), DELETE_BATCH_SIZE)) {
+      String placeholders = batch.stream().map(id -> "?").collect(Collectors.joining(", "));
+      ao.deleteWithSQL(OutboxMessage.class, "ID IN (" + placeholders + ")", batch.toArray());
+    }
+  }
+
+  public void deleteDeadBefore(@Nonnull Date date) {
+    ao.deleteWithSQL(OutboxMessage.class, "DEAD = ? AND CREATED < ?", true, date);
+  }
+
+  public int countPending() {
+    return ao.count(OutboxMessage.class, Query.select().where("DEAD = ?", false));
+  }
+
+  public int countDead() {
+    return ao.count(OutboxMessage.class, Query.select().where("DEAD = ?", true));
+  }
+
+  @Nullable
+  public Date getOldestPendingCreated() {
+    OutboxMessage[] messages =
+        ao.find(
+            OutboxMessage.class, Query.select().where("DEAD = ?", false).order("ID ASC").limit(1));
+    return messages.length > 0 ? messages[0].getCreated() : null;
+  }
+}
@@ -2,9 +2,15 @@
 package ru.mail.jira.plugins.myteam.db.repository;
 
 import com.atlassian.activeobjects.external.ActiveObjects;
+import com.google.common.collect.Lists;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import net.java.ao.DBParam;
 import net.java.ao.Query;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -15,6 +21,7 @@ import ru.mail.jira.plugins.myteam.db.model.Reminder;
 
 @Component
 public class ReminderRepository extends PagingAndSortingRepository<Reminder, ReminderDto> {
+  private static final int DELETE_BATCH_SIZE = 500;
 
   public ReminderRepository(ActiveObjects ao) {
     super(ao);
@@ -38,13 +45,41 @@ public class ReminderRepository extends PagingAndSortingRepository<Reminder, Rem
     return null;
   }
 
-  public Reminder[] getRemindersBeforeDate(LocalDateTime date) {
+  /** Creates reminder, which is already scheduled by current node until given date */
+  public Reminder createScheduled(ReminderDto dto, Date scheduledUntil) {
+    return ao.create(
+        Reminder.class,
+        new DBParam("ISSUE_KEY", dto.getIssueKey()),
+        new DBParam("USER_EMAIL", dto.getUserEmail()),
+        new DBParam("DESCRIPTION", dto.getDescription()),
+        new DBParam("DATE", dto.getDate()),
+        new DBParam("SCHEDULED_UNTIL", scheduledUntil));
+  }
+
+  /** Returns reminders due before given date, which are not scheduled by any node */
+  public Reminder[] getNotScheduledRemindersBeforeDate(LocalDateTime date, Date now) {
     Query query =
         Query.select()
-            .where("DATE <= ?", Date.from(date.atZone(ZoneId.systemDefault()).toInstant()));
+            .where(
+                "DATE <= ? AND (SCHEDULED_UNTIL IS NULL OR SCHEDULED_UNTIL < ?)",
+                Date.from(date.atZone(ZoneId.systemDefault()).toInstant()),
+                now)
+            .order("DATE ASC");
     return ao.find(Reminder.class, query);
   }
 
+  public void markScheduled(Reminder reminder, Date scheduledUntil) {
+    reminder.setScheduledUntil(scheduledUntil);
+    reminder.save();
+  }
+
+  public void deleteByIds(Collection<Integer> ids) {
+    for (List<Integer> batch : Lists.partition(new ArrayList<>(ids), DELETE_BATCH_SIZE)) {
+      String placeholders = batch.stream().map(id -> "?").collect(Collectors.joining(", "));
+      ao.deleteWithSQL(Reminder.class, "ID IN (" + placeholders + ")", batch.toArray());
+    }
+  }
+
   public Reminder[] getIssueReminders(String issueKey, String email) {
     Query query =
         Query.select().where("ISSUE_KEY = ? AND USER_EMAIL = ?", issueKey, email).order("DATE ASC");
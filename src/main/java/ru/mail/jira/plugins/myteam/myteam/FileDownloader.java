@@ -0,0 +1,160 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.myteam;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import kong.unirest.HttpResponse;
+import kong.unirest.UnirestException;
+import kong.unirest.UnirestInstance;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.HttpClient;
+
+/**
+ * Downloads files from VK Teams through a fixed size buffer into temp files, so big files don't go
+ * through heap. Returned streams read the temp file and delete it on close. Parallel downloads are
+ * limited by the size of download pool.
+ */
+@Component
+public class FileDownloader implements DisposableBean {
+  private static final String THREADS_PROPERTY =
+      "ru.mail.jira.plugins.myteam.attachments.downloadThreads";
+  private static final String THREAD_NAME_PREFIX = "vkteam-file-download-";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Supplier<UnirestInstance> httpClient;
+  private final Path tempDir;
+  private final ExecutorService downloadExecutor;
+  private final AtomicInteger threadsCount = new AtomicInteger();
+  private final AtomicInteger activeDownloadsCount = new AtomicInteger();
+  private final AtomicLong maxBufferedBytes = new AtomicLong();
+  private final LongAdder downloadedFilesCount = new LongAdder();
+  private final LongAdder failedFilesCount = new LongAdder();
+  private final LongAdder downloadedBytes = new LongAdder();
+  private final LongAdder downloadNanos = new LongAdder();
+
+  @Autowired
+  public FileDownloader() {
+    this(
+        Math.max(1, Integer.getInteger(THREADS_PROPERTY, 4)),
+        HttpClient::getPrimaryClient,
+        Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  FileDownloader(int threads, Supplier<UnirestInstance> httpClient, Path tempDir) {
+    this.httpClient = httpClient;
+    this.tempDir = tempDir;
+    this.downloadExecutor =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, THREAD_NAME_PREFIX + threadsCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Downloads file in the calling thread, caller must close returned stream */
+  public InputStream download(String url) throws IOException {
+    Path file = Files.createTempFile(tempDir, "vkteam-file", ".tmp");
+    long startNanos = System.nanoTime();
+    int activeDownloads = activeDownloadsCount.incrementAndGet();
+    maxBufferedBytes.accumulateAndGet((long) activeDownloads * BUFFER_SIZE, Math::max);
+    try {
+      HttpResponse<Long> response =
+          httpClient.get().get(url).asObject(raw -> spool(raw.getContent(), file));
+      if (!response.isSuccess()) {
+        throw new IOException(
+            String.format("Unable to download file, server responded %d", response.getStatus()));
+      }
+      downloadedBytes.add(response.getBody());
+      downloadedFilesCount.increment();
+      return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+    } catch (IOException | RuntimeException e) {
+      failedFilesCount.increment();
+      Files.deleteIfExists(file);
+      // client wraps exceptions of response handler
+      Throwable cause = e instanceof UnirestException ? e.getCause() : e;
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      throw e;
+    } finally {
+      activeDownloadsCount.decrementAndGet();
+      downloadNanos.add(System.nanoTime() - startNanos);
+    }
+  }
+
+  /** Downloads file in download pool, caller must close stream of completed future */
+  public CompletableFuture<InputStream> downloadAsync(String url) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return download(url);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+        },
+        downloadExecutor);
+  }
+
+  @Override
+  public void destroy() {
+    downloadExecutor.shutdownNow();
+  }
+
+  public long getDownloadedFilesCount() {
+    return downloadedFilesCount.sum();
+  }
+
+  public long getFailedFilesCount() {
+    return failedFilesCount.sum();
+  }
+
+  public long getDownloadedBytes() {
+    return downloadedBytes.sum();
+  }
+
+  public long getDownloadMillis() {
+    return downloadNanos.sum() / 1_000_000;
+  }
+
+  public int getActiveDownloadsCount() {
+    return activeDownloadsCount.get();
+  }
+
+  public long getMaxBufferedBytes() {
+    return maxBufferedBytes.get();
+  }
+
+  private static long spool(InputStream content, Path file) {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long size = 0;
+      int read;
+      while ((read = content.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+        size += read;
+      }
+      return size;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -2,7 +2,6 @@
 package ru.mail.jira.plugins.myteam.myteam;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,6 +25,13 @@ public interface MyteamApiClient {
   HttpResponse<MessageResponse> sendMessageText(String chatId, @NotNull String text)
       throws UnirestException, IOException, MyteamServerErrorException;
 
+  /** Sends message with lower priority than replies to users, for notifications about events */
+  HttpResponse<MessageResponse> sendNotificationText(
+      String chatId,
+      @NotNull String text,
+      @Nullable List<List<InlineKeyboardMarkupButton>> inlineKeyboardMarkup)
+      throws UnirestException, IOException, MyteamServerErrorException;
+
   HttpResponse<StatusResponse> deleteMessages(String chatId, List<Long> messagesId)
       throws UnirestException, IOException, MyteamServerErrorException;
 
@@ -47,8 +53,6 @@ public interface MyteamApiClient {
   HttpResponse<FileResponse> getFile(String fileId)
       throws UnirestException, MyteamServerErrorException;
 
-  InputStream loadUrlFile(String url) throws UnirestException;
-
   HttpResponse<MessageResponse> editMessageText(
       String chatId,
       long messageId,
@@ -71,7 +75,8 @@ public interface MyteamApiClient {
   HttpResponse<ChatInfoResponse> getChatInfo(@Nonnull String chatId)
       throws UnirestException, MyteamServerErrorException;
 
-  HttpResponse<ChatMember> getMembers(@Nonnull String chatId) throws UnirestException;
+  HttpResponse<ChatMember> getMembers(@Nonnull String chatId)
+      throws UnirestException, MyteamServerErrorException;
 
   HttpResponse<BotMetaInfo> getSelfInfo() throws UnirestException, MyteamServerErrorException;
 
@@ -1,10 +1,9 @@
 /* (C)2020 */
 package ru.mail.jira.plugins.myteam.myteam;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import kong.unirest.*;
@@ -39,16 +38,21 @@ public class MyteamApiClientImpl implements MyteamApiClient {
   private final ObjectMapper objectMapper;
   private final PluginData pluginData;
   private final UnirestInstance retryClient;
+  private final OutboundRateLimiter outboundRateLimiter;
   private String apiToken;
   private String botApiUrl;
   private String botId;
 
   private static final int MAX_TEXT_LENGTH = 20000;
+  private static final int MAX_THROTTLED_ATTEMPTS = 3;
+  private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+  private static final int POLL_SOCKET_TIMEOUT_MARGIN = 2_500;
 
   @Autowired
-  public MyteamApiClientImpl(PluginData pluginData) {
+  public MyteamApiClientImpl(PluginData pluginData, OutboundRateLimiter outboundRateLimiter) {
     this.objectMapper = new ObjectMapper();
     this.pluginData = pluginData;
+    this.outboundRateLimiter = outboundRateLimiter;
     this.apiToken = pluginData.getToken();
     this.botApiUrl = pluginData.getBotApiUrl();
 
@@ -108,15 +112,40 @@ public class MyteamApiClientImpl implements MyteamApiClient {
       @NotNull String text,
       @Nullable List<List<InlineKeyboardMarkupButton>> inlineKeyboardMarkup)
       throws UnirestException, IOException, MyteamServerErrorException {
+    return sendMessageText(
+        chatId, text, inlineKeyboardMarkup, OutboundRateLimiter.Priority.INTERACTIVE);
+  }
+
+  @Override
+  public HttpResponse<MessageResponse> sendNotificationText(
+      String chatId,
+      @NotNull String text,
+      @Nullable List<List<InlineKeyboardMarkupButton>> inlineKeyboardMarkup)
+      throws UnirestException, IOException, MyteamServerErrorException {
+    return sendMessageText(chatId, text, inlineKeyboardMarkup, OutboundRateLimiter.Priority.BULK);
+  }
 
-    HttpResponse<MessageResponse> response = sendMessage(chatId, text, inlineKeyboardMarkup, true);
+  private HttpResponse<MessageResponse> sendMessageText(
+      String chatId,
+      @NotNull String text,
+      @Nullable List<List<InlineKeyboardMarkupButton>> inlineKeyboardMarkup,
+      OutboundRateLimiter.Priority priority)
+      throws UnirestException, IOException, MyteamServerErrorException {
+
+    HttpResponse<MessageResponse> response =
+        withRateLimit(
+            chatId, priority, () -> sendMessage(chatId, text, inlineKeyboardMarkup, true));
 
     if (response.getBody() != null
         && !response.getBody().isOk()
         && response.getBody().getDescription().equals("Format error")) {
       SentryClient.capture(
           StringUtils.isNotEmpty(text) ? text : "Empty string was sent to VK Teams");
-      response = sendMessage(chatId, Utils.unshieldText(text), inlineKeyboardMarkup, false);
+      response =
+          withRateLimit(
+              chatId,
+              priority,
+              () -> sendMessage(chatId, Utils.unshieldText(text), inlineKeyboardMarkup, false));
     }
 
     checkMyteamSendTextErrorException(response, chatId, text);
@@ -133,12 +162,16 @@ public class MyteamApiClientImpl implements MyteamApiClient {
   public HttpResponse<StatusResponse> deleteMessages(String chatId, List<Long> messagesId)
       throws UnirestException, MyteamServerErrorException {
     HttpResponse<StatusResponse> response =
-        retryClient
-            .get(botApiUrl + "/messages/deleteMessages")
-            .queryString("token", apiToken)
-            .queryString("chatId", chatId)
-            .queryString("msgId", messagesId)
-            .asObject(StatusResponse.class);
+        withRateLimit(
+            chatId,
+            OutboundRateLimiter.Priority.INTERACTIVE,
+            () ->
+                retryClient
+                    .get(botApiUrl + "/messages/deleteMessages")
+                    .queryString("token", apiToken)
+                    .queryString("chatId", chatId)
+                    .queryString("msgId", messagesId)
+                    .asObject(StatusResponse.class));
     checkMyteamServerErrorException(response, "deleteMessages");
     return response;
   }
@@ -152,6 +185,8 @@ public class MyteamApiClientImpl implements MyteamApiClient {
             .queryString("token", apiToken)
             .queryString("lastEventId", lastEventId)
             .queryString("pollTime", pollTime)
+            // long poll lasts up to poll time, which is longer than default socket timeout
+            .socketTimeout((int) TimeUnit.SECONDS.toMillis(pollTime) + POLL_SOCKET_TIMEOUT_MARGIN)
             .asObject(FetchResponse.class);
     checkMyteamServerErrorException(response, "getEvents");
     return response;
@@ -175,14 +210,18 @@ public class MyteamApiClientImpl implements MyteamApiClient {
       String queryId, @Nullable String text, boolean showAlert, @Nullable String url)
       throws UnirestException, MyteamServerErrorException {
     HttpResponse<JsonNode> response =
-        retryClient
-            .get(botApiUrl + "/messages/answerCallbackQuery")
-            .queryString("token", apiToken)
-            .queryString("queryId", queryId)
-            .queryString("text", text)
-            .queryString("showAlert", showAlert)
-            .queryString("url", url)
-            .asJson();
+        withRateLimit(
+            null,
+            OutboundRateLimiter.Priority.INTERACTIVE,
+            () ->
+                retryClient
+                    .get(botApiUrl + "/messages/answerCallbackQuery")
+                    .queryString("token", apiToken)
+                    .queryString("queryId", queryId)
+                    .queryString("text", text)
+                    .queryString("showAlert", showAlert)
+                    .queryString("url", url)
+                    .asJson());
     checkMyteamServerErrorException(response, "answerCallbackQuery");
     return response;
   }
@@ -206,11 +245,6 @@ public class MyteamApiClientImpl implements MyteamApiClient {
     return response;
   }
 
-  @Override
-  public InputStream loadUrlFile(String url) throws UnirestException {
-    return new ByteArrayInputStream(HttpClient.getPrimaryClient().get(url).asBytes().getBody());
-  }
-
   @Override
   public HttpResponse<MessageResponse> editMessageText(
       String chatId,
@@ -221,27 +255,37 @@ public class MyteamApiClientImpl implements MyteamApiClient {
     HttpResponse<MessageResponse> response;
     if (inlineKeyboardMarkup == null)
       response =
-          retryClient
-              .post(botApiUrl + "/messages/editText")
-              .header("Content-Type", ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
-              .field("token", apiToken)
-              .field("chatId", chatId)
-              .field("msgId", String.valueOf(messageId))
-              .field("text", text)
-              .field("parseMode", "MarkdownV2")
-              .asObject(MessageResponse.class);
-    else
+          withRateLimit(
+              chatId,
+              OutboundRateLimiter.Priority.INTERACTIVE,
+              () ->
+                  retryClient
+                      .post(botApiUrl + "/messages/editText")
+                      .header("Content-Type", ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
+                      .field("token", apiToken)
+                      .field("chatId", chatId)
+                      .field("msgId", String.valueOf(messageId))
+                      .field("text", text)
+                      .field("parseMode", "MarkdownV2")
+                      .asObject(MessageResponse.class));
+    else {
+      String inlineKeyboardMarkupJson = objectMapper.writeValueAsString(inlineKeyboardMarkup);
       response =
-          retryClient
-              .post(botApiUrl + "/messages/editText")
-              .header("Content-Type", ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
-              .field("token", apiToken)
-              .field("chatId", chatId)
-              .field("msgId", String.valueOf(messageId))
-              .field("text", text)
-              .field("parseMode", "MarkdownV2")
-              .field("inlineKeyboardMarkup", objectMapper.writeValueAsString(inlineKeyboardMarkup))
-              .asObject(MessageResponse.class);
+          withRateLimit(
+              chatId,
+              OutboundRateLimiter.Priority.INTERACTIVE,
+              () ->
+                  retryClient
+                      .post(botApiUrl + "/messages/editText")
+                      .header("Content-Type", ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
+                      .field("token", apiToken)
+                      .field("chatId", chatId)
+                      .field("msgId", String.valueOf(messageId))
+                      .field("text", text)
+                      .field("parseMode", "MarkdownV2")
+                      .field("inlineKeyboardMarkup", inlineKeyboardMarkupJson)
+                      .asObject(MessageResponse.class));
+    }
     checkMyteamSendTextErrorException(response, chatId, text);
 
     return response;
@@ -368,14 +412,18 @@ public class MyteamApiClientImpl implements MyteamApiClient {
   }
 
   @Override
-  public HttpResponse<ChatMember> getMembers(@Nonnull String chatId) throws UnirestException {
-    return retryClient
-        .post(botApiUrl + "/chats/getMembers")
-        .header("Accept", "application/json")
-        .header("Content-Type", ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
-        .field("token", apiToken)
-        .field("chatId", chatId)
-        .asObject(ChatMember.class);
+  public HttpResponse<ChatMember> getMembers(@Nonnull String chatId)
+      throws UnirestException, MyteamServerErrorException {
+    HttpResponse<ChatMember> response =
+        retryClient
+            .post(botApiUrl + "/chats/getMembers")
+            .header("Accept", "application/json")
+            .header("Content-Type", ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
+            .field("token", apiToken)
+            .field("chatId", chatId)
+            .asObject(ChatMember.class);
+    checkMyteamServerErrorException(response, "getMembers");
+    return response;
   }
 
   @Override
@@ -400,12 +448,16 @@ public class MyteamApiClientImpl implements MyteamApiClient {
   @Override
   public void pinMessage(long msgId, String chatId) throws MyteamServerErrorException {
     HttpResponse<StatusResponse> response =
-        retryClient
-            .get(botApiUrl + "/chats/pinMessage")
-            .queryString("token", apiToken)
-            .queryString("chatId", chatId)
-            .queryString("msgId", msgId)
-            .asObject(StatusResponse.class);
+        withRateLimit(
+            chatId,
+            OutboundRateLimiter.Priority.INTERACTIVE,
+            () ->
+                retryClient
+                    .get(botApiUrl + "/chats/pinMessage")
+                    .queryString("token", apiToken)
+                    .queryString("chatId", chatId)
+                    .queryString("msgId", msgId)
+                    .asObject(StatusResponse.class));
     checkMyteamServerErrorException(response, "pinMessage");
   }
 
@@ -418,6 +470,46 @@ public class MyteamApiClientImpl implements MyteamApiClient {
     }
   }
 
+  /**
+   * Waits for rate limiter before every attempt and repeats request after the time requested by
+   * server if it replied with 429 Too Many Requests
+   */
+  private <T, E extends Exception> HttpResponse<T> withRateLimit(
+      @Nullable String chatId, OutboundRateLimiter.Priority priority, OutboundRequest<T, E> request)
+      throws E {
+    HttpResponse<T> response = null;
+    for (int attempt = 1; attempt <= MAX_THROTTLED_ATTEMPTS; attempt++) {
+      try {
+        outboundRateLimiter.acquire(chatId, priority);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new UnirestException(e);
+      }
+      response = request.execute();
+      if (response.getStatus() != HttpStatus.TOO_MANY_REQUESTS) {
+        return response;
+      }
+      outboundRateLimiter.onThrottled(chatId, getRetryAfterMillis(response));
+    }
+    return response;
+  }
+
+  private static long getRetryAfterMillis(HttpResponse<?> response) {
+    String retryAfter = response.getHeaders().getFirst("Retry-After");
+    try {
+      return StringUtils.isBlank(retryAfter)
+          ? DEFAULT_RETRY_AFTER_MILLIS
+          : Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+    } catch (NumberFormatException e) {
+      return DEFAULT_RETRY_AFTER_MILLIS;
+    }
+  }
+
+  @FunctionalInterface
+  private interface OutboundRequest<T, E extends Exception> {
+    HttpResponse<T> execute() throws E;
+  }
+
   private HttpResponse<MessageResponse> sendMessage(
       String chatId,
       @NotNull String text,
@@ -2,13 +2,18 @@
 package ru.mail.jira.plugins.myteam.myteam;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import kong.unirest.HttpResponse;
 import kong.unirest.UnirestException;
 import org.jetbrains.annotations.Nullable;
@@ -21,6 +26,7 @@ import ru.mail.jira.plugins.myteam.bot.events.ButtonClickEvent;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
 import ru.mail.jira.plugins.myteam.myteam.dto.events.CallbackQueryEvent;
+import ru.mail.jira.plugins.myteam.myteam.dto.events.IcqEvent;
 import ru.mail.jira.plugins.myteam.myteam.dto.events.NewMessageEvent;
 import ru.mail.jira.plugins.myteam.myteam.dto.response.FetchResponse;
 
@@ -28,23 +34,59 @@ import ru.mail.jira.plugins.myteam.myteam.dto.response.FetchResponse;
 public class MyteamEventsFetcher {
   private static final Logger log = LoggerFactory.getLogger(MyteamEventsFetcher.class);
   private static final String THREAD_NAME_PREFIX_FORMAT = "icq-events-fetcher-%d";
+  private static final String PIPELINED_MODE_PROPERTY =
+      "ru.mail.jira.plugins.myteam.fetcher.pipelined";
+  private static final String DISPATCH_QUEUE_CAPACITY_PROPERTY =
+      "ru.mail.jira.plugins.myteam.fetcher.dispatchQueueCapacity";
+  private static final String MAX_POLL_TIME_PROPERTY =
+      "ru.mail.jira.plugins.myteam.fetcher.maxPollTime";
+  private static final long MIN_POLL_TIME_SECONDS = 2;
+  private static final long ERROR_DELAY_MILLIS = 500;
+  private static final long RATE_WINDOW_MILLIS = 10_000;
+  private static final long STOP_TIMEOUT_MILLIS = 1_000;
+
   private final MyteamApiClient myteamApiClient;
   private final MyteamEventsListener myteamEventsListener;
   private final AtomicBoolean isRunning = new AtomicBoolean(false);
+  private final boolean pipelined;
+  private final long maxPollTime;
+  private final BlockingQueue<FetchedBatch> dispatchQueue;
+  private final LongAdder dispatchedEventsCount = new LongAdder();
   @Nullable private ScheduledExecutorService fetcherExecutorService;
   @Nullable private ScheduledFuture<?> currentFetchJobFuture;
-  private long lastEventId = 0;
+  @Nullable private ExecutorService pipelineExecutorService;
+  // id of last dispatched event, next start fetches events after it
+  private volatile long lastEventId = 0;
+  // changed on every start and stop, threads of previous run can't change state of the next one
+  private volatile int generation = 0;
+  private volatile long pollTime = MIN_POLL_TIME_SECONDS;
+  private volatile long lastDispatchLagMillis = 0;
+  private volatile long lastDispatchTime = 0;
+  private volatile double eventsPerSecond = 0;
+  private long rateWindowStart = System.currentTimeMillis();
+  private long rateWindowEvents = 0;
 
   @Autowired
   public MyteamEventsFetcher(
       MyteamApiClient myteamApiClient, MyteamEventsListener myteamEventsListener) {
     this.myteamApiClient = myteamApiClient;
     this.myteamEventsListener = myteamEventsListener;
+    this.pipelined = Boolean.getBoolean(PIPELINED_MODE_PROPERTY);
+    this.maxPollTime = Math.max(MIN_POLL_TIME_SECONDS, Long.getLong(MAX_POLL_TIME_PROPERTY, 15));
+    this.dispatchQueue =
+        new ArrayBlockingQueue<>(
+            Math.max(1, Integer.getInteger(DISPATCH_QUEUE_CAPACITY_PROPERTY, 64)));
   }
 
   public void start() {
     log.debug("IcqEventsFetcher starting ...");
     if (isRunning.compareAndSet(false, true)) {
+      final int runGeneration = nextGeneration();
+      if (pipelined) {
+        startPipelined(runGeneration);
+        log.debug("IcqEventsFetcher started in pipelined mode");
+        return;
+      }
       fetcherExecutorService =
           Executors.newSingleThreadScheduledExecutor(
               new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_PREFIX_FORMAT).build());
@@ -65,38 +107,19 @@ public class MyteamEventsFetcher {
   }
 
   public void fetchIcqEvents() {
+    final int runGeneration = generation;
     try {
       log.debug("IcqEventsFetcher fetch icq events started  lastEventId={}...", lastEventId);
-      HttpResponse<FetchResponse> httpResponse = myteamApiClient.getEvents(lastEventId, 2);
+      long fetchedAfterEventId = lastEventId;
+      HttpResponse<FetchResponse> httpResponse =
+          myteamApiClient.getEvents(fetchedAfterEventId, MIN_POLL_TIME_SECONDS);
       if (httpResponse.getStatus() == 200) {
         log.debug("IcqEventsFetcher handle icq events started ...");
-        // TODO зачем тут атомик ? forEach же не параллельный ...
-        AtomicLong eventId = new AtomicLong(lastEventId);
-        Optional.ofNullable(httpResponse.getBody())
-            .map(FetchResponse::getEvents)
-            .ifPresent(
-                icqEvents ->
-                    icqEvents.forEach(
-                        event -> {
-                          try {
-                            if (event instanceof NewMessageEvent) {
-                              myteamEventsListener.publishEvent(
-                                  new ChatMessageEvent((NewMessageEvent) event));
-                            }
-                            if (event instanceof CallbackQueryEvent) {
-                              myteamEventsListener.publishEvent(
-                                  new ButtonClickEvent((CallbackQueryEvent) event));
-                            }
-                          } catch (Exception e) {
-                            log.error(
-                                "Exception inside fetchIcqEvents occurred with event = {}",
-                                event,
-                                e);
-                          } finally {
-                            eventId.set(event.getEventId());
-                          }
-                        }));
-        this.lastEventId = eventId.get();
+        List<IcqEvent> icqEvents = getEvents(httpResponse);
+        updateLastEventId(
+            runGeneration,
+            dispatchEvents(
+                icqEvents, System.currentTimeMillis(), fetchedAfterEventId, runGeneration));
       }
       log.debug("IcqEventsFetcher fetchIcqEvents finished.... ");
     } catch (UnirestException | MyteamServerErrorException e) {
@@ -113,6 +136,28 @@ public class MyteamEventsFetcher {
       if (fetcherExecutorService != null) {
         fetcherExecutorService.shutdownNow();
       }
+      if (pipelineExecutorService != null) {
+        pipelineExecutorService.shutdownNow();
+        try {
+          // wait for dispatch loop to settle last dispatched event id
+          pipelineExecutorService.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      // long poll can outlive stop, events fetched by it are not dispatched after restart
+      nextGeneration();
+      if (pipelineExecutorService != null) {
+        int droppedBatches = dispatchQueue.size();
+        dispatchQueue.clear();
+        if (droppedBatches > 0) {
+          log.debug(
+              "IcqEventsFetcher stopped with {} not dispatched batches, they are fetched again"
+                  + " after event {}",
+              droppedBatches,
+              lastEventId);
+        }
+      }
     }
   }
 
@@ -123,4 +168,189 @@ public class MyteamEventsFetcher {
   public void resetLastEventId() {
     this.lastEventId = 0;
   }
+
+  public long getLastEventId() {
+    return lastEventId;
+  }
+
+  public boolean isPipelined() {
+    return pipelined;
+  }
+
+  public int getDispatchQueueSize() {
+    return dispatchQueue.size();
+  }
+
+  public long getPollTime() {
+    return pollTime;
+  }
+
+  public long getDispatchedEventsCount() {
+    return dispatchedEventsCount.sum();
+  }
+
+  public double getEventsPerSecond() {
+    // rate is recalculated on dispatch only, so it is outdated when there are no events
+    if (System.currentTimeMillis() - lastDispatchTime > 2 * RATE_WINDOW_MILLIS) {
+      return 0;
+    }
+    return eventsPerSecond;
+  }
+
+  public long getLastDispatchLagMillis() {
+    return lastDispatchLagMillis;
+  }
+
+  private void startPipelined(int runGeneration) {
+    pollTime = MIN_POLL_TIME_SECONDS;
+    pipelineExecutorService =
+        Executors.newFixedThreadPool(
+            2, new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_PREFIX_FORMAT).build());
+    long fetchedEventId = lastEventId;
+    pipelineExecutorService.execute(() -> fetchLoop(runGeneration, fetchedEventId));
+    pipelineExecutorService.execute(() -> dispatchLoop(runGeneration));
+  }
+
+  /**
+   * Next long-poll request is sent right after previous batch is queued, so batches are fetched
+   * while previous ones are dispatched. Full dispatch queue blocks fetching. Last event id is moved
+   * by dispatch loop only, so batches dropped on stop are fetched again after restart.
+   */
+  private void fetchLoop(int runGeneration, long fetchedEventId) {
+    while (isCurrent(runGeneration)) {
+      try {
+        HttpResponse<FetchResponse> httpResponse =
+            myteamApiClient.getEvents(fetchedEventId, pollTime);
+        if (httpResponse.getStatus() != 200) {
+          Thread.sleep(ERROR_DELAY_MILLIS);
+          continue;
+        }
+        List<IcqEvent> icqEvents = getEvents(httpResponse);
+        if (icqEvents.isEmpty()) {
+          // nothing happens, so wait for events longer
+          pollTime = Math.min(pollTime * 2, maxPollTime);
+          continue;
+        }
+        pollTime = MIN_POLL_TIME_SECONDS;
+        fetchedEventId = icqEvents.get(icqEvents.size() - 1).getEventId();
+        dispatchQueue.put(new FetchedBatch(runGeneration, icqEvents, System.currentTimeMillis()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (UnirestException | MyteamServerErrorException e) {
+        log.error("unirest exception occurred", e);
+        pollTime = MIN_POLL_TIME_SECONDS;
+        sleepAfterError();
+      } catch (Exception e) {
+        log.error("An exception occurred inside events fetch loop", e);
+        pollTime = MIN_POLL_TIME_SECONDS;
+        sleepAfterError();
+      }
+    }
+  }
+
+  private void dispatchLoop(int runGeneration) {
+    while (isCurrent(runGeneration)) {
+      try {
+        FetchedBatch batch = dispatchQueue.take();
+        if (batch.generation != runGeneration) {
+          // fetched by loop of previous run after it was stopped
+          continue;
+        }
+        updateLastEventId(
+            runGeneration,
+            dispatchEvents(batch.events, batch.fetchedAt, lastEventId, runGeneration));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception e) {
+        log.error("An exception occurred inside events dispatch loop", e);
+      }
+    }
+  }
+
+  private synchronized int nextGeneration() {
+    return ++generation;
+  }
+
+  private boolean isCurrent(int runGeneration) {
+    return isRunning.get()
+        && generation == runGeneration
+        && !Thread.currentThread().isInterrupted();
+  }
+
+  /** Stop changes generation under the same lock, so stopped run can't move last event id */
+  private synchronized void updateLastEventId(int runGeneration, long eventId) {
+    if (generation == runGeneration) {
+      lastEventId = eventId;
+    }
+  }
+
+  private void sleepAfterError() {
+    try {
+      Thread.sleep(ERROR_DELAY_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static List<IcqEvent> getEvents(HttpResponse<FetchResponse> httpResponse) {
+    return Optional.ofNullable(httpResponse.getBody())
+        .map(FetchResponse::getEvents)
+        .orElse(Collections.emptyList());
+  }
+
+  /**
+   * @return id of last dispatched event
+   */
+  private long dispatchEvents(
+      List<IcqEvent> icqEvents, long fetchedAt, long lastEventId, int runGeneration) {
+    long eventId = lastEventId;
+    for (IcqEvent event : icqEvents) {
+      if (!isRunning.get() || generation != runGeneration) {
+        // the rest of batch is fetched again after restart
+        break;
+      }
+      try {
+        if (event instanceof NewMessageEvent) {
+          myteamEventsListener.publishEvent(new ChatMessageEvent((NewMessageEvent) event));
+        }
+        if (event instanceof CallbackQueryEvent) {
+          myteamEventsListener.publishEvent(new ButtonClickEvent((CallbackQueryEvent) event));
+        }
+      } catch (Exception e) {
+        log.error("Exception inside fetchIcqEvents occurred with event = {}", event, e);
+      } finally {
+        eventId = event.getEventId();
+      }
+    }
+    if (!icqEvents.isEmpty()) {
+      updateStatistics(icqEvents.size(), fetchedAt);
+    }
+    return eventId;
+  }
+
+  private synchronized void updateStatistics(int eventsCount, long fetchedAt) {
+    long now = System.currentTimeMillis();
+    dispatchedEventsCount.add(eventsCount);
+    lastDispatchLagMillis = now - fetchedAt;
+    lastDispatchTime = now;
+    rateWindowEvents += eventsCount;
+    long elapsed = now - rateWindowStart;
+    if (elapsed >= RATE_WINDOW_MILLIS) {
+      eventsPerSecond = rateWindowEvents * 1000.0 / elapsed;
+      rateWindowEvents = 0;
+      rateWindowStart = now;
+    }
+  }
+
+  private static class FetchedBatch {
+    private final int generation;
+    private final List<IcqEvent> events;
+    private final long fetchedAt;
+
+    private FetchedBatch(int generation, List<IcqEvent> events, long fetchedAt) {
+      this.generation = generation;
+      this.events = events;
+      this.fetchedAt = fetchedAt;
+    }
+  }
 }
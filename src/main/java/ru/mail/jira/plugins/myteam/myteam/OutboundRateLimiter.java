@@ -0,0 +1,196 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.myteam;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits rate of outbound Bot API calls with token buckets, one shared by all calls and one per
+ * chat. Callers wait until both buckets have a token. Bulk notifications can't take the last global
+ * tokens while interactive replies are waiting, so replies to users are not stuck behind big
+ * notification bursts. Throttling reported by server pauses all calls for the requested time.
+ */
+@Slf4j
+@Component
+public class OutboundRateLimiter {
+  private static final String GLOBAL_RATE_PROPERTY =
+      "ru.mail.jira.plugins.myteam.outbound.globalRate";
+  private static final String GLOBAL_BURST_PROPERTY =
+      "ru.mail.jira.plugins.myteam.outbound.globalBurst";
+  private static final String CHAT_RATE_PROPERTY = "ru.mail.jira.plugins.myteam.outbound.chatRate";
+  private static final String CHAT_BURST_PROPERTY =
+      "ru.mail.jira.plugins.myteam.outbound.chatBurst";
+  private static final long CHAT_BUCKET_IDLE_MINUTES = 10;
+
+  public enum Priority {
+    /** Replies to user actions in chat */
+    INTERACTIVE,
+    /** Notifications about Jira events */
+    BULK
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition tokensChanged = lock.newCondition();
+  private final TokenBucket globalBucket;
+  private final double chatRate;
+  private final double chatBurst;
+  private final Cache<String, TokenBucket> chatBuckets;
+  private int waitingInteractiveCount;
+  private long pausedUntilNanos;
+
+  private final LongAdder acquiredCount = new LongAdder();
+  private final LongAdder delayedCount = new LongAdder();
+  private final LongAdder throttledCount = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  public OutboundRateLimiter() {
+    this(
+        Math.max(1, Integer.getInteger(GLOBAL_RATE_PROPERTY, 30)),
+        Math.max(1, Integer.getInteger(GLOBAL_BURST_PROPERTY, 30)),
+        Math.max(1, Integer.getInteger(CHAT_RATE_PROPERTY, 2)),
+        Math.max(1, Integer.getInteger(CHAT_BURST_PROPERTY, 5)));
+  }
+
+  OutboundRateLimiter(double globalRate, double globalBurst, double chatRate, double chatBurst) {
+    long now = System.nanoTime();
+    this.globalBucket = new TokenBucket(globalRate, globalBurst, now);
+    this.pausedUntilNanos = now;
+    this.chatRate = chatRate;
+    this.chatBurst = chatBurst;
+    this.chatBuckets =
+        Caffeine.newBuilder().expireAfterAccess(CHAT_BUCKET_IDLE_MINUTES, TimeUnit.MINUTES).build();
+  }
+
+  /** Blocks until call to the chat is allowed, chat id is null for calls not bound to chat */
+  public void acquire(@Nullable String chatId, Priority priority) throws InterruptedException {
+    long startNanos = System.nanoTime();
+    TokenBucket chatBucket =
+        chatId == null
+            ? null
+            : chatBuckets.get(chatId, key -> new TokenBucket(chatRate, chatBurst, startNanos));
+    boolean interactive = priority == Priority.INTERACTIVE;
+    boolean delayed = false;
+    lock.lock();
+    try {
+      if (interactive) {
+        waitingInteractiveCount++;
+      }
+      try {
+        while (true) {
+          long now = System.nanoTime();
+          long waitNanos = pausedUntilNanos - now;
+          if (waitNanos <= 0) {
+            globalBucket.refill(now);
+            // bulk calls leave one global token for every waiting interactive call, if there are
+            // more waiting calls than bucket can hold, bulk calls wait until they are signalled
+            double reserved = interactive ? 0 : waitingInteractiveCount;
+            waitNanos = globalBucket.nanosUntil(1 + reserved);
+            if (chatBucket != null) {
+              chatBucket.refill(now);
+              waitNanos = Math.max(waitNanos, chatBucket.nanosUntil(1));
+            }
+          }
+          if (waitNanos <= 0) {
+            globalBucket.tokens--;
+            if (chatBucket != null) {
+              chatBucket.tokens--;
+            }
+            break;
+          }
+          delayed = true;
+          tokensChanged.awaitNanos(waitNanos);
+        }
+      } finally {
+        if (interactive) {
+          waitingInteractiveCount--;
+          tokensChanged.signalAll();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    long waitedNanos = System.nanoTime() - startNanos;
+    acquiredCount.increment();
+    totalWaitNanos.add(waitedNanos);
+    maxWaitNanos.accumulateAndGet(waitedNanos, Math::max);
+    if (delayed) {
+      delayedCount.increment();
+    }
+  }
+
+  /** Pauses all outbound calls after server replied that bot sends too many requests */
+  public void onThrottled(@Nullable String chatId, long retryAfterMillis) {
+    throttledCount.increment();
+    log.warn("Bot API throttled call to chat {}, pausing for {} ms", chatId, retryAfterMillis);
+    lock.lock();
+    try {
+      pausedUntilNanos =
+          Math.max(
+              pausedUntilNanos,
+              System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+      tokensChanged.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getAcquiredCount() {
+    return acquiredCount.sum();
+  }
+
+  public long getDelayedCount() {
+    return delayedCount.sum();
+  }
+
+  public long getThrottledCount() {
+    return throttledCount.sum();
+  }
+
+  public long getAverageWaitMillis() {
+    long acquired = acquiredCount.sum();
+    return acquired == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / acquired);
+  }
+
+  public long getMaxWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+
+  /** Guarded by limiter lock */
+  private static class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    private TokenBucket(double tokensPerSecond, double capacity, long now) {
+      this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+      this.capacity = capacity;
+      this.tokens = capacity;
+      this.refilledAt = now;
+    }
+
+    private void refill(long now) {
+      if (now > refilledAt) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+      }
+    }
+
+    private long nanosUntil(double requiredTokens) {
+      if (tokens >= requiredTokens) {
+        return 0;
+      }
+      return Math.max(1, (long) Math.ceil((requiredTokens - tokens) / tokensPerNano));
+    }
+  }
+}
@@ -1,6 +1,8 @@
 /* (C)2021 */
 package ru.mail.jira.plugins.myteam.myteam.dto.chats;
 
+import lombok.Getter;
+import lombok.Setter;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.codehaus.jackson.annotate.JsonSubTypes;
 import org.codehaus.jackson.annotate.JsonTypeInfo;
@@ -17,4 +19,9 @@ import org.codehaus.jackson.annotate.JsonTypeInfo;
   @JsonSubTypes.Type(value = ChannelChatInfo.class, name = "channel")
 })
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class ChatInfoResponse {}
+@Getter
+@Setter
+public class ChatInfoResponse {
+  // filled by Bot API when chat can't be returned
+  private String description;
+}
@@ -15,4 +15,5 @@ import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 public class ChatMember {
   public List<Member> members;
   public boolean ok;
+  public String description;
 }
@@ -0,0 +1,48 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.protocol;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.ToString;
+
+/**
+ * Per recipient results of message broadcast keyed by chat id. Users without email have no chat, so
+ * they are reported separately by user key.
+ */
+@ToString
+public class BroadcastResult {
+  public enum Status {
+    /** Message is stored in outbox and will be sent */
+    QUEUED,
+    /** User is inactive or disabled bot notifications */
+    SKIPPED,
+    /** Message was not stored, because queue is full or outbox storage failed */
+    FAILED
+  }
+
+  private final Map<String, Status> statuses;
+  private final Set<String> usersWithoutChatId;
+
+  public BroadcastResult(Map<String, Status> statuses, Collection<String> usersWithoutChatId) {
+    this.statuses = Collections.unmodifiableMap(new LinkedHashMap<>(statuses));
+    this.usersWithoutChatId = Collections.unmodifiableSet(new LinkedHashSet<>(usersWithoutChatId));
+  }
+
+  /** Statuses of messages by chat id */
+  public Map<String, Status> getStatuses() {
+    return statuses;
+  }
+
+  /** Keys of users which got no message, because they have no email */
+  public Set<String> getUsersWithoutChatId() {
+    return usersWithoutChatId;
+  }
+
+  public int getCount(Status status) {
+    return (int) statuses.values().stream().filter(status::equals).count();
+  }
+}
@@ -2,7 +2,9 @@
 package ru.mail.jira.plugins.myteam.protocol;
 
 import com.atlassian.jira.user.ApplicationUser;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.LinkIssueWithChatException;
@@ -44,6 +46,41 @@ public interface MyteamService {
    */
   void sendRawMessageToUserGroup(String groupName, String message);
 
+  /**
+   * Broadcast message to members of Jira group without waiting for it to be sent.
+   *
+   * @param groupName name of Jira group
+   * @param message sent message
+   * @param rawMessage send message as is without shielding
+   * @return future completed when message is queued for every member
+   */
+  CompletableFuture<BroadcastResult> broadcastMessageToGroup(
+      String groupName, String message, boolean rawMessage);
+
+  /**
+   * Broadcast message to users without waiting for it to be sent. Users sharing email get one
+   * message.
+   *
+   * @param users recipients of the message
+   * @param message sent message
+   * @param rawMessage send message as is without shielding
+   * @return future completed when message is queued for every user
+   */
+  CompletableFuture<BroadcastResult> broadcastMessageToUsers(
+      Collection<ApplicationUser> users, String message, boolean rawMessage);
+
+  /**
+   * Broadcast message to chats without waiting for it to be sent. Duplicate chat ids get one
+   * message.
+   *
+   * @param chatIds recipients of the message
+   * @param message sent message
+   * @param rawMessage send message as is without shielding
+   * @return future completed when message is queued for every chat
+   */
+  CompletableFuture<BroadcastResult> broadcastMessageToChats(
+      Collection<String> chatIds, String message, boolean rawMessage);
+
   /**
    * Send shielded message to recipient with id in Mail.Ru Agent.
    *
@@ -0,0 +1,17 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
+
+/** Storage of bot states shared by all cluster nodes, so dialogs survive bot failover */
+public interface BotStateStore {
+
+  @Nullable
+  List<BotState> load(String chatId, long maxIdleMinutes);
+
+  void save(String chatId, List<BotState> states);
+
+  void delete(String chatId);
+}
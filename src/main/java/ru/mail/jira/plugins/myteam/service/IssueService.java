@@ -52,6 +52,13 @@ public interface IssueService {
   SearchResults<Issue> searchByJqlQuery(Query query, ApplicationUser user, int page, int pageSize)
       throws SearchException, ParseException;
 
+  /** Finds ids of first issues matching jql in search order, issues itself are not loaded */
+  SearchResults<Long> searchIssueIdsByJql(String jql, ApplicationUser user, int maxIssues)
+      throws SearchException, ParseException;
+
+  /** Loads issues with one query, issues are returned in the order of ids, missing are skipped */
+  List<Issue> getIssuesByIds(List<Long> issueIds);
+
   void watchIssue(String issueKey, @Nullable ApplicationUser user)
       throws IssuePermissionException, IssueNotFoundException, IssueWatchingException;
 
@@ -81,6 +88,9 @@ public interface IssueService {
   List<Comment> getIssueComments(String issueKey, ApplicationUser user)
       throws IssuePermissionException, IssueNotFoundException;
 
+  /** Loads comments in the order of ids, comments missing or hidden from user are skipped */
+  List<Comment> getCommentsByIds(List<Long> commentIds, @Nullable ApplicationUser user);
+
   Project getProject(String projectKey, @Nullable ApplicationUser user)
       throws PermissionException, ProjectBannedException;
 
@@ -94,6 +104,6 @@ public interface IssueService {
   boolean changeIssueAssignee(String issueKey, String userMention, @Nullable ApplicationUser user)
       throws UserNotFoundException, AssigneeChangeValidationException;
 
-  IssueTextConverter.@Nullable AttachUploadInfo attachFileToIssue(
-      final Issue issue, final File file, final ApplicationUser author);
+  List<IssueTextConverter.AttachUploadInfo> attachFilesToIssue(
+      final Issue issue, final List<File> files, final ApplicationUser author);
 }
@@ -21,4 +21,15 @@ public interface StateManager {
   void setState(String chatId, BotState state, boolean deletePrevious);
 
   void revertState(String chatId);
+
+  /** Writes states of chat to shared storage after one of them was changed in place */
+  void saveStates(String chatId);
+
+  void clearLocalStates();
+
+  long getLiveChatsCount();
+
+  long getEvictionsCount();
+
+  double getAverageStackDepth();
 }
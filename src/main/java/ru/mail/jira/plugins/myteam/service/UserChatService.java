@@ -84,6 +84,8 @@ public interface UserChatService {
 
   void revertState(String chatId);
 
+  void saveStates(String chatId);
+
   boolean isChatAdmin(ChatMessageEvent event, String userId);
 
   void getChatInfo(final String chat) throws MyteamServerErrorException;
@@ -0,0 +1,190 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.SentryClient;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.AssigningIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.CommentingIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.JqlSearchState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.ViewingIssueCommentsState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.ViewingIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.EmptyState;
+import ru.mail.jira.plugins.myteam.component.JiraMarkdownToChatMarkdownConverter;
+import ru.mail.jira.plugins.myteam.db.model.ChatBotState;
+import ru.mail.jira.plugins.myteam.db.repository.ChatBotStateRepository;
+import ru.mail.jira.plugins.myteam.service.BotStateStore;
+import ru.mail.jira.plugins.myteam.service.IssueService;
+import ru.mail.jira.plugins.myteam.service.RulesEngine;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+/**
+ * Stores bot states in Active Objects table. States hold references to services, so only their data
+ * is stored and services are injected back on load. Stack is stored up to the first state which
+ * can't be restored this way, such states are kept on the responding node only.
+ */
+@Slf4j
+@Component
+public class BotStateStoreImpl implements BotStateStore {
+  private static final TypeReference<List<StoredBotState>> STORED_STATES_TYPE =
+      new TypeReference<List<StoredBotState>>() {};
+
+  private final ChatBotStateRepository chatBotStateRepository;
+  private final UserChatService userChatService;
+  private final IssueService issueService;
+  private final RulesEngine rulesEngine;
+  private final JiraMarkdownToChatMarkdownConverter jiraMarkdownToChatMarkdownConverter;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  public BotStateStoreImpl(
+      ChatBotStateRepository chatBotStateRepository,
+      @Lazy UserChatService userChatService,
+      @Lazy IssueService issueService,
+      @Lazy RulesEngine rulesEngine,
+      @Lazy JiraMarkdownToChatMarkdownConverter jiraMarkdownToChatMarkdownConverter) {
+    this.chatBotStateRepository = chatBotStateRepository;
+    this.userChatService = userChatService;
+    this.issueService = issueService;
+    this.rulesEngine = rulesEngine;
+    this.jiraMarkdownToChatMarkdownConverter = jiraMarkdownToChatMarkdownConverter;
+  }
+
+  @Override
+  @Nullable
+  public List<BotState> load(String chatId, long maxIdleMinutes) {
+    ChatBotState entity = chatBotStateRepository.findByChatId(chatId);
+    if (entity == null) {
+      return null;
+    }
+    long idleMillis = System.currentTimeMillis() - entity.getUpdated().getTime();
+    if (idleMillis > TimeUnit.MINUTES.toMillis(maxIdleMinutes)) {
+      chatBotStateRepository.deleteByChatId(chatId);
+      return null;
+    }
+    try {
+      List<StoredBotState> storedStates =
+          objectMapper.readValue(entity.getStates(), STORED_STATES_TYPE);
+      List<BotState> states = new ArrayList<>(storedStates.size());
+      for (StoredBotState storedState : storedStates) {
+        BotState state = restoreState(storedState);
+        if (state == null) {
+          break;
+        }
+        states.add(state);
+      }
+      return states.isEmpty() ? null : states;
+    } catch (IOException e) {
+      log.error("Unable to read bot states of chat {}", chatId, e);
+      SentryClient.capture(e);
+      return null;
+    }
+  }
+
+  @Override
+  public void save(String chatId, List<BotState> states) {
+    List<StoredBotState> storedStates = new ArrayList<>(states.size());
+    for (BotState state : states) {
+      StoredBotState storedState = storeState(state);
+      if (storedState == null) {
+        break;
+      }
+      storedStates.add(storedState);
+    }
+    if (storedStates.isEmpty()) {
+      chatBotStateRepository.deleteByChatId(chatId);
+      return;
+    }
+    try {
+      chatBotStateRepository.saveStates(chatId, objectMapper.writeValueAsString(storedStates));
+    } catch (IOException e) {
+      log.error("Unable to write bot states of chat {}", chatId, e);
+      SentryClient.capture(e);
+    }
+  }
+
+  @Override
+  public void delete(String chatId) {
+    chatBotStateRepository.deleteByChatId(chatId);
+  }
+
+  @Nullable
+  private static StoredBotState storeState(BotState state) {
+    StoredBotState storedState = new StoredBotState();
+    storedState.setType(state.getClass().getSimpleName());
+    storedState.setWaiting(state.isWaiting());
+    if (state instanceof ViewingIssueState) {
+      storedState.setIssueKey(((ViewingIssueState) state).getIssueKey());
+    } else if (state instanceof JqlSearchState) {
+      storedState.setJql(((JqlSearchState) state).getJql());
+      storedState.setPage(((JqlSearchState) state).getPage());
+    } else if (state instanceof CommentingIssueState) {
+      storedState.setIssueKey(((CommentingIssueState) state).getIssueKey());
+    } else if (state instanceof AssigningIssueState) {
+      storedState.setIssueKey(((AssigningIssueState) state).getIssueKey());
+    } else if (state instanceof ViewingIssueCommentsState) {
+      storedState.setIssueKey(((ViewingIssueCommentsState) state).getIssueKey());
+      storedState.setPage(((ViewingIssueCommentsState) state).getPage());
+    } else if (!(state instanceof EmptyState)) {
+      return null;
+    }
+    return storedState;
+  }
+
+  @Nullable
+  private BotState restoreState(StoredBotState storedState) {
+    BotState state;
+    String type = String.valueOf(storedState.getType());
+    if (type.equals(ViewingIssueState.class.getSimpleName())) {
+      state = new ViewingIssueState(userChatService, storedState.getIssueKey());
+    } else if (type.equals(JqlSearchState.class.getSimpleName())) {
+      JqlSearchState jqlSearchState =
+          new JqlSearchState(userChatService, issueService, storedState.getJql());
+      jqlSearchState.setPage(storedState.getPage());
+      state = jqlSearchState;
+    } else if (type.equals(CommentingIssueState.class.getSimpleName())) {
+      state = new CommentingIssueState(storedState.getIssueKey());
+    } else if (type.equals(AssigningIssueState.class.getSimpleName())) {
+      state = new AssigningIssueState(storedState.getIssueKey(), userChatService);
+    } else if (type.equals(ViewingIssueCommentsState.class.getSimpleName())) {
+      ViewingIssueCommentsState viewingIssueCommentsState =
+          new ViewingIssueCommentsState(
+              storedState.getIssueKey(),
+              issueService,
+              userChatService,
+              rulesEngine,
+              jiraMarkdownToChatMarkdownConverter);
+      viewingIssueCommentsState.setPage(storedState.getPage());
+      state = viewingIssueCommentsState;
+    } else if (type.equals(EmptyState.class.getSimpleName())) {
+      state = new EmptyState();
+    } else {
+      log.warn("Unknown stored bot state type {}", type);
+      return null;
+    }
+    state.setWaiting(storedState.isWaiting());
+    return state;
+  }
+
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  public static class StoredBotState {
+    @Nullable private String type;
+    private boolean waiting;
+    @Nullable private String issueKey;
+    @Nullable private String jql;
+    private int page;
+  }
+}
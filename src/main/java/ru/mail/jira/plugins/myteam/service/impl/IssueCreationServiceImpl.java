@@ -3,11 +3,24 @@ package ru.mail.jira.plugins.myteam.service.impl;
 
 import static ru.mail.jira.plugins.myteam.commons.Utils.removeAllEmojis;
 
+import com.atlassian.cache.Cache;
+import com.atlassian.cache.CacheManager;
+import com.atlassian.cache.CacheSettingsBuilder;
+import com.atlassian.event.api.EventListener;
 import com.atlassian.greenhopper.api.customfield.ManagedCustomFieldsService;
 import com.atlassian.jira.bc.issue.IssueService;
 import com.atlassian.jira.bc.issue.link.RemoteIssueLinkService;
 import com.atlassian.jira.bc.issue.search.SearchService;
 import com.atlassian.jira.config.IssueTypeManager;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.event.fields.layout.field.FieldLayoutSchemeAddedToProjectEvent;
+import com.atlassian.jira.event.fields.layout.field.FieldLayoutSchemeEntityCreatedEvent;
+import com.atlassian.jira.event.fields.layout.field.FieldLayoutSchemeEntityRemovedEvent;
+import com.atlassian.jira.event.fields.layout.field.FieldLayoutSchemeEntityUpdatedEvent;
+import com.atlassian.jira.event.fields.layout.field.FieldLayoutSchemeRemovedFromProjectEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldCreatedEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldDeletedEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldUpdatedEvent;
 import com.atlassian.jira.event.type.EventDispatchOption;
 import com.atlassian.jira.exception.PermissionException;
 import com.atlassian.jira.issue.*;
@@ -15,11 +28,23 @@ import com.atlassian.jira.issue.customfields.manager.OptionsManager;
 import com.atlassian.jira.issue.fields.CustomField;
 import com.atlassian.jira.issue.fields.Field;
 import com.atlassian.jira.issue.fields.FieldManager;
+import com.atlassian.jira.issue.fields.config.manager.FieldConfigSchemeCreatedEvent;
+import com.atlassian.jira.issue.fields.config.manager.FieldConfigSchemeDeletedEvent;
+import com.atlassian.jira.issue.fields.config.manager.FieldConfigSchemeUpdatedEvent;
 import com.atlassian.jira.issue.fields.config.manager.PrioritySchemeManager;
 import com.atlassian.jira.issue.fields.layout.field.FieldLayout;
 import com.atlassian.jira.issue.fields.layout.field.FieldLayoutItem;
 import com.atlassian.jira.issue.fields.layout.field.FieldLayoutManager;
 import com.atlassian.jira.issue.fields.screen.FieldScreenLayoutItem;
+import com.atlassian.jira.issue.fields.screen.FieldScreenLayoutItemCreatedEvent;
+import com.atlassian.jira.issue.fields.screen.FieldScreenLayoutItemDeletedEvent;
+import com.atlassian.jira.issue.fields.screen.FieldScreenSchemeItemCreatedEvent;
+import com.atlassian.jira.issue.fields.screen.FieldScreenSchemeItemDeletedEvent;
+import com.atlassian.jira.issue.fields.screen.FieldScreenSchemeItemUpdatedEvent;
+import com.atlassian.jira.issue.fields.screen.FieldScreenUpdatedEvent;
+import com.atlassian.jira.issue.fields.screen.issuetype.IssueTypeScreenSchemeEntityCreatedEvent;
+import com.atlassian.jira.issue.fields.screen.issuetype.IssueTypeScreenSchemeEntityDeletedEvent;
+import com.atlassian.jira.issue.fields.screen.issuetype.IssueTypeScreenSchemeEntityUpdatedEvent;
 import com.atlassian.jira.issue.fields.screen.issuetype.IssueTypeScreenSchemeManager;
 import com.atlassian.jira.issue.issuetype.IssueType;
 import com.atlassian.jira.issue.link.RemoteIssueLinkBuilder;
@@ -34,12 +59,14 @@ import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
 import com.atlassian.sal.api.message.I18nResolver;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Service;
 import ru.mail.jira.plugins.myteam.bot.configuration.createissue.customfields.*;
+import ru.mail.jira.plugins.myteam.bot.listeners.IEventListener;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.IncorrectIssueTypeException;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.IssueCreationValidationException;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.ProjectBannedException;
@@ -52,7 +79,10 @@ import ru.mail.jira.plugins.myteam.service.IssueCreationService;
 
 @Service
 @ExportAsService(LifecycleAware.class)
-public class IssueCreationServiceImpl implements IssueCreationService, LifecycleAware {
+public class IssueCreationServiceImpl
+    implements IssueCreationService, LifecycleAware, IEventListener {
+  private static final String FIELD_PLANS_CACHE_NAME =
+      IssueCreationServiceImpl.class.getName() + ".fieldPlans";
 
   private final I18nResolver i18nResolver;
   private final IssueTypeScreenSchemeManager issueTypeScreenSchemeManager;
@@ -72,6 +102,10 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
   private final CreateIssueFieldValueHandler defaultHandler;
   private final MessageFormatter messageFormatter;
   private final ru.mail.jira.plugins.myteam.service.IssueService myteamIssueService;
+  // create screen fields by project and issue type ids
+  private final Cache<String, List<PlannedField>> fieldPlans;
+  private final Map<String, CreateIssueFieldValueHandler> fieldValueHandlers =
+      new ConcurrentHashMap<>();
 
   public IssueCreationServiceImpl(
       @ComponentImport I18nResolver i18nResolver,
@@ -89,7 +123,8 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
       @ComponentImport ManagedCustomFieldsService managedCustomFieldsService,
       UserData userData,
       MessageFormatter messageFormatter,
-      ru.mail.jira.plugins.myteam.service.IssueService myteamIssueService) {
+      ru.mail.jira.plugins.myteam.service.IssueService myteamIssueService,
+      @ComponentImport CacheManager cacheManager) {
     this.i18nResolver = i18nResolver;
     this.issueTypeScreenSchemeManager = issueTypeScreenSchemeManager;
     this.issueTypeManager = issueTypeManager;
@@ -108,6 +143,15 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
     this.prioritySchemeManager = prioritySchemeManager;
     this.supportedIssueCreationCustomFields = new HashMap<>();
     this.defaultHandler = new DefaultFieldValueHandler(i18nResolver);
+    this.fieldPlans =
+        cacheManager.getCache(
+            FIELD_PLANS_CACHE_NAME,
+            null,
+            new CacheSettingsBuilder()
+                .remote()
+                .replicateViaInvalidation()
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .build());
   }
 
   @Override
@@ -125,6 +169,7 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
 
     AssigneeValueHandler assignee = new AssigneeValueHandler(userData, i18nResolver);
     supportedIssueCreationCustomFields.put(assignee.getClassName(), assignee);
+    fieldValueHandlers.clear();
   }
 
   @Override
@@ -137,55 +182,169 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
       Set<String> includedFieldIds,
       Set<String> excludedFieldIds,
       IssueFieldsFilter issueFieldsFilter) {
+    LinkedHashMap<Field, String> fieldsValues = new LinkedHashMap<>();
+    for (PlannedField plannedField : getFieldPlan(project, issueType)) {
+      String fieldId = plannedField.field.getId();
+      boolean filterResult = false;
+      switch (issueFieldsFilter) {
+        case REQUIRED:
+          filterResult = plannedField.required;
+          break;
+        case NON_REQUIRED:
+          filterResult = !plannedField.required;
+          break;
+      }
+      if ((filterResult || (includedFieldIds != null && includedFieldIds.contains(fieldId)))
+          && (excludedFieldIds == null || !excludedFieldIds.contains(fieldId))) {
+        fieldsValues.putIfAbsent(plannedField.field, "");
+      }
+    }
+    return fieldsValues;
+  }
+
+  @EventListener
+  public void onEvent(ClearCacheEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(CustomFieldCreatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(CustomFieldUpdatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(CustomFieldDeletedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldConfigSchemeCreatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldConfigSchemeUpdatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldConfigSchemeDeletedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldLayoutSchemeEntityCreatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldLayoutSchemeEntityUpdatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldLayoutSchemeEntityRemovedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldLayoutSchemeAddedToProjectEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldLayoutSchemeRemovedFromProjectEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldScreenUpdatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldScreenLayoutItemCreatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldScreenLayoutItemDeletedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldScreenSchemeItemCreatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldScreenSchemeItemUpdatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(FieldScreenSchemeItemDeletedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(IssueTypeScreenSchemeEntityCreatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(IssueTypeScreenSchemeEntityUpdatedEvent event) {
+    clearFieldPlans();
+  }
+
+  @EventListener
+  public void onEvent(IssueTypeScreenSchemeEntityDeletedEvent event) {
+    clearFieldPlans();
+  }
+
+  private void clearFieldPlans() {
+    fieldPlans.removeAll();
+    fieldValueHandlers.clear();
+  }
+
+  /** Returns create screen fields in screen order, which are in layout and in issue scope */
+  private List<PlannedField> getFieldPlan(Project project, IssueType issueType) {
+    return fieldPlans.get(
+        project.getId() + ":" + issueType.getId(), () -> buildFieldPlan(project, issueType));
+  }
+
+  private List<PlannedField> buildFieldPlan(Project project, IssueType issueType) {
     FieldLayout fieldLayout = fieldLayoutManager.getFieldLayout(project, issueType.getId());
     // getting (selectedProject, selectedIssueType, selectedIssueOperation) fields screen
-    return issueTypeScreenSchemeManager
+    List<PlannedField> plannedFields = new ArrayList<>();
+    issueTypeScreenSchemeManager
         .getIssueTypeScreenScheme(project)
         .getEffectiveFieldScreenScheme(issueType)
         .getFieldScreen(IssueOperations.CREATE_ISSUE_OPERATION)
         .getTabs()
-        .stream()
-        .flatMap(
-            tab ->
-                tab.getFieldScreenLayoutItems().stream()
-                    .filter(
-                        fieldScreenLayoutItem -> {
-                          String fieldId = fieldScreenLayoutItem.getFieldId();
-                          FieldLayoutItem fieldLayoutItem = fieldLayout.getFieldLayoutItem(fieldId);
-                          if (fieldLayoutItem == null) return false;
-                          boolean isRequired = fieldLayoutItem.isRequired();
-                          boolean filterResult = false;
-                          switch (issueFieldsFilter) {
-                            case REQUIRED:
-                              filterResult = isRequired;
-                              break;
-                            case NON_REQUIRED:
-                              filterResult = !isRequired;
-                              break;
-                          }
-                          return filterResult
-                              || (includedFieldIds != null && includedFieldIds.contains(fieldId));
-                        })
-                    .filter(
-                        layoutItem ->
-                            excludedFieldIds == null
-                                || !excludedFieldIds.contains(layoutItem.getFieldId()))
-                    .filter(
-                        fieldScreenLayoutItem -> {
-                          // all custom fields must be in project and issue type context scope
-                          if (fieldManager.isCustomFieldId(fieldScreenLayoutItem.getFieldId())) {
-                            CustomField cf =
-                                (CustomField) fieldScreenLayoutItem.getOrderableField();
-                            return isCFInScopeOfProjectAndIssueType(
-                                cf, project.getId(), issueType.getId());
-                          }
-                          // all fields which is not custom fields, are not filtered
-                          return true;
-                        })
-                    .map(FieldScreenLayoutItem::getOrderableField))
-        .collect(
-            Collectors.toMap(
-                Function.identity(), (field) -> "", (v1, v2) -> v1, LinkedHashMap::new));
+        .forEach(
+            tab -> {
+              for (FieldScreenLayoutItem fieldScreenLayoutItem : tab.getFieldScreenLayoutItems()) {
+                String fieldId = fieldScreenLayoutItem.getFieldId();
+                FieldLayoutItem fieldLayoutItem = fieldLayout.getFieldLayoutItem(fieldId);
+                if (fieldLayoutItem == null) continue;
+                // all custom fields must be in project and issue type context scope
+                if (fieldManager.isCustomFieldId(fieldId)
+                    && !isCFInScopeOfProjectAndIssueType(
+                        (CustomField) fieldScreenLayoutItem.getOrderableField(),
+                        project.getId(),
+                        issueType.getId())) continue;
+                plannedFields.add(
+                    new PlannedField(
+                        fieldScreenLayoutItem.getOrderableField(), fieldLayoutItem.isRequired()));
+              }
+            });
+    return Collections.unmodifiableList(plannedFields);
   }
 
   private IssueService.CreateValidationResult validateIssueWithGivenFields(
@@ -217,10 +376,11 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
 
   @Override
   public CreateIssueFieldValueHandler getFieldValueHandler(Field field) {
-    String className = getFieldClassName(field);
-    if (supportedIssueCreationCustomFields.containsKey(className))
-      return supportedIssueCreationCustomFields.get(className);
-    return defaultHandler;
+    return fieldValueHandlers.computeIfAbsent(
+        field.getId(),
+        fieldId ->
+            supportedIssueCreationCustomFields.getOrDefault(
+                getFieldClassName(field), defaultHandler));
   }
 
   @Override
@@ -402,4 +562,14 @@ public class IssueCreationServiceImpl implements IssueCreationService, Lifecycle
                       || scheme.getAssociatedIssueTypeIds().contains(issueTypeId));
             });
   }
+
+  private static final class PlannedField {
+    private final Field field;
+    private final boolean required;
+
+    private PlannedField(Field field, boolean required) {
+      this.field = field;
+      this.required = required;
+    }
+  }
 }
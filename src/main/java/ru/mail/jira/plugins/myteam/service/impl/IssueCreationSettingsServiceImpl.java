@@ -26,11 +26,11 @@ import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Service;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.SettingsTagAlreadyExistsException;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
 import ru.mail.jira.plugins.myteam.component.MessageFormatter;
 import ru.mail.jira.plugins.myteam.controller.dto.IssueCreationSettingsDto;
 import ru.mail.jira.plugins.myteam.db.model.IssueCreationSettings;
 import ru.mail.jira.plugins.myteam.db.repository.IssueCreationSettingsRepository;
-import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatInfoResponse;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.GroupChatInfo;
 import ru.mail.jira.plugins.myteam.service.IssueCreationSettingsService;
@@ -47,7 +47,7 @@ public class IssueCreationSettingsServiceImpl implements IssueCreationSettingsSe
   private final IssueCreationSettingsRepository issueCreationSettingsRepository;
   private final IssueTypeManager issueTypeManager;
   private final ProjectService projectService;
-  private final MyteamApiClient myteamApiClient;
+  private final ChatMetadataCache chatMetadataCache;
   private final MessageFormatter messageFormatter;
 
   private final Cache<String, Optional<IssueCreationSettingsDto>> issueSettingsCache;
@@ -55,7 +55,7 @@ public class IssueCreationSettingsServiceImpl implements IssueCreationSettingsSe
   public IssueCreationSettingsServiceImpl(
       IssueCreationSettingsRepository issueCreationSettingsRepository,
       MessageFormatter messageFormatter,
-      MyteamApiClient myteamApiClient,
+      ChatMetadataCache chatMetadataCache,
       @ComponentImport IssueTypeManager issueTypeManager,
       @ComponentImport ProjectService projectService,
       @ComponentImport CacheManager cacheManager) {
@@ -63,7 +63,7 @@ public class IssueCreationSettingsServiceImpl implements IssueCreationSettingsSe
     this.issueTypeManager = issueTypeManager;
     this.projectService = projectService;
     this.messageFormatter = messageFormatter;
-    this.myteamApiClient = myteamApiClient;
+    this.chatMetadataCache = chatMetadataCache;
 
     issueSettingsCache =
         cacheManager.getCache(
@@ -253,7 +253,7 @@ public class IssueCreationSettingsServiceImpl implements IssueCreationSettingsSe
     }
 
     try {
-      ChatInfoResponse chatInfo = myteamApiClient.getChatInfo(settings.getChatId()).getBody();
+      ChatInfoResponse chatInfo = chatMetadataCache.getChatInfo(settings.getChatId());
       if (chatInfo instanceof GroupChatInfo) {
         settingsDto.setChatTitle(((GroupChatInfo) chatInfo).getTitle());
       }
@@ -20,8 +20,12 @@ import com.atlassian.jira.issue.comments.Comment;
 import com.atlassian.jira.issue.customfields.CustomFieldType;
 import com.atlassian.jira.issue.fields.CustomField;
 import com.atlassian.jira.issue.fields.config.manager.IssueTypeSchemeManager;
+import com.atlassian.jira.issue.index.DocumentConstants;
 import com.atlassian.jira.issue.issuetype.IssueType;
+import com.atlassian.jira.issue.search.DocumentWithId;
 import com.atlassian.jira.issue.search.SearchException;
+import com.atlassian.jira.issue.search.SearchProvider;
+import com.atlassian.jira.issue.search.SearchQuery;
 import com.atlassian.jira.issue.search.SearchResults;
 import com.atlassian.jira.issue.watchers.WatcherManager;
 import com.atlassian.jira.permission.ProjectPermissions;
@@ -30,6 +34,7 @@ import com.atlassian.jira.project.ProjectManager;
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.security.PermissionManager;
 import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.util.SimpleErrorCollection;
 import com.atlassian.jira.util.thread.JiraThreadLocalUtils;
 import com.atlassian.jira.web.bean.PagerFilter;
 import com.atlassian.jira.workflow.IssueWorkflowManager;
@@ -39,6 +44,7 @@ import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import com.atlassian.query.Query;
 import com.opensymphony.workflow.loader.ActionDescriptor;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.naming.NoPermissionException;
 import org.apache.commons.lang3.StringUtils;
@@ -66,6 +72,7 @@ public class IssueServiceImpl implements IssueService {
   private final PermissionManager permissionManager;
   private final WatcherManager watcherManager;
   private final SearchService searchService;
+  private final SearchProvider searchProvider;
   private final CommentService commentService;
   private final ProjectManager projectManager;
   private final IssueTypeSchemeManager issueTypeSchemeManager;
@@ -84,6 +91,7 @@ public class IssueServiceImpl implements IssueService {
       @ComponentImport PermissionManager permissionManager,
       @ComponentImport WatcherManager watcherManager,
       @ComponentImport SearchService searchService,
+      @ComponentImport SearchProvider searchProvider,
       @ComponentImport CommentService commentService,
       @ComponentImport ProjectManager projectManager,
       @ComponentImport IssueTypeSchemeManager issueTypeSchemeManager,
@@ -100,6 +108,7 @@ public class IssueServiceImpl implements IssueService {
     this.permissionManager = permissionManager;
     this.watcherManager = watcherManager;
     this.searchService = searchService;
+    this.searchProvider = searchProvider;
     this.commentService = commentService;
     this.projectManager = projectManager;
     this.issueTypeSchemeManager = issueTypeSchemeManager;
@@ -183,6 +192,45 @@ public class IssueServiceImpl implements IssueService {
     return results;
   }
 
+  @Override
+  public SearchResults<Long> searchIssueIdsByJql(String jql, ApplicationUser user, int maxIssues)
+      throws SearchException, ParseException {
+    JiraThreadLocalUtils.preCall();
+    try {
+      SearchService.ParseResult parseResult = searchService.parseQuery(user, jql);
+      if (!parseResult.isValid()) {
+        throw new ParseException("Incorrect jql expression");
+      }
+      Query sanitizedJql = searchService.sanitiseSearchQuery(user, parseResult.getQuery());
+      // only issue id field is read from index documents, issues are not built
+      SearchResults<DocumentWithId> documents =
+          searchProvider.search(
+              SearchQuery.create(sanitizedJql, user),
+              new PagerFilter<>(0, maxIssues),
+              Set.of(DocumentConstants.ISSUE_ID));
+      List<Long> issueIds =
+          documents.getResults().stream()
+              .map(
+                  document ->
+                      Long.parseLong(document.getDocument().get(DocumentConstants.ISSUE_ID)))
+              .collect(Collectors.toList());
+      return new SearchResults<>(issueIds, documents.getTotal(), maxIssues, 0);
+    } finally {
+      JiraThreadLocalUtils.postCall();
+    }
+  }
+
+  @Override
+  public List<Issue> getIssuesByIds(List<Long> issueIds) {
+    Map<Long, Issue> issuesById =
+        issueManager.getIssueObjects(issueIds).stream()
+            .collect(Collectors.toMap(Issue::getId, Function.identity()));
+    return issueIds.stream()
+        .map(issuesById::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
   @Override
   public void watchIssue(String issueKey, @Nullable ApplicationUser user)
       throws IssuePermissionException, IssueNotFoundException, IssueWatchingException {
@@ -408,6 +456,19 @@ public class IssueServiceImpl implements IssueService {
     return commentService.getCommentsForUser(user, getIssueByUser(issueKey, user));
   }
 
+  @Override
+  public List<Comment> getCommentsByIds(List<Long> commentIds, @Nullable ApplicationUser user) {
+    List<Comment> comments = new ArrayList<>(commentIds.size());
+    for (Long commentId : commentIds) {
+      // comment service checks issue and comment visibility
+      Comment comment = commentService.getCommentById(user, commentId, new SimpleErrorCollection());
+      if (comment != null) {
+        comments.add(comment);
+      }
+    }
+    return comments;
+  }
+
   private boolean isProjectExcluded(Long projectId) {
     return pluginData.getExcludingProjectIds().contains(projectId);
   }
@@ -445,8 +506,8 @@ public class IssueServiceImpl implements IssueService {
   }
 
   @Override
-  public IssueTextConverter.@Nullable AttachUploadInfo attachFileToIssue(
-      final Issue issue, final File file, final ApplicationUser author) {
-    return issueTextConverter.attachFileToIssue(issue, file, author);
+  public List<IssueTextConverter.AttachUploadInfo> attachFilesToIssue(
+      final Issue issue, final List<File> files, final ApplicationUser author) {
+    return issueTextConverter.attachFilesToIssue(issue, files, author);
   }
 }
@@ -3,7 +3,6 @@ package ru.mail.jira.plugins.myteam.service.impl;
 
 import com.atlassian.crowd.embedded.api.Group;
 import com.atlassian.jira.avatar.AvatarService;
-import com.atlassian.jira.bc.user.search.UserSearchService;
 import com.atlassian.jira.config.properties.APKeys;
 import com.atlassian.jira.config.properties.ApplicationProperties;
 import com.atlassian.jira.exception.IssueNotFoundException;
@@ -14,11 +13,13 @@ import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.jira.user.util.UserManager;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import com.atlassian.sal.api.message.I18nResolver;
+import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 import kong.unirest.HttpResponse;
 import kong.unirest.UnirestException;
 import lombok.extern.slf4j.Slf4j;
@@ -31,9 +32,12 @@ import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.events.JiraIssueViewEvent;
 import ru.mail.jira.plugins.myteam.bot.events.JiraNotifyEvent;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationOutbox;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationPipeline;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.LinkIssueWithChatException;
 import ru.mail.jira.plugins.myteam.commons.Utils;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
 import ru.mail.jira.plugins.myteam.component.UserData;
 import ru.mail.jira.plugins.myteam.controller.dto.ChatMemberDto;
 import ru.mail.jira.plugins.myteam.controller.dto.ChatMetaDto;
@@ -43,6 +47,7 @@ import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatInfoResponse;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatMemberId;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.CreateChatResponse;
+import ru.mail.jira.plugins.myteam.protocol.BroadcastResult;
 import ru.mail.jira.plugins.myteam.protocol.MyteamService;
 import ru.mail.jira.plugins.myteam.service.PluginData;
 import ru.mail.jira.plugins.myteam.service.model.MyteamChatMetaDto;
@@ -50,11 +55,14 @@ import ru.mail.jira.plugins.myteam.service.model.MyteamChatMetaDto;
 @Service
 @Slf4j
 public class MyteamServiceImpl implements MyteamService {
+  private static final int BROADCAST_CHUNK_SIZE = 200;
+
   private final GroupManager groupManager;
   private final UserData userData;
   private final MyteamEventsListener myteamEventsListener;
 
   private final MyteamApiClient myteamApiClient;
+  private final ChatMetadataCache chatMetadataCache;
   private final PluginData pluginData;
   private final I18nResolver i18nResolver;
   private final MyteamChatRepository myteamChatRepository;
@@ -63,38 +71,44 @@ public class MyteamServiceImpl implements MyteamService {
 
   private final UserManager userManager;
 
-  private final UserSearchService userSearchService;
-
   private final AvatarService avatarService;
 
   private final IssueManager issueManager;
 
+  private final NotificationPipeline notificationPipeline;
+
+  private final NotificationOutbox notificationOutbox;
+
   @Autowired
   public MyteamServiceImpl(
       @ComponentImport GroupManager groupManager,
       MyteamEventsListener myteamEventsListener,
       UserData userData,
       MyteamApiClient myteamApiClient,
+      ChatMetadataCache chatMetadataCache,
       PluginData pluginData,
       @ComponentImport I18nResolver i18nResolver,
       MyteamChatRepository myteamChatRepository,
       @ComponentImport ApplicationProperties applicationProperties,
       @ComponentImport UserManager userManager,
-      @ComponentImport UserSearchService userSearchService,
       @ComponentImport AvatarService avatarService,
-      @ComponentImport IssueManager issueManager) {
+      @ComponentImport IssueManager issueManager,
+      NotificationPipeline notificationPipeline,
+      NotificationOutbox notificationOutbox) {
     this.groupManager = groupManager;
     this.userData = userData;
     this.myteamEventsListener = myteamEventsListener;
     this.issueManager = issueManager;
     this.myteamApiClient = myteamApiClient;
+    this.chatMetadataCache = chatMetadataCache;
     this.pluginData = pluginData;
     this.i18nResolver = i18nResolver;
     this.myteamChatRepository = myteamChatRepository;
     this.applicationProperties = applicationProperties;
     this.userManager = userManager;
-    this.userSearchService = userSearchService;
     this.avatarService = avatarService;
+    this.notificationPipeline = notificationPipeline;
+    this.notificationOutbox = notificationOutbox;
   }
 
   @Override
@@ -117,6 +131,70 @@ public class MyteamServiceImpl implements MyteamService {
     sendMessageToUserGroup(groupName, message, this::sendRawMessage);
   }
 
+  @Override
+  public CompletableFuture<BroadcastResult> broadcastMessageToGroup(
+      String groupName, String message, boolean rawMessage) {
+    if (groupName == null || StringUtils.isEmpty(message))
+      throw new IllegalArgumentException("Group name and message must be specified");
+
+    Group group = groupManager.getGroup(groupName);
+    if (group == null)
+      throw new IllegalArgumentException(
+          String.format("Group with name %s does not exist", groupName));
+
+    return broadcastMessageToUsers(groupManager.getUsersInGroup(group), message, rawMessage);
+  }
+
+  @Override
+  public CompletableFuture<BroadcastResult> broadcastMessageToUsers(
+      Collection<ApplicationUser> users, String message, boolean rawMessage) {
+    if (users == null || StringUtils.isEmpty(message))
+      throw new IllegalArgumentException("Users and message must be specified");
+
+    Set<String> usersWithoutChatId = new LinkedHashSet<>();
+    Map<String, ApplicationUser> usersByChatId = new LinkedHashMap<>();
+    Set<String> chatIds = new HashSet<>();
+    for (ApplicationUser user : users) {
+      if (user == null) {
+        continue;
+      }
+      String chatId = user.getEmailAddress();
+      if (StringUtils.isBlank(chatId)) {
+        usersWithoutChatId.add(user.getKey());
+      } else if (chatIds.add(chatId.toLowerCase(Locale.ROOT))) {
+        usersByChatId.put(chatId, user);
+      }
+    }
+    return broadcast(
+        new ArrayList<>(usersByChatId.keySet()),
+        usersWithoutChatId,
+        rawMessage ? message : Utils.shieldText(message),
+        chatId -> {
+          ApplicationUser user = usersByChatId.get(chatId);
+          return user.isActive() && userData.isEnabled(user);
+        });
+  }
+
+  @Override
+  public CompletableFuture<BroadcastResult> broadcastMessageToChats(
+      Collection<String> chatIds, String message, boolean rawMessage) {
+    if (chatIds == null || StringUtils.isEmpty(message))
+      throw new IllegalArgumentException("Chat ids and message must be specified");
+
+    // chat ids are case sensitive, only emails of users are folded
+    Set<String> uniqueChatIds = new LinkedHashSet<>();
+    for (String chatId : chatIds) {
+      if (StringUtils.isNotBlank(chatId)) {
+        uniqueChatIds.add(chatId);
+      }
+    }
+    return broadcast(
+        new ArrayList<>(uniqueChatIds),
+        Collections.emptySet(),
+        rawMessage ? message : Utils.shieldText(message),
+        chatId -> true);
+  }
+
   @Override
   public void sendMessage(String chatId, String message) {
     sendRawOrShieldedMessage(chatId, message, false);
@@ -148,6 +226,7 @@ public class MyteamServiceImpl implements MyteamService {
       throws LinkIssueWithChatException {
     final String validatedIssueKey = validateIssueKey(issueKey);
     myteamChatRepository.persistChat(chatId, validatedIssueKey);
+    chatMetadataCache.invalidate(chatId);
   }
 
   @Nullable
@@ -206,6 +285,70 @@ public class MyteamServiceImpl implements MyteamService {
     return false;
   }
 
+  /**
+   * Queues message in chunks on notification workers, so caller returns at once and number of
+   * parallel chunks is limited by workers count. Chunk is never run on the caller thread, chunk not
+   * fitting to the queue is reported as failed.
+   */
+  private CompletableFuture<BroadcastResult> broadcast(
+      final List<String> chatIds,
+      final Set<String> usersWithoutChatId,
+      final String message,
+      final Predicate<String> recipientFilter) {
+    List<CompletableFuture<Map<String, BroadcastResult.Status>>> chunkResults = new ArrayList<>();
+    for (List<String> chunk : Lists.partition(chatIds, BROADCAST_CHUNK_SIZE)) {
+      CompletableFuture<Map<String, BroadcastResult.Status>> chunkResult =
+          new CompletableFuture<>();
+      boolean queued =
+          notificationPipeline.enqueueOrDrop(
+              String.format("broadcast to %d chats", chunk.size()),
+              () -> {
+                try {
+                  chunkResult.complete(queueBroadcastChunk(chunk, message, recipientFilter));
+                } catch (Exception e) {
+                  chunkResult.completeExceptionally(e);
+                }
+              });
+      if (!queued) {
+        chunkResult.completeExceptionally(new IllegalStateException("Notification queue is full"));
+      }
+      chunkResults.add(
+          chunkResult.handle(
+              (statuses, e) -> {
+                if (e == null) {
+                  return statuses;
+                }
+                log.error("Unable to broadcast message to {} chats", chunk.size(), e);
+                Map<String, BroadcastResult.Status> failed = new LinkedHashMap<>();
+                chunk.forEach(chatId -> failed.put(chatId, BroadcastResult.Status.FAILED));
+                return failed;
+              }));
+    }
+    return CompletableFuture.allOf(chunkResults.toArray(new CompletableFuture<?>[0]))
+        .thenApply(
+            ignored -> {
+              Map<String, BroadcastResult.Status> statuses = new LinkedHashMap<>();
+              chunkResults.forEach(chunkResult -> statuses.putAll(chunkResult.join()));
+              return new BroadcastResult(statuses, usersWithoutChatId);
+            });
+  }
+
+  private Map<String, BroadcastResult.Status> queueBroadcastChunk(
+      final List<String> chatIds, final String message, final Predicate<String> recipientFilter) {
+    Map<String, BroadcastResult.Status> statuses = new LinkedHashMap<>();
+    List<String> recipients = new ArrayList<>(chatIds.size());
+    for (String chatId : chatIds) {
+      if (recipientFilter.test(chatId)) {
+        recipients.add(chatId);
+      } else {
+        statuses.put(chatId, BroadcastResult.Status.SKIPPED);
+      }
+    }
+    notificationOutbox.enqueueAll(recipients, message);
+    recipients.forEach(chatId -> statuses.put(chatId, BroadcastResult.Status.QUEUED));
+    return statuses;
+  }
+
   private void sendMessageToUserGroup(
       final String groupName,
       final String message,
@@ -260,6 +403,7 @@ public class MyteamServiceImpl implements MyteamService {
           && createChatResponse.getBody().getSn() != null) {
         final String chatId = createChatResponse.getBody().getSn();
         myteamChatRepository.persistChat(chatId, validatedIssueKey);
+        chatMetadataCache.invalidate(chatId);
         sendFirstMessageWithCommandsInCreatedChat(chatId);
         myteamEventsListener.publishEvent(
             new JiraIssueViewEvent(chatId, validatedIssueKey, loggedInUser, true));
@@ -366,16 +510,8 @@ public class MyteamServiceImpl implements MyteamService {
   @NotNull
   private List<ApplicationUser> mapChatMembersIdToJiraApplicationUsers(
       @NotNull final List<ChatMemberId> chatMembers) {
-    return chatMembers.stream()
-        .map(
-            member ->
-                StreamSupport.stream(
-                        userSearchService.findUsersByEmail(member.getSn()).spliterator(), false)
-                    .filter(ApplicationUser::isActive)
-                    .findFirst()
-                    .orElse(null))
-        .filter(Objects::nonNull)
-        .collect(Collectors.toList());
+    return userData.getActiveUsersByMrimLogins(
+        chatMembers.stream().map(ChatMemberId::getSn).collect(Collectors.toList()));
   }
 
   @NotNull
@@ -1,19 +1,33 @@
 /* (C)2020 */
 package ru.mail.jira.plugins.myteam.service.impl;
 
+import com.atlassian.jira.cluster.ClusterMessageConsumer;
+import com.atlassian.jira.cluster.ClusterMessagingService;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.sal.api.pluginsettings.PluginSettings;
 import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.commons.CommonUtils;
+import ru.mail.jira.plugins.myteam.commons.Const;
 import ru.mail.jira.plugins.myteam.service.PluginData;
 
+/**
+ * Settings are read from an in-memory snapshot, which is reloaded after every write. Other nodes of
+ * the cluster drop their snapshot when they receive a message about changed settings. Main node id
+ * is always read from the store, because nodes use it to elect the node running the bot.
+ */
+@Slf4j
 @Component
-public class PluginDataImpl implements PluginData {
+public class PluginDataImpl implements PluginData, InitializingBean, DisposableBean {
   private static final String PLUGIN_PREFIX = "ru.mail.jira.plugins.myteam:";
   private static final String IS_SET_TOKEN_VIA_FILE = PLUGIN_PREFIX + "setTokenViaFile";
   private static final String TOKEN = PLUGIN_PREFIX + "token";
@@ -31,81 +45,89 @@ public class PluginDataImpl implements PluginData {
   private static final String CHAT_CREATION_BANNED_PROJECT_IDS =
       PLUGIN_PREFIX + "chatCreationBannedProjectIds";
 
+  private static final String SETTINGS_CHANGED_MESSAGE = "settings";
+
   private final PluginSettingsFactory pluginSettingsFactory;
+  private final ClusterMessagingService clusterMessagingService;
+  private final MessageConsumer messageConsumer = new MessageConsumer();
+  private final Object settingsLock = new Object();
+  @Nullable private volatile Settings settings;
 
-  public PluginDataImpl(@ComponentImport PluginSettingsFactory pluginSettingsFactory) {
+  public PluginDataImpl(
+      @ComponentImport PluginSettingsFactory pluginSettingsFactory,
+      @ComponentImport ClusterMessagingService clusterMessagingService) {
     this.pluginSettingsFactory = pluginSettingsFactory;
+    this.clusterMessagingService = clusterMessagingService;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    clusterMessagingService.registerListener(Const.CLUSTER_MESSAGE_CHANNEL, messageConsumer);
+  }
+
+  @Override
+  public void destroy() {
+    clusterMessagingService.unregisterListener(Const.CLUSTER_MESSAGE_CHANNEL, messageConsumer);
   }
 
   @Override
   public Boolean isSetTokenViaFile() {
-    return Boolean.parseBoolean(
-        (String) pluginSettingsFactory.createGlobalSettings().get(IS_SET_TOKEN_VIA_FILE));
+    return getSettings().setTokenViaFile;
   }
 
   @Override
   public void setSetTokenViaFile(Boolean setTokenViaFile) {
-    pluginSettingsFactory
-        .createGlobalSettings()
-        .put(IS_SET_TOKEN_VIA_FILE, String.valueOf(setTokenViaFile));
+    putSetting(IS_SET_TOKEN_VIA_FILE, String.valueOf(setTokenViaFile));
   }
 
   @Override
   public String getToken() {
-    return (String) pluginSettingsFactory.createGlobalSettings().get(TOKEN);
+    return getSettings().token;
   }
 
   @Override
   public void setToken(String token) {
-    pluginSettingsFactory.createGlobalSettings().put(TOKEN, token);
+    putSetting(TOKEN, token);
   }
 
   @Override
   public String getTokenFilePath() {
-    return (String) pluginSettingsFactory.createGlobalSettings().get(TOKEN_FILE_PATH);
+    return getSettings().tokenFilePath;
   }
 
   @Override
   public void setTokenFilePath(String tokenFilePath) {
-    pluginSettingsFactory.createGlobalSettings().put(TOKEN_FILE_PATH, tokenFilePath);
+    putSetting(TOKEN_FILE_PATH, tokenFilePath);
   }
 
   @Override
   public boolean isEnabledByDefault() {
-    return Boolean.parseBoolean(
-        (String) pluginSettingsFactory.createGlobalSettings().get(ENABLED_BY_DEFAULT));
+    return getSettings().enabledByDefault;
   }
 
   @Override
   public void setEnabledByDefault(boolean enabledByDefault) {
-    pluginSettingsFactory
-        .createGlobalSettings()
-        .put(ENABLED_BY_DEFAULT, String.valueOf(enabledByDefault));
+    putSetting(ENABLED_BY_DEFAULT, String.valueOf(enabledByDefault));
   }
 
   @Override
   public List<String> getNotifiedUserKeys() {
-    //noinspection unchecked
-    return (List<String>) pluginSettingsFactory.createGlobalSettings().get(NOTIFIED_USER_KEYS);
+    return getSettings().notifiedUserKeys;
   }
 
   @Override
   public void setNotifiedUserKeys(List<String> notifiedUserKeys) {
-    pluginSettingsFactory.createGlobalSettings().put(NOTIFIED_USER_KEYS, notifiedUserKeys);
+    putSetting(NOTIFIED_USER_KEYS, notifiedUserKeys);
   }
 
   @Override
   public List<String> getSubscriptionsExcludingGroups() {
-    //noinspection unchecked
-    return (List<String>)
-        pluginSettingsFactory.createGlobalSettings().get(SUBSCRIPTIONS_EXCLUDING_GROUPS);
+    return getSettings().subscriptionsExcludingGroups;
   }
 
   @Override
   public void setSubscriptionsExcludingGroups(List<String> subscriptionsExcludingGroups) {
-    pluginSettingsFactory
-        .createGlobalSettings()
-        .put(SUBSCRIPTIONS_EXCLUDING_GROUPS, subscriptionsExcludingGroups);
+    putSetting(SUBSCRIPTIONS_EXCLUDING_GROUPS, subscriptionsExcludingGroups);
   }
 
   @Override
@@ -120,87 +142,154 @@ public class PluginDataImpl implements PluginData {
 
   @Override
   public String getBotApiUrl() {
-    return (String) pluginSettingsFactory.createGlobalSettings().get(BOT_API_URL);
+    return getSettings().botApiUrl;
   }
 
   @Override
   public void setBotApiUrl(String botApiUrl) {
-    pluginSettingsFactory.createGlobalSettings().put(BOT_API_URL, botApiUrl);
+    putSetting(BOT_API_URL, botApiUrl);
   }
 
   @Override
   public String getBotName() {
-    return (String) pluginSettingsFactory.createGlobalSettings().get(BOT_NAME);
+    return getSettings().botName;
   }
 
   @Override
   public void setBotName(String botName) {
-    pluginSettingsFactory.createGlobalSettings().put(BOT_NAME, botName);
+    putSetting(BOT_NAME, botName);
   }
 
   @Override
   public String getBotLink() {
-    return (String) pluginSettingsFactory.createGlobalSettings().get(BOT_LINK);
+    return getSettings().botLink;
   }
 
   @Override
   public void setBotLink(String botLink) {
-    pluginSettingsFactory.createGlobalSettings().put(BOT_LINK, botLink);
+    putSetting(BOT_LINK, botLink);
   }
 
   @Override
   public String getProfileLink() {
-    return (String) pluginSettingsFactory.createGlobalSettings().get(PROFILE_LINK);
+    return getSettings().profileLink;
   }
 
   @Override
   public void setProfileLink(String botLink) {
-    pluginSettingsFactory.createGlobalSettings().put(PROFILE_LINK, botLink);
+    putSetting(PROFILE_LINK, botLink);
   }
 
   @Override
   public Set<Long> getExcludingProjectIds() {
-    String excludingProjectIds =
-        (String) pluginSettingsFactory.createGlobalSettings().get(EXCLUDING_PROJECT_IDS);
-    if (excludingProjectIds == null) {
-      return Collections.emptySet();
-    }
-    return CommonUtils.split(excludingProjectIds).stream()
-        .map(Long::valueOf)
-        .collect(Collectors.toSet());
+    return getSettings().excludingProjectIds;
   }
 
   @Override
   public void setExcludingProjectIds(Set<Long> excludingProjectIds) {
-    pluginSettingsFactory
-        .createGlobalSettings()
-        .put(
-            EXCLUDING_PROJECT_IDS,
-            CommonUtils.join(
-                excludingProjectIds.stream().map(String::valueOf).collect(Collectors.toList())));
+    putSetting(
+        EXCLUDING_PROJECT_IDS,
+        CommonUtils.join(
+            excludingProjectIds.stream().map(String::valueOf).collect(Collectors.toList())));
   }
 
   @Override
   public Set<Long> getChatCreationBannedProjectIds() {
-    String chatCreationPorjectIds =
-        (String) pluginSettingsFactory.createGlobalSettings().get(CHAT_CREATION_BANNED_PROJECT_IDS);
-    if (chatCreationPorjectIds == null) {
-      return Collections.emptySet();
-    }
-    return CommonUtils.split(chatCreationPorjectIds).stream()
-        .map(Long::valueOf)
-        .collect(Collectors.toSet());
+    return getSettings().chatCreationBannedProjectIds;
   }
 
   @Override
   public void setChatCreationBannedProjectIds(Set<Long> chatCreationBannedProjectIds) {
-    pluginSettingsFactory
-        .createGlobalSettings()
-        .put(
-            CHAT_CREATION_BANNED_PROJECT_IDS,
-            CommonUtils.join(
-                chatCreationBannedProjectIds.stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.toList())));
+    putSetting(
+        CHAT_CREATION_BANNED_PROJECT_IDS,
+        CommonUtils.join(
+            chatCreationBannedProjectIds.stream()
+                .map(String::valueOf)
+                .collect(Collectors.toList())));
+  }
+
+  private Settings getSettings() {
+    Settings current = settings;
+    if (current != null) {
+      return current;
+    }
+    synchronized (settingsLock) {
+      current = settings;
+      if (current == null) {
+        current = new Settings(pluginSettingsFactory.createGlobalSettings());
+        settings = current;
+      }
+      return current;
+    }
+  }
+
+  private void putSetting(String key, @Nullable Object value) {
+    synchronized (settingsLock) {
+      PluginSettings pluginSettings = pluginSettingsFactory.createGlobalSettings();
+      pluginSettings.put(key, value);
+      settings = new Settings(pluginSettings);
+    }
+    clusterMessagingService.sendRemote(Const.CLUSTER_MESSAGE_CHANNEL, SETTINGS_CHANGED_MESSAGE);
+  }
+
+  private class MessageConsumer implements ClusterMessageConsumer {
+    @Override
+    public void receive(String channel, String message, String senderId) {
+      if (Const.CLUSTER_MESSAGE_CHANNEL.equals(channel)
+          && SETTINGS_CHANGED_MESSAGE.equals(message)) {
+        log.debug("Plugin settings were changed on node {}", senderId);
+        synchronized (settingsLock) {
+          settings = null;
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "NullAway"})
+  private static class Settings {
+    private final boolean setTokenViaFile;
+    private final String token;
+    private final String tokenFilePath;
+    private final boolean enabledByDefault;
+    private final List<String> notifiedUserKeys;
+    private final List<String> subscriptionsExcludingGroups;
+    private final String botApiUrl;
+    private final String botName;
+    private final String botLink;
+    private final String profileLink;
+    private final Set<Long> excludingProjectIds;
+    private final Set<Long> chatCreationBannedProjectIds;
+
+    private Settings(PluginSettings pluginSettings) {
+      this.setTokenViaFile =
+          Boolean.parseBoolean((String) pluginSettings.get(IS_SET_TOKEN_VIA_FILE));
+      this.token = (String) pluginSettings.get(TOKEN);
+      this.tokenFilePath = (String) pluginSettings.get(TOKEN_FILE_PATH);
+      this.enabledByDefault = Boolean.parseBoolean((String) pluginSettings.get(ENABLED_BY_DEFAULT));
+      this.notifiedUserKeys = copyOf((List<String>) pluginSettings.get(NOTIFIED_USER_KEYS));
+      this.subscriptionsExcludingGroups =
+          copyOf((List<String>) pluginSettings.get(SUBSCRIPTIONS_EXCLUDING_GROUPS));
+      this.botApiUrl = (String) pluginSettings.get(BOT_API_URL);
+      this.botName = (String) pluginSettings.get(BOT_NAME);
+      this.botLink = (String) pluginSettings.get(BOT_LINK);
+      this.profileLink = (String) pluginSettings.get(PROFILE_LINK);
+      this.excludingProjectIds = parseIds((String) pluginSettings.get(EXCLUDING_PROJECT_IDS));
+      this.chatCreationBannedProjectIds =
+          parseIds((String) pluginSettings.get(CHAT_CREATION_BANNED_PROJECT_IDS));
+    }
+
+    @Nullable
+    private static List<String> copyOf(@Nullable List<String> values) {
+      return values == null ? null : Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    private static Set<Long> parseIds(@Nullable String ids) {
+      if (ids == null) {
+        return Collections.emptySet();
+      }
+      return CommonUtils.split(ids).stream()
+          .map(Long::valueOf)
+          .collect(Collectors.toUnmodifiableSet());
+    }
   }
 }
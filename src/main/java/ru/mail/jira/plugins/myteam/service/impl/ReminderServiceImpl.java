@@ -15,9 +15,16 @@ import com.atlassian.sal.api.message.I18nResolver;
 import com.atlassian.scheduler.JobRunnerResponse;
 import com.atlassian.scheduler.SchedulerService;
 import com.atlassian.scheduler.config.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.naming.NoPermissionException;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +45,14 @@ import ru.mail.jira.plugins.myteam.myteam.dto.InlineKeyboardMarkupButton;
 import ru.mail.jira.plugins.myteam.service.ReminderService;
 import ru.mail.jira.plugins.myteam.service.UserChatService;
 
+/**
+ * Cluster job runs every minute on one node and schedules reminders due before its next run on that
+ * node, so every reminder is sent at its time. Reminders due within a minute after creation are
+ * scheduled by the node creating them, as the job may have already checked their time. Scheduled
+ * reminders are marked in the table, so job runs on other nodes skip them until they are sent and
+ * deleted in batches. Reminders of a node which stopped before sending them are scheduled again
+ * when the mark expires.
+ */
 @Component
 @ExportAsService
 @Slf4j
@@ -45,6 +60,10 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
   private static final JobRunnerKey JOB_RUNNER_KEY =
       JobRunnerKey.of(ReminderService.class.getName());
   private static final JobId JOB_ID = JobId.of(ReminderService.class.getName());
+  private static final long SCHEDULE_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final long SCHEDULE_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final long DELETE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+  private static final int DELETE_BATCH_SIZE = 100;
 
   private final SchedulerService schedulerService;
   private final TimeZoneManager timeZoneManager;
@@ -53,6 +72,16 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
   private final MessageFormatter messageFormatter;
   private final ReminderRepository reminderRepository;
   private final IssueService issueService;
+  private final ScheduledExecutorService reminderExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "vkteam-reminder-sender");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final Map<Integer, ScheduledFuture<?>> scheduledReminders = new ConcurrentHashMap<>();
+  private final Queue<Integer> sentReminderIds = new ConcurrentLinkedQueue<>();
+  private volatile long lastDeleteMillis = System.currentTimeMillis();
 
   public ReminderServiceImpl(
       @ComponentImport SchedulerService schedulerService,
@@ -81,7 +110,15 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
 
     validateReminderData(reminder, user);
     reminder.setUserEmail(user.getEmailAddress());
-    return reminderRepository.create(reminder).getID();
+    // job can run on other node, so its last window is not known here
+    Date date = reminder.getDate();
+    long now = System.currentTimeMillis();
+    if (date == null || date.getTime() >= now + SCHEDULE_WINDOW_MILLIS) {
+      return reminderRepository.create(reminder).getID();
+    }
+    Reminder entity = reminderRepository.createScheduled(reminder, getScheduledUntil(date, now));
+    scheduleReminder(entity.getID(), date, now);
+    return entity.getID();
   }
 
   private void validateReminderData(
@@ -127,6 +164,10 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
             .filter(r -> r.getUserEmail().equals(user.getEmailAddress()))
             .orElseThrow(NoPermissionException::new);
 
+    ScheduledFuture<?> scheduledReminder = scheduledReminders.remove(id);
+    if (scheduledReminder != null) {
+      scheduledReminder.cancel(false);
+    }
     reminderRepository.delete(reminder);
   }
 
@@ -148,10 +189,8 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
           JOB_RUNNER_KEY,
           jobRunnerRequest -> {
             try {
-              Arrays.stream(
-                      reminderRepository.getRemindersBeforeDate(
-                          LocalDateTime.now(ZoneId.systemDefault())))
-                  .forEach(this::sendMessage);
+              deleteSentReminders();
+              scheduleDueReminders();
               return JobRunnerResponse.success();
             } catch (Exception e) {
               log.error("Error while trying to send reminder", e);
@@ -170,6 +209,67 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
     }
   }
 
+  private void scheduleDueReminders() {
+    long now = System.currentTimeMillis();
+    long windowEnd = now + SCHEDULE_WINDOW_MILLIS;
+    Reminder[] reminders =
+        reminderRepository.getNotScheduledRemindersBeforeDate(
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(windowEnd), ZoneId.systemDefault()),
+            new Date(now));
+    for (Reminder reminder : reminders) {
+      // marked before scheduling, so next job run on other node doesn't send it again
+      reminderRepository.markScheduled(reminder, getScheduledUntil(reminder.getDate(), now));
+      scheduleReminder(reminder.getID(), reminder.getDate(), now);
+    }
+    log.debug("Scheduled {} reminders due before {}", reminders.length, new Date(windowEnd));
+  }
+
+  private static Date getScheduledUntil(@Nullable Date date, long now) {
+    return new Date(Math.max(now, date == null ? now : date.getTime()) + SCHEDULE_GRACE_MILLIS);
+  }
+
+  private void scheduleReminder(int id, @Nullable Date date, long now) {
+    long delayMillis = date == null ? 0 : Math.max(0, date.getTime() - now);
+    scheduledReminders.computeIfAbsent(
+        id,
+        key ->
+            reminderExecutor.schedule(() -> sendReminder(key), delayMillis, TimeUnit.MILLISECONDS));
+  }
+
+  private void sendReminder(int id) {
+    try {
+      // reminder could be deleted or changed after it was scheduled
+      reminderRepository.findById(id).ifPresent(this::sendMessage);
+    } catch (Exception e) {
+      log.error("Error while trying to send reminder", e);
+    } finally {
+      sentReminderIds.add(id);
+      scheduledReminders.remove(id);
+      if (scheduledReminders.isEmpty()
+          || sentReminderIds.size() >= DELETE_BATCH_SIZE
+          || System.currentTimeMillis() - lastDeleteMillis >= DELETE_INTERVAL_MILLIS) {
+        deleteSentReminders();
+      }
+    }
+  }
+
+  private void deleteSentReminders() {
+    lastDeleteMillis = System.currentTimeMillis();
+    List<Integer> ids = new ArrayList<>();
+    for (Integer id = sentReminderIds.poll(); id != null; id = sentReminderIds.poll()) {
+      ids.add(id);
+    }
+    if (ids.isEmpty()) {
+      return;
+    }
+    try {
+      reminderRepository.deleteByIds(ids);
+    } catch (Exception e) {
+      log.error("Error while deleting {} sent reminders", ids.size(), e);
+      sentReminderIds.addAll(ids);
+    }
+  }
+
   private void sendMessage(Reminder r) {
     String chatId = r.getUserEmail();
     String issueKey = r.getIssueKey();
@@ -177,7 +277,6 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
     IssueService.IssueResult res =
         issueService.getIssue(userChatService.getJiraUserFromUserChatId(chatId), r.getIssueKey());
     if (!res.isValid()) {
-      reminderRepository.delete(r);
       return;
     }
     MutableIssue issue = res.getIssue();
@@ -201,8 +300,6 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
               "user", chatId,
               "chatId", chatId,
               "issueKey", issueKey != null ? issueKey : StringUtils.EMPTY));
-    } finally {
-      reminderRepository.delete(r);
     }
   }
 
@@ -213,6 +310,8 @@ public class ReminderServiceImpl implements LifecycleAware, DisposableBean, Remi
   public void destroy() {
     schedulerService.unscheduleJob(JOB_ID);
     schedulerService.unregisterJobRunner(JOB_RUNNER_KEY);
+    reminderExecutor.shutdownNow();
+    deleteSentReminders();
   }
 
   private List<List<InlineKeyboardMarkupButton>> getMsgButtons(String issueKey, Reminder r) {
@@ -15,8 +15,11 @@ import ru.mail.jira.plugins.myteam.accessrequest.service.AccessRequestService;
 import ru.mail.jira.plugins.myteam.bot.events.MyteamEvent;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.core.RulesEngine;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.RuleEngineFiringException;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.models.ruletypes.ButtonRuleType;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.models.ruletypes.CommandRuleType;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.ruletypes.ErrorRuleType;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.ruletypes.RuleType;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.models.ruletypes.StateActionRuleType;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.buttons.*;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.commands.ChatIdCommandRule;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.commands.HelpCommandRule;
@@ -41,8 +44,14 @@ import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.state.issuecomment.Issu
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.state.issuecreation.*;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.state.issuesearch.IssueKeyInputRule;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.state.jqlsearch.JqlInputRule;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.AssigningIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.CommentingIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.JqlSearchState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.ViewingIssueState;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.EmptyState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.issue.creation.FillingIssueFieldState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.issue.creation.SelectingProjectState;
 import ru.mail.jira.plugins.myteam.component.EventMessagesTextConverter;
 import ru.mail.jira.plugins.myteam.component.JiraMarkdownToChatMarkdownConverter;
 import ru.mail.jira.plugins.myteam.component.PermissionHelper;
@@ -123,50 +132,80 @@ public class RulesEngineImpl
     stateActionsRuleEngine.registerRule(new DefaultMessageRule(userChatService, this));
 
     // Buttons
-    commandsRuleEngine.registerRule(new SearchIssueByJqlInputRule(userChatService, this));
-    commandsRuleEngine.registerRule(new SearchIssueByKeyInputRule(userChatService, this));
-    commandsRuleEngine.registerRule(new NextPageRule(userChatService, this));
-    commandsRuleEngine.registerRule(new PrevPageRule(userChatService, this));
-    commandsRuleEngine.registerRule(new RevertRule(userChatService, this));
-    commandsRuleEngine.registerRule(new CancelRule(userChatService, this));
-    commandsRuleEngine.registerRule(new CommentIssueRule(userChatService, this));
-    commandsRuleEngine.registerRule(
-        new CreateIssueRule(userChatService, this, issueService, issueCreationService));
-    commandsRuleEngine.registerRule(
+    commandsRuleEngine.registerCommandRule(
+        new SearchIssueByJqlInputRule(userChatService, this), ButtonRuleType.SearchIssueByJqlInput);
+    commandsRuleEngine.registerCommandRule(
+        new SearchIssueByKeyInputRule(userChatService, this), ButtonRuleType.SearchIssueByKeyInput);
+    commandsRuleEngine.registerCommandRule(
+        new NextPageRule(userChatService, this), ButtonRuleType.NextPage);
+    commandsRuleEngine.registerCommandRule(
+        new PrevPageRule(userChatService, this), ButtonRuleType.PrevPage);
+    commandsRuleEngine.registerCommandRule(
+        new RevertRule(userChatService, this), ButtonRuleType.Revert);
+    commandsRuleEngine.registerCommandRule(
+        new CancelRule(userChatService, this), ButtonRuleType.Cancel);
+    commandsRuleEngine.registerCommandRule(
+        new CommentIssueRule(userChatService, this), ButtonRuleType.CommentIssue);
+    commandsRuleEngine.registerCommandRule(
+        new CreateIssueRule(userChatService, this, issueService, issueCreationService),
+        ButtonRuleType.CreateIssue);
+    commandsRuleEngine.registerCommandRule(
         new ViewCommentsRule(
-            userChatService, this, issueService, jiraMarkdownToChatMarkdownConverter));
-    commandsRuleEngine.registerRule(new CommentingIssueFromGroupChatRule(userChatService, this));
-    commandsRuleEngine.registerRule(
-        new ReplyRule(userChatService, this, accessRequestService, issueService));
+            userChatService, this, issueService, jiraMarkdownToChatMarkdownConverter),
+        ButtonRuleType.ViewComments);
+    commandsRuleEngine.registerCommandRule(
+        new CommentingIssueFromGroupChatRule(userChatService, this),
+        ButtonRuleType.CommentIssueByCommand);
+    commandsRuleEngine.registerCommandRule(
+        new ReplyRule(userChatService, this, accessRequestService, issueService),
+        ButtonRuleType.AccessReply);
     // Admin Group Commands
-    commandsRuleEngine.registerRule(
-        new IssueCreationSettingsCommand(userChatService, this, issueService));
+    commandsRuleEngine.registerCommandRule(
+        new IssueCreationSettingsCommand(userChatService, this, issueService),
+        CommandRuleType.IssueCreationSettings);
 
     // Commands
-    commandsRuleEngine.registerRule(new ChatIdCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(new HelpCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(new MenuCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(new WatchingIssuesCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(new AssignedIssuesCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(new CreatedIssuesCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(
-        new LinkIssueWithChatCommandRule(userChatService, this, myteamService));
-    commandsRuleEngine.registerRule(new AssignIssueCommandRule(userChatService, this));
-    commandsRuleEngine.registerRule(
-        new ViewIssueCommandRule(userChatService, this, commonButtonsService, issueService));
-    commandsRuleEngine.registerRule(
-        new IssueRemindCommandRule(userChatService, this, reminderService));
-    commandsRuleEngine.registerRule(new WatchIssueCommandRule(userChatService, this, issueService));
-    commandsRuleEngine.registerRule(new IssueTransitionRule(userChatService, this, issueService));
-    commandsRuleEngine.registerRule(
-        new IssueTransitionSelectRule(userChatService, this, issueService));
-    commandsRuleEngine.registerRule(
-        new UnwatchIssueCommandRule(userChatService, this, issueService));
-    commandsRuleEngine.registerRule(
-        new FieldValueEditRule(userChatService, this, issueCreationService));
-    commandsRuleEngine.registerRule(
-        new FieldValueSelectRule(userChatService, this, issueCreationService));
-    commandsRuleEngine.registerRule(
+    commandsRuleEngine.registerCommandRule(
+        new ChatIdCommandRule(userChatService, this), CommandRuleType.ChatId);
+    commandsRuleEngine.registerCommandRule(
+        new HelpCommandRule(userChatService, this), CommandRuleType.Help);
+    commandsRuleEngine.registerCommandRule(
+        new MenuCommandRule(userChatService, this), CommandRuleType.Menu);
+    commandsRuleEngine.registerCommandRule(
+        new WatchingIssuesCommandRule(userChatService, this), CommandRuleType.WatchingIssues);
+    commandsRuleEngine.registerCommandRule(
+        new AssignedIssuesCommandRule(userChatService, this), CommandRuleType.AssignedIssues);
+    commandsRuleEngine.registerCommandRule(
+        new CreatedIssuesCommandRule(userChatService, this), CommandRuleType.CreatedIssues);
+    commandsRuleEngine.registerCommandRule(
+        new LinkIssueWithChatCommandRule(userChatService, this, myteamService),
+        CommandRuleType.LinkIssueWithChat);
+    commandsRuleEngine.registerCommandRule(
+        new AssignIssueCommandRule(userChatService, this), CommandRuleType.AssignIssue);
+    commandsRuleEngine.registerCommandRule(
+        new ViewIssueCommandRule(userChatService, this, commonButtonsService, issueService),
+        CommandRuleType.Issue);
+    commandsRuleEngine.registerCommandRule(
+        new IssueRemindCommandRule(userChatService, this, reminderService),
+        CommandRuleType.IssueRemind);
+    commandsRuleEngine.registerCommandRule(
+        new WatchIssueCommandRule(userChatService, this, issueService), CommandRuleType.WatchIssue);
+    commandsRuleEngine.registerCommandRule(
+        new IssueTransitionRule(userChatService, this, issueService),
+        CommandRuleType.IssueTransition);
+    commandsRuleEngine.registerCommandRule(
+        new IssueTransitionSelectRule(userChatService, this, issueService),
+        StateActionRuleType.SelectIssueTransition);
+    commandsRuleEngine.registerCommandRule(
+        new UnwatchIssueCommandRule(userChatService, this, issueService),
+        CommandRuleType.UnwatchIssue);
+    commandsRuleEngine.registerCommandRule(
+        new FieldValueEditRule(userChatService, this, issueCreationService),
+        StateActionRuleType.EditIssueCreationValue);
+    commandsRuleEngine.registerCommandRule(
+        new FieldValueSelectRule(userChatService, this, issueCreationService),
+        StateActionRuleType.SelectIssueCreationValue);
+    commandsRuleEngine.registerCommandRule(
         new CommentIssueCommandBotRule(
             userChatService,
             this,
@@ -174,18 +213,25 @@ public class RulesEngineImpl
             issueService,
             eventMessagesTextConverter,
             myteamChatRepository,
-            new CommentIssueButtonsService(userChatService)));
-    commandsRuleEngine.registerRule(
-        new PinMessageCommandRule(userChatService, this, myteamApiClient));
-    commandsRuleEngine.registerRule(
+            new CommentIssueButtonsService(userChatService)),
+        CommandRuleType.CommentIssueByMentionBot);
+    commandsRuleEngine.registerCommandRule(
+        new PinMessageCommandRule(userChatService, this, myteamApiClient),
+        CommandRuleType.PinMessage);
+    // these commands are matched in lower case
+    commandsRuleEngine.registerCommandRule(
         new AddWatchersToIssueCommandRule(
-            userChatService, this, issueService, myteamApiClient, userSearchService));
-    commandsRuleEngine.registerRule(
-        new AddAttachmentsToIssueCommandRule(userChatService, this, issueService));
+            userChatService, this, issueService, myteamApiClient, userSearchService),
+        CommandRuleType.AddWatchers.getName().toLowerCase());
+    commandsRuleEngine.registerCommandRule(
+        new AddAttachmentsToIssueCommandRule(userChatService, this, issueService),
+        CommandRuleType.AddAttachment.getName().toLowerCase());
 
     // Service
-    commandsRuleEngine.registerRule(new SearchByJqlIssuesRule(userChatService, this, issueService));
-    commandsRuleEngine.registerRule(
+    commandsRuleEngine.registerCommandRule(
+        new SearchByJqlIssuesRule(userChatService, this, issueService),
+        CommandRuleType.SearchByJql);
+    commandsRuleEngine.registerCommandRule(
         new CreateIssueByReplyRule(
             userChatService,
             this,
@@ -193,29 +239,38 @@ public class RulesEngineImpl
             issueCreationService,
             issueService,
             eventMessagesTextConverter,
-            permissionHelper));
+            permissionHelper),
+        CommandRuleType.CreateIssueByReply);
 
     // States
-    stateActionsRuleEngine.registerRule(new JqlInputRule(userChatService, this));
-    stateActionsRuleEngine.registerRule(
-        new ProjectKeyInputRule(userChatService, this, issueService));
-    stateActionsRuleEngine.registerRule(
-        new IssueCommentInputRule(userChatService, this, issueService));
-    stateActionsRuleEngine.registerRule(new FieldInputRule(userChatService, this));
-    stateActionsRuleEngine.registerRule(new IssueKeyInputRule(userChatService, this));
-    stateActionsRuleEngine.registerRule(
-        new AssignIssueInputRule(userChatService, this, issueService));
+    stateActionsRuleEngine.registerStateRule(
+        new JqlInputRule(userChatService, this), JqlSearchState.class);
+    stateActionsRuleEngine.registerStateRule(
+        new ProjectKeyInputRule(userChatService, this, issueService), SelectingProjectState.class);
+    stateActionsRuleEngine.registerStateRule(
+        new IssueCommentInputRule(userChatService, this, issueService), CommentingIssueState.class);
+    stateActionsRuleEngine.registerStateRule(
+        new FieldInputRule(userChatService, this), FillingIssueFieldState.class);
+    stateActionsRuleEngine.registerStateRule(
+        new IssueKeyInputRule(userChatService, this), ViewingIssueState.class);
+    stateActionsRuleEngine.registerStateRule(
+        new AssignIssueInputRule(userChatService, this, issueService), AssigningIssueState.class);
 
-    commandsRuleEngine.registerRule(
-        new IssueTypeSelectButtonRule(userChatService, this, issueService));
-    commandsRuleEngine.registerRule(
-        new ShowIssueCreationProgressRule(userChatService, this, issueCreationService));
-    commandsRuleEngine.registerRule(
-        new ConfirmIssueCreationRule(userChatService, this, issueCreationService));
-    commandsRuleEngine.registerRule(
-        new AddAdditionalFieldsRule(userChatService, this, issueCreationService));
-    commandsRuleEngine.registerRule(
-        new SelectAdditionalFieldRule(userChatService, this, issueCreationService));
+    commandsRuleEngine.registerCommandRule(
+        new IssueTypeSelectButtonRule(userChatService, this, issueService),
+        StateActionRuleType.SelectIssueType);
+    commandsRuleEngine.registerCommandRule(
+        new ShowIssueCreationProgressRule(userChatService, this, issueCreationService),
+        StateActionRuleType.ShowCreatingIssueProgressMessage);
+    commandsRuleEngine.registerCommandRule(
+        new ConfirmIssueCreationRule(userChatService, this, issueCreationService),
+        StateActionRuleType.ConfirmIssueCreation);
+    commandsRuleEngine.registerCommandRule(
+        new AddAdditionalFieldsRule(userChatService, this, issueCreationService),
+        StateActionRuleType.AddAdditionalFields);
+    commandsRuleEngine.registerCommandRule(
+        new SelectAdditionalFieldRule(userChatService, this, issueCreationService),
+        StateActionRuleType.SelectAdditionalField);
 
     // Errors
     errorsRuleEngine.registerRule(new UnknownErrorRule(userChatService, this));
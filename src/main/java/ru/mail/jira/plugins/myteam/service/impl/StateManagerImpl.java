@@ -1,30 +1,86 @@
 /* (C)2021 */
 package ru.mail.jira.plugins.myteam.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
+import ru.mail.jira.plugins.myteam.service.BotStateStore;
 import ru.mail.jira.plugins.myteam.service.StateManager;
 
+/**
+ * Keeps bot states stack of every chat in memory. In shared mode every change is also written to
+ * {@link BotStateStore} and in-memory stacks work as near cache, so node which becomes responding
+ * bot continues dialogs started on another node.
+ */
+@Slf4j
 @Component
 public class StateManagerImpl implements StateManager {
+  private static final String SHARED_PROPERTY = "ru.mail.jira.plugins.myteam.states.shared";
+  private static final String MAX_DEPTH_PROPERTY = "ru.mail.jira.plugins.myteam.states.maxDepth";
+  private static final String MAX_CHATS_PROPERTY = "ru.mail.jira.plugins.myteam.states.maxChats";
+  private static final String IDLE_TIMEOUT_PROPERTY =
+      "ru.mail.jira.plugins.myteam.states.idleTimeoutMinutes";
+
+  private final int maxDepth;
+  private final long idleTimeoutMinutes;
+  @Nullable private final BotStateStore botStateStore;
+
+  // state lists are immutable and replaced atomically, so they can be read without locking
+  private final Cache<String, List<BotState>> statesCache;
+
+  @Autowired
+  public StateManagerImpl(BotStateStore botStateStore) {
+    this(
+        Math.max(2, Integer.getInteger(MAX_DEPTH_PROPERTY, 20)),
+        Math.max(1, Long.getLong(MAX_CHATS_PROPERTY, 50_000L)),
+        Math.max(1, Long.getLong(IDLE_TIMEOUT_PROPERTY, 120L)),
+        Boolean.getBoolean(SHARED_PROPERTY) ? botStateStore : null);
+  }
+
+  StateManagerImpl(int maxDepth, long maxChats, long idleTimeoutMinutes) {
+    this(maxDepth, maxChats, idleTimeoutMinutes, null);
+  }
 
-  private final Map<String, List<BotState>> statesMap = new HashMap<>();
+  StateManagerImpl(
+      int maxDepth, long maxChats, long idleTimeoutMinutes, @Nullable BotStateStore botStateStore) {
+    this.maxDepth = maxDepth;
+    this.idleTimeoutMinutes = idleTimeoutMinutes;
+    this.botStateStore = botStateStore;
+    this.statesCache =
+        Caffeine.newBuilder()
+            .maximumSize(maxChats)
+            .expireAfterAccess(idleTimeoutMinutes, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+  }
 
   @Override
   public void setState(String chatId, BotState state) {
-    List<BotState> states = getStates(chatId);
-    if (states == null) {
-      ArrayList<BotState> newStates = new ArrayList<>();
-      newStates.add(state);
-      statesMap.put(chatId, newStates);
-    } else {
-      states.add(state);
-    }
+    getStates(chatId);
+    List<BotState> updatedStates =
+        statesCache
+            .asMap()
+            .compute(
+                chatId,
+                (key, states) -> {
+                  List<BotState> newStates =
+                      states == null ? new ArrayList<>() : new ArrayList<>(states);
+                  newStates.add(state);
+                  // the oldest states are dropped when dialog goes too deep
+                  if (newStates.size() > maxDepth) {
+                    newStates = newStates.subList(newStates.size() - maxDepth, newStates.size());
+                  }
+                  return List.copyOf(newStates);
+                });
+    storeStates(chatId, updatedStates);
   }
 
   @Override
@@ -53,31 +109,129 @@ public class StateManagerImpl implements StateManager {
 
   @Override
   public void deleteStates(String chatId) {
-    statesMap.remove(chatId);
+    statesCache.invalidate(chatId);
+    deleteStoredStates(chatId);
   }
 
   @Override
   public void deleteState(String chatId, BotState botState) {
-    List<BotState> states = getStates(chatId);
-    if (states != null) states.remove(botState);
+    getStates(chatId);
+    List<BotState> updatedStates =
+        statesCache
+            .asMap()
+            .computeIfPresent(
+                chatId,
+                (key, states) -> {
+                  List<BotState> newStates = new ArrayList<>(states);
+                  newStates.remove(botState);
+                  return List.copyOf(newStates);
+                });
+    storeStates(chatId, updatedStates);
   }
 
   @Override
   public void setState(String chatId, BotState state, boolean deletePrevious) {
-    if (deletePrevious) deleteStates(chatId);
-    setState(chatId, state);
+    if (deletePrevious) {
+      List<BotState> newStates = List.of(state);
+      statesCache.put(chatId, newStates);
+      storeStates(chatId, newStates);
+    } else {
+      setState(chatId, state);
+    }
   }
 
   @Override
   public void revertState(String chatId) {
-    @Nullable List<BotState> states = getStates(chatId);
-    if (states == null || states.size() < 2) return;
+    getStates(chatId);
+    List<BotState> updatedStates =
+        statesCache
+            .asMap()
+            .computeIfPresent(
+                chatId,
+                (key, states) ->
+                    states.size() < 2 ? states : List.copyOf(states.subList(0, states.size() - 1)));
+    storeStates(chatId, updatedStates);
+  }
+
+  @Override
+  public void saveStates(String chatId) {
+    List<BotState> states = statesCache.getIfPresent(chatId);
+    if (states != null) {
+      storeStates(chatId, states);
+    }
+  }
+
+  @Override
+  public void clearLocalStates() {
+    // near cache may be outdated if another node was responding bot in the meantime
+    if (botStateStore != null) {
+      statesCache.invalidateAll();
+    }
+  }
+
+  @Override
+  public long getLiveChatsCount() {
+    return statesCache.estimatedSize();
+  }
 
-    states.remove(states.size() - 1);
+  @Override
+  public long getEvictionsCount() {
+    return statesCache.stats().evictionCount();
+  }
+
+  @Override
+  public double getAverageStackDepth() {
+    return statesCache.asMap().values().stream().mapToInt(List::size).average().orElse(0);
   }
 
   @Nullable
   private List<BotState> getStates(String chatId) {
-    return statesMap.get(chatId);
+    if (botStateStore == null) {
+      return statesCache.getIfPresent(chatId);
+    }
+    return statesCache.get(chatId, this::loadStoredStates);
+  }
+
+  @Nullable
+  private List<BotState> loadStoredStates(String chatId) {
+    if (botStateStore == null) {
+      return null;
+    }
+    try {
+      List<BotState> states = botStateStore.load(chatId, idleTimeoutMinutes);
+      return states == null ? null : List.copyOf(states);
+    } catch (Exception e) {
+      log.error("Unable to load bot states of chat {}", chatId, e);
+      SentryClient.capture(e);
+      return null;
+    }
+  }
+
+  private void storeStates(String chatId, @Nullable List<BotState> states) {
+    if (botStateStore == null) {
+      return;
+    }
+    if (states == null || states.isEmpty()) {
+      deleteStoredStates(chatId);
+      return;
+    }
+    try {
+      botStateStore.save(chatId, states);
+    } catch (Exception e) {
+      log.error("Unable to save bot states of chat {}", chatId, e);
+      SentryClient.capture(e);
+    }
+  }
+
+  private void deleteStoredStates(String chatId) {
+    if (botStateStore == null) {
+      return;
+    }
+    try {
+      botStateStore.delete(chatId);
+    } catch (Exception e) {
+      log.error("Unable to delete bot states of chat {}", chatId, e);
+      SentryClient.capture(e);
+    }
   }
 }
@@ -23,6 +23,7 @@ import ru.mail.jira.plugins.commons.SentryClient;
 import ru.mail.jira.plugins.myteam.bot.events.ChatMessageEvent;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
 import ru.mail.jira.plugins.myteam.component.MessageFormatter;
 import ru.mail.jira.plugins.myteam.component.PermissionHelper;
 import ru.mail.jira.plugins.myteam.component.UserData;
@@ -43,6 +44,7 @@ public class UserChatServiceImpl implements UserChatService {
 
   private final UserData userData;
   private final MyteamApiClient myteamClient;
+  private final ChatMetadataCache chatMetadataCache;
   private final PermissionHelper permissionHelper;
   private final I18nResolver i18nResolver;
   private final StateManager stateManager;
@@ -55,6 +57,7 @@ public class UserChatServiceImpl implements UserChatService {
 
   public UserChatServiceImpl(
       MyteamApiClient myteamApiClient,
+      ChatMetadataCache chatMetadataCache,
       UserData userData,
       PermissionHelper permissionHelper,
       MessageFormatter messageFormatter,
@@ -63,6 +66,7 @@ public class UserChatServiceImpl implements UserChatService {
       @ComponentImport JiraAuthenticationContext jiraAuthenticationContext,
       PluginData pluginData) {
     this.myteamClient = myteamApiClient;
+    this.chatMetadataCache = chatMetadataCache;
     this.userData = userData;
     this.permissionHelper = permissionHelper;
     this.i18nResolver = i18nResolver;
@@ -96,7 +100,7 @@ public class UserChatServiceImpl implements UserChatService {
   @Override
   public String getGroupChatName(String chatId) {
     try {
-      ChatInfoResponse chatInfo = myteamClient.getChatInfo(chatId).getBody();
+      ChatInfoResponse chatInfo = chatMetadataCache.getChatInfo(chatId);
       if (chatInfo instanceof GroupChatInfo) {
         return ((GroupChatInfo) chatInfo).getTitle();
       }
@@ -177,6 +181,11 @@ public class UserChatServiceImpl implements UserChatService {
     stateManager.revertState(chatId);
   }
 
+  @Override
+  public void saveStates(String chatId) {
+    stateManager.saveStates(chatId);
+  }
+
   @Override
   public boolean isChatAdmin(ChatMessageEvent event, String userId) {
     return permissionHelper.isChatAdmin(event.getChatId(), userId);
@@ -62,7 +62,8 @@ public abstract class AbstractFilterSubscriptionSender implements FilterSubscrip
   protected void sendMessages(
       final FilterSubscription subscription,
       @Nullable final ApplicationUser subscriber,
-      @Nullable final String chatId) {
+      @Nullable final String chatId,
+      final FilterSubscriptionSearches searches) {
     final ApplicationUser currentUser = jiraAuthenticationContext.getLoggedInUser();
     final ApplicationUser creator = userManager.getUserByKey(subscription.getUserKey());
     final ApplicationUser jqlUser = subscriber != null ? subscriber : creator;
@@ -88,7 +89,7 @@ public abstract class AbstractFilterSubscriptionSender implements FilterSubscrip
       }
 
       final SearchResults<Issue> searchResults =
-          searchIssuesToSend(subscription, subscriber, searchRequest, jqlUser);
+          searchIssuesToSend(subscription, subscriber, searchRequest, jqlUser, searches);
 
       if (searchResults.getTotal() == 0) {
         if (subscription.isEmailOnEmpty()) {
@@ -134,18 +135,26 @@ public abstract class AbstractFilterSubscriptionSender implements FilterSubscrip
       final FilterSubscription subscription,
       @Nullable final ApplicationUser subscriber,
       final SearchRequest searchRequest,
-      final ApplicationUser jqlUser)
+      final ApplicationUser jqlUser,
+      final FilterSubscriptionSearches searches)
       throws SearchException, ParseException {
-    final Query jqlQuery =
-        buildJqlQuery(searchRequest, subscription.getType(), subscription.getLastRun());
     final int jqlLimit =
         subscription.isSeparateIssues() && subscriber != null
             ? JQL_SEARCH_PAGE_SIZE_MAX
             : JQL_SEARCH_PAGE_SIZE;
-    return issueService.searchByJqlQuery(jqlQuery, jqlUser, 0, jqlLimit);
+    return searches.search(
+        subscription,
+        jqlUser,
+        jqlLimit,
+        lastRun ->
+            issueService.searchByJqlQuery(
+                buildJqlQuery(searchRequest, subscription.getType(), lastRun),
+                jqlUser,
+                0,
+                jqlLimit));
   }
 
-  private Query buildJqlQuery(
+  protected Query buildJqlQuery(
       final SearchRequest searchRequest,
       final FilterSubscriptionType subscriptionType,
       @Nullable final Date lastRun) {
@@ -0,0 +1,330 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.subscription;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.mail.jira.plugins.commons.SentryClient;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscription;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscriptionType;
+import ru.mail.jira.plugins.myteam.db.repository.FilterSubscriptionRepository;
+
+/**
+ * Collects filter subscriptions fired by scheduler in the same minute and runs them as one batch.
+ * Subscriptions of a batch are grouped by filter, run type and last run, every group shares search
+ * results and groups are sent in a bounded pool, so scheduler threads are released right away.
+ * Batches which haven't run or started sending when plugin stops are sent on the stopping thread.
+ */
+@Slf4j
+@Component
+public class FilterSubscriptionBatchRunner implements DisposableBean {
+  private static final String PROPERTY_PREFIX = "ru.mail.jira.plugins.myteam.subscriptions.";
+  private static final String THREAD_NAME_PREFIX = "vkteam-subscriptions-";
+  private static final long SLOT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final int LAST_SLOTS_SIZE = 20;
+  private static final long SLOT_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  private final FilterSubscriptionRepository filterSubscriptionRepository;
+  private final FilterSubscriptionResolver filterSubscriptionResolver;
+  private final long batchDelayMillis;
+  private final ScheduledExecutorService slotExecutor;
+  private final ExecutorService sendExecutor;
+  private final AtomicInteger threadsCount = new AtomicInteger();
+  // subscription ids by start of minute they were fired
+  private final Map<Long, Set<Integer>> openSlots = new HashMap<>();
+  private boolean closed;
+  private final Deque<SlotStatistics> lastSlots = new ArrayDeque<>();
+  private final LongAdder slotsCount = new LongAdder();
+  private final LongAdder subscriptionsCount = new LongAdder();
+  private final LongAdder groupsCount = new LongAdder();
+  private final LongAdder searchesCount = new LongAdder();
+  private final LongAdder searchRequestsCount = new LongAdder();
+  private final LongAdder failedCount = new LongAdder();
+
+  @Autowired
+  public FilterSubscriptionBatchRunner(
+      final FilterSubscriptionRepository filterSubscriptionRepository,
+      final FilterSubscriptionResolver filterSubscriptionResolver) {
+    this(
+        filterSubscriptionRepository,
+        filterSubscriptionResolver,
+        Math.max(0, Long.getLong(PROPERTY_PREFIX + "batchDelayMillis", 2000)),
+        Math.max(1, Integer.getInteger(PROPERTY_PREFIX + "batchThreads", 4)));
+  }
+
+  FilterSubscriptionBatchRunner(
+      final FilterSubscriptionRepository filterSubscriptionRepository,
+      final FilterSubscriptionResolver filterSubscriptionResolver,
+      final long batchDelayMillis,
+      final int threads) {
+    this.filterSubscriptionRepository = filterSubscriptionRepository;
+    this.filterSubscriptionResolver = filterSubscriptionResolver;
+    this.batchDelayMillis = batchDelayMillis;
+    this.slotExecutor = Executors.newSingleThreadScheduledExecutor(this::newThread);
+    this.sendExecutor = Executors.newFixedThreadPool(threads, this::newThread);
+  }
+
+  /** Adds subscription to the batch of minute it was fired in */
+  public void submit(final int subscriptionId, final Date firedAt) {
+    final long slot = firedAt.getTime() / SLOT_MILLIS * SLOT_MILLIS;
+    synchronized (openSlots) {
+      if (!closed) {
+        openSlots
+            .computeIfAbsent(
+                slot,
+                key -> {
+                  slotExecutor.schedule(
+                      () -> runSlot(key), batchDelayMillis, TimeUnit.MILLISECONDS);
+                  return new LinkedHashSet<>();
+                })
+            .add(subscriptionId);
+        return;
+      }
+    }
+    // scheduler doesn't fire subscription again, so it is sent without batching
+    runSlot(slot, Set.of(subscriptionId), Runnable::run);
+  }
+
+  @Override
+  public void destroy() {
+    final Map<Long, Set<Integer>> notRunSlots;
+    synchronized (openSlots) {
+      closed = true;
+      notRunSlots = new TreeMap<>(openSlots);
+      openSlots.clear();
+    }
+    slotExecutor.shutdownNow();
+    try {
+      // slot which is running now hands its groups to send pool
+      slotExecutor.awaitTermination(SLOT_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    notRunSlots.forEach(
+        (slot, subscriptionIds) -> {
+          log.info(
+              "Sending {} filter subscriptions of batch {} before plugin stops",
+              subscriptionIds.size(),
+              new Date(slot));
+          runSlot(slot, subscriptionIds, Runnable::run);
+        });
+    // groups which haven't started are sent here, groups being sent are interrupted
+    final List<Runnable> notSentGroups = sendExecutor.shutdownNow();
+    if (!notSentGroups.isEmpty()) {
+      log.info("Sending {} filter subscription groups before plugin stops", notSentGroups.size());
+      notSentGroups.forEach(Runnable::run);
+    }
+  }
+
+  public long getSlotsCount() {
+    return slotsCount.sum();
+  }
+
+  public long getSubscriptionsCount() {
+    return subscriptionsCount.sum();
+  }
+
+  public long getGroupsCount() {
+    return groupsCount.sum();
+  }
+
+  public long getSearchesCount() {
+    return searchesCount.sum();
+  }
+
+  public long getSearchRequestsCount() {
+    return searchRequestsCount.sum();
+  }
+
+  public long getFailedCount() {
+    return failedCount.sum();
+  }
+
+  /** Returns statistics of last batches, the latest first */
+  public List<SlotStatistics> getLastSlots() {
+    synchronized (lastSlots) {
+      return new ArrayList<>(lastSlots);
+    }
+  }
+
+  private void runSlot(final long slot) {
+    final Set<Integer> subscriptionIds;
+    synchronized (openSlots) {
+      subscriptionIds = openSlots.remove(slot);
+    }
+    if (subscriptionIds != null) {
+      runSlot(slot, subscriptionIds, sendExecutor);
+    }
+  }
+
+  private void runSlot(
+      final long slot, final Set<Integer> subscriptionIds, final Executor executor) {
+    final long startNanos = System.nanoTime();
+    final LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
+    final Map<GroupKey, List<FilterSubscription>> groups = new LinkedHashMap<>();
+    for (final Integer subscriptionId : subscriptionIds) {
+      try {
+        final FilterSubscription subscription = filterSubscriptionRepository.get(subscriptionId);
+        if (subscription == null) {
+          continue;
+        }
+        // last run is captured before update, it bounds searches of the group
+        groups
+            .computeIfAbsent(
+                new GroupKey(
+                    subscription.getFilterId(),
+                    subscription.getType(),
+                    subscription.getType() == FilterSubscriptionType.ALL
+                        ? null
+                        : subscription.getLastRun()),
+                key -> new ArrayList<>())
+            .add(subscription);
+        filterSubscriptionRepository.updateLastRun(subscriptionId, now);
+      } catch (Exception e) {
+        failedCount.increment();
+        SentryClient.capture(e, Map.of("subscriptionId", String.valueOf(subscriptionId)));
+      }
+    }
+
+    final List<CompletableFuture<FilterSubscriptionSearches>> sentGroups = new ArrayList<>();
+    groups.forEach(
+        (key, subscriptions) ->
+            sentGroups.add(
+                CompletableFuture.supplyAsync(() -> sendGroup(key, subscriptions), executor)));
+    CompletableFuture.allOf(sentGroups.toArray(new CompletableFuture[0]))
+        .whenComplete(
+            (result, e) ->
+                recordSlot(
+                    slot,
+                    subscriptionIds.size(),
+                    sentGroups,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+  }
+
+  private FilterSubscriptionSearches sendGroup(
+      final GroupKey key, final List<FilterSubscription> subscriptions) {
+    final FilterSubscriptionSearches searches = FilterSubscriptionSearches.shared(key.getLastRun());
+    for (final FilterSubscription subscription : subscriptions) {
+      try {
+        filterSubscriptionResolver
+            .resolve(subscription.getRecipientsType())
+            .ifPresentOrElse(
+                sender -> sender.sendMyteamNotifications(subscription, searches),
+                () ->
+                    SentryClient.capture(
+                        String.format(
+                            "FilterSubscriptionSender was not resolve by filter subscription [id:"
+                                + " %s, recipient type: %s]",
+                            subscription.getID(), subscription.getRecipientsType())));
+      } catch (Exception e) {
+        failedCount.increment();
+        SentryClient.capture(e, Map.of("subscriptionId", String.valueOf(subscription.getID())));
+      }
+    }
+    return searches;
+  }
+
+  private void recordSlot(
+      final long slot,
+      final int subscriptions,
+      final List<CompletableFuture<FilterSubscriptionSearches>> sentGroups,
+      final long durationMillis) {
+    int searches = 0;
+    int searchRequests = 0;
+    for (final CompletableFuture<FilterSubscriptionSearches> sentGroup : sentGroups) {
+      final FilterSubscriptionSearches groupSearches = sentGroup.getNow(null);
+      if (groupSearches != null) {
+        searches += groupSearches.getSearchesCount();
+        searchRequests += groupSearches.getRequestsCount();
+      }
+    }
+
+    slotsCount.increment();
+    subscriptionsCount.add(subscriptions);
+    groupsCount.add(sentGroups.size());
+    searchesCount.add(searches);
+    searchRequestsCount.add(searchRequests);
+    synchronized (lastSlots) {
+      lastSlots.addFirst(
+          new SlotStatistics(
+              new Date(slot),
+              subscriptions,
+              sentGroups.size(),
+              searches,
+              searchRequests,
+              durationMillis));
+      if (lastSlots.size() > LAST_SLOTS_SIZE) {
+        lastSlots.removeLast();
+      }
+    }
+    log.debug(
+        "Filter subscriptions batch of {} ran {} subscriptions in {} groups with {} searches",
+        new Date(slot),
+        subscriptions,
+        sentGroups.size(),
+        searches);
+  }
+
+  private Thread newThread(final Runnable runnable) {
+    final Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadsCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  @Value
+  private static class GroupKey {
+    Long filterId;
+    FilterSubscriptionType type;
+    @Nullable Date lastRun;
+  }
+
+  @Getter
+  public static class SlotStatistics {
+    private final Date slot;
+    private final int subscriptionsCount;
+    private final int groupsCount;
+    private final int searchesCount;
+    private final int searchRequestsCount;
+    private final long durationMillis;
+
+    SlotStatistics(
+        final Date slot,
+        final int subscriptionsCount,
+        final int groupsCount,
+        final int searchesCount,
+        final int searchRequestsCount,
+        final long durationMillis) {
+      this.slot = slot;
+      this.subscriptionsCount = subscriptionsCount;
+      this.groupsCount = groupsCount;
+      this.searchesCount = searchesCount;
+      this.searchRequestsCount = searchRequestsCount;
+      this.durationMillis = durationMillis;
+    }
+  }
+}
@@ -41,10 +41,11 @@ public class FilterSubscriptionByChatSender extends AbstractFilterSubscriptionSe
   }
 
   @Override
-  public void sendMyteamNotifications(final FilterSubscription subscription) {
+  public void sendMyteamNotifications(
+      final FilterSubscription subscription, final FilterSubscriptionSearches searches) {
     for (final String chat : CommonUtils.split(subscription.getRecipients())) {
       this.tryGetChatInfo(subscription, chat);
-      super.sendMessages(subscription, null, chat);
+      super.sendMessages(subscription, null, chat, searches);
     }
   }
 
@@ -1,25 +1,79 @@
 /* (C)2024 */
 package ru.mail.jira.plugins.myteam.service.subscription;
 
+import static ru.mail.jira.plugins.myteam.bot.rulesengine.states.JqlSearchState.JQL_SEARCH_PAGE_SIZE;
+import static ru.mail.jira.plugins.myteam.bot.rulesengine.states.JqlSearchState.JQL_SEARCH_PAGE_SIZE_MAX;
+
 import com.atlassian.crowd.embedded.api.Group;
+import com.atlassian.jira.bc.JiraServiceContextImpl;
 import com.atlassian.jira.bc.filter.SearchRequestService;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.search.SearchRequest;
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.permission.ProjectPermissions;
 import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.security.PermissionManager;
 import com.atlassian.jira.security.groups.GroupManager;
+import com.atlassian.jira.sharing.ShareManager;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.jira.user.util.UserManager;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
+import com.atlassian.query.clause.ChangedClause;
+import com.atlassian.query.clause.Clause;
+import com.atlassian.query.clause.TerminalClause;
+import com.atlassian.query.clause.WasClause;
+import com.atlassian.query.history.AndHistoryPredicate;
+import com.atlassian.query.history.HistoryPredicate;
+import com.atlassian.query.history.TerminalHistoryPredicate;
+import com.atlassian.query.operand.FunctionOperand;
+import com.atlassian.query.operand.MultiValueOperand;
+import com.atlassian.query.operand.Operand;
 import com.atlassian.sal.api.message.I18nResolver;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.mail.jira.plugins.commons.CommonUtils;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.commands.service.CommonButtonsService;
+import ru.mail.jira.plugins.myteam.component.MessageFormatter;
 import ru.mail.jira.plugins.myteam.db.model.FilterSubscription;
 import ru.mail.jira.plugins.myteam.db.model.RecipientsType;
 import ru.mail.jira.plugins.myteam.service.IssueService;
 import ru.mail.jira.plugins.myteam.service.UserChatService;
 
+/**
+ * Runs the filter once as subscription creator and sends each group member the found issues which
+ * the member can browse. Filters depending on current user, members without access to the filter
+ * and results bigger than one search page are searched per member as before.
+ */
+@Slf4j
 @Component
 public class FilterSubscriptionByGroupSender extends AbstractFilterSubscriptionSender {
+  private static final String SHARED_SEARCH_PROPERTY =
+      "ru.mail.jira.plugins.myteam.subscriptions.sharedGroupSearch";
+  // date functions are left out as they are evaluated in time zone of searching user
+  private static final Set<String> USER_INDEPENDENT_JQL_FUNCTIONS =
+      Set.of("now", "membersof", "standardissuetypes", "subtaskissuetypes");
+  private static final Set<String> FILTER_JQL_FIELDS =
+      Set.of("filter", "request", "savedfilter", "searchrequest");
+
+  private final PermissionManager permissionManager;
+  private final ShareManager shareManager;
+  private final boolean sharedSearchEnabled;
+  private final LongAdder runsCount = new LongAdder();
+  private final LongAdder membersCount = new LongAdder();
+  private final LongAdder searchesCount = new LongAdder();
 
   @Autowired
   public FilterSubscriptionByGroupSender(
@@ -28,9 +82,37 @@ public class FilterSubscriptionByGroupSender extends AbstractFilterSubscriptionS
       @ComponentImport final GroupManager groupManager,
       @ComponentImport final UserManager userManager,
       @ComponentImport final SearchRequestService searchRequestService,
+      @ComponentImport final PermissionManager permissionManager,
+      @ComponentImport final ShareManager shareManager,
       final IssueService issueService,
       final UserChatService userChatService,
       final CommonButtonsService commonButtonsService) {
+    this(
+        jiraAuthenticationContext,
+        i18nResolver,
+        groupManager,
+        userManager,
+        searchRequestService,
+        permissionManager,
+        shareManager,
+        issueService,
+        userChatService,
+        commonButtonsService,
+        Boolean.parseBoolean(System.getProperty(SHARED_SEARCH_PROPERTY, "true")));
+  }
+
+  FilterSubscriptionByGroupSender(
+      final JiraAuthenticationContext jiraAuthenticationContext,
+      final I18nResolver i18nResolver,
+      final GroupManager groupManager,
+      final UserManager userManager,
+      final SearchRequestService searchRequestService,
+      final PermissionManager permissionManager,
+      final ShareManager shareManager,
+      final IssueService issueService,
+      final UserChatService userChatService,
+      final CommonButtonsService commonButtonsService,
+      final boolean sharedSearchEnabled) {
     super(
         jiraAuthenticationContext,
         i18nResolver,
@@ -40,24 +122,259 @@ public class FilterSubscriptionByGroupSender extends AbstractFilterSubscriptionS
         issueService,
         userChatService,
         commonButtonsService);
+    this.permissionManager = permissionManager;
+    this.shareManager = shareManager;
+    this.sharedSearchEnabled = sharedSearchEnabled;
   }
 
   @Override
-  public void sendMyteamNotifications(final FilterSubscription subscription) {
+  public void sendMyteamNotifications(
+      final FilterSubscription subscription, final FilterSubscriptionSearches searches) {
+    final Set<ApplicationUser> members = new LinkedHashSet<>();
     for (final String groupName : CommonUtils.split(subscription.getRecipients())) {
       final Group group = groupManager.getGroup(groupName);
       if (group != null) {
         for (final ApplicationUser user : groupManager.getUsersInGroup(group)) {
           if (user != null) {
-            super.sendMessages(subscription, user, null);
+            members.add(user);
           }
         }
       }
     }
+
+    final long searchesBefore = searchesCount.sum();
+    final List<ApplicationUser> notNotifiedMembers =
+        sharedSearchEnabled
+            ? sendSharedSearchResults(subscription, members, searches)
+            : List.copyOf(members);
+    for (final ApplicationUser member : notNotifiedMembers) {
+      searchesCount.increment();
+      super.sendMessages(subscription, member, null, searches);
+    }
+
+    runsCount.increment();
+    membersCount.add(members.size());
+    log.debug(
+        "Filter subscription {} notified {} group members with {} searches",
+        subscription.getID(),
+        members.size(),
+        searchesCount.sum() - searchesBefore);
   }
 
   @Override
   public RecipientsType getRecipientType() {
     return RecipientsType.GROUP;
   }
+
+  public long getRunsCount() {
+    return runsCount.sum();
+  }
+
+  public long getMembersCount() {
+    return membersCount.sum();
+  }
+
+  public long getSearchesCount() {
+    return searchesCount.sum();
+  }
+
+  /** Returns members which should be searched separately */
+  private List<ApplicationUser> sendSharedSearchResults(
+      final FilterSubscription subscription,
+      final Set<ApplicationUser> members,
+      final FilterSubscriptionSearches searches) {
+    final ApplicationUser currentUser = jiraAuthenticationContext.getLoggedInUser();
+    final ApplicationUser creator = userManager.getUserByKey(subscription.getUserKey());
+    if (creator == null || members.isEmpty()) {
+      return List.copyOf(members);
+    }
+
+    // members which got or started to get shared results must not be searched again
+    final Set<ApplicationUser> handledMembers = new HashSet<>();
+    try {
+      jiraAuthenticationContext.setLoggedInUser(creator);
+      final JiraServiceContextImpl jiraServiceContext = new JiraServiceContextImpl(creator);
+      final SearchRequest searchRequest =
+          searchRequestService.getFilter(jiraServiceContext, subscription.getFilterId());
+      if (jiraServiceContext.getErrorCollection().hasAnyErrors()
+          || searchRequest == null
+          || dependsOnCurrentUser(searchRequest)) {
+        return List.copyOf(members);
+      }
+
+      searchesCount.increment();
+      final SearchResults<Issue> searchResults =
+          searches.search(
+              subscription,
+              creator,
+              JQL_SEARCH_PAGE_SIZE_MAX,
+              lastRun ->
+                  issueService.searchByJqlQuery(
+                      buildJqlQuery(searchRequest, subscription.getType(), lastRun),
+                      creator,
+                      0,
+                      JQL_SEARCH_PAGE_SIZE_MAX));
+      if (searchResults.getTotal() > searchResults.getResults().size()) {
+        // totals of members can't be counted from a part of results
+        return List.copyOf(members);
+      }
+
+      final MessageFormatter messageFormatter = userChatService.getMessageFormatter();
+      final Map<MessageKey, String> listMessages = new HashMap<>();
+      final List<ApplicationUser> notNotifiedMembers = new ArrayList<>();
+      for (final ApplicationUser member : members) {
+        if (!canSeeFilter(member, searchRequest)) {
+          notNotifiedMembers.add(member);
+          continue;
+        }
+        final List<Issue> visibleIssues =
+            searchResults.getResults().stream()
+                .filter(
+                    issue ->
+                        permissionManager.hasPermission(
+                            ProjectPermissions.BROWSE_PROJECTS, issue, member))
+                .collect(Collectors.toList());
+        // messages are rendered in language of member
+        jiraAuthenticationContext.setLoggedInUser(member);
+        handledMembers.add(member);
+        sendVisibleIssues(
+            subscription, member, searchRequest, visibleIssues, messageFormatter, listMessages);
+      }
+      return notNotifiedMembers;
+    } catch (Exception e) {
+      log.error(
+          "Unable to send filter subscription {} results to {} of {} group members",
+          subscription.getID(),
+          members.size() - handledMembers.size(),
+          members.size(),
+          e);
+      return members.stream()
+          .filter(member -> !handledMembers.contains(member))
+          .collect(Collectors.toList());
+    } finally {
+      jiraAuthenticationContext.setLoggedInUser(currentUser);
+    }
+  }
+
+  private void sendVisibleIssues(
+      final FilterSubscription subscription,
+      final ApplicationUser member,
+      final SearchRequest searchRequest,
+      final List<Issue> visibleIssues,
+      final MessageFormatter messageFormatter,
+      final Map<MessageKey, String> listMessages) {
+    final Locale locale = jiraAuthenticationContext.getLocale();
+    if (visibleIssues.isEmpty()) {
+      if (subscription.isEmailOnEmpty()) {
+        sendMessage(
+            listMessages.computeIfAbsent(
+                new MessageKey(locale, List.of()),
+                key ->
+                    messageFormatter.formatEmptyFilterSubscription(
+                        searchRequest.getName(), searchRequest.getId())),
+            member,
+            null,
+            null);
+      }
+      return;
+    }
+
+    if (subscription.isSeparateIssues()) {
+      sendMessage(
+          messageFormatter.formatIssueFilterSubscription(
+              searchRequest.getName(), searchRequest.getId(), visibleIssues.size()),
+          member,
+          null,
+          null);
+      // dates in issue summary are formatted in time zone of member
+      for (final Issue issue : visibleIssues) {
+        sendMessage(messageFormatter.createIssueSummary(issue, member), member, null, issue);
+      }
+      return;
+    }
+
+    final List<Long> issueIds =
+        visibleIssues.stream().map(Issue::getId).collect(Collectors.toList());
+    sendMessage(
+        listMessages.computeIfAbsent(
+            new MessageKey(locale, issueIds),
+            key ->
+                messageFormatter.formatListFilterSubscription(
+                    searchRequest.getName(),
+                    searchRequest.getId(),
+                    searchRequest.getQuery().getQueryString(),
+                    new SearchResults<>(
+                        visibleIssues.subList(
+                            0, Math.min(JQL_SEARCH_PAGE_SIZE, visibleIssues.size())),
+                        visibleIssues.size(),
+                        JQL_SEARCH_PAGE_SIZE,
+                        0))),
+        member,
+        null,
+        null);
+  }
+
+  private boolean canSeeFilter(final ApplicationUser member, final SearchRequest searchRequest) {
+    return member.equals(searchRequest.getOwner())
+        || shareManager.isSharedWith(member, searchRequest);
+  }
+
+  /**
+   * Filter is searched per member if any of its functions is not known to return the same values
+   * for all users or it references other filters, which can be private or depend on user as well.
+   */
+  private static boolean dependsOnCurrentUser(final SearchRequest searchRequest) {
+    return dependsOnCurrentUser(searchRequest.getQuery().getWhereClause());
+  }
+
+  private static boolean dependsOnCurrentUser(@Nullable final Clause clause) {
+    if (clause == null) {
+      return false;
+    }
+    if (clause instanceof TerminalClause) {
+      final TerminalClause terminalClause = (TerminalClause) clause;
+      if (FILTER_JQL_FIELDS.contains(terminalClause.getName().toLowerCase(Locale.ROOT))
+          || dependsOnCurrentUser(terminalClause.getOperand())) {
+        return true;
+      }
+    }
+    if (clause instanceof WasClause && dependsOnCurrentUser(((WasClause) clause).getPredicate())) {
+      return true;
+    }
+    if (clause instanceof ChangedClause
+        && dependsOnCurrentUser(((ChangedClause) clause).getPredicate())) {
+      return true;
+    }
+    return clause.getClauses().stream()
+        .anyMatch(FilterSubscriptionByGroupSender::dependsOnCurrentUser);
+  }
+
+  private static boolean dependsOnCurrentUser(@Nullable final HistoryPredicate predicate) {
+    if (predicate instanceof TerminalHistoryPredicate) {
+      return dependsOnCurrentUser(((TerminalHistoryPredicate) predicate).getOperand());
+    }
+    if (predicate instanceof AndHistoryPredicate) {
+      return ((AndHistoryPredicate) predicate)
+          .getPredicates().stream().anyMatch(FilterSubscriptionByGroupSender::dependsOnCurrentUser);
+    }
+    return false;
+  }
+
+  private static boolean dependsOnCurrentUser(@Nullable final Operand operand) {
+    if (operand instanceof FunctionOperand) {
+      return !USER_INDEPENDENT_JQL_FUNCTIONS.contains(
+          ((FunctionOperand) operand).getName().toLowerCase(Locale.ROOT));
+    }
+    if (operand instanceof MultiValueOperand) {
+      return ((MultiValueOperand) operand)
+          .getValues().stream().anyMatch(FilterSubscriptionByGroupSender::dependsOnCurrentUser);
+    }
+    return false;
+  }
+
+  @Value
+  private static class MessageKey {
+    @Nullable Locale locale;
+    List<Long> issueIds;
+  }
 }
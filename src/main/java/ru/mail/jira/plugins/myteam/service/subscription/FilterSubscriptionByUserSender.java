@@ -42,11 +42,12 @@ public class FilterSubscriptionByUserSender extends AbstractFilterSubscriptionSe
   }
 
   @Override
-  public void sendMyteamNotifications(final FilterSubscription subscription) {
+  public void sendMyteamNotifications(
+      final FilterSubscription subscription, final FilterSubscriptionSearches searches) {
     for (final String userKey : CommonUtils.split(subscription.getRecipients())) {
       final ApplicationUser user = userManager.getUserByKey(userKey);
       if (user != null) {
-        super.sendMessages(subscription, user, null);
+        super.sendMessages(subscription, user, null, searches);
       }
     }
   }
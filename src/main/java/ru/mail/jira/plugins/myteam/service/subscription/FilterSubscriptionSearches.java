@@ -0,0 +1,91 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.subscription;
+
+import com.atlassian.jira.exception.ParseException;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.search.SearchException;
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.user.ApplicationUser;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscription;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscriptionType;
+
+/**
+ * Search results of subscriptions with the same filter, run type and last run, which are sent in
+ * one batch. Results are shared by searches of the same user with the same limit. Not thread safe,
+ * subscriptions sharing searches are sent sequentially.
+ */
+public class FilterSubscriptionSearches {
+  @Nullable private final Map<SearchKey, SearchResults<Issue>> results;
+  @Nullable private final Date lastRun;
+  private int requestsCount;
+  private int searchesCount;
+
+  private FilterSubscriptionSearches(
+      @Nullable Map<SearchKey, SearchResults<Issue>> results, @Nullable Date lastRun) {
+    this.results = results;
+    this.lastRun = lastRun;
+  }
+
+  /** Every search is executed with last run of its subscription */
+  public static FilterSubscriptionSearches notShared() {
+    return new FilterSubscriptionSearches(null, null);
+  }
+
+  /** Searches are executed with given last run, which subscriptions had before the batch */
+  public static FilterSubscriptionSearches shared(@Nullable Date lastRun) {
+    return new FilterSubscriptionSearches(new HashMap<>(), lastRun);
+  }
+
+  public SearchResults<Issue> search(
+      final FilterSubscription subscription,
+      @Nullable final ApplicationUser user,
+      final int limit,
+      final Search search)
+      throws SearchException, ParseException {
+    requestsCount++;
+    if (results == null) {
+      searchesCount++;
+      return search.run(subscription.getLastRun());
+    }
+
+    final SearchKey key =
+        new SearchKey(
+            subscription.getFilterId(),
+            subscription.getType(),
+            user != null ? user.getKey() : null,
+            limit);
+    SearchResults<Issue> searchResults = results.get(key);
+    if (searchResults == null) {
+      searchesCount++;
+      searchResults = search.run(lastRun);
+      results.put(key, searchResults);
+    }
+    return searchResults;
+  }
+
+  public int getRequestsCount() {
+    return requestsCount;
+  }
+
+  public int getSearchesCount() {
+    return searchesCount;
+  }
+
+  @FunctionalInterface
+  public interface Search {
+    SearchResults<Issue> run(@Nullable Date lastRun) throws SearchException, ParseException;
+  }
+
+  @Value
+  private static class SearchKey {
+    Long filterId;
+    FilterSubscriptionType type;
+    @Nullable String userKey;
+    int limit;
+  }
+}
@@ -6,7 +6,12 @@ import ru.mail.jira.plugins.myteam.db.model.RecipientsType;
 
 public interface FilterSubscriptionSender {
 
-  void sendMyteamNotifications(final FilterSubscription filterSubscription);
+  default void sendMyteamNotifications(final FilterSubscription filterSubscription) {
+    sendMyteamNotifications(filterSubscription, FilterSubscriptionSearches.notShared());
+  }
+
+  void sendMyteamNotifications(
+      final FilterSubscription filterSubscription, final FilterSubscriptionSearches searches);
 
   RecipientsType getRecipientType();
 }
@@ -16,12 +16,12 @@ import ru.mail.jira.plugins.myteam.service.FilterSubscriptionService;
 
 @Component
 public class SendMyteamSubscriptionNotificationsJobRunner implements ExtendedJobRunner {
-  private final FilterSubscriptionService filterSubscriptionService;
+  private final FilterSubscriptionBatchRunner filterSubscriptionBatchRunner;
 
   @Autowired
   public SendMyteamSubscriptionNotificationsJobRunner(
-      final FilterSubscriptionService filterSubscriptionService) {
-    this.filterSubscriptionService = filterSubscriptionService;
+      final FilterSubscriptionBatchRunner filterSubscriptionBatchRunner) {
+    this.filterSubscriptionBatchRunner = filterSubscriptionBatchRunner;
   }
 
   @Nullable
@@ -35,7 +35,8 @@ public class SendMyteamSubscriptionNotificationsJobRunner implements ExtendedJob
     }
 
     try {
-      filterSubscriptionService.runFilterSubscription(subscriptionId);
+      // subscriptions fired in the same minute are sent as one batch
+      filterSubscriptionBatchRunner.submit(subscriptionId, jobRunnerRequest.getStartTime());
       return JobRunnerResponse.success();
     } catch (Exception e) {
       SentryClient.capture(e);
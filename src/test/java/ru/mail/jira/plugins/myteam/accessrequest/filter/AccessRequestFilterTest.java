@@ -0,0 +1,106 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.accessrequest.filter;
+
+import static org.mockito.Mockito.*;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.project.ProjectManager;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.security.PermissionManager;
+import com.atlassian.jira.user.ApplicationUser;
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.accessrequest.service.AccessRequestService;
+
+@SuppressWarnings("NullAway")
+class AccessRequestFilterTest {
+  private static final long PROJECT_ID = 10000L;
+
+  private IssueManager issueManager;
+  private ProjectManager projectManager;
+  private PermissionManager permissionManager;
+  private AccessRequestService accessRequestService;
+  private ApplicationUser user;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private FilterChain chain;
+  private AccessRequestFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    issueManager = mock(IssueManager.class);
+    projectManager = mock(ProjectManager.class);
+    permissionManager = mock(PermissionManager.class);
+    accessRequestService = mock(AccessRequestService.class);
+    user = mock(ApplicationUser.class);
+    JiraAuthenticationContext jiraAuthenticationContext = mock(JiraAuthenticationContext.class);
+    when(jiraAuthenticationContext.getLoggedInUser()).thenReturn(user);
+    request = mock(HttpServletRequest.class);
+    when(request.getContextPath()).thenReturn("/jira");
+    response = mock(HttpServletResponse.class);
+    chain = mock(FilterChain.class);
+    Project project = mock(Project.class);
+    when(project.getId()).thenReturn(PROJECT_ID);
+    when(projectManager.getProjectByCurrentKeyIgnoreCase("TEST")).thenReturn(project);
+    filter =
+        new AccessRequestFilter(
+            issueManager,
+            projectManager,
+            jiraAuthenticationContext,
+            permissionManager,
+            accessRequestService);
+  }
+
+  @Test
+  void doFilterSkipsLinkWithoutIssueKey() throws Exception {
+    // GIVEN
+    when(request.getRequestURI()).thenReturn("/jira/browse/TEST");
+
+    // WHEN
+    filter.doFilter(request, response, chain);
+
+    // THEN
+    verify(chain).doFilter(request, response);
+    verifyNoInteractions(issueManager, accessRequestService);
+  }
+
+  @Test
+  void doFilterDoesNotLoadIssueOfProjectWithoutConfiguration() throws Exception {
+    // GIVEN
+    when(request.getRequestURI()).thenReturn("/jira/browse/TEST-1");
+    when(accessRequestService.hasAccessRequestConfiguration(PROJECT_ID)).thenReturn(false);
+
+    // WHEN
+    filter.doFilter(request, response, chain);
+
+    // THEN
+    verify(chain).doFilter(request, response);
+    verifyNoInteractions(issueManager);
+  }
+
+  @Test
+  void doFilterRedirectsToAccessRequest() throws Exception {
+    // GIVEN
+    when(request.getRequestURI()).thenReturn("/jira/browse/TEST-1");
+    when(accessRequestService.hasAccessRequestConfiguration(PROJECT_ID)).thenReturn(true);
+    Issue issue = mock(Issue.class);
+    when(issue.getKey()).thenReturn("TEST-1");
+    when(issue.getProjectId()).thenReturn(PROJECT_ID);
+    when(issueManager.getIssueByCurrentKey("TEST-1")).thenReturn(issue);
+    when(permissionManager.hasPermission(ProjectPermissions.BROWSE_PROJECTS, issue, user))
+        .thenReturn(false);
+
+    // WHEN
+    filter.doFilter(request, response, chain);
+
+    // THEN
+    verify(response).sendRedirect("/jira/secure/AccessRequest.jspa?issueKey=TEST-1");
+    verify(chain, never()).doFilter(request, response);
+  }
+}
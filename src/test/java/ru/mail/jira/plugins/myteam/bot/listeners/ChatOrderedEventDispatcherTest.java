@@ -0,0 +1,164 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("NullAway")
+class ChatOrderedEventDispatcherTest {
+  private final ChatOrderedEventDispatcher dispatcher = new ChatOrderedEventDispatcher(4, 100);
+
+  @AfterEach
+  void tearDown() {
+    dispatcher.destroy();
+  }
+
+  @Test
+  void dispatchKeepsOrderWithinChat() throws InterruptedException {
+    // GIVEN
+    List<Integer> handled = new ArrayList<>();
+    CountDownLatch latch = new CountDownLatch(50);
+
+    // WHEN
+    for (int i = 0; i < 50; i++) {
+      int eventNumber = i;
+      dispatcher.dispatch(
+          "chat@example.org",
+          () -> {
+            handled.add(eventNumber);
+            latch.countDown();
+          });
+    }
+
+    // THEN
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, handled.get(i));
+    }
+  }
+
+  @Test
+  void dispatchDoesNotBlockOtherChats() throws InterruptedException {
+    // GIVEN
+    String slowChatId = "slow@example.org";
+    String fastChatId = findChatIdOnOtherLane(slowChatId);
+    CountDownLatch slowEventReleased = new CountDownLatch(1);
+    CountDownLatch fastEventHandled = new CountDownLatch(1);
+
+    // WHEN
+    dispatcher.dispatch(
+        slowChatId,
+        () -> {
+          try {
+            slowEventReleased.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    dispatcher.dispatch(fastChatId, fastEventHandled::countDown);
+
+    // THEN
+    assertTrue(fastEventHandled.await(5, TimeUnit.SECONDS));
+    slowEventReleased.countDown();
+  }
+
+  @Test
+  void lanesDispatchingToEachOtherFullLanesDoNotDeadlock() throws InterruptedException {
+    // GIVEN
+    ChatOrderedEventDispatcher fullDispatcher = new ChatOrderedEventDispatcher(2, 1);
+    String firstChatId = "first@example.org";
+    String secondChatId = findChatIdOnOtherLane(firstChatId, 2);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch released = new CountDownLatch(1);
+    CountDownLatch handled = new CountDownLatch(6);
+    Runnable handle = handled::countDown;
+
+    // WHEN
+    fullDispatcher.dispatch(
+        firstChatId, crossDispatchTask(fullDispatcher, secondChatId, started, released, handled));
+    fullDispatcher.dispatch(
+        secondChatId, crossDispatchTask(fullDispatcher, firstChatId, started, released, handled));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    fullDispatcher.dispatch(firstChatId, handle);
+    fullDispatcher.dispatch(secondChatId, handle);
+    released.countDown();
+
+    // THEN
+    assertTrue(handled.await(10, TimeUnit.SECONDS));
+    assertTrue(fullDispatcher.getOverflowTasksCount() > 0);
+    fullDispatcher.destroy();
+  }
+
+  @Test
+  void tasksOverflowingFullLaneKeepOrderOfChat() throws InterruptedException {
+    // GIVEN
+    ChatOrderedEventDispatcher fullDispatcher = new ChatOrderedEventDispatcher(1, 2);
+    List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch latch = new CountDownLatch(10);
+
+    // WHEN
+    fullDispatcher.dispatch(
+        "chat@example.org",
+        () -> {
+          // lane fills its own queue over capacity
+          for (int i = 0; i < 10; i++) {
+            int eventNumber = i;
+            fullDispatcher.dispatch(
+                "chat@example.org",
+                () -> {
+                  handled.add(eventNumber);
+                  latch.countDown();
+                });
+          }
+        });
+
+    // THEN
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, handled.get(i));
+    }
+    assertEquals(8, fullDispatcher.getOverflowTasksCount());
+    assertEquals(0, fullDispatcher.getRejectedTasksCount());
+    fullDispatcher.destroy();
+  }
+
+  private static Runnable crossDispatchTask(
+      ChatOrderedEventDispatcher dispatcher,
+      String otherChatId,
+      CountDownLatch started,
+      CountDownLatch released,
+      CountDownLatch handled) {
+    return () -> {
+      started.countDown();
+      try {
+        released.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      dispatcher.dispatch(otherChatId, handled::countDown);
+      handled.countDown();
+    };
+  }
+
+  private String findChatIdOnOtherLane(String chatId) {
+    return findChatIdOnOtherLane(chatId, dispatcher.getLanesCount());
+  }
+
+  private static String findChatIdOnOtherLane(String chatId, int lanesCount) {
+    int lane = Math.floorMod(chatId.hashCode(), lanesCount);
+    for (int i = 0; ; i++) {
+      String candidate = "chat" + i + "@example.org";
+      if (Math.floorMod(candidate.hashCode(), lanesCount) != lane) {
+        return candidate;
+      }
+    }
+  }
+}
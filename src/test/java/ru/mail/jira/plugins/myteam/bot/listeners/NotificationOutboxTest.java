@@ -0,0 +1,213 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+import kong.unirest.HttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.db.model.OutboxMessage;
+import ru.mail.jira.plugins.myteam.db.repository.OutboxMessageRepository;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.response.MessageResponse;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class NotificationOutboxTest {
+  private OutboxMessageRepository outboxMessageRepository;
+  private MyteamApiClient myteamApiClient;
+  private ChatOrderedEventDispatcher chatOrderedEventDispatcher;
+  private NotificationOutbox notificationOutbox;
+
+  @BeforeEach
+  void setUp() {
+    outboxMessageRepository = mock(OutboxMessageRepository.class);
+    myteamApiClient = mock(MyteamApiClient.class);
+    chatOrderedEventDispatcher = new ChatOrderedEventDispatcher(2, 10);
+    notificationOutbox =
+        new NotificationOutbox(
+            outboxMessageRepository,
+            myteamApiClient,
+            chatOrderedEventDispatcher,
+            new ReentrantLock(),
+            1000,
+            8000,
+            10,
+            3,
+            1000);
+    when(outboxMessageRepository.findWaiting(any(), any())).thenReturn(new OutboxMessage[0]);
+  }
+
+  @AfterEach
+  void tearDown() {
+    notificationOutbox.destroy();
+    chatOrderedEventDispatcher.destroy();
+  }
+
+  @Test
+  void drainDeletesDeliveredMessages() throws Exception {
+    // GIVEN
+    OutboxMessage message = message(1, "user@example.org", 0);
+    when(outboxMessageRepository.findDue(any(), eq(10)))
+        .thenReturn(new OutboxMessage[] {message}, new OutboxMessage[0]);
+    HttpResponse<MessageResponse> response = response(true);
+    when(myteamApiClient.sendNotificationText("user@example.org", "text 1", null))
+        .thenReturn(response);
+
+    // WHEN
+    notificationOutbox.drain();
+
+    // THEN
+    verify(outboxMessageRepository).deleteByIds(any());
+    assertEquals(1, notificationOutbox.getSentCount());
+    verify(message, never()).save();
+  }
+
+  @Test
+  void drainRetriesFailedMessageAndKeepsChatOrder() throws Exception {
+    // GIVEN
+    OutboxMessage failed = message(1, "user@example.org", 0);
+    OutboxMessage next = message(2, "user@example.org", 0);
+    when(outboxMessageRepository.findDue(any(), eq(10)))
+        .thenReturn(new OutboxMessage[] {failed, next});
+    when(myteamApiClient.sendNotificationText("user@example.org", "text 1", null))
+        .thenThrow(new IOException("timeout"));
+
+    // WHEN
+    notificationOutbox.drain();
+
+    // THEN
+    verify(failed).setAttempts(1);
+    verify(failed).setNextAttempt(any());
+    verify(next).setNextAttempt(any());
+    verify(myteamApiClient, never())
+        .sendNotificationText(eq("user@example.org"), eq("text 2"), isNull());
+    assertEquals(1, notificationOutbox.getRetriedCount());
+    assertEquals(0, notificationOutbox.getSentCount());
+  }
+
+  @Test
+  void drainPostponesMessageOfChatWaitingForRetry() throws Exception {
+    // GIVEN
+    Date retryDate = new Date(System.currentTimeMillis() + 60_000);
+    OutboxMessage waiting = message(1, "user@example.org", 1);
+    when(waiting.getNextAttempt()).thenReturn(retryDate);
+    OutboxMessage next = message(2, "user@example.org", 0);
+    when(outboxMessageRepository.findDue(any(), eq(10))).thenReturn(new OutboxMessage[] {next});
+    when(outboxMessageRepository.findWaiting(any(), eq(Set.of("user@example.org"))))
+        .thenReturn(new OutboxMessage[] {waiting});
+
+    // WHEN
+    notificationOutbox.drain();
+
+    // THEN
+    verify(next).setNextAttempt(retryDate);
+    verify(next).save();
+    verify(myteamApiClient, never()).sendNotificationText(any(), any(), any());
+  }
+
+  @Test
+  void drainWaitsForDeliveryInFlightAfterBatchTimeout() throws Exception {
+    // GIVEN
+    CountDownLatch sending = new CountDownLatch(1);
+    OutboxMessage blocked = message(1, "user@example.org", 0);
+    OutboxMessage late = message(2, "user@example.org", 0);
+    when(outboxMessageRepository.findDue(any(), eq(10)))
+        .thenReturn(new OutboxMessage[] {blocked, late});
+    HttpResponse<MessageResponse> response = response(true);
+    when(myteamApiClient.sendNotificationText("user@example.org", "text 1", null))
+        .thenAnswer(
+            invocation -> {
+              sending.countDown();
+              Thread.sleep(300);
+              return response;
+            });
+    NotificationOutbox outbox =
+        new NotificationOutbox(
+            outboxMessageRepository,
+            myteamApiClient,
+            chatOrderedEventDispatcher,
+            new ReentrantLock(),
+            1000,
+            8000,
+            10,
+            3,
+            100);
+
+    // WHEN
+    outbox.drain();
+    outbox.destroy();
+
+    // THEN
+    assertEquals(0, sending.getCount());
+    verify(outboxMessageRepository).deleteByIds(List.of(1));
+    verify(myteamApiClient, never())
+        .sendNotificationText(eq("user@example.org"), eq("text 2"), isNull());
+    assertEquals(1, outbox.getSentCount());
+  }
+
+  @Test
+  void pollBacksOffWhileOutboxIsEmpty() {
+    // GIVEN
+    when(outboxMessageRepository.findDue(any(), eq(10))).thenReturn(new OutboxMessage[0]);
+
+    // WHEN
+    notificationOutbox.poll();
+    notificationOutbox.poll();
+    notificationOutbox.poll();
+
+    // THEN
+    verify(outboxMessageRepository, times(1)).findDue(any(), eq(10));
+  }
+
+  @Test
+  void drainKeepsRejectedMessageAsDead() throws Exception {
+    // GIVEN
+    OutboxMessage message = message(1, "user@example.org", 0);
+    when(outboxMessageRepository.findDue(any(), eq(10))).thenReturn(new OutboxMessage[] {message});
+    HttpResponse<MessageResponse> response = response(false);
+    when(myteamApiClient.sendNotificationText("user@example.org", "text 1", null))
+        .thenReturn(response);
+
+    // WHEN
+    notificationOutbox.drain();
+
+    // THEN
+    verify(message).setDead(true);
+    verify(message).save();
+    assertEquals(1, notificationOutbox.getDeadCount());
+  }
+
+  private static OutboxMessage message(int id, String chatId, int attempts) {
+    OutboxMessage message = mock(OutboxMessage.class);
+    when(message.getID()).thenReturn(id);
+    when(message.getChatId()).thenReturn(chatId);
+    when(message.getMessage()).thenReturn("text " + id);
+    when(message.getAttempts()).thenReturn(attempts);
+    return message;
+  }
+
+  private static HttpResponse<MessageResponse> response(boolean ok) {
+    MessageResponse body = new MessageResponse();
+    body.setOk(ok);
+    body.setDescription(ok ? null : "Chat not found");
+    HttpResponse<MessageResponse> response = mock(HttpResponse.class);
+    when(response.isSuccess()).thenReturn(true);
+    when(response.getBody()).thenReturn(body);
+    return response;
+  }
+}
@@ -0,0 +1,118 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.listeners;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("NullAway")
+class NotificationPipelineTest {
+
+  @Test
+  void enqueueRunsTaskOnWorker() throws InterruptedException {
+    // GIVEN
+    NotificationPipeline pipeline =
+        new NotificationPipeline(2, 10, NotificationPipeline.OverflowPolicy.CALLER_RUNS);
+    AtomicReference<Thread> taskThread = new AtomicReference<>();
+    CountDownLatch latch = new CountDownLatch(1);
+
+    // WHEN
+    pipeline.enqueue(
+        "test",
+        () -> {
+          taskThread.set(Thread.currentThread());
+          latch.countDown();
+        });
+
+    // THEN
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertNotEquals(Thread.currentThread(), taskThread.get());
+    assertEquals(1, pipeline.getEnqueuedTasksCount());
+    pipeline.destroy();
+  }
+
+  @Test
+  void enqueueRunsTaskOnCallerWhenQueueIsFull() throws InterruptedException {
+    // GIVEN
+    NotificationPipeline pipeline =
+        new NotificationPipeline(1, 1, NotificationPipeline.OverflowPolicy.CALLER_RUNS);
+    CountDownLatch workerReleased = new CountDownLatch(1);
+    fillPipeline(pipeline, workerReleased);
+    AtomicReference<Thread> taskThread = new AtomicReference<>();
+
+    // WHEN
+    pipeline.enqueue("overflow", () -> taskThread.set(Thread.currentThread()));
+
+    // THEN
+    assertEquals(Thread.currentThread(), taskThread.get());
+    assertEquals(1, pipeline.getOverflowRunTasksCount());
+    workerReleased.countDown();
+    pipeline.destroy();
+  }
+
+  @Test
+  void enqueueDropsTaskWhenQueueIsFull() throws InterruptedException {
+    // GIVEN
+    NotificationPipeline pipeline =
+        new NotificationPipeline(1, 1, NotificationPipeline.OverflowPolicy.DROP);
+    CountDownLatch workerReleased = new CountDownLatch(1);
+    fillPipeline(pipeline, workerReleased);
+    AtomicReference<Thread> taskThread = new AtomicReference<>();
+
+    // WHEN
+    pipeline.enqueue("overflow", () -> taskThread.set(Thread.currentThread()));
+    workerReleased.countDown();
+    pipeline.destroy();
+
+    // THEN
+    assertNull(taskThread.get());
+    assertEquals(1, pipeline.getDroppedTasksCount());
+    assertEquals(2, pipeline.getCompletedTasksCount());
+  }
+
+  @Test
+  void enqueueOrDropDropsTaskWhenQueueIsFullWhateverPolicyIs() throws InterruptedException {
+    // GIVEN
+    NotificationPipeline pipeline =
+        new NotificationPipeline(1, 1, NotificationPipeline.OverflowPolicy.CALLER_RUNS);
+    CountDownLatch workerReleased = new CountDownLatch(1);
+    fillPipeline(pipeline, workerReleased);
+    AtomicReference<Thread> taskThread = new AtomicReference<>();
+
+    // WHEN
+    boolean queued =
+        pipeline.enqueueOrDrop("overflow", () -> taskThread.set(Thread.currentThread()));
+    workerReleased.countDown();
+    pipeline.destroy();
+
+    // THEN
+    assertFalse(queued);
+    assertNull(taskThread.get());
+    assertEquals(0, pipeline.getOverflowRunTasksCount());
+    assertEquals(1, pipeline.getDroppedTasksCount());
+  }
+
+  private static void fillPipeline(NotificationPipeline pipeline, CountDownLatch workerReleased)
+      throws InterruptedException {
+    CountDownLatch workerStarted = new CountDownLatch(1);
+    pipeline.enqueue(
+        "blocking",
+        () -> {
+          workerStarted.countDown();
+          try {
+            workerReleased.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    assertTrue(workerStarted.await(5, TimeUnit.SECONDS));
+    pipeline.enqueue("queued", () -> {});
+  }
+}
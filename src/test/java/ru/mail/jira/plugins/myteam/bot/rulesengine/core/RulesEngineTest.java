@@ -0,0 +1,127 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.rulesengine.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.jeasy.rules.annotation.Action;
+import org.jeasy.rules.annotation.Condition;
+import org.jeasy.rules.annotation.Fact;
+import org.jeasy.rules.annotation.Rule;
+import org.jeasy.rules.api.Facts;
+import org.jeasy.rules.api.RulesEngineParameters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.CommentingIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.EmptyState;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+class RulesEngineTest {
+  private RulesEngine rulesEngine;
+
+  @BeforeEach
+  void setUp() {
+    rulesEngine =
+        new RulesEngine(
+            new RulesEngineParameters(
+                true, false, false, RulesEngineParameters.DEFAULT_RULE_PRIORITY_THRESHOLD),
+            mock(UserChatService.class));
+  }
+
+  @Test
+  void fireEvaluatesOnlyRulesOfCommand() {
+    // GIVEN
+    CountingRule help = new HelpRule();
+    CountingRule menu = new MenuRule();
+    CountingRule common = new CommonRule();
+    rulesEngine.registerCommandRule(help, "help");
+    rulesEngine.registerCommandRule(menu, "menu");
+    rulesEngine.registerRule(common);
+
+    // WHEN
+    rulesEngine.fire(facts("help", new EmptyState()));
+    rulesEngine.fire(facts("unknown", new EmptyState()));
+
+    // THEN
+    assertEquals(1, help.evaluations);
+    assertEquals(1, help.executions);
+    assertEquals(0, menu.evaluations);
+    assertEquals(2, common.evaluations);
+  }
+
+  @Test
+  void fireEvaluatesOnlyRulesOfStateClass() {
+    // GIVEN
+    CountingRule commenting = new CommentingRule();
+    CountingRule anyState = new CommonRule();
+    rulesEngine.registerStateRule(commenting, CommentingIssueState.class);
+    rulesEngine.registerStateRule(anyState, BotState.class);
+
+    // WHEN
+    rulesEngine.fire(facts(null, new EmptyState()));
+    rulesEngine.fire(facts(null, new CommentingIssueState("TEST-1")));
+
+    // THEN
+    assertEquals(1, commenting.evaluations);
+    assertEquals(2, anyState.evaluations);
+  }
+
+  private static Facts facts(String command, BotState state) {
+    Facts facts = new Facts();
+    if (command != null) {
+      facts.put("command", command);
+    }
+    facts.put("state", state);
+    return facts;
+  }
+
+  public abstract static class CountingRule {
+    private final boolean valid;
+    private int evaluations;
+    private int executions;
+
+    CountingRule(boolean valid) {
+      this.valid = valid;
+    }
+
+    @Condition
+    public boolean isValid(@Fact("state") BotState state) {
+      evaluations++;
+      return valid;
+    }
+
+    @Action
+    public void execute() {
+      executions++;
+    }
+  }
+
+  @Rule(name = "help")
+  public static class HelpRule extends CountingRule {
+    HelpRule() {
+      super(true);
+    }
+  }
+
+  @Rule(name = "menu")
+  public static class MenuRule extends CountingRule {
+    MenuRule() {
+      super(true);
+    }
+  }
+
+  @Rule(name = "common")
+  public static class CommonRule extends CountingRule {
+    CommonRule() {
+      super(false);
+    }
+  }
+
+  @Rule(name = "commenting")
+  public static class CommentingRule extends CountingRule {
+    CommentingRule() {
+      super(false);
+    }
+  }
+}
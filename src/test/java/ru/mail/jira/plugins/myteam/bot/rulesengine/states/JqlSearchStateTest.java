@@ -0,0 +1,86 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.rulesengine.states;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.user.ApplicationUser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.bot.events.ButtonClickEvent;
+import ru.mail.jira.plugins.myteam.component.MessageFormatter;
+import ru.mail.jira.plugins.myteam.service.IssueService;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class JqlSearchStateTest {
+  private static final String JQL = "project = TEST";
+
+  private IssueService issueService;
+  private ApplicationUser user;
+  private ButtonClickEvent event;
+  private JqlSearchState state;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    issueService = mock(IssueService.class);
+    UserChatService userChatService = mock(UserChatService.class);
+    MessageFormatter messageFormatter = mock(MessageFormatter.class);
+    when(userChatService.getMessageFormatter()).thenReturn(messageFormatter);
+    when(messageFormatter.stringifyIssueList(any(), anyInt(), anyInt(), any())).thenReturn("page");
+    user = mock(ApplicationUser.class);
+    when(userChatService.getJiraUserFromUserChatId(anyString())).thenReturn(user);
+    event = mock(ButtonClickEvent.class);
+    when(event.getUserId()).thenReturn("user@example.org");
+    when(event.getChatId()).thenReturn("user@example.org");
+
+    List<Long> issueIds = ids(1, 40);
+    SearchResults<Long> searchResults = mock(SearchResults.class);
+    when(searchResults.getResults()).thenReturn(issueIds);
+    when(searchResults.getTotal()).thenReturn(issueIds.size());
+    when(issueService.searchIssueIdsByJql(eq(JQL), eq(user), anyInt())).thenReturn(searchResults);
+    when(issueService.getIssuesByIds(any())).thenAnswer(invocation -> new ArrayList<>());
+
+    state = new JqlSearchState(userChatService, issueService, JQL);
+  }
+
+  @Test
+  void nextPageRendersFromFirstSearch() throws Exception {
+    // GIVEN
+    state.updatePage(event, false);
+
+    // WHEN
+    state.nextPage(event);
+    state.nextPage(event);
+
+    // THEN
+    verify(issueService, times(1)).searchIssueIdsByJql(eq(JQL), eq(user), anyInt());
+    verify(issueService, never()).searchByJql(anyString(), any(), anyInt(), anyInt());
+    verify(issueService).getIssuesByIds(ids(1, 15));
+    verify(issueService).getIssuesByIds(ids(16, 30));
+    verify(issueService).getIssuesByIds(ids(31, 40));
+  }
+
+  @Test
+  void newSearchMessageSearchesAgain() throws Exception {
+    // GIVEN
+    state.updatePage(event, false);
+
+    // WHEN
+    state.updatePage(event, false);
+
+    // THEN
+    verify(issueService, times(2)).searchIssueIdsByJql(eq(JQL), eq(user), anyInt());
+  }
+
+  private static List<Long> ids(long from, long to) {
+    return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+  }
+}
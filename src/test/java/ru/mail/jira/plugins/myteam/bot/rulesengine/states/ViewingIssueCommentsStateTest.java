@@ -0,0 +1,112 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.bot.rulesengine.states;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.jira.issue.comments.Comment;
+import com.atlassian.jira.user.ApplicationUser;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.bot.events.ButtonClickEvent;
+import ru.mail.jira.plugins.myteam.component.JiraMarkdownToChatMarkdownConverter;
+import ru.mail.jira.plugins.myteam.component.MessageFormatter;
+import ru.mail.jira.plugins.myteam.service.IssueService;
+import ru.mail.jira.plugins.myteam.service.RulesEngine;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class ViewingIssueCommentsStateTest {
+  private static final String ISSUE_KEY = "TEST-1";
+
+  private IssueService issueService;
+  private JiraMarkdownToChatMarkdownConverter jiraMarkdownToChatMarkdownConverter;
+  private ApplicationUser user;
+  private ButtonClickEvent event;
+  private ViewingIssueCommentsState state;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    issueService = mock(IssueService.class);
+    jiraMarkdownToChatMarkdownConverter = mock(JiraMarkdownToChatMarkdownConverter.class);
+    UserChatService userChatService = mock(UserChatService.class);
+    MessageFormatter messageFormatter = mock(MessageFormatter.class);
+    when(userChatService.getMessageFormatter()).thenReturn(messageFormatter);
+    when(messageFormatter.stringifyPagedCollection(any(), anyInt(), anyInt(), anyInt(), any()))
+        .thenReturn("page");
+    user = mock(ApplicationUser.class);
+    when(userChatService.getJiraUserFromUserChatId(anyString())).thenReturn(user);
+    event = mock(ButtonClickEvent.class);
+    when(event.getUserId()).thenReturn("user@example.org");
+    when(event.getChatId()).thenReturn("user@example.org");
+    when(jiraMarkdownToChatMarkdownConverter.makeMyteamMarkdownFromJira(anyString(), anyBoolean()))
+        .thenReturn("markdown");
+
+    Map<Long, Comment> comments =
+        LongStream.rangeClosed(1, 12)
+            .mapToObj(ViewingIssueCommentsStateTest::comment)
+            .collect(Collectors.toMap(Comment::getId, Function.identity()));
+    when(issueService.getIssueComments(ISSUE_KEY, user)).thenReturn(List.copyOf(comments.values()));
+    when(issueService.getCommentsByIds(any(), eq(user)))
+        .thenAnswer(
+            invocation ->
+                invocation.<List<Long>>getArgument(0).stream()
+                    .map(comments::get)
+                    .collect(Collectors.toList()));
+
+    state =
+        new ViewingIssueCommentsState(
+            ISSUE_KEY,
+            issueService,
+            userChatService,
+            mock(RulesEngine.class),
+            jiraMarkdownToChatMarkdownConverter);
+  }
+
+  @Test
+  void pagingLoadsOnlyCommentsOfPage() throws Exception {
+    // GIVEN
+    state.updatePage(event, false);
+
+    // WHEN
+    state.nextPage(event);
+    state.nextPage(event);
+
+    // THEN
+    verify(issueService, times(1)).getIssueComments(ISSUE_KEY, user);
+    verify(issueService).getCommentsByIds(List.of(1L, 2L, 3L, 4L, 5L), user);
+    verify(issueService).getCommentsByIds(List.of(6L, 7L, 8L, 9L, 10L), user);
+    verify(issueService).getCommentsByIds(List.of(11L, 12L), user);
+  }
+
+  @Test
+  void pagingBackUsesRenderedComments() {
+    // GIVEN
+    state.updatePage(event, false);
+    state.nextPage(event);
+
+    // WHEN
+    state.prevPage(event);
+
+    // THEN
+    verify(jiraMarkdownToChatMarkdownConverter, times(10))
+        .makeMyteamMarkdownFromJira(anyString(), anyBoolean());
+  }
+
+  private static Comment comment(long id) {
+    Comment comment = mock(Comment.class);
+    when(comment.getId()).thenReturn(id);
+    when(comment.getBody()).thenReturn("body " + id);
+    when(comment.getCreated()).thenReturn(new Date(id));
+    when(comment.getUpdated()).thenReturn(new Date(id));
+    return comment;
+  }
+}
@@ -0,0 +1,133 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import kong.unirest.HttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.ChatAdmin;
+import ru.mail.jira.plugins.myteam.myteam.dto.response.AdminsResponse;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class ChatAdminsCacheTest {
+  private static final String CHAT_ID = "chat@example.org";
+
+  private MyteamApiClient myteamApiClient;
+  private ChatAdminsCache chatAdminsCache;
+
+  @BeforeEach
+  void setUp() {
+    myteamApiClient = mock(MyteamApiClient.class);
+    chatAdminsCache = new ChatAdminsCache(myteamApiClient, 60, 100);
+  }
+
+  @Test
+  void isChatAdminRequestsAdminsOnce() throws Exception {
+    // GIVEN
+    mockAdmins("admin@example.org");
+
+    // WHEN
+    boolean admin = chatAdminsCache.isChatAdmin(CHAT_ID, "admin@example.org");
+    boolean notAdmin = chatAdminsCache.isChatAdmin(CHAT_ID, "user@example.org");
+
+    // THEN
+    assertTrue(admin);
+    assertFalse(notAdmin);
+    verify(myteamApiClient, times(1)).getAdmins(CHAT_ID);
+  }
+
+  @Test
+  void isChatAdminSharesConcurrentRequest() throws Exception {
+    // GIVEN
+    CountDownLatch requestStarted = new CountDownLatch(1);
+    CountDownLatch requestReleased = new CountDownLatch(1);
+    HttpResponse<AdminsResponse> response = adminsResponse("admin@example.org");
+    when(myteamApiClient.getAdmins(CHAT_ID))
+        .thenAnswer(
+            invocation -> {
+              requestStarted.countDown();
+              requestReleased.await(5, TimeUnit.SECONDS);
+              return response;
+            });
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    // WHEN
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      results.add(executor.submit(() -> chatAdminsCache.isChatAdmin(CHAT_ID, "admin@example.org")));
+    }
+    assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    requestReleased.countDown();
+
+    // THEN
+    for (Future<Boolean> result : results) {
+      assertTrue(result.get(5, TimeUnit.SECONDS));
+    }
+    verify(myteamApiClient, times(1)).getAdmins(CHAT_ID);
+    executor.shutdown();
+  }
+
+  @Test
+  void invalidateReloadsAdmins() throws Exception {
+    // GIVEN
+    mockAdmins("admin@example.org");
+    chatAdminsCache.isChatAdmin(CHAT_ID, "user@example.org");
+    mockAdmins("admin@example.org", "user@example.org");
+
+    // WHEN
+    chatAdminsCache.invalidate(CHAT_ID);
+
+    // THEN
+    assertTrue(chatAdminsCache.isChatAdmin(CHAT_ID, "user@example.org"));
+    verify(myteamApiClient, times(2)).getAdmins(CHAT_ID);
+  }
+
+  @Test
+  void isChatAdminDoesNotCacheFailure() throws Exception {
+    // GIVEN
+    when(myteamApiClient.getAdmins(CHAT_ID))
+        .thenThrow(new MyteamServerErrorException(500, "error"))
+        .thenReturn(adminsResponse("admin@example.org"));
+
+    // WHEN
+    assertThrows(
+        MyteamServerErrorException.class,
+        () -> chatAdminsCache.isChatAdmin(CHAT_ID, "admin@example.org"));
+
+    // THEN
+    assertTrue(chatAdminsCache.isChatAdmin(CHAT_ID, "admin@example.org"));
+  }
+
+  private void mockAdmins(String... adminIds) throws MyteamServerErrorException {
+    HttpResponse<AdminsResponse> response = adminsResponse(adminIds);
+    when(myteamApiClient.getAdmins(CHAT_ID)).thenReturn(response);
+  }
+
+  private static HttpResponse<AdminsResponse> adminsResponse(String... adminIds) {
+    List<ChatAdmin> admins = new ArrayList<>();
+    for (String adminId : adminIds) {
+      ChatAdmin admin = new ChatAdmin();
+      admin.setUserId(adminId);
+      admins.add(admin);
+    }
+    AdminsResponse body = new AdminsResponse();
+    body.setAdmins(admins);
+    HttpResponse<AdminsResponse> response = mock(HttpResponse.class);
+    when(response.getBody()).thenReturn(body);
+    return response;
+  }
+}
@@ -0,0 +1,143 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+import kong.unirest.HttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatInfoResponse;
+import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatMember;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class ChatMetadataCacheTest {
+  private static final String CHAT_ID = "chat@example.org";
+
+  private MyteamApiClient myteamApiClient;
+  private ChatMetadataCache chatMetadataCache;
+
+  @BeforeEach
+  void setUp() {
+    myteamApiClient = mock(MyteamApiClient.class);
+    chatMetadataCache = new ChatMetadataCache(myteamApiClient, 60, 3600, 300, 100);
+  }
+
+  @AfterEach
+  void tearDown() {
+    chatMetadataCache.destroy();
+  }
+
+  @Test
+  void getChatInfoRequestsChatOnce() throws Exception {
+    // GIVEN
+    ChatInfoResponse chatInfo = new ChatInfoResponse();
+    HttpResponse<ChatInfoResponse> response = chatInfoResponse(200, chatInfo);
+    when(myteamApiClient.getChatInfo(CHAT_ID)).thenReturn(response);
+
+    // WHEN
+    chatMetadataCache.getChatInfo(CHAT_ID);
+    ChatInfoResponse result = chatMetadataCache.getChatInfo(CHAT_ID);
+
+    // THEN
+    assertSame(chatInfo, result);
+    verify(myteamApiClient, times(1)).getChatInfo(CHAT_ID);
+  }
+
+  @Test
+  void getChatInfoCachesUnknownChat() throws Exception {
+    // GIVEN
+    HttpResponse<ChatInfoResponse> response = chatInfoResponse(404, null);
+    when(myteamApiClient.getChatInfo(CHAT_ID)).thenReturn(response);
+
+    // WHEN
+    chatMetadataCache.getChatInfo(CHAT_ID);
+    ChatInfoResponse result = chatMetadataCache.getChatInfo(CHAT_ID);
+
+    // THEN
+    assertNull(result);
+    verify(myteamApiClient, times(1)).getChatInfo(CHAT_ID);
+  }
+
+  @Test
+  void invalidateReloadsChatInfo() throws Exception {
+    // GIVEN
+    HttpResponse<ChatInfoResponse> unknown = chatInfoResponse(404, null);
+    ChatInfoResponse chatInfo = new ChatInfoResponse();
+    HttpResponse<ChatInfoResponse> known = chatInfoResponse(200, chatInfo);
+    when(myteamApiClient.getChatInfo(CHAT_ID)).thenReturn(unknown, known);
+    chatMetadataCache.getChatInfo(CHAT_ID);
+
+    // WHEN
+    chatMetadataCache.invalidate(CHAT_ID);
+
+    // THEN
+    assertSame(chatInfo, chatMetadataCache.getChatInfo(CHAT_ID));
+    verify(myteamApiClient, times(2)).getChatInfo(CHAT_ID);
+  }
+
+  @Test
+  void getChatInfoDoesNotCacheFailure() throws Exception {
+    // GIVEN
+    ChatInfoResponse chatInfo = new ChatInfoResponse();
+    HttpResponse<ChatInfoResponse> response = chatInfoResponse(200, chatInfo);
+    when(myteamApiClient.getChatInfo(CHAT_ID))
+        .thenThrow(new MyteamServerErrorException(500, "error"))
+        .thenReturn(response);
+
+    // WHEN
+    assertThrows(MyteamServerErrorException.class, () -> chatMetadataCache.getChatInfo(CHAT_ID));
+
+    // THEN
+    assertSame(chatInfo, chatMetadataCache.getChatInfo(CHAT_ID));
+  }
+
+  @Test
+  void getChatInfoDoesNotCacheErrorResponse() throws Exception {
+    // GIVEN
+    ChatInfoResponse error = new ChatInfoResponse();
+    error.setDescription("Too many requests");
+    ChatInfoResponse chatInfo = new ChatInfoResponse();
+    HttpResponse<ChatInfoResponse> errorResponse = chatInfoResponse(429, error);
+    HttpResponse<ChatInfoResponse> response = chatInfoResponse(200, chatInfo);
+    when(myteamApiClient.getChatInfo(CHAT_ID)).thenReturn(errorResponse, response);
+
+    // WHEN
+    assertThrows(MyteamServerErrorException.class, () -> chatMetadataCache.getChatInfo(CHAT_ID));
+
+    // THEN
+    assertSame(chatInfo, chatMetadataCache.getChatInfo(CHAT_ID));
+  }
+
+  @Test
+  void getMembersCachesChatReportedAsNotExisting() throws Exception {
+    // GIVEN
+    ChatMember chatMember = new ChatMember();
+    chatMember.setDescription("Chat not exists");
+    HttpResponse<ChatMember> response = mock(HttpResponse.class);
+    when(response.getStatus()).thenReturn(400);
+    when(response.getBody()).thenReturn(chatMember);
+    when(myteamApiClient.getMembers(CHAT_ID)).thenReturn(response);
+
+    // WHEN
+    chatMetadataCache.getMembers(CHAT_ID);
+    ChatMember result = chatMetadataCache.getMembers(CHAT_ID);
+
+    // THEN
+    assertNull(result);
+    verify(myteamApiClient, times(1)).getMembers(CHAT_ID);
+  }
+
+  private static HttpResponse<ChatInfoResponse> chatInfoResponse(
+      int status, ChatInfoResponse body) {
+    HttpResponse<ChatInfoResponse> response = mock(HttpResponse.class);
+    when(response.getStatus()).thenReturn(status);
+    lenient().when(response.getBody()).thenReturn(body);
+    return response;
+  }
+}
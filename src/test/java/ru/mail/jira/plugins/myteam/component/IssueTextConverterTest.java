@@ -0,0 +1,212 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.jira.issue.AttachmentManager;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.attachment.TemporaryAttachmentId;
+import com.atlassian.jira.user.ApplicationUser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import kong.unirest.HttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import ru.mail.jira.plugins.myteam.bot.events.ChatMessageEvent;
+import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.myteam.FileDownloader;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.dto.parts.File;
+import ru.mail.jira.plugins.myteam.myteam.dto.parts.Mention;
+import ru.mail.jira.plugins.myteam.myteam.dto.parts.Part;
+import ru.mail.jira.plugins.myteam.myteam.dto.response.FileResponse;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class IssueTextConverterTest {
+  private UserData userData;
+  private MyteamApiClient myteamApiClient;
+  private AttachmentManager attachmentManager;
+  private FileDownloader fileDownloader;
+  private Issue issue;
+  private ApplicationUser author;
+  private IssueTextConverter issueTextConverter;
+
+  @BeforeEach
+  void setUp() {
+    userData = mock(UserData.class);
+    myteamApiClient = mock(MyteamApiClient.class);
+    attachmentManager = mock(AttachmentManager.class);
+    when(attachmentManager.createTemporaryAttachment(any(InputStream.class), anyLong()))
+        .thenReturn(mock(TemporaryAttachmentId.class));
+    fileDownloader = mock(FileDownloader.class);
+    issue = mock(Issue.class);
+    when(issue.getKey()).thenReturn("ISSUE-1");
+    author = mock(ApplicationUser.class);
+    when(author.getEmailAddress()).thenReturn("user@example.org");
+    issueTextConverter =
+        new IssueTextConverter(userData, myteamApiClient, attachmentManager, fileDownloader);
+  }
+
+  @Test
+  void attachFilesToIssueKeepsOrderOfFilesDownloadedInParallel() throws Exception {
+    // GIVEN
+    InputStream first = mock(InputStream.class);
+    InputStream second = mock(InputStream.class);
+    InputStream third = mock(InputStream.class);
+    // the first file is downloaded last
+    mockFile(
+        "first",
+        CompletableFuture.supplyAsync(
+            () -> {
+              sleep(100);
+              return first;
+            }));
+    mockFile("second", CompletableFuture.completedFuture(second));
+    mockFile("third", CompletableFuture.completedFuture(third));
+
+    // WHEN
+    List<IssueTextConverter.AttachUploadInfo> result =
+        issueTextConverter.attachFilesToIssue(
+            issue, List.of(file("first"), file("second"), file("third")), author);
+
+    // THEN
+    assertEquals(
+        List.of("first.txt", "second.txt", "third.txt"),
+        result.stream()
+            .map(IssueTextConverter.AttachUploadInfo::getFileName)
+            .collect(Collectors.toList()));
+    InOrder attachments = inOrder(attachmentManager);
+    attachments.verify(attachmentManager).createTemporaryAttachment(eq(first), anyLong());
+    attachments.verify(attachmentManager).createTemporaryAttachment(eq(second), anyLong());
+    attachments.verify(attachmentManager).createTemporaryAttachment(eq(third), anyLong());
+    // closing stream of downloader deletes its temp file
+    verify(first, atLeastOnce()).close();
+    verify(second, atLeastOnce()).close();
+    verify(third, atLeastOnce()).close();
+  }
+
+  @Test
+  void attachFilesToIssueSkipsFileWhichInfoWasNotReceived() throws Exception {
+    // GIVEN
+    when(myteamApiClient.getFile("first"))
+        .thenThrow(new MyteamServerErrorException(500, "Internal server error"));
+    InputStream second = mock(InputStream.class);
+    mockFile("second", CompletableFuture.completedFuture(second));
+
+    // WHEN
+    List<IssueTextConverter.AttachUploadInfo> result =
+        issueTextConverter.attachFilesToIssue(
+            issue, List.of(file("first"), file("second")), author);
+
+    // THEN
+    assertEquals(1, result.size());
+    assertEquals("second.txt", result.get(0).getFileName());
+    assertTrue(result.get(0).isAttached());
+    verify(fileDownloader, times(1)).downloadAsync(anyString());
+    verify(second, atLeastOnce()).close();
+  }
+
+  @Test
+  void attachFilesToIssueReportsFailedDownloadAsNotAttached() throws Exception {
+    // GIVEN
+    mockFile("first", CompletableFuture.failedFuture(new IOException("Not found")));
+
+    // WHEN
+    List<IssueTextConverter.AttachUploadInfo> result =
+        issueTextConverter.attachFilesToIssue(issue, List.of(file("first")), author);
+
+    // THEN
+    assertEquals(1, result.size());
+    assertFalse(result.get(0).isAttached());
+    verify(attachmentManager, never()).createTemporaryAttachment(any(InputStream.class), anyLong());
+  }
+
+  @Test
+  void fileSentInSeveralPartsIsDownloadedAndAttachedOnce() throws Exception {
+    // GIVEN
+    InputStream content = mock(InputStream.class);
+    mockFile("first", CompletableFuture.completedFuture(content));
+    ChatMessageEvent event = mock(ChatMessageEvent.class);
+    when(event.getMessage()).thenReturn("text");
+    when(event.getMessageParts()).thenReturn(List.<Part>of(file("first"), file("first")));
+
+    // WHEN
+    String comment = issueTextConverter.convertToJiraCommentStyle(event, author, issue);
+
+    // THEN
+    assertTrue(comment.contains("first.txt"));
+    verify(fileDownloader, times(1)).downloadAsync(anyString());
+    verify(attachmentManager, times(1)).createTemporaryAttachment(eq(content), anyLong());
+  }
+
+  @Test
+  void downloadedFilesAreDiscardedWhenConversionFails() throws Exception {
+    // GIVEN
+    InputStream content = mock(InputStream.class);
+    mockFile("first", CompletableFuture.completedFuture(content));
+    Mention mention = new Mention();
+    Mention.Data mentionData = new Mention.Data();
+    mentionData.setUserId("user@example.org");
+    mention.setPayload(mentionData);
+    when(userData.getUserByMrimLogin("user@example.org"))
+        .thenThrow(new IllegalStateException("User directory is unavailable"));
+    ChatMessageEvent event = mock(ChatMessageEvent.class);
+    when(event.getMessage()).thenReturn("text");
+    when(event.getMessageParts()).thenReturn(List.<Part>of(mention, file("first")));
+
+    // WHEN
+    assertThrows(
+        IllegalStateException.class,
+        () -> issueTextConverter.convertToJiraCommentStyle(event, author, issue));
+
+    // THEN
+    verify(content, atLeastOnce()).close();
+    verify(attachmentManager, never()).createTemporaryAttachment(any(InputStream.class), anyLong());
+  }
+
+  private void mockFile(String fileId, CompletableFuture<InputStream> content) throws Exception {
+    FileResponse fileInfo = new FileResponse();
+    fileInfo.setType("text");
+    fileInfo.setSize(10);
+    fileInfo.setFilename(fileId + ".txt");
+    fileInfo.setUrl("https://files.example.org/get/" + fileId);
+    HttpResponse<FileResponse> response = mock(HttpResponse.class);
+    when(response.getBody()).thenReturn(fileInfo);
+    when(myteamApiClient.getFile(fileId)).thenReturn(response);
+    when(fileDownloader.downloadAsync(fileInfo.getUrl())).thenReturn(content);
+  }
+
+  private static File file(String fileId) {
+    File file = new File();
+    File.Data data = new File.Data();
+    data.setFileId(fileId);
+    file.setPayload(data);
+    return file;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -3,6 +3,7 @@ package ru.mail.jira.plugins.myteam.component;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -10,6 +11,7 @@ import static org.mockito.Mockito.when;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.jira.user.util.UserManager;
 import com.atlassian.jira.util.I18nHelper;
+import java.time.Duration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -370,4 +372,21 @@ class JiraMarkdownToChatMarkdownConverterTest {
     // THEN
     assertEquals(testedContent, result);
   }
+
+  @Test
+  void testLongTextWithUnclosedMarkup() {
+    // GIVEN
+    String inputString = " -a".repeat(20_000) + "{{a ".repeat(20_000) + "[a ".repeat(20_000);
+    String testedContent =
+        " \\-a".repeat(20_000) + "\\{\\{a ".repeat(20_000) + "\\[a ".repeat(20_000);
+
+    // WHEN
+    String result =
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(5),
+            () -> jiraMarkdownToChatMarkdownConverter.makeMyteamMarkdownFromJira(inputString, true));
+
+    // THEN
+    assertEquals(testedContent, result);
+  }
 }
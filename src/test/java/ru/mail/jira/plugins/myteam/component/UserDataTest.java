@@ -0,0 +1,196 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.cache.Cache;
+import com.atlassian.cache.CacheLoader;
+import com.atlassian.cache.CacheManager;
+import com.atlassian.crowd.embedded.api.CrowdService;
+import com.atlassian.crowd.embedded.api.SearchRestriction;
+import com.atlassian.crowd.embedded.api.User;
+import com.atlassian.crowd.search.query.entity.EntityQuery;
+import com.atlassian.crowd.search.query.entity.restriction.BooleanRestriction;
+import com.atlassian.crowd.search.query.entity.restriction.PropertyRestriction;
+import com.atlassian.jira.bc.user.search.UserSearchService;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.UserPropertyManager;
+import com.atlassian.jira.user.util.UserManager;
+import com.opensymphony.module.propertyset.PropertySet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.mail.jira.plugins.myteam.service.PluginData;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class UserDataTest {
+  private static final String USER_KEY = "userKey";
+
+  private UserPropertyManager userPropertyManager;
+  private UserSearchService userSearchService;
+  private CrowdService crowdService;
+  private UserManager userManager;
+  private Map<String, ApplicationUser> usersByEmail;
+  private PluginData pluginData;
+  private UserData userData;
+
+  @BeforeEach
+  void setUp() {
+    userPropertyManager = mock(UserPropertyManager.class);
+    userSearchService = mock(UserSearchService.class);
+    crowdService = mock(CrowdService.class);
+    userManager = mock(UserManager.class);
+    usersByEmail = new HashMap<>();
+    when(crowdService.search(any(EntityQuery.class)))
+        .thenAnswer(invocation -> findCrowdUsers(invocation.getArgument(0)));
+    when(userManager.getUserByName(anyString()))
+        .thenAnswer(invocation -> usersByEmail.get(invocation.<String>getArgument(0)));
+    pluginData = mock(PluginData.class);
+    CacheManager cacheManager = mock(CacheManager.class);
+    when(cacheManager.getCache(anyString(), any(CacheLoader.class), any()))
+        .thenAnswer(invocation -> mapCache(invocation.getArgument(1)));
+    userData =
+        new UserData(
+            userPropertyManager,
+            userSearchService,
+            crowdService,
+            userManager,
+            cacheManager,
+            pluginData);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {10, 50, 200})
+  void getActiveUsersByMrimLoginsSearchesMembersInBatches(int membersCount) {
+    // GIVEN
+    List<String> logins = new ArrayList<>();
+    for (int i = 0; i < membersCount; i++) {
+      logins.add("user" + i + "@example.org");
+      usersByEmail.put("user" + i + "@example.org", user(true));
+    }
+    logins.addAll(logins);
+
+    // WHEN
+    List<ApplicationUser> firstResult = userData.getActiveUsersByMrimLogins(logins);
+    List<ApplicationUser> secondResult = userData.getActiveUsersByMrimLogins(logins);
+
+    // THEN
+    assertEquals(membersCount, firstResult.size());
+    assertEquals(firstResult, secondResult);
+    verify(crowdService, times((membersCount + 49) / 50)).search(any(EntityQuery.class));
+    verify(userSearchService, never()).findUsersByEmail(anyString());
+  }
+
+  @Test
+  void getActiveUsersByMrimLoginsSkipsInactiveAndUnknownUsers() {
+    // GIVEN
+    ApplicationUser active = user(true);
+    usersByEmail.put("active@example.org", active);
+    usersByEmail.put("inactive@example.org", user(false));
+
+    // WHEN
+    List<ApplicationUser> result =
+        userData.getActiveUsersByMrimLogins(
+            Arrays.asList("inactive@example.org", "unknown@example.org", "active@example.org"));
+
+    // THEN
+    assertEquals(Collections.singletonList(active), result);
+  }
+
+  @Test
+  void getUserByMrimLoginPrefersActiveUser() {
+    // GIVEN
+    ApplicationUser inactive = user(false);
+    ApplicationUser active = user(true);
+    when(userSearchService.findUsersByEmail("user@example.org"))
+        .thenReturn(Arrays.asList(inactive, active));
+
+    // WHEN
+    ApplicationUser result = userData.getUserByMrimLogin("user@example.org");
+
+    // THEN
+    assertSame(active, result);
+  }
+
+  @Test
+  void getPreferencesReadsPropertiesOnceAndAppliesDefaults() {
+    // GIVEN
+    PropertySet propertySet = mock(PropertySet.class);
+    when(propertySet.getString("USER_MYTEAM_CHATSCREATION")).thenReturn("false");
+    when(userPropertyManager.getPropertySetForUserKey(USER_KEY)).thenReturn(propertySet);
+    when(pluginData.isEnabledByDefault()).thenReturn(true);
+    ApplicationUser user = user(true);
+
+    // WHEN
+    userData.isEnabled(user);
+    UserPreferences preferences =
+        userData.getPreferences(Collections.singletonList(user)).get(user);
+
+    // THEN
+    assertEquals(UserPreferences.of(true, true, false), preferences);
+    verify(userPropertyManager, times(1)).getPropertySetForUserKey(USER_KEY);
+  }
+
+  @Test
+  void setEnabledReloadsPreferences() {
+    // GIVEN
+    PropertySet propertySet = mock(PropertySet.class);
+    when(userPropertyManager.getPropertySetForUserKey(USER_KEY)).thenReturn(propertySet);
+    when(userPropertyManager.getPropertySet(any(ApplicationUser.class))).thenReturn(propertySet);
+    ApplicationUser user = user(true);
+    assertFalse(userData.isEnabled(user));
+    when(propertySet.getString("USER_MYTEAM_STATUS")).thenReturn("true");
+
+    // WHEN
+    userData.setEnabled(user, true);
+
+    // THEN
+    assertTrue(userData.isEnabled(user));
+    verify(userPropertyManager, times(2)).getPropertySetForUserKey(USER_KEY);
+  }
+
+  private List<User> findCrowdUsers(EntityQuery<User> query) {
+    List<User> crowdUsers = new ArrayList<>();
+    for (SearchRestriction restriction :
+        ((BooleanRestriction) query.getSearchRestriction()).getRestrictions()) {
+      String email = ((PropertyRestriction<String>) restriction).getValue();
+      if (usersByEmail.containsKey(email)) {
+        User crowdUser = mock(User.class);
+        when(crowdUser.getName()).thenReturn(email);
+        when(crowdUser.getEmailAddress()).thenReturn(email);
+        crowdUsers.add(crowdUser);
+      }
+    }
+    return crowdUsers;
+  }
+
+  private static Cache<String, Object> mapCache(CacheLoader<String, Object> loader) {
+    Map<String, Object> values = new HashMap<>();
+    Cache<String, Object> cache = mock(Cache.class);
+    when(cache.get(anyString()))
+        .thenAnswer(invocation -> values.computeIfAbsent(invocation.getArgument(0), loader::load));
+    doAnswer(invocation -> values.remove(invocation.<String>getArgument(0)))
+        .when(cache)
+        .remove(anyString());
+    return cache;
+  }
+
+  private static ApplicationUser user(boolean active) {
+    ApplicationUser user = mock(ApplicationUser.class);
+    when(user.isActive()).thenReturn(active);
+    when(user.getKey()).thenReturn(USER_KEY);
+    return user;
+  }
+}
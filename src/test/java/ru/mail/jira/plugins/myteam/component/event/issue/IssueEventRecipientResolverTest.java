@@ -0,0 +1,146 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component.event.issue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.jira.event.issue.IssueEvent;
+import com.atlassian.jira.event.type.EventType;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.comments.Comment;
+import com.atlassian.jira.notification.NotificationFilterManager;
+import com.atlassian.jira.notification.NotificationRecipient;
+import com.atlassian.jira.notification.NotificationSchemeManager;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.security.PermissionManager;
+import com.atlassian.jira.security.groups.GroupManager;
+import com.atlassian.jira.security.roles.ProjectRole;
+import com.atlassian.jira.security.roles.ProjectRoleActors;
+import com.atlassian.jira.security.roles.ProjectRoleManager;
+import com.atlassian.jira.user.ApplicationUser;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.mail.jira.plugins.myteam.bot.listeners.IssueEventRecipient;
+import ru.mail.jira.plugins.myteam.component.UserMentionService;
+
+@ExtendWith(MockitoExtension.class)
+class IssueEventRecipientResolverTest {
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private NotificationFilterManager notificationFilterManager;
+
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private NotificationSchemeManager notificationSchemeManager;
+
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private PermissionManager permissionManager;
+
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private ProjectRoleManager projectRoleManager;
+
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private GroupManager groupManager;
+
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private UserMentionService userMentionService;
+
+  @InjectMocks
+  @SuppressWarnings("NullAway")
+  private IssueEventRecipientResolver issueEventRecipientResolver;
+
+  private final Issue issue = mock(Issue.class);
+  private final Project project = mock(Project.class);
+  private final Comment comment = mock(Comment.class);
+  private final IssueEvent issueEvent = mock(IssueEvent.class);
+
+  @BeforeEach
+  void setUp() {
+    when(issue.getKey()).thenReturn("TEST-1");
+    when(issue.getProjectObject()).thenReturn(project);
+    when(issueEvent.getIssue()).thenReturn(issue);
+    when(issueEvent.getComment()).thenReturn(comment);
+    when(issueEvent.getEventTypeId()).thenReturn(EventType.ISSUE_COMMENTED_ID);
+  }
+
+  @Test
+  void resolveChecksPermissionsOfNotifiedAndMentionedUserOnce() throws Exception {
+    // GIVEN
+    ApplicationUser notifiedAndMentioned = user("notifiedAndMentioned");
+    ApplicationUser notified = user("notified");
+    ApplicationUser mentionedWithoutPermission = user("mentionedWithoutPermission");
+    when(notificationSchemeManager.getRecipients(issueEvent))
+        .thenReturn(Set.of(recipient(notifiedAndMentioned), recipient(notified)));
+    when(userMentionService.getMentionedUserInComment(comment))
+        .thenReturn(Set.of(notifiedAndMentioned, mentionedWithoutPermission));
+    allowBrowse(notifiedAndMentioned, notified);
+
+    // WHEN
+    Set<IssueEventRecipient> recipients = issueEventRecipientResolver.resolve(issueEvent);
+
+    // THEN
+    assertEquals(
+        Set.of(
+            IssueEventRecipient.of(notifiedAndMentioned, true),
+            IssueEventRecipient.of(notified, false)),
+        recipients);
+    verify(permissionManager, times(1))
+        .hasPermission(ProjectPermissions.BROWSE_PROJECTS, issue, notifiedAndMentioned);
+    assertEquals(1, issueEventRecipientResolver.getResolvedEventsCount());
+    assertEquals(3, issueEventRecipientResolver.getCheckedUsersCount());
+  }
+
+  @Test
+  void resolveLoadsRoleActorsOnceForRestrictedComment() throws Exception {
+    // GIVEN
+    ApplicationUser roleMember = user("roleMember");
+    ApplicationUser notRoleMember = user("notRoleMember");
+    ProjectRole projectRole = mock(ProjectRole.class);
+    ProjectRoleActors projectRoleActors = mock(ProjectRoleActors.class);
+    when(comment.getRoleLevel()).thenReturn(projectRole);
+    when(projectRoleManager.getProjectRoleActors(projectRole, project))
+        .thenReturn(projectRoleActors);
+    when(projectRoleActors.contains(roleMember)).thenReturn(true);
+    when(notificationSchemeManager.getRecipients(issueEvent))
+        .thenReturn(Set.of(recipient(roleMember), recipient(notRoleMember)));
+    when(userMentionService.getMentionedUserInComment(comment)).thenReturn(Set.of(roleMember));
+    allowBrowse(roleMember, notRoleMember);
+
+    // WHEN
+    Set<IssueEventRecipient> recipients = issueEventRecipientResolver.resolve(issueEvent);
+
+    // THEN
+    assertEquals(Set.of(IssueEventRecipient.of(roleMember, true)), recipients);
+    verify(projectRoleManager, times(1)).getProjectRoleActors(projectRole, project);
+    verify(projectRoleManager, never()).isUserInProjectRole(any(), any(), any());
+  }
+
+  private void allowBrowse(ApplicationUser... users) {
+    for (ApplicationUser user : users) {
+      when(permissionManager.hasPermission(ProjectPermissions.BROWSE_PROJECTS, issue, user))
+          .thenReturn(true);
+    }
+  }
+
+  private static ApplicationUser user(String key) {
+    ApplicationUser user = mock(ApplicationUser.class);
+    when(user.getKey()).thenReturn(key);
+    return user;
+  }
+
+  private static NotificationRecipient recipient(ApplicationUser user) {
+    NotificationRecipient recipient = mock(NotificationRecipient.class);
+    when(recipient.getUser()).thenReturn(user);
+    return recipient;
+  }
+}
@@ -1,12 +1,14 @@
 /* (C)2024 */
 package ru.mail.jira.plugins.myteam.component.event.issue;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 import com.atlassian.jira.event.issue.IssueEvent;
 import com.atlassian.jira.issue.Issue;
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.user.ApplicationUser;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,6 +22,7 @@ import ru.mail.jira.plugins.myteam.bot.listeners.IssueEventRecipient;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
 import ru.mail.jira.plugins.myteam.component.JiraIssueEventToChatMessageConverter;
 import ru.mail.jira.plugins.myteam.component.UserData;
+import ru.mail.jira.plugins.myteam.component.UserPreferences;
 import ru.mail.jira.plugins.myteam.component.event.IssueEventChatMessageButtonBuilder;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +47,10 @@ class IssueEventToVKTeamsSenderTest {
   @SuppressWarnings("NullAway")
   private JiraIssueEventToChatMessageConverter jiraIssueEventToChatMessageConverter;
 
+  @Mock(lenient = true)
+  @SuppressWarnings("NullAway")
+  private IssueEventAudienceResolver issueEventAudienceResolver;
+
   @InjectMocks
   @SuppressWarnings("NullAway")
   private IssueEventToVKTeamsSender issueEventToVKTeamsSender;
@@ -57,7 +64,7 @@ class IssueEventToVKTeamsSenderTest {
     issueEventToVKTeamsSender.send(issueEventData);
 
     // THEN
-    verify(userData, never()).isEnabled(any(ApplicationUser.class));
+    verify(userData, never()).getPreferences(anyCollection());
     verify(jiraAuthenticationContext, never()).getLoggedInUser();
     verify(jiraAuthenticationContext, never()).setLoggedInUser(any(ApplicationUser.class));
     verify(myteamEventsListener, never()).publishEvent(any(JiraNotifyEvent.class));
@@ -84,7 +91,7 @@ class IssueEventToVKTeamsSenderTest {
     issueEventToVKTeamsSender.send(issueEventData);
 
     // THEN
-    verify(userData, never()).isEnabled(any(ApplicationUser.class));
+    verify(userData, never()).getPreferences(anyCollection());
     verify(jiraAuthenticationContext, never()).getLoggedInUser();
     verify(jiraAuthenticationContext, never()).setLoggedInUser(any(ApplicationUser.class));
     verify(myteamEventsListener, never()).publishEvent(any(JiraNotifyEvent.class));
@@ -107,13 +114,14 @@ class IssueEventToVKTeamsSenderTest {
     IssueEventData issueEventData =
         IssueEventData.of(Set.of(IssueEventRecipient.of(recipient, false)), issueEvent);
 
-    when(userData.isEnabled(same(recipient))).thenReturn(false);
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(Map.of(recipient, UserPreferences.of(false, true, true)));
 
     // WHEN
     issueEventToVKTeamsSender.send(issueEventData);
 
     // THEN
-    verify(userData).isEnabled(same(recipient));
+    verify(userData).getPreferences(anyCollection());
     verify(jiraAuthenticationContext, never()).getLoggedInUser();
     verify(jiraAuthenticationContext, never()).setLoggedInUser(any(ApplicationUser.class));
     verify(myteamEventsListener, never()).publishEvent(any(JiraNotifyEvent.class));
@@ -138,13 +146,14 @@ class IssueEventToVKTeamsSenderTest {
     IssueEventData issueEventData =
         IssueEventData.of(Set.of(IssueEventRecipient.of(recipient, false)), issueEvent);
 
-    when(userData.isEnabled(same(recipient))).thenReturn(true);
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(Map.of(recipient, UserPreferences.of(true, true, true)));
 
     // WHEN
     issueEventToVKTeamsSender.send(issueEventData);
 
     // THEN
-    verify(userData).isEnabled(same(recipient));
+    verify(userData).getPreferences(anyCollection());
     verify(recipient, times(1)).getEmailAddress();
     verify(jiraAuthenticationContext, never()).getLoggedInUser();
     verify(jiraAuthenticationContext, never()).setLoggedInUser(any(ApplicationUser.class));
@@ -169,7 +178,8 @@ class IssueEventToVKTeamsSenderTest {
     IssueEventData issueEventData =
         IssueEventData.of(Set.of(IssueEventRecipient.of(recipient, false)), issueEvent);
 
-    when(userData.isEnabled(same(recipient))).thenReturn(true);
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(Map.of(recipient, UserPreferences.of(true, true, true)));
 
     ApplicationUser loggedInUser = mock(ApplicationUser.class);
     when(jiraAuthenticationContext.getLoggedInUser()).thenReturn(loggedInUser);
@@ -180,7 +190,7 @@ class IssueEventToVKTeamsSenderTest {
     issueEventToVKTeamsSender.send(issueEventData);
 
     // THEN
-    verify(userData).isEnabled(same(recipient));
+    verify(userData).getPreferences(anyCollection());
     verify(recipient, times(1)).getEmailAddress();
     verify(jiraAuthenticationContext).getLoggedInUser();
     verify(jiraAuthenticationContext).setLoggedInUser(recipient);
@@ -205,7 +215,8 @@ class IssueEventToVKTeamsSenderTest {
     IssueEventData issueEventData =
         IssueEventData.of(Set.of(IssueEventRecipient.of(recipient, false)), issueEvent);
 
-    when(userData.isEnabled(same(recipient))).thenReturn(true);
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(Map.of(recipient, UserPreferences.of(true, true, true)));
     ApplicationUser loggedInUser = mock(ApplicationUser.class);
     when(jiraAuthenticationContext.getLoggedInUser()).thenReturn(loggedInUser);
     when(jiraIssueEventToChatMessageConverter.convert(any(IssueEventToChatMessageData.class)))
@@ -215,7 +226,7 @@ class IssueEventToVKTeamsSenderTest {
     issueEventToVKTeamsSender.send(issueEventData);
 
     // THEN
-    verify(userData).isEnabled(same(recipient));
+    verify(userData).getPreferences(anyCollection());
     verify(jiraAuthenticationContext).getLoggedInUser();
     verify(jiraAuthenticationContext).setLoggedInUser(same(recipient));
     verify(jiraAuthenticationContext).setLoggedInUser(same(loggedInUser));
@@ -224,4 +235,49 @@ class IssueEventToVKTeamsSenderTest {
     verify(jiraIssueEventToChatMessageConverter).convert(any(IssueEventToChatMessageData.class));
     verify(recipient, times(2)).getEmailAddress();
   }
+
+  @Test
+  void sendRendersMessageOncePerAudience() {
+    // GIVEN
+    ApplicationUser firstRecipient = mock(ApplicationUser.class);
+    when(firstRecipient.isActive()).thenReturn(true);
+    when(firstRecipient.getEmailAddress()).thenReturn("first@example.org");
+    ApplicationUser secondRecipient = mock(ApplicationUser.class);
+    when(secondRecipient.isActive()).thenReturn(true);
+    when(secondRecipient.getEmailAddress()).thenReturn("second@example.org");
+
+    IssueEvent issueEvent = mock(IssueEvent.class);
+    Issue issue = mock(Issue.class);
+    when(issue.getKey()).thenReturn("KEY-123");
+    when(issueEvent.getIssue()).thenReturn(issue);
+
+    IssueEventData issueEventData =
+        IssueEventData.of(
+            Set.of(
+                IssueEventRecipient.of(firstRecipient, false),
+                IssueEventRecipient.of(secondRecipient, false)),
+            issueEvent);
+
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(
+            Map.of(
+                firstRecipient,
+                UserPreferences.of(true, true, true),
+                secondRecipient,
+                UserPreferences.of(true, true, true)));
+    when(issueEventAudienceResolver.resolve(any(IssueEventRecipient.class), same(issueEvent)))
+        .thenReturn(IssueEventAudience.of(null, null, true, false, false));
+    when(jiraIssueEventToChatMessageConverter.convert(any(IssueEventToChatMessageData.class)))
+        .thenReturn("someMessage");
+
+    // WHEN
+    issueEventToVKTeamsSender.send(issueEventData);
+
+    // THEN
+    verify(jiraIssueEventToChatMessageConverter, times(1))
+        .convert(any(IssueEventToChatMessageData.class));
+    verify(myteamEventsListener, times(2)).publishEvent(any(JiraNotifyEvent.class));
+    assertEquals(1, issueEventToVKTeamsSender.getRenderedMessagesCount());
+    assertEquals(1, issueEventToVKTeamsSender.getSavedRendersCount());
+  }
 }
@@ -7,6 +7,7 @@ import static org.mockito.Mockito.*;
 
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.user.ApplicationUser;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import ru.mail.jira.plugins.myteam.bot.events.JiraNotifyEvent;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
 import ru.mail.jira.plugins.myteam.component.UserData;
+import ru.mail.jira.plugins.myteam.component.UserPreferences;
 import ru.mail.jira.plugins.myteam.component.event.EventRecipient;
 import ru.mail.jira.plugins.myteam.component.event.IssueEventChatMessageButtonBuilder;
 
@@ -65,7 +67,7 @@ class IssueLinkEventToVKTeamSenderTest {
     issueLinkEventToVKTeamSender.send(issueLinkEventRecipientsData);
 
     // THEN
-    verify(userData, never()).isEnabled(any(ApplicationUser.class));
+    verify(userData, never()).getPreferences(anyCollection());
     verify(jiraAuthenticationContext, never()).getLoggedInUser();
     verify(jiraAuthenticationContext, never()).setLoggedInUser(any(ApplicationUser.class));
     verify(myteamEventsListener, never()).publishEvent(any(JiraNotifyEvent.class));
@@ -97,8 +99,13 @@ class IssueLinkEventToVKTeamSenderTest {
             "blocks",
             true);
 
-    when(userData.isEnabled(same(recipientOfSourceIssueLink))).thenReturn(true);
-    when(userData.isEnabled(same(recipientOfDestinationIssueLink))).thenReturn(true);
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(
+            Map.of(
+                recipientOfSourceIssueLink,
+                UserPreferences.of(true, true, true),
+                recipientOfDestinationIssueLink,
+                UserPreferences.of(true, true, true)));
     when(jiraAuthenticationContext.getLoggedInUser()).thenReturn(issueLinkCreator);
     when(jiraIssueLinkToChatMessageConverter.convert(any(IssueLinkEventToChatMessageData.class)))
         .thenReturn("someMessage1");
@@ -109,8 +116,7 @@ class IssueLinkEventToVKTeamSenderTest {
     issueLinkEventToVKTeamSender.send(issueLinkEventRecipientsData);
 
     // THEN
-    verify(userData).isEnabled(same(recipientOfSourceIssueLink));
-    verify(userData).isEnabled(same(recipientOfDestinationIssueLink));
+    verify(userData, times(2)).getPreferences(anyCollection());
     verify(jiraAuthenticationContext, times(2)).getLoggedInUser();
     verify(jiraAuthenticationContext).setLoggedInUser(same(recipientOfDestinationIssueLink));
     verify(jiraAuthenticationContext).setLoggedInUser(same(recipientOfSourceIssueLink));
@@ -7,6 +7,7 @@ import static org.mockito.Mockito.*;
 
 import com.atlassian.jira.security.JiraAuthenticationContext;
 import com.atlassian.jira.user.ApplicationUser;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import ru.mail.jira.plugins.myteam.bot.events.JiraNotifyEvent;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
 import ru.mail.jira.plugins.myteam.component.UserData;
+import ru.mail.jira.plugins.myteam.component.UserPreferences;
 import ru.mail.jira.plugins.myteam.component.event.EventRecipient;
 import ru.mail.jira.plugins.myteam.component.event.IssueEventChatMessageButtonBuilder;
 
@@ -57,7 +59,7 @@ class RemoteIssueLinkToVKTeamSenderTest {
     remoteIssueLinkToVKTeamSender.send(data);
 
     // THEN
-    verify(userData, never()).isEnabled(any(ApplicationUser.class));
+    verify(userData, never()).getPreferences(anyCollection());
     verify(jiraAuthenticationContext, never()).getLoggedInUser();
     verify(jiraAuthenticationContext, never()).setLoggedInUser(any(ApplicationUser.class));
     verify(myteamEventsListener, never()).publishEvent(any(JiraNotifyEvent.class));
@@ -81,7 +83,8 @@ class RemoteIssueLinkToVKTeamSenderTest {
             linkCreator,
             Set.of(EventRecipient.of(linkCreator)));
 
-    when(userData.isEnabled(same(linkCreator))).thenReturn(true);
+    when(userData.getPreferences(anyCollection()))
+        .thenReturn(Map.of(linkCreator, UserPreferences.of(true, true, true)));
     when(jiraAuthenticationContext.getLoggedInUser()).thenReturn(linkCreator);
     when(remoteIssueLinkToChatMessageConverter.convert(same(data))).thenReturn("someMessage");
 
@@ -89,11 +92,14 @@ class RemoteIssueLinkToVKTeamSenderTest {
     remoteIssueLinkToVKTeamSender.send(data);
 
     // THEN
-    verify(userData).isEnabled(same(linkCreator));
+    verify(userData).getPreferences(anyCollection());
     verify(jiraAuthenticationContext).getLoggedInUser();
     verify(jiraAuthenticationContext, times(2)).setLoggedInUser(same(linkCreator));
     verify(myteamEventsListener).publishEvent(any(JiraNotifyEvent.class));
     verify(issueEventChatMessageButtonBuilder).build(eq("KEY-123"));
     verify(remoteIssueLinkToChatMessageConverter).convert(same(data));
+    // message rendered per recipient is not counted as shared render
+    assertEquals(0, remoteIssueLinkToVKTeamSender.getRenderedMessagesCount());
+    assertEquals(0, remoteIssueLinkToVKTeamSender.getSavedRendersCount());
   }
 }
@@ -21,6 +21,7 @@ import ru.mail.jira.plugins.commons.HttpClient;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
 import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.MyteamApiClientImpl;
+import ru.mail.jira.plugins.myteam.myteam.OutboundRateLimiter;
 import ru.mail.jira.plugins.myteam.myteam.dto.InlineKeyboardMarkupButton;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.SuccessResponse;
 import ru.mail.jira.plugins.myteam.myteam.dto.events.CallbackQueryEvent;
@@ -48,7 +49,7 @@ public class MyteamApiClientImplTest {
       when(pluginData.getToken()).thenReturn(properties.getProperty("myteam.test.bot.token"));
       when(pluginData.getBotApiUrl()).thenReturn(properties.getProperty("myteam.test.bot.api"));
 
-      myteamApiClient = new MyteamApiClientImpl(pluginData);
+      myteamApiClient = new MyteamApiClientImpl(pluginData, new OutboundRateLimiter());
     }
 
     // unirest initialization
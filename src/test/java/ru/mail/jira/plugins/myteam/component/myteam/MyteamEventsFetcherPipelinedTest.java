@@ -0,0 +1,196 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.component.myteam;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import kong.unirest.HttpResponse;
+import kong.unirest.UnirestException;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
+import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
+import ru.mail.jira.plugins.myteam.myteam.MyteamEventsFetcher;
+import ru.mail.jira.plugins.myteam.myteam.dto.events.IcqEvent;
+import ru.mail.jira.plugins.myteam.myteam.dto.events.NewMessageEvent;
+import ru.mail.jira.plugins.myteam.myteam.dto.response.FetchResponse;
+
+@SuppressWarnings("NullAway")
+public class MyteamEventsFetcherPipelinedTest {
+  private static final String PIPELINED_MODE_PROPERTY =
+      "ru.mail.jira.plugins.myteam.fetcher.pipelined";
+
+  @Test
+  public void pipelinedFetcherPollsLongerWhenThereAreNoEvents() throws Exception {
+    // GIVEN
+    MyteamApiClient apiClient = Mockito.mock(MyteamApiClient.class);
+    HttpResponse<FetchResponse> emptyResponse = fetchResponse();
+    when(apiClient.getEvents(anyLong(), anyLong())).thenAnswer(polled(emptyResponse));
+    MyteamEventsFetcher fetcher =
+        pipelinedFetcher(apiClient, Mockito.mock(MyteamEventsListener.class));
+
+    // WHEN
+    fetcher.start();
+
+    // THEN
+    try {
+      InOrder inOrder = inOrder(apiClient);
+      inOrder.verify(apiClient, timeout(1000)).getEvents(0, 2);
+      inOrder.verify(apiClient, timeout(1000)).getEvents(0, 4);
+      inOrder.verify(apiClient, timeout(1000)).getEvents(0, 8);
+    } finally {
+      fetcher.stop();
+    }
+  }
+
+  @Test
+  public void pipelinedFetcherResetsPollTimeAfterError() throws Exception {
+    // GIVEN
+    MyteamApiClient apiClient = Mockito.mock(MyteamApiClient.class);
+    HttpResponse<FetchResponse> emptyResponse = fetchResponse();
+    when(apiClient.getEvents(anyLong(), anyLong()))
+        .thenReturn(emptyResponse)
+        .thenReturn(emptyResponse)
+        .thenThrow(new UnirestException("Read timed out"))
+        .thenAnswer(polled(emptyResponse));
+    MyteamEventsFetcher fetcher =
+        pipelinedFetcher(apiClient, Mockito.mock(MyteamEventsListener.class));
+
+    // WHEN
+    fetcher.start();
+
+    // THEN
+    try {
+      InOrder inOrder = inOrder(apiClient);
+      inOrder.verify(apiClient, timeout(1000)).getEvents(0, 2);
+      inOrder.verify(apiClient, timeout(1000)).getEvents(0, 4);
+      inOrder.verify(apiClient, timeout(1000)).getEvents(0, 8);
+      inOrder.verify(apiClient, timeout(2000)).getEvents(0, 2);
+    } finally {
+      fetcher.stop();
+    }
+  }
+
+  @Test
+  public void pipelinedFetcherFetchesNotDispatchedBatchesAgainAfterStop() throws Exception {
+    // GIVEN
+    MyteamApiClient apiClient = Mockito.mock(MyteamApiClient.class);
+    HttpResponse<FetchResponse> firstBatch = fetchResponse(newMessageEvent(1));
+    HttpResponse<FetchResponse> secondBatch = fetchResponse(newMessageEvent(2));
+    HttpResponse<FetchResponse> emptyResponse = fetchResponse();
+    when(apiClient.getEvents(eq(0L), anyLong())).thenReturn(firstBatch);
+    when(apiClient.getEvents(eq(1L), anyLong())).thenReturn(secondBatch);
+    when(apiClient.getEvents(eq(2L), anyLong())).thenAnswer(polled(emptyResponse));
+    MyteamEventsListener listener = Mockito.mock(MyteamEventsListener.class);
+    CountDownLatch dispatchStarted = new CountDownLatch(1);
+    doAnswer(
+            invocation -> {
+              dispatchStarted.countDown();
+              // dispatch of the first batch lasts until stop
+              new CountDownLatch(1).await();
+              return null;
+            })
+        .when(listener)
+        .publishEvent(any());
+    MyteamEventsFetcher fetcher = pipelinedFetcher(apiClient, listener);
+
+    // WHEN
+    fetcher.start();
+    assertTrue(dispatchStarted.await(1, TimeUnit.SECONDS));
+    verify(apiClient, timeout(1000).atLeastOnce()).getEvents(eq(2L), anyLong());
+    fetcher.stop();
+
+    // THEN
+    assertEquals(1, fetcher.getLastEventId());
+    assertEquals(0, fetcher.getDispatchQueueSize());
+    verify(listener, times(1)).publishEvent(any());
+  }
+
+  @Test
+  public void pipelinedFetcherDropsEventsOfPollFinishedAfterStop() throws Exception {
+    // GIVEN
+    MyteamApiClient apiClient = Mockito.mock(MyteamApiClient.class);
+    HttpResponse<FetchResponse> staleBatch = fetchResponse(newMessageEvent(1));
+    HttpResponse<FetchResponse> emptyResponse = fetchResponse();
+    CountDownLatch pollStarted = new CountDownLatch(1);
+    CountDownLatch pollFinished = new CountDownLatch(1);
+    when(apiClient.getEvents(anyLong(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              pollStarted.countDown();
+              // http request is not interrupted by stop
+              Uninterruptibles.awaitUninterruptibly(pollFinished);
+              return staleBatch;
+            })
+        .thenAnswer(polled(emptyResponse));
+    MyteamEventsListener listener = Mockito.mock(MyteamEventsListener.class);
+    MyteamEventsFetcher fetcher = pipelinedFetcher(apiClient, listener);
+    fetcher.start();
+    assertTrue(pollStarted.await(1, TimeUnit.SECONDS));
+
+    // WHEN
+    fetcher.stop();
+    fetcher.start();
+    verify(apiClient, timeout(1000).atLeast(2)).getEvents(eq(0L), anyLong());
+    pollFinished.countDown();
+
+    // THEN
+    try {
+      verify(apiClient, timeout(1000).atLeast(3)).getEvents(eq(0L), anyLong());
+      Thread.sleep(100);
+      verify(listener, never()).publishEvent(any());
+      assertEquals(0, fetcher.getLastEventId());
+    } finally {
+      fetcher.stop();
+    }
+  }
+
+  private MyteamEventsFetcher pipelinedFetcher(
+      MyteamApiClient apiClient, MyteamEventsListener listener) {
+    System.setProperty(PIPELINED_MODE_PROPERTY, "true");
+    try {
+      return new MyteamEventsFetcher(apiClient, listener);
+    } finally {
+      System.clearProperty(PIPELINED_MODE_PROPERTY);
+    }
+  }
+
+  private static Answer<HttpResponse<FetchResponse>> polled(HttpResponse<FetchResponse> response) {
+    return invocation -> {
+      // long poll without events
+      Thread.sleep(10);
+      return response;
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static HttpResponse<FetchResponse> fetchResponse(IcqEvent<?>... events) {
+    FetchResponse fetchResponse = Mockito.mock(FetchResponse.class);
+    when(fetchResponse.getEvents()).thenReturn(Arrays.asList(events));
+    HttpResponse<FetchResponse> httpResponse = Mockito.mock(HttpResponse.class);
+    when(httpResponse.getStatus()).thenReturn(200);
+    when(httpResponse.getBody()).thenReturn(fetchResponse);
+    return httpResponse;
+  }
+
+  private static NewMessageEvent newMessageEvent(long eventId) {
+    NewMessageEvent event = Mockito.mock(NewMessageEvent.class, Mockito.RETURNS_DEEP_STUBS);
+    when(event.getEventId()).thenReturn(eventId);
+    return event;
+  }
+}
@@ -19,6 +19,7 @@ import ru.mail.jira.plugins.commons.HttpClient;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
 import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.MyteamApiClientImpl;
+import ru.mail.jira.plugins.myteam.myteam.OutboundRateLimiter;
 import ru.mail.jira.plugins.myteam.myteam.dto.events.CallbackQueryEvent;
 import ru.mail.jira.plugins.myteam.myteam.dto.events.IcqEvent;
 import ru.mail.jira.plugins.myteam.myteam.dto.events.NewMessageEvent;
@@ -51,7 +52,7 @@ public class MyteamEventsFetcherTest {
       this.pluginData = Mockito.mock(PluginData.class);
       when(pluginData.getToken()).thenReturn(properties.getProperty("myteam.test.bot.token"));
       when(pluginData.getBotApiUrl()).thenReturn(properties.getProperty("myteam.test.bot.api"));
-      this.myteamApiClient = new MyteamApiClientImpl(this.pluginData);
+      this.myteamApiClient = new MyteamApiClientImpl(this.pluginData, new OutboundRateLimiter());
     }
 
     // unirest initialization
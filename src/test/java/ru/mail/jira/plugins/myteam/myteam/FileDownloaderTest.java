@@ -0,0 +1,124 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.myteam;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import kong.unirest.GetRequest;
+import kong.unirest.HttpResponse;
+import kong.unirest.RawResponse;
+import kong.unirest.UnirestInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class FileDownloaderTest {
+  private static final String URL = "https://files.example.org/get/fileId";
+
+  @TempDir Path tempDir;
+  private UnirestInstance httpClient;
+  private FileDownloader fileDownloader;
+
+  @BeforeEach
+  void setUp() {
+    httpClient = mock(UnirestInstance.class);
+    fileDownloader = new FileDownloader(1, () -> httpClient, tempDir);
+  }
+
+  @AfterEach
+  void tearDown() {
+    fileDownloader.destroy();
+  }
+
+  @Test
+  void downloadedFileIsDeletedWhenStreamIsClosed() throws IOException {
+    // GIVEN
+    mockResponse(200, new ByteArrayInputStream("file content".getBytes(UTF_8)));
+
+    // WHEN
+    InputStream content = fileDownloader.download(URL);
+
+    // THEN
+    assertEquals("file content", new String(content.readAllBytes(), UTF_8));
+    content.close();
+    assertEquals(0, countTempFiles());
+    assertEquals(1, fileDownloader.getDownloadedFilesCount());
+    assertEquals(12, fileDownloader.getDownloadedBytes());
+  }
+
+  @Test
+  void notSuccessfulResponseFailsDownloadAndDeletesFile() throws IOException {
+    // GIVEN
+    mockResponse(404, new ByteArrayInputStream("not found".getBytes(UTF_8)));
+
+    // WHEN
+    IOException e = assertThrows(IOException.class, () -> fileDownloader.download(URL));
+
+    // THEN
+    assertTrue(e.getMessage().contains("404"));
+    assertEquals(0, countTempFiles());
+    assertEquals(0, fileDownloader.getDownloadedFilesCount());
+    assertEquals(1, fileDownloader.getFailedFilesCount());
+  }
+
+  @Test
+  void brokenContentFailsDownloadWithItsIOException() throws IOException {
+    // GIVEN
+    IOException broken = new IOException("Connection reset");
+    mockResponse(
+        200,
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw broken;
+          }
+        });
+
+    // WHEN
+    IOException e = assertThrows(IOException.class, () -> fileDownloader.download(URL));
+
+    // THEN
+    assertEquals(broken, e);
+    assertEquals(0, countTempFiles());
+    assertEquals(1, fileDownloader.getFailedFilesCount());
+  }
+
+  private void mockResponse(int status, InputStream content) {
+    RawResponse rawResponse = mock(RawResponse.class);
+    when(rawResponse.getContent()).thenReturn(content);
+    AtomicReference<Object> body = new AtomicReference<>();
+    HttpResponse<Object> response = mock(HttpResponse.class);
+    when(response.getStatus()).thenReturn(status);
+    when(response.isSuccess()).thenReturn(status >= 200 && status < 300);
+    when(response.getBody()).thenAnswer(invocation -> body.get());
+    GetRequest request = mock(GetRequest.class);
+    when(request.asObject(any(Function.class)))
+        .thenAnswer(
+            invocation -> {
+              body.set(invocation.<Function<RawResponse, Object>>getArgument(0).apply(rawResponse));
+              return response;
+            });
+    when(httpClient.get(URL)).thenReturn(request);
+  }
+
+  private long countTempFiles() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.count();
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.myteam;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("NullAway")
+class OutboundRateLimiterTest {
+
+  @Test
+  void acquireWithinBurstDoesNotWait() throws InterruptedException {
+    // GIVEN
+    OutboundRateLimiter limiter = new OutboundRateLimiter(1, 10, 1, 5);
+
+    // WHEN
+    for (int i = 0; i < 5; i++) {
+      limiter.acquire("chat@example.org", OutboundRateLimiter.Priority.INTERACTIVE);
+    }
+
+    // THEN
+    assertEquals(5, limiter.getAcquiredCount());
+    assertEquals(0, limiter.getDelayedCount());
+  }
+
+  @Test
+  void acquireWaitsForChatTokenButNotForOtherChat() throws InterruptedException {
+    // GIVEN
+    OutboundRateLimiter limiter = new OutboundRateLimiter(1000, 1000, 20, 1);
+    limiter.acquire("busy@example.org", OutboundRateLimiter.Priority.BULK);
+
+    // WHEN
+    long otherChatStart = System.nanoTime();
+    limiter.acquire("other@example.org", OutboundRateLimiter.Priority.BULK);
+    long otherChatWait = System.nanoTime() - otherChatStart;
+    long busyChatStart = System.nanoTime();
+    limiter.acquire("busy@example.org", OutboundRateLimiter.Priority.BULK);
+    long busyChatWait = System.nanoTime() - busyChatStart;
+
+    // THEN
+    assertTrue(otherChatWait < TimeUnit.MILLISECONDS.toNanos(20));
+    assertTrue(busyChatWait >= TimeUnit.MILLISECONDS.toNanos(40));
+  }
+
+  @Test
+  void interactiveCallGoesBeforeWaitingBulkCalls() throws InterruptedException {
+    // GIVEN
+    OutboundRateLimiter limiter = new OutboundRateLimiter(10, 1, 1000, 1000);
+    limiter.acquire(null, OutboundRateLimiter.Priority.BULK);
+    CountDownLatch bulkAcquired = new CountDownLatch(1);
+    Thread bulkThread =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(20);
+                limiter.acquire(null, OutboundRateLimiter.Priority.BULK);
+                bulkAcquired.countDown();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    bulkThread.start();
+
+    // WHEN
+    limiter.acquire(null, OutboundRateLimiter.Priority.INTERACTIVE);
+
+    // THEN
+    assertEquals(1, bulkAcquired.getCount());
+    assertTrue(bulkAcquired.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void onThrottledPausesCalls() throws InterruptedException {
+    // GIVEN
+    OutboundRateLimiter limiter = new OutboundRateLimiter(1000, 1000, 1000, 1000);
+
+    // WHEN
+    limiter.onThrottled("chat@example.org", 100);
+    long start = System.nanoTime();
+    limiter.acquire("chat@example.org", OutboundRateLimiter.Priority.INTERACTIVE);
+
+    // THEN
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    assertEquals(1, limiter.getThrottledCount());
+  }
+}
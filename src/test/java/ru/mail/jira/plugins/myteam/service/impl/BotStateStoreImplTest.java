@@ -0,0 +1,109 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.activeobjects.test.TestActiveObjects;
+import net.java.ao.EntityManager;
+import net.java.ao.test.jdbc.Data;
+import net.java.ao.test.jdbc.DatabaseUpdater;
+import net.java.ao.test.jdbc.H2Memory;
+import net.java.ao.test.jdbc.Jdbc;
+import net.java.ao.test.junit.ActiveObjectsJUnitRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.JqlSearchState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.ViewingIssueCommentsState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
+import ru.mail.jira.plugins.myteam.component.JiraMarkdownToChatMarkdownConverter;
+import ru.mail.jira.plugins.myteam.db.model.ChatBotState;
+import ru.mail.jira.plugins.myteam.db.repository.ChatBotStateRepository;
+import ru.mail.jira.plugins.myteam.service.IssueService;
+import ru.mail.jira.plugins.myteam.service.RulesEngine;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+@SuppressWarnings("NullAway")
+@RunWith(ActiveObjectsJUnitRunner.class)
+@Data(BotStateStoreImplTest.BotStateDatabaseUpdater.class)
+@Jdbc(H2Memory.class)
+public class BotStateStoreImplTest {
+  private static final String CHAT_ID = "user@example.org";
+
+  // injected by runner
+  private EntityManager entityManager;
+  private UserChatService userChatService;
+  private IssueService issueService;
+
+  @Before
+  public void setUp() {
+    userChatService = mock(UserChatService.class);
+    issueService = mock(IssueService.class);
+  }
+
+  @Test
+  public void pageChangedInPlaceIsReloadedOnAnotherNode() {
+    // GIVEN
+    StateManagerImpl firstNode = new StateManagerImpl(3, 100, 60, newStore());
+    StateManagerImpl secondNode = new StateManagerImpl(3, 100, 60, newStore());
+    JqlSearchState state = new JqlSearchState(userChatService, issueService, "project = TEST");
+    firstNode.setState(CHAT_ID, state);
+
+    // WHEN
+    state.setPage(2);
+    firstNode.saveStates(CHAT_ID);
+
+    // THEN
+    BotState reloaded = secondNode.getLastState(CHAT_ID);
+    assertTrue(reloaded instanceof JqlSearchState);
+    assertEquals("project = TEST", ((JqlSearchState) reloaded).getJql());
+    assertEquals(2, ((JqlSearchState) reloaded).getPage());
+  }
+
+  @Test
+  public void commentsPageAndWaitingFlagAreReloadedOnAnotherNode() {
+    // GIVEN
+    StateManagerImpl firstNode = new StateManagerImpl(3, 100, 60, newStore());
+    StateManagerImpl secondNode = new StateManagerImpl(3, 100, 60, newStore());
+    ViewingIssueCommentsState state =
+        new ViewingIssueCommentsState(
+            "TEST-1",
+            issueService,
+            userChatService,
+            mock(RulesEngine.class),
+            mock(JiraMarkdownToChatMarkdownConverter.class));
+    firstNode.setState(CHAT_ID, state);
+
+    // WHEN
+    state.setPage(3);
+    state.setWaiting(true);
+    firstNode.saveStates(CHAT_ID);
+
+    // THEN
+    BotState reloaded = secondNode.getLastState(CHAT_ID);
+    assertTrue(reloaded instanceof ViewingIssueCommentsState);
+    assertEquals(3, ((ViewingIssueCommentsState) reloaded).getPage());
+    assertTrue(reloaded.isWaiting());
+  }
+
+  private BotStateStoreImpl newStore() {
+    ActiveObjects ao = new TestActiveObjects(entityManager);
+    return new BotStateStoreImpl(
+        new ChatBotStateRepository(ao),
+        userChatService,
+        issueService,
+        mock(RulesEngine.class),
+        mock(JiraMarkdownToChatMarkdownConverter.class));
+  }
+
+  public static class BotStateDatabaseUpdater implements DatabaseUpdater {
+    @Override
+    @SuppressWarnings("unchecked")
+    public void update(EntityManager entityManager) throws Exception {
+      entityManager.migrate(ChatBotState.class);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.cache.Cache;
+import com.atlassian.cache.CacheManager;
+import com.atlassian.cache.CacheSettings;
+import com.atlassian.cache.Supplier;
+import com.atlassian.greenhopper.api.customfield.ManagedCustomFieldsService;
+import com.atlassian.jira.bc.issue.IssueService;
+import com.atlassian.jira.bc.issue.link.RemoteIssueLinkService;
+import com.atlassian.jira.bc.issue.search.SearchService;
+import com.atlassian.jira.config.IssueTypeManager;
+import com.atlassian.jira.event.ClearCacheEvent;
+import com.atlassian.jira.event.issue.field.CustomFieldUpdatedEvent;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.jira.issue.customfields.manager.OptionsManager;
+import com.atlassian.jira.issue.fields.Field;
+import com.atlassian.jira.issue.fields.FieldManager;
+import com.atlassian.jira.issue.fields.OrderableField;
+import com.atlassian.jira.issue.fields.config.manager.PrioritySchemeManager;
+import com.atlassian.jira.issue.fields.layout.field.FieldLayout;
+import com.atlassian.jira.issue.fields.layout.field.FieldLayoutItem;
+import com.atlassian.jira.issue.fields.layout.field.FieldLayoutManager;
+import com.atlassian.jira.issue.fields.screen.FieldScreen;
+import com.atlassian.jira.issue.fields.screen.FieldScreenLayoutItem;
+import com.atlassian.jira.issue.fields.screen.FieldScreenScheme;
+import com.atlassian.jira.issue.fields.screen.FieldScreenTab;
+import com.atlassian.jira.issue.fields.screen.issuetype.IssueTypeScreenScheme;
+import com.atlassian.jira.issue.fields.screen.issuetype.IssueTypeScreenSchemeManager;
+import com.atlassian.jira.issue.issuetype.IssueType;
+import com.atlassian.jira.issue.operation.IssueOperations;
+import com.atlassian.jira.project.Project;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.sal.api.message.I18nResolver;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.commons.IssueFieldsFilter;
+import ru.mail.jira.plugins.myteam.component.MessageFormatter;
+import ru.mail.jira.plugins.myteam.component.UserData;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class IssueCreationServiceImplTest {
+  private IssueTypeScreenSchemeManager issueTypeScreenSchemeManager;
+  private Project project;
+  private IssueType issueType;
+  private OrderableField summary;
+  private IssueCreationServiceImpl issueCreationService;
+
+  @BeforeEach
+  void setUp() {
+    issueTypeScreenSchemeManager = mock(IssueTypeScreenSchemeManager.class);
+    FieldLayoutManager fieldLayoutManager = mock(FieldLayoutManager.class);
+    FieldManager fieldManager = mock(FieldManager.class);
+    project = mock(Project.class);
+    when(project.getId()).thenReturn(10000L);
+    issueType = mock(IssueType.class);
+    when(issueType.getId()).thenReturn("1");
+
+    summary = mock(OrderableField.class);
+    when(summary.getId()).thenReturn("summary");
+    FieldScreenLayoutItem summaryItem = mock(FieldScreenLayoutItem.class);
+    when(summaryItem.getFieldId()).thenReturn("summary");
+    when(summaryItem.getOrderableField()).thenReturn(summary);
+    FieldScreenTab tab = mock(FieldScreenTab.class);
+    when(tab.getFieldScreenLayoutItems()).thenReturn(List.of(summaryItem));
+    FieldScreen fieldScreen = mock(FieldScreen.class);
+    when(fieldScreen.getTabs()).thenReturn(List.of(tab));
+    FieldScreenScheme fieldScreenScheme = mock(FieldScreenScheme.class);
+    when(fieldScreenScheme.getFieldScreen(IssueOperations.CREATE_ISSUE_OPERATION))
+        .thenReturn(fieldScreen);
+    IssueTypeScreenScheme issueTypeScreenScheme = mock(IssueTypeScreenScheme.class);
+    when(issueTypeScreenScheme.getEffectiveFieldScreenScheme(issueType))
+        .thenReturn(fieldScreenScheme);
+    when(issueTypeScreenSchemeManager.getIssueTypeScreenScheme(project))
+        .thenReturn(issueTypeScreenScheme);
+    FieldLayoutItem summaryLayoutItem = mock(FieldLayoutItem.class);
+    when(summaryLayoutItem.isRequired()).thenReturn(true);
+    FieldLayout fieldLayout = mock(FieldLayout.class);
+    when(fieldLayout.getFieldLayoutItem("summary")).thenReturn(summaryLayoutItem);
+    when(fieldLayoutManager.getFieldLayout(project, "1")).thenReturn(fieldLayout);
+
+    issueCreationService =
+        new IssueCreationServiceImpl(
+            mock(I18nResolver.class),
+            issueTypeScreenSchemeManager,
+            mock(IssueTypeManager.class),
+            fieldLayoutManager,
+            fieldManager,
+            mock(IssueManager.class),
+            mock(IssueService.class),
+            mock(JiraAuthenticationContext.class),
+            mock(OptionsManager.class),
+            mock(PrioritySchemeManager.class),
+            mock(SearchService.class),
+            mock(RemoteIssueLinkService.class),
+            mock(ManagedCustomFieldsService.class),
+            mock(UserData.class),
+            mock(MessageFormatter.class),
+            mock(ru.mail.jira.plugins.myteam.service.IssueService.class),
+            inMemoryCacheManager());
+  }
+
+  @Test
+  void fieldPlanIsBuiltOncePerProjectAndIssueType() {
+    // WHEN
+    Map<Field, String> first = getRequiredFields();
+    Map<Field, String> second = getRequiredFields();
+
+    // THEN
+    assertEquals(Set.of(summary), first.keySet());
+    assertEquals(first, second);
+    verify(issueTypeScreenSchemeManager, times(1)).getIssueTypeScreenScheme(project);
+  }
+
+  @Test
+  void fieldPlanIsRebuiltAfterFieldOrCacheEvents() {
+    // GIVEN
+    getRequiredFields();
+
+    // WHEN
+    issueCreationService.onEvent(mock(CustomFieldUpdatedEvent.class));
+    getRequiredFields();
+    issueCreationService.onEvent(mock(ClearCacheEvent.class));
+    getRequiredFields();
+
+    // THEN
+    verify(issueTypeScreenSchemeManager, times(3)).getIssueTypeScreenScheme(project);
+  }
+
+  private Map<Field, String> getRequiredFields() {
+    return issueCreationService.getIssueCreationFieldsValues(
+        project, issueType, Set.of(), Set.of(), IssueFieldsFilter.REQUIRED);
+  }
+
+  private static CacheManager inMemoryCacheManager() {
+    Map<Object, Object> values = new HashMap<>();
+    Cache<Object, Object> cache = mock(Cache.class);
+    when(cache.get(any(), any(Supplier.class)))
+        .thenAnswer(
+            invocation ->
+                values.computeIfAbsent(
+                    invocation.getArgument(0),
+                    key -> ((Supplier<Object>) invocation.getArgument(1)).get()));
+    doAnswer(
+            invocation -> {
+              values.clear();
+              return null;
+            })
+        .when(cache)
+        .removeAll();
+    CacheManager cacheManager = mock(CacheManager.class);
+    when(cacheManager.getCache(anyString(), eq(null), any(CacheSettings.class)))
+        .thenReturn((Cache) cache);
+    return cacheManager;
+  }
+}
@@ -7,7 +7,6 @@ import static org.mockito.Mockito.*;
 
 import com.atlassian.crowd.embedded.api.Group;
 import com.atlassian.jira.avatar.AvatarService;
-import com.atlassian.jira.bc.user.search.UserSearchService;
 import com.atlassian.jira.config.properties.APKeys;
 import com.atlassian.jira.config.properties.ApplicationProperties;
 import com.atlassian.jira.exception.IssueNotFoundException;
@@ -35,8 +34,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import ru.mail.jira.plugins.myteam.bot.events.JiraIssueViewEvent;
 import ru.mail.jira.plugins.myteam.bot.events.JiraNotifyEvent;
 import ru.mail.jira.plugins.myteam.bot.listeners.MyteamEventsListener;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationOutbox;
+import ru.mail.jira.plugins.myteam.bot.listeners.NotificationPipeline;
 import ru.mail.jira.plugins.myteam.bot.rulesengine.models.exceptions.LinkIssueWithChatException;
 import ru.mail.jira.plugins.myteam.commons.exceptions.MyteamServerErrorException;
+import ru.mail.jira.plugins.myteam.component.ChatMetadataCache;
 import ru.mail.jira.plugins.myteam.component.UserData;
 import ru.mail.jira.plugins.myteam.db.model.MyteamChatMeta;
 import ru.mail.jira.plugins.myteam.db.repository.MyteamChatRepository;
@@ -44,6 +46,7 @@ import ru.mail.jira.plugins.myteam.myteam.MyteamApiClient;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.ChatInfoResponse;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.CreateChatResponse;
 import ru.mail.jira.plugins.myteam.myteam.dto.chats.GroupChatInfo;
+import ru.mail.jira.plugins.myteam.protocol.BroadcastResult;
 import ru.mail.jira.plugins.myteam.service.PluginData;
 import ru.mail.jira.plugins.myteam.service.model.MyteamChatMetaDto;
 
@@ -67,6 +70,10 @@ class MyteamServiceImplTest {
   @SuppressWarnings("NullAway")
   private MyteamApiClient myteamApiClient;
 
+  @Mock
+  @SuppressWarnings("NullAway")
+  private ChatMetadataCache chatMetadataCache;
+
   @Mock
   @SuppressWarnings("NullAway")
   private PluginData pluginData;
@@ -89,15 +96,19 @@ class MyteamServiceImplTest {
 
   @Mock
   @SuppressWarnings("NullAway")
-  private UserSearchService userSearchService;
+  private AvatarService avatarService;
 
   @Mock
   @SuppressWarnings("NullAway")
-  private AvatarService avatarService;
+  private IssueManager issueManager;
 
   @Mock
   @SuppressWarnings("NullAway")
-  private IssueManager issueManager;
+  private NotificationPipeline notificationPipeline;
+
+  @Mock
+  @SuppressWarnings("NullAway")
+  private NotificationOutbox notificationOutbox;
 
   @InjectMocks
   @SuppressWarnings("NullAway")
@@ -348,6 +359,94 @@ class MyteamServiceImplTest {
                         .equals(((JiraNotifyEvent) argument).getMessage())));
   }
 
+  @Test
+  void broadcastMessageToUsersSendsOneMessagePerEmail() {
+    // GIVEN
+    String message = "someMessage";
+    ApplicationUser user = mock(ApplicationUser.class);
+    when(user.isActive()).thenReturn(true);
+    when(user.getEmailAddress()).thenReturn("login@example.org");
+    when(userData.isEnabled(eq(user))).thenReturn(true);
+    ApplicationUser sameEmailUser = mock(ApplicationUser.class);
+    when(sameEmailUser.getEmailAddress()).thenReturn("Login@example.org");
+    ApplicationUser disabledUser = mock(ApplicationUser.class);
+    when(disabledUser.isActive()).thenReturn(true);
+    when(disabledUser.getEmailAddress()).thenReturn("disabled@example.org");
+    when(userData.isEnabled(eq(disabledUser))).thenReturn(false);
+    ApplicationUser userWithoutEmail = mock(ApplicationUser.class);
+    when(userWithoutEmail.getKey()).thenReturn("userKey");
+    runPipelineTasksOnCaller();
+
+    // WHEN
+    BroadcastResult result =
+        myteamService
+            .broadcastMessageToUsers(
+                List.of(user, sameEmailUser, disabledUser, userWithoutEmail), message, true)
+            .join();
+
+    // THEN
+    verify(notificationOutbox).enqueueAll(eq(List.of("login@example.org")), eq(message));
+    assertEquals(
+        Map.of(
+            "login@example.org", BroadcastResult.Status.QUEUED,
+            "disabled@example.org", BroadcastResult.Status.SKIPPED),
+        result.getStatuses());
+    assertEquals(Set.of("userKey"), result.getUsersWithoutChatId());
+  }
+
+  @Test
+  void broadcastMessageToChatsMarksDroppedChunkAsFailed() {
+    // GIVEN
+    when(notificationPipeline.enqueueOrDrop(anyString(), any(Runnable.class))).thenReturn(false);
+
+    // WHEN
+    BroadcastResult result =
+        myteamService
+            .broadcastMessageToChats(List.of("first", "second", "first"), "someMessage", true)
+            .join();
+
+    // THEN
+    verify(notificationOutbox, never()).enqueueAll(any(), any());
+    verify(notificationPipeline, never()).enqueue(anyString(), any(Runnable.class));
+    assertEquals(2, result.getCount(BroadcastResult.Status.FAILED));
+  }
+
+  @Test
+  void broadcastMessageToChatsDedupesChatIdsCaseSensitively() {
+    // GIVEN
+    runPipelineTasksOnCaller();
+
+    // WHEN
+    BroadcastResult result =
+        myteamService
+            .broadcastMessageToChats(List.of("AoLF0", "aolf0", "AoLF0"), "someMessage", true)
+            .join();
+
+    // THEN
+    verify(notificationOutbox).enqueueAll(eq(List.of("AoLF0", "aolf0")), eq("someMessage"));
+    assertEquals(2, result.getCount(BroadcastResult.Status.QUEUED));
+  }
+
+  @Test
+  void broadcastMessageToChatsMarksChunkAsFailedWhenOutboxStorageFails() {
+    // GIVEN
+    runPipelineTasksOnCaller();
+    doThrow(new IllegalStateException("Database is unavailable"))
+        .when(notificationOutbox)
+        .enqueueAll(any(), any());
+
+    // WHEN
+    BroadcastResult result =
+        myteamService
+            .broadcastMessageToChats(List.of("first", "second"), "someMessage", true)
+            .join();
+
+    // THEN
+    assertEquals(
+        Map.of("first", BroadcastResult.Status.FAILED, "second", BroadcastResult.Status.FAILED),
+        result.getStatuses());
+  }
+
   @ParameterizedTest
   @MethodSource(value = "getSimpleAndComplexString")
   void sendRawMessageToUserGroupWhenGroupNotEmpty(String message) {
@@ -809,7 +908,6 @@ class MyteamServiceImplTest {
     String chatName = "someChatName";
     List<Long> jiraUsers = Collections.singletonList(10000L);
     ApplicationUser user = mock(ApplicationUser.class);
-    when(user.isActive()).thenReturn(true);
     when(user.getEmailAddress()).thenReturn("someEmail");
     when(userManager.getUserById(eq(10000L))).thenReturn(Optional.of(user));
     when(userData.isCreateChatsWithUserAllowed(eq(user))).thenReturn(true);
@@ -863,7 +961,7 @@ class MyteamServiceImplTest {
     when(chatInfoHttpResponse.getBody()).thenReturn(chatInfoResponse);
     when(myteamApiClient.getChatInfo(eq(createdChatId))).thenReturn(chatInfoHttpResponse);
 
-    when(userSearchService.findUsersByEmail(eq("someEmail")))
+    when(userData.getActiveUsersByMrimLogins(eq(Collections.singletonList("someEmail"))))
         .thenReturn(Collections.singletonList(user));
     when(avatarService.getAvatarURL(eq(loggedInUser), eq(user)))
         .thenReturn(URI.create("http://localhost:8080/some_avatar_url"));
@@ -899,9 +997,8 @@ class MyteamServiceImplTest {
     verify(myteamApiClient)
         .sendMessageText(eq("someChatId"), eq(someFirstMessageInChatAfterCreating));
     verify(myteamEventsListener).publishEvent(any(JiraIssueViewEvent.class));
-    verify(userSearchService).findUsersByEmail(eq("someEmail"));
+    verify(userData).getActiveUsersByMrimLogins(eq(Collections.singletonList("someEmail")));
     verify(avatarService).getAvatarURL(eq(loggedInUser), eq(user));
-    verify(user).isActive();
     verify(i18nResolver)
         .getText(
             eq("ru.mail.jira.plugins.myteam.createChat.about.text"),
@@ -1030,7 +1127,6 @@ class MyteamServiceImplTest {
     String chatName = "someChatName";
     List<Long> jiraUsers = Collections.singletonList(10000L);
     ApplicationUser user = mock(ApplicationUser.class);
-    when(user.isActive()).thenReturn(true);
     when(user.getEmailAddress()).thenReturn("someEmail");
     when(userManager.getUserById(eq(10000L))).thenReturn(Optional.of(user));
     when(userData.isCreateChatsWithUserAllowed(eq(user))).thenReturn(true);
@@ -1079,7 +1175,7 @@ class MyteamServiceImplTest {
     when(chatInfoHttpResponse.getBody()).thenReturn(chatInfoResponse);
     when(myteamApiClient.getChatInfo(eq(createdChatId))).thenReturn(chatInfoHttpResponse);
 
-    when(userSearchService.findUsersByEmail(eq("someEmail")))
+    when(userData.getActiveUsersByMrimLogins(eq(Collections.singletonList("someEmail"))))
         .thenReturn(Collections.singletonList(user));
     when(avatarService.getAvatarURL(eq(loggedInUser), eq(user)))
         .thenReturn(URI.create("http://localhost:8080/some_avatar_url"));
@@ -1115,9 +1211,8 @@ class MyteamServiceImplTest {
     verify(myteamApiClient)
         .sendMessageText(eq("someChatId"), eq(someFirstMessageInChatAfterCreating));
     verify(myteamEventsListener).publishEvent(any(JiraIssueViewEvent.class));
-    verify(userSearchService).findUsersByEmail(eq("someEmail"));
+    verify(userData).getActiveUsersByMrimLogins(eq(Collections.singletonList("someEmail")));
     verify(avatarService).getAvatarURL(eq(loggedInUser), eq(user));
-    verify(user).isActive();
     verify(i18nResolver)
         .getText(
             eq("ru.mail.jira.plugins.myteam.createChat.about.text"),
@@ -1167,4 +1262,13 @@ class MyteamServiceImplTest {
                 new UnirestParsingException(badOriginalBody, someInternalParsingException)));
     return Stream.of(Arguments.of(badResponse1), Arguments.of(badResponse2));
   }
+
+  private void runPipelineTasksOnCaller() {
+    when(notificationPipeline.enqueueOrDrop(anyString(), any(Runnable.class)))
+        .thenAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(1).run();
+              return true;
+            });
+  }
 }
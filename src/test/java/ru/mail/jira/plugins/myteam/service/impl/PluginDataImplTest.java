@@ -0,0 +1,86 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.jira.cluster.ClusterMessageConsumer;
+import com.atlassian.jira.cluster.ClusterMessagingService;
+import com.atlassian.sal.api.pluginsettings.PluginSettings;
+import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.mail.jira.plugins.myteam.commons.Const;
+
+@SuppressWarnings("NullAway")
+class PluginDataImplTest {
+  private static final String ENABLED_BY_DEFAULT = "ru.mail.jira.plugins.myteam:enabledByDefault";
+  private static final String EXCLUDING_PROJECT_IDS =
+      "ru.mail.jira.plugins.myteam:excludingProjectIds";
+
+  private PluginSettings pluginSettings;
+  private ClusterMessagingService clusterMessagingService;
+  private PluginDataImpl pluginData;
+
+  @BeforeEach
+  void setUp() {
+    pluginSettings = mock(PluginSettings.class);
+    PluginSettingsFactory pluginSettingsFactory = mock(PluginSettingsFactory.class);
+    when(pluginSettingsFactory.createGlobalSettings()).thenReturn(pluginSettings);
+    clusterMessagingService = mock(ClusterMessagingService.class);
+    pluginData = new PluginDataImpl(pluginSettingsFactory, clusterMessagingService);
+    pluginData.afterPropertiesSet();
+  }
+
+  @Test
+  void gettersReadStoreOnce() {
+    // GIVEN
+    when(pluginSettings.get(EXCLUDING_PROJECT_IDS)).thenReturn("10000,10001");
+
+    // WHEN
+    pluginData.isEnabledByDefault();
+    pluginData.getExcludingProjectIds();
+    Set<Long> excludingProjectIds = pluginData.getExcludingProjectIds();
+
+    // THEN
+    assertEquals(Set.of(10000L, 10001L), excludingProjectIds);
+    verify(pluginSettings, times(1)).get(EXCLUDING_PROJECT_IDS);
+  }
+
+  @Test
+  void setterUpdatesSnapshotAndNotifiesOtherNodes() {
+    // GIVEN
+    assertFalse(pluginData.isEnabledByDefault());
+    when(pluginSettings.get(ENABLED_BY_DEFAULT)).thenReturn("true");
+
+    // WHEN
+    pluginData.setEnabledByDefault(true);
+
+    // THEN
+    assertTrue(pluginData.isEnabledByDefault());
+    verify(pluginSettings).put(ENABLED_BY_DEFAULT, "true");
+    verify(clusterMessagingService).sendRemote(eq(Const.CLUSTER_MESSAGE_CHANNEL), anyString());
+  }
+
+  @Test
+  void messageFromOtherNodeReloadsSnapshot() {
+    // GIVEN
+    ArgumentCaptor<ClusterMessageConsumer> consumer =
+        ArgumentCaptor.forClass(ClusterMessageConsumer.class);
+    verify(clusterMessagingService)
+        .registerListener(eq(Const.CLUSTER_MESSAGE_CHANNEL), consumer.capture());
+    assertFalse(pluginData.isEnabledByDefault());
+    when(pluginSettings.get(ENABLED_BY_DEFAULT)).thenReturn("true");
+
+    // WHEN
+    consumer.getValue().receive(Const.CLUSTER_MESSAGE_CHANNEL, "settings", "node2");
+
+    // THEN
+    assertTrue(pluginData.isEnabledByDefault());
+  }
+}
@@ -0,0 +1,184 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.jira.bc.issue.IssueService;
+import com.atlassian.jira.timezone.TimeZoneManager;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.sal.api.message.I18nResolver;
+import com.atlassian.scheduler.JobRunner;
+import com.atlassian.scheduler.JobRunnerRequest;
+import com.atlassian.scheduler.SchedulerService;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.mail.jira.plugins.myteam.component.MessageFormatter;
+import ru.mail.jira.plugins.myteam.controller.dto.ReminderDto;
+import ru.mail.jira.plugins.myteam.db.model.Reminder;
+import ru.mail.jira.plugins.myteam.db.repository.ReminderRepository;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+@SuppressWarnings("NullAway")
+class ReminderServiceImplTest {
+  private static final String EMAIL = "user@example.org";
+
+  private SchedulerService schedulerService;
+  private IssueService issueService;
+  private ReminderRepository reminderRepository;
+  private IssueService.IssueResult issueResult;
+  private ReminderServiceImpl reminderService;
+  private JobRunner jobRunner;
+
+  @BeforeEach
+  void setUp() {
+    schedulerService = mock(SchedulerService.class);
+    TimeZoneManager timeZoneManager = mock(TimeZoneManager.class);
+    when(timeZoneManager.getDefaultTimezone()).thenReturn(TimeZone.getDefault());
+    issueService = mock(IssueService.class);
+    issueResult = mock(IssueService.IssueResult.class);
+    when(issueService.getIssue(any(), any())).thenReturn(issueResult);
+    reminderRepository = mock(ReminderRepository.class);
+    reminderService =
+        new ReminderServiceImpl(
+            schedulerService,
+            timeZoneManager,
+            mock(I18nResolver.class),
+            issueService,
+            mock(UserChatService.class),
+            mock(MessageFormatter.class),
+            reminderRepository);
+
+    reminderService.onStart();
+    ArgumentCaptor<JobRunner> jobRunnerCaptor = ArgumentCaptor.forClass(JobRunner.class);
+    verify(schedulerService).registerJobRunner(any(), jobRunnerCaptor.capture());
+    jobRunner = jobRunnerCaptor.getValue();
+  }
+
+  @AfterEach
+  void tearDown() {
+    reminderService.destroy();
+  }
+
+  @Test
+  void jobMarksDueRemindersScheduledAndSendsThem() {
+    // GIVEN
+    Reminder reminder = reminder(1, new Date());
+    when(reminderRepository.getNotScheduledRemindersBeforeDate(any(), any()))
+        .thenReturn(new Reminder[] {reminder});
+
+    // WHEN
+    runJob();
+
+    // THEN
+    verify(reminderRepository).markScheduled(eq(reminder), any());
+    verify(reminderRepository, timeout(1000)).findById(1);
+    verify(reminderRepository, timeout(1000)).deleteByIds(List.of(1));
+  }
+
+  @Test
+  void deleteReminderCancelsScheduledReminder() throws Exception {
+    // GIVEN
+    Reminder reminder = reminder(1, new Date(System.currentTimeMillis() + 200));
+    when(reminderRepository.getNotScheduledRemindersBeforeDate(any(), any()))
+        .thenReturn(new Reminder[] {reminder});
+    ApplicationUser user = mock(ApplicationUser.class);
+    when(user.getEmailAddress()).thenReturn(EMAIL);
+    runJob();
+
+    // WHEN
+    reminderService.deleteReminder(1, user);
+
+    // THEN
+    verify(reminderRepository).delete(reminder);
+    // the only lookup is made by delete, cancelled reminder is not sent
+    verify(reminderRepository, after(500).times(1)).findById(1);
+    verify(reminderRepository, never()).deleteByIds(any());
+  }
+
+  @Test
+  void sentRemindersAreDeletedInOneBatch() {
+    // GIVEN
+    Date date = new Date(System.currentTimeMillis() + 100);
+    Reminder first = reminder(1, date);
+    Reminder second = reminder(2, date);
+    Reminder third = reminder(3, date);
+    when(reminderRepository.getNotScheduledRemindersBeforeDate(any(), any()))
+        .thenReturn(new Reminder[] {first, second, third});
+
+    // WHEN
+    runJob();
+
+    // THEN
+    verify(reminderRepository, timeout(1000)).deleteByIds(List.of(1, 2, 3));
+    verify(reminderRepository, times(1)).deleteByIds(any());
+    verify(issueService, times(3)).getIssue(any(), eq("ISSUE-1"));
+  }
+
+  @Test
+  void reminderDueWithinMinuteIsScheduledByNodeWhereJobDidNotRun() throws Exception {
+    // GIVEN
+    when(issueResult.isValid()).thenReturn(true);
+    Date date = new Date(System.currentTimeMillis() + 100);
+    ReminderDto dto = ReminderDto.builder().issueKey("ISSUE-1").date(date).build();
+    Reminder reminder = reminder(1, date);
+    when(reminderRepository.createScheduled(eq(dto), any())).thenReturn(reminder);
+
+    // WHEN
+    reminderService.addReminder(dto, user());
+
+    // THEN
+    verify(reminderRepository, never()).create(any());
+    verify(reminderRepository, timeout(1000)).deleteByIds(List.of(1));
+  }
+
+  @Test
+  void reminderDueAfterMinuteIsLeftToJob() throws Exception {
+    // GIVEN
+    when(issueResult.isValid()).thenReturn(true);
+    Date date = new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2));
+    ReminderDto dto = ReminderDto.builder().issueKey("ISSUE-1").date(date).build();
+    Reminder reminder = reminder(1, date);
+    when(reminderRepository.create(dto)).thenReturn(reminder);
+
+    // WHEN
+    reminderService.addReminder(dto, user());
+
+    // THEN
+    verify(reminderRepository, never()).createScheduled(any(), any());
+  }
+
+  private void runJob() {
+    jobRunner.runJob(mock(JobRunnerRequest.class));
+  }
+
+  private static ApplicationUser user() {
+    ApplicationUser user = mock(ApplicationUser.class);
+    when(user.getEmailAddress()).thenReturn(EMAIL);
+    return user;
+  }
+
+  private Reminder reminder(int id, Date date) {
+    Reminder reminder = mock(Reminder.class);
+    when(reminder.getID()).thenReturn(id);
+    when(reminder.getDate()).thenReturn(date);
+    when(reminder.getUserEmail()).thenReturn(EMAIL);
+    when(reminder.getIssueKey()).thenReturn("ISSUE-1");
+    when(reminderRepository.findById(id)).thenReturn(Optional.of(reminder));
+    return reminder;
+  }
+}
@@ -0,0 +1,131 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.CommentingIssueState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.BotState;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.states.base.EmptyState;
+import ru.mail.jira.plugins.myteam.service.BotStateStore;
+
+class StateManagerImplTest {
+  private static final String CHAT_ID = "user@example.org";
+
+  private final StateManagerImpl stateManager = new StateManagerImpl(3, 100, 60);
+
+  @Test
+  void setStateDropsOldestStatesWhenMaxDepthExceeded() {
+    // GIVEN
+    BotState first = new EmptyState();
+    BotState second = new EmptyState();
+    BotState third = new EmptyState();
+    BotState fourth = new EmptyState();
+
+    // WHEN
+    stateManager.setState(CHAT_ID, first);
+    stateManager.setState(CHAT_ID, second);
+    stateManager.setState(CHAT_ID, third);
+    stateManager.setState(CHAT_ID, fourth);
+    stateManager.revertState(CHAT_ID);
+    stateManager.revertState(CHAT_ID);
+    stateManager.revertState(CHAT_ID);
+
+    // THEN
+    assertSame(second, stateManager.getLastState(CHAT_ID));
+    assertNull(stateManager.getPrevState(CHAT_ID));
+  }
+
+  @Test
+  void setStateWithDeletePreviousReplacesStack() {
+    // GIVEN
+    BotState first = new EmptyState();
+    BotState second = new EmptyState();
+    stateManager.setState(CHAT_ID, first);
+
+    // WHEN
+    stateManager.setState(CHAT_ID, second, true);
+
+    // THEN
+    assertSame(second, stateManager.getLastState(CHAT_ID));
+    assertNull(stateManager.getPrevState(CHAT_ID));
+    assertEquals(1, stateManager.getAverageStackDepth());
+  }
+
+  @Test
+  void deleteStatesRemovesChat() {
+    // GIVEN
+    stateManager.setState(CHAT_ID, new EmptyState());
+
+    // WHEN
+    stateManager.deleteStates(CHAT_ID);
+
+    // THEN
+    assertNull(stateManager.getLastState(CHAT_ID));
+    assertEquals(0, stateManager.getAverageStackDepth());
+  }
+
+  @Test
+  void sharedStatesAreAvailableOnAnotherNode() {
+    // GIVEN
+    InMemoryBotStateStore store = new InMemoryBotStateStore();
+    StateManagerImpl firstNode = new StateManagerImpl(3, 100, 60, store);
+    StateManagerImpl secondNode = new StateManagerImpl(3, 100, 60, store);
+    BotState first = new EmptyState();
+    BotState second = new CommentingIssueState("TEST-1");
+
+    // WHEN
+    firstNode.setState(CHAT_ID, first);
+    firstNode.setState(CHAT_ID, second);
+    secondNode.revertState(CHAT_ID);
+
+    // THEN
+    assertSame(first, secondNode.getLastState(CHAT_ID));
+    assertEquals(List.of(first), store.states.get(CHAT_ID));
+  }
+
+  @Test
+  void clearLocalStatesReloadsStatesFromStore() {
+    // GIVEN
+    InMemoryBotStateStore store = new InMemoryBotStateStore();
+    StateManagerImpl firstNode = new StateManagerImpl(3, 100, 60, store);
+    StateManagerImpl secondNode = new StateManagerImpl(3, 100, 60, store);
+    BotState first = new EmptyState();
+    BotState second = new CommentingIssueState("TEST-1");
+    firstNode.setState(CHAT_ID, first);
+    secondNode.setState(CHAT_ID, second);
+
+    // WHEN
+    firstNode.clearLocalStates();
+
+    // THEN
+    assertSame(second, firstNode.getLastState(CHAT_ID));
+    assertSame(first, firstNode.getPrevState(CHAT_ID));
+  }
+
+  private static class InMemoryBotStateStore implements BotStateStore {
+    private final Map<String, List<BotState>> states = new ConcurrentHashMap<>();
+
+    @Override
+    @Nullable
+    public List<BotState> load(String chatId, long maxIdleMinutes) {
+      return states.get(chatId);
+    }
+
+    @Override
+    public void save(String chatId, List<BotState> states) {
+      this.states.put(chatId, List.copyOf(states));
+    }
+
+    @Override
+    public void delete(String chatId) {
+      states.remove(chatId);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.subscription;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.user.ApplicationUser;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscription;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscriptionType;
+import ru.mail.jira.plugins.myteam.db.model.RecipientsType;
+import ru.mail.jira.plugins.myteam.db.repository.FilterSubscriptionRepository;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class FilterSubscriptionBatchRunnerTest {
+  private FilterSubscriptionRepository filterSubscriptionRepository;
+  private ApplicationUser user;
+  private FilterSubscriptionSender sender;
+  private final AtomicInteger searchesCount = new AtomicInteger();
+  private FilterSubscriptionBatchRunner batchRunner;
+
+  @BeforeEach
+  void setUp() {
+    filterSubscriptionRepository = mock(FilterSubscriptionRepository.class);
+    user = mock(ApplicationUser.class);
+    when(user.getKey()).thenReturn("user");
+
+    sender =
+        new FilterSubscriptionSender() {
+          @Override
+          public void sendMyteamNotifications(
+              FilterSubscription subscription, FilterSubscriptionSearches searches) {
+            try {
+              searches.search(
+                  subscription,
+                  user,
+                  10,
+                  lastRun -> {
+                    searchesCount.incrementAndGet();
+                    return mock(SearchResults.class);
+                  });
+            } catch (Exception e) {
+              throw new IllegalStateException(e);
+            }
+          }
+
+          @Override
+          public RecipientsType getRecipientType() {
+            return RecipientsType.USER;
+          }
+        };
+    batchRunner =
+        new FilterSubscriptionBatchRunner(
+            filterSubscriptionRepository, new FilterSubscriptionResolver(List.of(sender)), 200, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    batchRunner.destroy();
+  }
+
+  @Test
+  void subscriptionsOfSameFilterInOneMinuteShareSearch() throws Exception {
+    // GIVEN
+    Date lastRun = new Date(1_000_000L);
+    mockSubscription(1, 10000L, lastRun);
+    mockSubscription(2, 10000L, lastRun);
+    mockSubscription(3, 20000L, lastRun);
+    Date firedAt = new Date(60_000_000L);
+
+    // WHEN
+    batchRunner.submit(1, firedAt);
+    batchRunner.submit(2, new Date(firedAt.getTime() + 500));
+    batchRunner.submit(3, new Date(firedAt.getTime() + 900));
+    awaitSlots(1);
+
+    // THEN
+    assertEquals(2, searchesCount.get());
+    assertEquals(1, batchRunner.getSlotsCount());
+    assertEquals(3, batchRunner.getSubscriptionsCount());
+    assertEquals(2, batchRunner.getGroupsCount());
+    assertEquals(2, batchRunner.getSearchesCount());
+    assertEquals(3, batchRunner.getSearchRequestsCount());
+    assertEquals(1, batchRunner.getLastSlots().size());
+    verify(filterSubscriptionRepository, times(3)).updateLastRun(anyInt(), any());
+  }
+
+  @Test
+  void subscriptionsWithDifferentLastRunAreSearchedSeparately() throws Exception {
+    // GIVEN
+    mockSubscription(1, 10000L, new Date(1_000_000L));
+    mockSubscription(2, 10000L, new Date(2_000_000L));
+
+    // WHEN
+    batchRunner.submit(1, new Date(60_000_000L));
+    batchRunner.submit(2, new Date(60_000_000L));
+    awaitSlots(1);
+
+    // THEN
+    assertEquals(2, searchesCount.get());
+    assertEquals(2, batchRunner.getGroupsCount());
+  }
+
+  @Test
+  void destroySendsSubscriptionsWaitingForBatch() {
+    // GIVEN
+    mockSubscription(1, 10000L, new Date(1_000_000L));
+    FilterSubscriptionBatchRunner delayedRunner =
+        new FilterSubscriptionBatchRunner(
+            filterSubscriptionRepository,
+            new FilterSubscriptionResolver(List.of(sender)),
+            60_000,
+            2);
+    delayedRunner.submit(1, new Date(60_000_000L));
+
+    // WHEN
+    delayedRunner.destroy();
+
+    // THEN
+    assertEquals(1, searchesCount.get());
+    assertEquals(1, delayedRunner.getSlotsCount());
+  }
+
+  private void mockSubscription(int id, long filterId, Date lastRun) {
+    FilterSubscription subscription = mock(FilterSubscription.class);
+    when(subscription.getID()).thenReturn(id);
+    when(subscription.getFilterId()).thenReturn(filterId);
+    when(subscription.getType()).thenReturn(FilterSubscriptionType.UPDATED);
+    when(subscription.getLastRun()).thenReturn(lastRun);
+    when(subscription.getRecipientsType()).thenReturn(RecipientsType.USER);
+    when(filterSubscriptionRepository.get(id)).thenReturn(subscription);
+  }
+
+  private void awaitSlots(int slotsCount) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (batchRunner.getSlotsCount() < slotsCount && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/* (C)2024 */
+package ru.mail.jira.plugins.myteam.service.subscription;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.atlassian.crowd.embedded.api.Group;
+import com.atlassian.jira.bc.JiraServiceContext;
+import com.atlassian.jira.bc.filter.SearchRequestService;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.search.SearchRequest;
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.security.PermissionManager;
+import com.atlassian.jira.security.groups.GroupManager;
+import com.atlassian.jira.sharing.ShareManager;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.user.util.UserManager;
+import com.atlassian.query.Query;
+import com.atlassian.query.clause.AndClause;
+import com.atlassian.query.clause.Clause;
+import com.atlassian.query.clause.TerminalClauseImpl;
+import com.atlassian.query.operand.FunctionOperand;
+import com.atlassian.query.operator.Operator;
+import com.atlassian.sal.api.message.I18nResolver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.mail.jira.plugins.myteam.bot.rulesengine.rules.commands.service.CommonButtonsService;
+import ru.mail.jira.plugins.myteam.component.MessageFormatter;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscription;
+import ru.mail.jira.plugins.myteam.db.model.FilterSubscriptionType;
+import ru.mail.jira.plugins.myteam.service.IssueService;
+import ru.mail.jira.plugins.myteam.service.UserChatService;
+
+@SuppressWarnings({"NullAway", "unchecked"})
+class FilterSubscriptionByGroupSenderTest {
+  private static final String GROUP_NAME = "developers";
+  private static final Clause PROJECT_CLAUSE =
+      new TerminalClauseImpl("project", Operator.EQUALS, "TEST");
+
+  private GroupManager groupManager;
+  private SearchRequestService searchRequestService;
+  private PermissionManager permissionManager;
+  private ShareManager shareManager;
+  private IssueService issueService;
+  private UserChatService userChatService;
+  private MessageFormatter messageFormatter;
+  private FilterSubscription subscription;
+  private SearchRequest searchRequest;
+  private Query query;
+  private ApplicationUser creator;
+  private JiraAuthenticationContext jiraAuthenticationContext;
+  private FilterSubscriptionByGroupSender sender;
+
+  @BeforeEach
+  void setUp() {
+    groupManager = mock(GroupManager.class);
+    searchRequestService = mock(SearchRequestService.class);
+    permissionManager = mock(PermissionManager.class);
+    shareManager = mock(ShareManager.class);
+    issueService = mock(IssueService.class);
+    userChatService = mock(UserChatService.class);
+    messageFormatter = mock(MessageFormatter.class);
+    when(userChatService.getMessageFormatter()).thenReturn(messageFormatter);
+    when(messageFormatter.formatListFilterSubscription(any(), any(), any(), any()))
+        .thenReturn("issues");
+
+    creator = user("creator");
+    UserManager userManager = mock(UserManager.class);
+    when(userManager.getUserByKey("creator")).thenReturn(creator);
+
+    subscription = mock(FilterSubscription.class);
+    when(subscription.getRecipients()).thenReturn(GROUP_NAME);
+    when(subscription.getUserKey()).thenReturn("creator");
+    when(subscription.getFilterId()).thenReturn(10000L);
+    when(subscription.getType()).thenReturn(FilterSubscriptionType.ALL);
+
+    query = mock(Query.class);
+    searchRequest = mock(SearchRequest.class);
+    when(searchRequest.getQuery()).thenReturn(query);
+    when(searchRequest.getOwner()).thenReturn(creator);
+    when(searchRequestService.getFilter(any(JiraServiceContext.class), anyLong()))
+        .thenReturn(searchRequest);
+    when(shareManager.isSharedWith(any(ApplicationUser.class), any())).thenReturn(true);
+    jiraAuthenticationContext = mock(JiraAuthenticationContext.class);
+
+    sender =
+        new FilterSubscriptionByGroupSender(
+            jiraAuthenticationContext,
+            mock(I18nResolver.class),
+            groupManager,
+            userManager,
+            searchRequestService,
+            permissionManager,
+            shareManager,
+            issueService,
+            userChatService,
+            mock(CommonButtonsService.class),
+            true);
+  }
+
+  @Test
+  void membersShareOneSearchAndMessage() throws Exception {
+    // GIVEN
+    when(query.getWhereClause()).thenReturn(PROJECT_CLAUSE);
+    Issue first = issue(1L);
+    Issue second = issue(2L);
+    mockSearchResults(first, second);
+    ApplicationUser developer = user("developer");
+    ApplicationUser tester = user("tester");
+    ApplicationUser guest = user("guest");
+    mockGroup(developer, tester, guest);
+    when(permissionManager.hasPermission(
+            eq(ProjectPermissions.BROWSE_PROJECTS), any(Issue.class), any(ApplicationUser.class)))
+        .thenReturn(true);
+    when(permissionManager.hasPermission(ProjectPermissions.BROWSE_PROJECTS, second, guest))
+        .thenReturn(false);
+
+    // WHEN
+    sender.sendMyteamNotifications(subscription);
+
+    // THEN
+    verify(issueService, times(1)).searchByJqlQuery(any(), any(), anyInt(), anyInt());
+    verify(messageFormatter, times(2)).formatListFilterSubscription(any(), any(), any(), any());
+    verify(userChatService, times(3)).sendMessageText(anyString(), eq("issues"));
+    assertEquals(1, sender.getSearchesCount());
+  }
+
+  @Test
+  void sharedMessageIsRenderedInLanguageOfMember() throws Exception {
+    // GIVEN
+    when(query.getWhereClause()).thenReturn(PROJECT_CLAUSE);
+    mockSearchResults(issue(1L));
+    ApplicationUser developer = user("developer");
+    ApplicationUser tester = user("tester");
+    ApplicationUser analyst = user("analyst");
+    mockGroup(developer, tester, analyst);
+    when(permissionManager.hasPermission(
+            eq(ProjectPermissions.BROWSE_PROJECTS), any(Issue.class), any(ApplicationUser.class)))
+        .thenReturn(true);
+    Map<ApplicationUser, Locale> locales =
+        Map.of(developer, Locale.ENGLISH, tester, new Locale("ru"), analyst, Locale.ENGLISH);
+    AtomicReference<ApplicationUser> loggedInUser = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              loggedInUser.set(invocation.getArgument(0));
+              return null;
+            })
+        .when(jiraAuthenticationContext)
+        .setLoggedInUser(any());
+    when(jiraAuthenticationContext.getLocale())
+        .thenAnswer(invocation -> locales.get(loggedInUser.get()));
+    List<Locale> renderLocales = new ArrayList<>();
+    when(messageFormatter.formatListFilterSubscription(any(), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              renderLocales.add(locales.get(loggedInUser.get()));
+              return "issues";
+            });
+
+    // WHEN
+    sender.sendMyteamNotifications(subscription);
+
+    // THEN
+    assertEquals(List.of(Locale.ENGLISH, new Locale("ru")), renderLocales);
+    verify(userChatService, times(3)).sendMessageText(anyString(), eq("issues"));
+  }
+
+  @Test
+  void onlyMembersNotNotifiedBeforeFailureAreSearchedAgain() throws Exception {
+    // GIVEN
+    when(query.getWhereClause()).thenReturn(PROJECT_CLAUSE);
+    Issue first = issue(1L);
+    mockSearchResults(first);
+    ApplicationUser developer = user("developer");
+    ApplicationUser tester = user("tester");
+    ApplicationUser guest = user("guest");
+    mockGroup(developer, tester, guest);
+    when(permissionManager.hasPermission(
+            eq(ProjectPermissions.BROWSE_PROJECTS), any(Issue.class), any(ApplicationUser.class)))
+        .thenReturn(true);
+    when(permissionManager.hasPermission(ProjectPermissions.BROWSE_PROJECTS, first, guest))
+        .thenThrow(new IllegalStateException("permission scheme is broken"));
+
+    // WHEN
+    sender.sendMyteamNotifications(subscription);
+
+    // THEN
+    verify(issueService, times(2)).searchByJqlQuery(any(), any(), anyInt(), anyInt());
+    verify(userChatService).sendMessageText("developer@example.org", "issues");
+    verify(userChatService).sendMessageText("tester@example.org", "issues");
+    verify(userChatService).sendMessageText("guest@example.org", "issues");
+  }
+
+  @Test
+  void filterWithCurrentUserIsSearchedPerMember() throws Exception {
+    // GIVEN
+    when(query.getWhereClause())
+        .thenReturn(
+            new TerminalClauseImpl(
+                "assignee", Operator.EQUALS, new FunctionOperand("currentUser")));
+    mockSearchResults(issue(1L));
+    mockGroup(user("developer"), user("tester"));
+
+    // WHEN
+    sender.sendMyteamNotifications(subscription);
+
+    // THEN
+    verify(issueService, times(2)).searchByJqlQuery(any(), any(), anyInt(), anyInt());
+    verify(userChatService, times(2)).sendMessageText(anyString(), eq("issues"));
+    assertEquals(2, sender.getSearchesCount());
+  }
+
+  @Test
+  void filterWithUnknownFunctionIsSearchedPerMember() throws Exception {
+    // GIVEN
+    when(query.getWhereClause())
+        .thenReturn(
+            new AndClause(
+                PROJECT_CLAUSE,
+                new TerminalClauseImpl(
+                    "issue", Operator.IN, new FunctionOperand("myOpenIssues", "TEST"))));
+    mockSearchResults(issue(1L));
+    mockGroup(user("developer"), user("tester"));
+
+    // WHEN
+    sender.sendMyteamNotifications(subscription);
+
+    // THEN
+    verify(issueService, times(2)).searchByJqlQuery(any(), any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void filterReferencingAnotherFilterIsSearchedPerMember() throws Exception {
+    // GIVEN
+    when(query.getWhereClause())
+        .thenReturn(
+            new AndClause(
+                PROJECT_CLAUSE, new TerminalClauseImpl("filter", Operator.EQUALS, 10001L)));
+    mockSearchResults(issue(1L));
+    mockGroup(user("developer"), user("tester"));
+
+    // WHEN
+    sender.sendMyteamNotifications(subscription);
+
+    // THEN
+    verify(issueService, times(2)).searchByJqlQuery(any(), any(), anyInt(), anyInt());
+  }
+
+  private void mockGroup(ApplicationUser... members) {
+    Group group = mock(Group.class);
+    when(groupManager.getGroup(GROUP_NAME)).thenReturn(group);
+    when(groupManager.getUsersInGroup(group)).thenReturn(Arrays.asList(members));
+  }
+
+  private void mockSearchResults(Issue... issues) throws Exception {
+    List<Issue> results = Arrays.asList(issues);
+    SearchResults<Issue> searchResults = mock(SearchResults.class);
+    when(searchResults.getResults()).thenReturn(results);
+    when(searchResults.getTotal()).thenReturn(results.size());
+    when(issueService.searchByJqlQuery(any(), any(), anyInt(), anyInt())).thenReturn(searchResults);
+  }
+
+  private static Issue issue(long id) {
+    Issue issue = mock(Issue.class);
+    when(issue.getId()).thenReturn(id);
+    return issue;
+  }
+
+  private static ApplicationUser user(String key) {
+    ApplicationUser user = mock(ApplicationUser.class);
+    when(user.getKey()).thenReturn(key);
+    when(user.getEmailAddress()).thenReturn(key + "@example.org");
+    return user;
+  }
+}